@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.issuetracker;
+
+import sonia.scm.issuetracker.api.Content;
+import sonia.scm.issuetracker.api.IssueReferencingObject;
+import sonia.scm.repository.Person;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryTestData;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates synthetic commit messages and pull request descriptions for the benchmarks. The texts are built from
+ * the vocabulary of typical commit messages, with a subject line, paragraphs, bullet lists and issue keys which are
+ * spread evenly over the whole text. The same seed gives always the same corpus, so results of different runs can be
+ * compared.
+ */
+public final class Corpus {
+
+  public static final long SEED = 42;
+
+  private static final String[] WORDS = {
+    "fix", "add", "remove", "refactor", "the", "handling", "of", "null", "values", "in", "repository", "service",
+    "update", "dependency", "to", "version", "improve", "performance", "for", "large", "pushes", "and", "cleanup",
+    "tests", "because", "review", "comments", "were", "addressed", "this", "pull", "request", "changes", "branches",
+    "a", "bug", "import", "also", "we", "documentation", "new", "api", "configuration", "migration", "with"
+  };
+
+  private static final String[] KEY_WORDS = {"fixes", "closes", "resolves", "see", "refs"};
+
+  private final Random random;
+
+  private Corpus(long seed) {
+    this.random = new Random(seed);
+  }
+
+  /**
+   * Creates a new corpus with the default seed.
+   *
+   * @return new corpus
+   */
+  public static Corpus create() {
+    return new Corpus(SEED);
+  }
+
+  /**
+   * Returns issue keys in the form of jira keys, starting with {@code SCM-100}.
+   *
+   * @param count number of keys
+   * @return list of keys
+   */
+  public static List<String> keys(int count) {
+    List<String> keys = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      keys.add("SCM-" + (100 + i));
+    }
+    return keys;
+  }
+
+  /**
+   * Creates a text with at least the given length, which contains each of the given keys exactly once.
+   *
+   * @param length minimum length of the text
+   * @param keys issue keys which are referenced by the text
+   * @return generated text
+   */
+  public String text(int length, List<String> keys) {
+    StringBuilder builder = new StringBuilder(length + 64);
+    sentence(builder, 8);
+    builder.append("\n\n");
+
+    int inserted = 0;
+    while (builder.length() < length || inserted < keys.size()) {
+      if (inserted < keys.size() && builder.length() >= (long) (inserted + 1) * length / (keys.size() + 1)) {
+        builder.append(KEY_WORDS[random.nextInt(KEY_WORDS.length)]).append(' ').append(keys.get(inserted++));
+        builder.append(random.nextBoolean() ? ". " : "\n");
+      } else if (random.nextInt(8) == 0) {
+        builder.append("\n- ");
+      } else {
+        sentence(builder, 4 + random.nextInt(12));
+        builder.append(random.nextInt(4) == 0 ? "\n\n" : " ");
+      }
+    }
+    return builder.toString();
+  }
+
+  private void sentence(StringBuilder builder, int words) {
+    for (int i = 0; i < words; i++) {
+      String word = WORDS[random.nextInt(WORDS.length)];
+      if (i == 0) {
+        builder.append(Character.toUpperCase(word.charAt(0))).append(word, 1, word.length());
+      } else {
+        builder.append(' ').append(word);
+      }
+    }
+    builder.append('.');
+  }
+
+  /**
+   * Creates changesets with generated commit messages.
+   *
+   * @param count number of changesets
+   * @param length minimum length of each message
+   * @param keys issue keys which are referenced by each message
+   * @return list of changesets
+   */
+  public List<IssueReferencingObject> changesets(int count, int length, List<String> keys) {
+    Repository repository = repository();
+    List<IssueReferencingObject> objects = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      String message = text(length, keys);
+      objects.add(object(repository, "changeset", id(i), List.of(new Content("description", message))));
+    }
+    return objects;
+  }
+
+  /**
+   * Creates a pull request with generated title and description.
+   *
+   * @param length minimum length of the description
+   * @param keys issue keys which are referenced by the description
+   * @return pull request
+   */
+  public IssueReferencingObject pullRequest(int length, List<String> keys) {
+    List<Content> content = List.of(
+      new Content("title", text(40, Collections.emptyList())),
+      new Content("description", text(length, keys))
+    );
+    return object(repository(), "pr", "42", content);
+  }
+
+  private String id(int index) {
+    return String.format("%08x%032x", index, random.nextLong());
+  }
+
+  private static Repository repository() {
+    Repository repository = RepositoryTestData.createHeartOfGold();
+    repository.setId("hog");
+    return repository;
+  }
+
+  private static IssueReferencingObject object(Repository repository, String type, String id, List<Content> content) {
+    return new IssueReferencingObject(
+      repository,
+      type,
+      id,
+      Person.toPerson("Trillian <trillian@hitchhiker.com>"),
+      Collections.emptyMap(),
+      Instant.now(),
+      content,
+      "https://hitchhiker.com/scm/repo/hitchhiker/hog/code/changeset/" + id,
+      true,
+      id
+    );
+  }
+}
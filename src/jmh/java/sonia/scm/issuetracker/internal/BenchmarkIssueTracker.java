@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.issuetracker.internal;
+
+import sonia.scm.issuetracker.IssueLinkFactory;
+import sonia.scm.issuetracker.IssueMatcher;
+import sonia.scm.issuetracker.api.Content;
+import sonia.scm.issuetracker.api.IssueReferencingObject;
+import sonia.scm.issuetracker.api.IssueTracker;
+import sonia.scm.issuetracker.spi.MatchingIssueTracker;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Issue tracker which only finds issues, it is used by the benchmarks in place of the trackers of real plugins.
+ */
+final class BenchmarkIssueTracker implements MatchingIssueTracker {
+
+  private final String name;
+  private final IssueMatcher matcher;
+  private final IssueLinkFactory linkFactory;
+
+  private BenchmarkIssueTracker(String name, IssueMatcher matcher, IssueLinkFactory linkFactory) {
+    this.name = name;
+    this.matcher = matcher;
+    this.linkFactory = linkFactory;
+  }
+
+  /**
+   * Returns trackers with the key patterns of common issue trackers.
+   *
+   * @param count number of trackers, at most 5
+   * @return list of trackers
+   */
+  static List<IssueTracker> trackers(int count) {
+    List<IssueTracker> all = List.of(
+      create("jira", "\\b([A-Z][A-Z0-9]+-\\d+)", 0),
+      create("redmine", "\\B(#\\d+)", 0),
+      create("github", "(?<![\\w/])GH-(\\d+)", 0),
+      create("bugzilla", "\\bbug\\s*(\\d+)", Pattern.CASE_INSENSITIVE),
+      create("youtrack", "\\b(YT-\\d+)", 0)
+    );
+    return all.subList(0, count);
+  }
+
+  static BenchmarkIssueTracker create(String name, String regex, int flags) {
+    Pattern pattern = Pattern.compile(regex, flags);
+    IssueMatcher matcher = new IssueMatcher() {
+      @Override
+      public Pattern getKeyPattern() {
+        return pattern;
+      }
+
+      @Override
+      public String getKey(Matcher matcher) {
+        return matcher.group();
+      }
+    };
+    IssueLinkFactory linkFactory = key -> "https://" + name + ".hitchhiker.com/" + key;
+    return new BenchmarkIssueTracker(name, matcher, linkFactory);
+  }
+
+  @Override
+  public IssueMatcher getMatcher() {
+    return matcher;
+  }
+
+  @Override
+  public IssueLinkFactory getLinkFactory() {
+    return linkFactory;
+  }
+
+  @Override
+  public String getName() {
+    return name;
+  }
+
+  @Override
+  public void process(IssueReferencingObject object) {
+    // not needed for benchmark
+  }
+
+  @Override
+  public Map<String, String> findIssues(IssueReferencingObject object) {
+    Map<String, String> issues = new LinkedHashMap<>();
+    for (Content content : object.getContent()) {
+      Matcher m = matcher.getKeyPattern().matcher(content.getValue());
+      while (m.find()) {
+        String key = matcher.getKey(m);
+        issues.put(key, linkFactory.createLink(key));
+      }
+    }
+    return issues;
+  }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.issuetracker.internal;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import sonia.scm.issuetracker.Corpus;
+import sonia.scm.issuetracker.api.IssueReferencingObject;
+import sonia.scm.issuetracker.api.IssueTracker;
+import sonia.scm.issuetracker.spi.IssueTrackerProvider;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Finds the issues of a push with 100 changesets through the {@link CompositeIssueTracker}, which answers repeated
+ * lookups from the cache of found issues, and directly with the {@link IssueKeyScanner} of the repository.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CompositeIssueTrackerBenchmark {
+
+  private static final int PUSH_SIZE = 100;
+
+  @Param({"1", "5"})
+  private int trackerCount;
+
+  @Param({"80", "2048", "65536"})
+  private int length;
+
+  @Param({"0", "10", "200"})
+  private int keyCount;
+
+  private IssueTrackerFactory factory;
+  private CompositeIssueTracker tracker;
+  private List<IssueReferencingObject> push;
+
+  @Setup
+  public void setUp() {
+    Set<IssueTrackerProvider> providers = new LinkedHashSet<>();
+    for (IssueTracker issueTracker : BenchmarkIssueTracker.trackers(trackerCount)) {
+      providers.add((builder, repository) -> Optional.of(issueTracker));
+    }
+    factory = new IssueTrackerFactory(null, providers);
+    tracker = new CompositeIssueTracker(factory);
+    push = Corpus.create().changesets(PUSH_SIZE, length, Corpus.keys(keyCount));
+  }
+
+  @Benchmark
+  public void findIssues(Blackhole blackhole) {
+    for (IssueReferencingObject object : push) {
+      blackhole.consume(tracker.findIssues(object));
+    }
+  }
+
+  @Benchmark
+  public void scan(Blackhole blackhole) {
+    IssueKeyScanner scanner = factory.scanner(push.get(0).getRepository());
+    for (IssueReferencingObject object : push) {
+      blackhole.consume(scanner.findIssues(object));
+    }
+  }
+}
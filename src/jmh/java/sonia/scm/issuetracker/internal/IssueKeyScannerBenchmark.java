@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.issuetracker.internal;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import sonia.scm.issuetracker.api.Content;
+import sonia.scm.issuetracker.api.IssueReferencingObject;
+import sonia.scm.issuetracker.api.IssueTracker;
+import sonia.scm.repository.Person;
+import sonia.scm.repository.RepositoryTestData;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the {@link IssueKeyScanner} with the loop over all trackers, which was used before.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IssueKeyScannerBenchmark {
+
+  private static final String[] WORDS = {
+    "fix", "add", "remove", "refactor", "the", "handling", "of", "null", "values", "in", "repository",
+    "service", "update", "dependency", "to", "version", "improve", "performance", "for", "large", "pushes",
+    "and", "cleanup", "tests", "because", "review", "comments", "were", "addressed"
+  };
+
+  @Param({"1", "5"})
+  private int trackerCount;
+
+  @Param({"80", "1000"})
+  private int messageLength;
+
+  private List<IssueTracker> trackers;
+  private IssueKeyScanner scanner;
+  private List<IssueReferencingObject> objects;
+
+  @Setup
+  public void setUp() {
+    trackers = BenchmarkIssueTracker.trackers(trackerCount);
+    scanner = IssueKeyScanner.create(trackers);
+    objects = corpus(new Random(42), 100);
+  }
+
+  @Benchmark
+  public void scanner(Blackhole blackhole) {
+    for (IssueReferencingObject object : objects) {
+      blackhole.consume(scanner.findIssues(object));
+    }
+  }
+
+  @Benchmark
+  public void separateTrackers(Blackhole blackhole) {
+    for (IssueReferencingObject object : objects) {
+      Map<String, String> issues = new LinkedHashMap<>();
+      for (IssueTracker tracker : trackers) {
+        issues.putAll(tracker.findIssues(object));
+      }
+      blackhole.consume(issues);
+    }
+  }
+
+  private List<IssueReferencingObject> corpus(Random random, int size) {
+    List<IssueReferencingObject> corpus = new ArrayList<>();
+    for (int i = 0; i < size; i++) {
+      corpus.add(object(String.valueOf(i), message(random)));
+    }
+    return corpus;
+  }
+
+  private String message(Random random) {
+    StringBuilder builder = new StringBuilder();
+    while (builder.length() < messageLength) {
+      int dice = random.nextInt(40);
+      if (dice == 0) {
+        builder.append("SCM-").append(random.nextInt(5000));
+      } else if (dice == 1) {
+        builder.append('#').append(random.nextInt(5000));
+      } else if (dice == 2) {
+        builder.append(".\n");
+      } else {
+        builder.append(WORDS[random.nextInt(WORDS.length)]);
+      }
+      builder.append(' ');
+    }
+    return builder.toString();
+  }
+
+  private IssueReferencingObject object(String id, String message) {
+    return new IssueReferencingObject(
+      RepositoryTestData.createHeartOfGold(),
+      "changeset",
+      id,
+      Person.toPerson("Trillian"),
+      Collections.emptyMap(),
+      Instant.now(),
+      Collections.singletonList(new Content("description", message)),
+      "https://hitchhiker.com/scm",
+      true,
+      message
+    );
+  }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.issuetracker.internal.resubmit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adds to a full {@link EvictingQueue}, which has to evict the oldest element for every new one, and iterates over
+ * all elements like the resubmit does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EvictingQueueBenchmark {
+
+  @Param({"100", "1000"})
+  private int maxSize;
+
+  private EvictingQueue<QueuedComment> queue;
+  private QueuedComment[] comments;
+  private int index;
+
+  @Setup
+  public void setUp() {
+    comments = new QueuedComment[maxSize * 2];
+    for (int i = 0; i < comments.length; i++) {
+      comments[i] = new QueuedComment("hog", "jira", "SCM-" + i, "Referenced in changeset " + i);
+    }
+    queue = EvictingQueue.create(maxSize);
+    for (int i = 0; i < maxSize; i++) {
+      queue.add(comments[i]);
+    }
+  }
+
+  @Benchmark
+  public boolean add() {
+    index = (index + 1) % comments.length;
+    return queue.add(comments[index]);
+  }
+
+  @Benchmark
+  public void iterate(Blackhole blackhole) {
+    for (QueuedComment comment : queue) {
+      blackhole.consume(comment);
+    }
+  }
+}
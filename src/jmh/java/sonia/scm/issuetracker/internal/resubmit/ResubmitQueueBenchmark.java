@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.issuetracker.internal.resubmit;
+
+import com.google.common.io.MoreFiles;
+import com.google.common.io.RecursiveDeleteOption;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import sonia.scm.config.ScmConfiguration;
+import sonia.scm.issuetracker.Corpus;
+import sonia.scm.store.InMemoryDataStoreFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Appends comments, which could not be sent, to the resubmit queue. The queue uses the in memory data store and a
+ * notification service which discards the notifications, so that no mock records the invocations of the benchmark.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResubmitQueueBenchmark {
+
+  private static final int QUEUE_SIZE = 1000;
+  private static final int COMMENTS = 1000;
+
+  @Param({"memory", "file"})
+  private String journal;
+
+  @Param({"80", "2048", "65536"})
+  private int length;
+
+  private Path directory;
+  private ResubmitQueue queue;
+  private List<QueuedComment> comments;
+  private int index;
+
+  @Setup
+  public void setUp() throws IOException {
+    ResubmitJournal resubmitJournal = ResubmitJournal.inMemory();
+    if ("file".equals(journal)) {
+      directory = Files.createTempDirectory("resubmit-journal");
+      resubmitJournal = new ResubmitJournal(directory);
+    }
+    queue = new ResubmitQueue(
+      new InMemoryDataStoreFactory(), new DiscardingNotificationService(), resubmitJournal, QUEUE_SIZE, 100
+    );
+
+    Corpus corpus = Corpus.create();
+    comments = new ArrayList<>(COMMENTS);
+    for (int i = 0; i < COMMENTS; i++) {
+      String text = corpus.text(length, Corpus.keys(1));
+      comments.add(new QueuedComment("hog", "jira", "SCM-" + i, text));
+    }
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    if (directory != null) {
+      MoreFiles.deleteRecursively(directory, RecursiveDeleteOption.ALLOW_INSECURE);
+    }
+  }
+
+  @Benchmark
+  public void append() {
+    index = (index + 1) % comments.size();
+    queue.append(comments.get(index));
+  }
+
+  private static class DiscardingNotificationService extends NotificationService {
+
+    private DiscardingNotificationService() {
+      super(null, new ScmConfiguration(), null, null, Duration.ZERO);
+    }
+
+    @Override
+    public void notifyComment(QueuedComment comment) {
+      // notifications are not part of the benchmark
+    }
+
+    @Override
+    public void notifyResubmit(String issueTracker, Collection<QueuedComment> remove, Collection<QueuedComment> requeue) {
+      // notifications are not part of the benchmark
+    }
+
+    @Override
+    public void close() {
+      // nothing to stop
+    }
+  }
+}
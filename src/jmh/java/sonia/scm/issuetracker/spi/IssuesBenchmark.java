@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.issuetracker.spi;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import sonia.scm.issuetracker.Corpus;
+import sonia.scm.issuetracker.IssueMatcher;
+import sonia.scm.issuetracker.api.IssueReferencingObject;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Finds the issue keys and detects state changes in a pull request description.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IssuesBenchmark {
+
+  private static final Set<String> KEY_WORDS = Set.of("fixes", "closes", "resolves");
+
+  private static final IssueMatcher JIRA = new IssueMatcher() {
+
+    private final Pattern pattern = Pattern.compile("\\b([A-Z][A-Z0-9]+-\\d+)");
+
+    @Override
+    public Pattern getKeyPattern() {
+      return pattern;
+    }
+
+    @Override
+    public String getKey(Matcher matcher) {
+      return matcher.group();
+    }
+  };
+
+  @Param({"80", "2048", "65536"})
+  private int length;
+
+  @Param({"0", "10", "200"})
+  private int keyCount;
+
+  private List<String> keys;
+  private IssueReferencingObject object;
+
+  @Setup
+  public void setUp() {
+    keys = Corpus.keys(keyCount);
+    object = Corpus.create().pullRequest(length, keys);
+  }
+
+  @Benchmark
+  public Set<String> find() {
+    return Issues.find(JIRA, object);
+  }
+
+  @Benchmark
+  public void detectStateChange(Blackhole blackhole) {
+    for (String key : keys) {
+      blackhole.consume(Issues.detectStateChange(key, KEY_WORDS, object));
+    }
+  }
+
+  @Benchmark
+  public void detectStateChangeShared(Blackhole blackhole) {
+    Issues.StateChangeDetector detector = Issues.stateChangeDetector(object);
+    for (String key : keys) {
+      blackhole.consume(detector.detect(key, KEY_WORDS));
+    }
+  }
+}
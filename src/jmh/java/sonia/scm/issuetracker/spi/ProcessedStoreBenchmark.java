@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.issuetracker.spi;
+
+import com.google.common.io.MoreFiles;
+import com.google.common.io.RecursiveDeleteOption;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import sonia.scm.issuetracker.Corpus;
+import sonia.scm.issuetracker.api.IssueReferencingObject;
+import sonia.scm.store.InMemoryDataStore;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Looks up and writes processed marks. A push with 100 changesets is marked within one batch.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProcessedStoreBenchmark {
+
+  private static final String ISSUE_KEY = "SCM-42";
+  private static final int PUSH_SIZE = 100;
+
+  @Param({"memory", "file"})
+  private String storage;
+
+  @Param({"1000", "100000"})
+  private int marks;
+
+  private Path directory;
+  private ProcessedStore store;
+  private List<IssueReferencingObject> processed;
+  private List<IssueReferencingObject> unprocessed;
+  private int index;
+
+  @Setup
+  public void setUp() throws IOException {
+    Corpus corpus = Corpus.create();
+    processed = corpus.changesets(marks, 0, Collections.emptyList());
+    unprocessed = corpus.changesets(PUSH_SIZE, 0, Collections.emptyList());
+
+    store = new ProcessedStore(new InMemoryDataStore<>(), log());
+    try (ProcessedStore.Batch batch = store.batch()) {
+      processed.forEach(object -> store.mark(ISSUE_KEY, object));
+    }
+  }
+
+  private FingerprintLog log() throws IOException {
+    if ("file".equals(storage)) {
+      directory = Files.createTempDirectory("processed-store");
+      FingerprintLogFactory factory = new FingerprintLogFactory(id -> directory.resolve(id));
+      return factory.get(processed.get(0).getRepository(), "benchmark");
+    }
+    return FingerprintLog.inMemory();
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    if (directory != null) {
+      MoreFiles.deleteRecursively(directory, RecursiveDeleteOption.ALLOW_INSECURE);
+    }
+  }
+
+  @Benchmark
+  public boolean isProcessed() {
+    index = (index + 1) % processed.size();
+    return store.isProcessed(ISSUE_KEY, processed.get(index));
+  }
+
+  @Benchmark
+  public boolean isNotProcessed() {
+    index = (index + 1) % unprocessed.size();
+    return store.isProcessed(ISSUE_KEY, unprocessed.get(index));
+  }
+
+  /**
+   * Marks every changeset of a push for a new issue key, so that each invocation writes new marks.
+   */
+  @Benchmark
+  public void markPush() {
+    String issueKey = "SCM-" + (++index);
+    try (ProcessedStore.Batch batch = store.batch()) {
+      for (IssueReferencingObject object : unprocessed) {
+        store.mark(issueKey, object);
+      }
+    }
+  }
+}
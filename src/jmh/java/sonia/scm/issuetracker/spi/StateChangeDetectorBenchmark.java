@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.issuetracker.spi;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import sonia.scm.issuetracker.api.Content;
+import sonia.scm.issuetracker.api.IssueReferencingObject;
+import sonia.scm.repository.Person;
+import sonia.scm.repository.RepositoryTestData;
+
+import java.text.BreakIterator;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Detects state changes for all issues of a long pull request description. The baseline is the former
+ * implementation, which has tokenized the whole content with {@link BreakIterator}s for every issue key.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StateChangeDetectorBenchmark {
+
+  private static final String[] WORDS = {
+    "this", "pull", "request", "changes", "the", "handling", "of", "branches", "and", "fixes", "a", "bug", "in",
+    "repository", "import", "also", "we", "updated", "documentation", "for", "new", "api", "resolved", "closed"
+  };
+
+  private static final Set<String> KEY_WORDS = Set.of("fixed", "fixes", "fix", "closed", "resolved");
+
+  @Param({"10", "50"})
+  private int issueCount;
+
+  @Param({"2000", "20000"})
+  private int descriptionLength;
+
+  private IssueReferencingObject object;
+  private List<String> issueKeys;
+
+  @Setup
+  public void setUp() {
+    Random random = new Random(42);
+    issueKeys = new ArrayList<>();
+    for (int i = 0; i < issueCount; i++) {
+      issueKeys.add("SCM-" + (100 + i));
+    }
+
+    StringBuilder description = new StringBuilder();
+    while (description.length() < descriptionLength) {
+      int dice = random.nextInt(30);
+      if (dice == 0) {
+        description.append(issueKeys.get(random.nextInt(issueKeys.size())));
+      } else if (dice == 1) {
+        description.append(". ");
+      } else if (dice == 2) {
+        description.append("\n- ");
+      } else {
+        description.append(WORDS[random.nextInt(WORDS.length)]);
+      }
+      description.append(' ');
+    }
+
+    object = new IssueReferencingObject(
+      RepositoryTestData.createHeartOfGold(),
+      "pr",
+      "42",
+      Person.toPerson("Trillian"),
+      Collections.emptyMap(),
+      Instant.now(),
+      List.of(new Content("title", "Improve import of " + issueKeys.get(0)), new Content("description", description.toString())),
+      "https://hitchhiker.com/scm",
+      true,
+      "42"
+    );
+  }
+
+  @Benchmark
+  public void sharedDetector(Blackhole blackhole) {
+    Issues.StateChangeDetector detector = Issues.stateChangeDetector(object);
+    for (String issueKey : issueKeys) {
+      blackhole.consume(detector.detect(issueKey, KEY_WORDS));
+    }
+  }
+
+  @Benchmark
+  public void breakIteratorPerKey(Blackhole blackhole) {
+    for (String issueKey : issueKeys) {
+      blackhole.consume(BreakIteratorBaseline.detect(issueKey, KEY_WORDS, object));
+    }
+  }
+
+  /**
+   * Condensed copy of the former implementation.
+   */
+  private static final class BreakIteratorBaseline {
+
+    private static String detect(String issueKey, Iterable<String> keyWords, IssueReferencingObject object) {
+      List<String> issueKeyParts = collect(BreakIterator.getWordInstance(Locale.ENGLISH), issueKey);
+      for (Content content : object.getContent()) {
+        for (String line : content.getValue().split("\n")) {
+          for (String sentence : collect(BreakIterator.getSentenceInstance(Locale.ENGLISH), line)) {
+            List<String> words = collect(BreakIterator.getWordInstance(Locale.ENGLISH), sentence);
+            if (Collections.indexOfSubList(words, issueKeyParts) >= 0) {
+              List<String> lowerCaseWords = new ArrayList<>();
+              for (String word : words) {
+                lowerCaseWords.add(word.toLowerCase(Locale.ENGLISH));
+              }
+              for (String keyWord : keyWords) {
+                if (lowerCaseWords.contains(keyWord.toLowerCase(Locale.ENGLISH))) {
+                  return keyWord;
+                }
+              }
+            }
+          }
+        }
+      }
+      return null;
+    }
+
+    private static List<String> collect(BreakIterator breakIterator, String value) {
+      List<String> items = new ArrayList<>();
+      breakIterator.setText(value);
+      int prevIndex = 0;
+      for (int index = breakIterator.first(); index != BreakIterator.DONE; index = breakIterator.next()) {
+        if (index > prevIndex) {
+          items.add(value.substring(prevIndex, index));
+        }
+        prevIndex = index;
+      }
+      return items;
+    }
+  }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.issuetracker.spi;
+
+import org.apache.shiro.mgt.DefaultSecurityManager;
+import org.apache.shiro.subject.SimplePrincipalCollection;
+import org.apache.shiro.subject.Subject;
+import org.apache.shiro.util.ThreadContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import sonia.scm.issuetracker.Corpus;
+import sonia.scm.issuetracker.api.IssueReferencingObject;
+import sonia.scm.repository.Person;
+import sonia.scm.repository.Repository;
+import sonia.scm.template.Template;
+import sonia.scm.template.TemplateEngine;
+import sonia.scm.template.TemplateEngineFactory;
+import sonia.scm.user.UserTestData;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Renders reference comments for a push. The template engine is replaced by a simple template, which reads the same
+ * values from the model as the templates of the issue tracker plugins, so the benchmark measures the lookup of the
+ * template and the creation of the model.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TemplateCommentRendererBenchmark {
+
+  private static final String PATH = "/tpls/{0}.mustache";
+  private static final int PUSH_SIZE = 100;
+
+  @Param({"80", "2048", "65536"})
+  private int length;
+
+  private TemplateCommentRenderer renderer;
+  private List<IssueReferencingObject> push;
+  private int index;
+
+  @Setup
+  public void setUp() throws IOException {
+    TemplateEngine engine = mock(TemplateEngine.class);
+    when(engine.getTemplate(anyString())).thenReturn(new SimpleTemplate());
+    TemplateEngineFactory engineFactory = mock(TemplateEngineFactory.class);
+    when(engineFactory.getEngineByExtension(anyString())).thenReturn(engine);
+
+    renderer = new TemplateCommentRenderer(new TemplateCache(engineFactory, false), RenderModel::new, PATH);
+    push = Corpus.create().changesets(PUSH_SIZE, length, Corpus.keys(1));
+
+    SimplePrincipalCollection principals = new SimplePrincipalCollection();
+    principals.add("trillian", "benchmark");
+    principals.add(UserTestData.createTrillian(), "benchmark");
+    Subject subject = new Subject.Builder(new DefaultSecurityManager())
+      .principals(principals)
+      .authenticated(true)
+      .buildSubject();
+    ThreadContext.bind(subject);
+  }
+
+  @TearDown
+  public void tearDown() {
+    ThreadContext.unbindSubject();
+  }
+
+  @Benchmark
+  public String render() throws IOException {
+    index = (index + 1) % push.size();
+    return renderer.render(push.get(index));
+  }
+
+  @Benchmark
+  public String renderAggregated() throws IOException {
+    return renderer.render("SCM-100", push);
+  }
+
+  private static class SimpleTemplate implements Template {
+
+    @Override
+    public void execute(Writer writer, Object model) throws IOException {
+      Map<?, ?> map = (Map<?, ?>) model;
+      Object objects = map.get("objects");
+      if (objects instanceof List) {
+        writer.append(String.valueOf(map.get("count"))).append(" changesets referenced this issue\n");
+        for (Object object : (List<?>) objects) {
+          write(writer, (Map<?, ?>) object);
+        }
+      } else {
+        write(writer, map);
+      }
+    }
+
+    private void write(Writer writer, Map<?, ?> model) throws IOException {
+      Repository repository = (Repository) model.get("repository");
+      Person author = (Person) model.get("author");
+      Person principal = (Person) model.get("principal");
+      Map<?, ?> content = (Map<?, ?>) model.get("content");
+      writer.append(author.getName())
+        .append(" referenced this issue in ").append(String.valueOf(model.get("type")))
+        .append(' ').append(String.valueOf(model.get("id")))
+        .append(" of ").append(repository.getNamespaceAndName().toString())
+        .append(" pushed by ").append(principal.getName())
+        .append(":\n").append(String.valueOf(content.get("description")))
+        .append("\n").append(String.valueOf(model.get("link"))).append("\n\n");
+    }
+  }
+}
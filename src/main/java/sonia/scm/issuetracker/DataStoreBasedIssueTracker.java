@@ -17,16 +17,34 @@
 package sonia.scm.issuetracker;
 
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import sonia.scm.issuetracker.internal.IssueData;
+import sonia.scm.issuetracker.spi.LongHashSet;
 import sonia.scm.repository.Changeset;
 import sonia.scm.repository.Repository;
 import sonia.scm.store.DataStore;
 import sonia.scm.store.DataStoreFactory;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
 /**
+ * The handled changesets of each repository are cached in memory as 64 bit
+ * fingerprints, so {@link #isHandled(Repository, Changeset)} does not read
+ * the store. The store is only read and written, if changesets are marked as
+ * handled. Use {@link #markAsHandled(Repository, Collection)} to mark all
+ * changesets of a push with a single write.
  *
  * @author Sebastian Sdorra
  * @deprecated use {@link sonia.scm.issuetracker.spi.IssueTrackerProvider} instead.
@@ -37,9 +55,17 @@ public abstract class DataStoreBasedIssueTracker extends IssueTracker {
   private static final Logger logger =
     LoggerFactory.getLogger(DataStoreBasedIssueTracker.class);
 
+  private static final Pattern SHA = Pattern.compile("[0-9a-fA-F]{16,}");
+
+  private static final int CACHE_SIZE = 100;
 
   private DataStoreFactory storeFactory;
 
+  private final Cache<String, LongHashSet> handled = CacheBuilder.newBuilder()
+    .maximumSize(CACHE_SIZE)
+    .expireAfterAccess(30, TimeUnit.MINUTES)
+    .build();
+
   public DataStoreBasedIssueTracker(String name, DataStoreFactory storeFactory) {
     super(name);
     this.storeFactory = storeFactory;
@@ -47,15 +73,30 @@ public abstract class DataStoreBasedIssueTracker extends IssueTracker {
 
   @Override
   public void markAsHandled(Repository repository, Changeset changeset) {
-    logger.debug("mark changeset {} of repository {} as handled",
-      changeset.getId(), repository.getId());
-
-    IssueData data = getData(repository);
-
-    data.getHandledChangesets().add(changeset.getId());
-    DataStore<IssueData> dataStore = createDatastore(repository);
+    markAsHandled(repository, Collections.singletonList(changeset));
+  }
 
-    dataStore.put(repository.getId(), data);
+  @Override
+  public void markAsHandled(Repository repository, Collection<Changeset> changesets) {
+    if (changesets.isEmpty()) {
+      return;
+    }
+    logger.debug("mark {} changesets of repository {} as handled",
+      changesets.size(), repository.getId());
+
+    LongHashSet fingerprints = getFingerprints(repository);
+    synchronized (fingerprints) {
+      IssueData data = getData(repository);
+      Set<String> ids = data.getHandledChangesets();
+      boolean changed = false;
+      for (Changeset changeset : changesets) {
+        changed |= ids.add(changeset.getId());
+        fingerprints.add(fingerprint(changeset.getId()));
+      }
+      if (changed) {
+        createDatastore(repository).put(repository.getId(), data);
+      }
+    }
   }
 
   private DataStore<IssueData> createDatastore(Repository repository) {
@@ -67,17 +108,50 @@ public abstract class DataStoreBasedIssueTracker extends IssueTracker {
   @Override
   public void removeHandledMarks(Repository repository) {
     logger.info("remove handled marks from store {}", repository.getId());
-    DataStore<IssueData> dataStore = createDatastore(repository);
-    dataStore.remove(repository.getId());
+    LongHashSet fingerprints = getFingerprints(repository);
+    synchronized (fingerprints) {
+      DataStore<IssueData> dataStore = createDatastore(repository);
+      dataStore.remove(repository.getId());
+      fingerprints.clear();
+    }
   }
 
   @Override
   public boolean isHandled(Repository repository, Changeset changeset) {
-    IssueData data = getData(repository);
+    LongHashSet fingerprints = getFingerprints(repository);
+    synchronized (fingerprints) {
+      return fingerprints.contains(fingerprint(changeset.getId()));
+    }
+  }
+
+  private LongHashSet getFingerprints(Repository repository) {
+    try {
+      return handled.get(repository.getId(), () -> loadFingerprints(repository));
+    } catch (ExecutionException ex) {
+      throw new IllegalStateException("failed to load handled changesets of repository " + repository.getId(), ex.getCause());
+    }
+  }
 
-    return data.getHandledChangesets().contains(changeset.getId());
+  private LongHashSet loadFingerprints(Repository repository) {
+    Set<String> ids = getData(repository).getHandledChangesets();
+    LongHashSet fingerprints = new LongHashSet(ids.size());
+    for (String id : ids) {
+      fingerprints.add(fingerprint(id));
+    }
+    return fingerprints;
   }
 
+  /**
+   * Encodes the id of a changeset as 64 bit value. Ids of git and mercurial are hex encoded hashes, so the first
+   * 64 bits of the hash are used directly. Other ids, e.g. svn revisions, are hashed.
+   */
+  @VisibleForTesting
+  static long fingerprint(String id) {
+    if (SHA.matcher(id).matches()) {
+      return Long.parseUnsignedLong(id.substring(0, 16), 16);
+    }
+    return Hashing.murmur3_128().hashString(id, StandardCharsets.UTF_8).asLong();
+  }
 
   private IssueData getData(Repository repository) {
     DataStore<IssueData> dataStore = createDatastore(repository);
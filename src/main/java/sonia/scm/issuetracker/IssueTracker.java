@@ -26,6 +26,7 @@ import sonia.scm.repository.Changeset;
 import sonia.scm.repository.Repository;
 
 import java.io.IOException;
+import java.util.Collection;
 import java.util.Optional;
 
 /**
@@ -81,6 +82,24 @@ public abstract class IssueTracker
   public abstract void markAsHandled(Repository repository,
     Changeset changeset);
 
+  /**
+   * Marks all changesets as handled. The default implementation marks each
+   * changeset on its own, implementations should override this method to
+   * write the marks at once.
+   *
+   *
+   * @param repository
+   * @param changesets
+   */
+  public void markAsHandled(Repository repository,
+    Collection<Changeset> changesets)
+  {
+    for (Changeset changeset : changesets)
+    {
+      markAsHandled(repository, changeset);
+    }
+  }
+
   /**
    * Method description
    *
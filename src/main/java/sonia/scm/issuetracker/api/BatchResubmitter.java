@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.issuetracker.api;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * {@link Resubmitter} which is able to resend multiple comments at once.
+ *
+ * @since 3.6.0
+ */
+public interface BatchResubmitter extends Resubmitter {
+
+  /**
+   * Adds all resubmit comments. The result contains one entry for each comment in the order of the given comments.
+   * A failure of a single comment does not affect the other comments.
+   * The default implementation calls {@link #resubmit(String, String)} for each comment.
+   *
+   * @param comments comments to add
+   * @return result for each comment
+   */
+  default List<IssueCommentResult> resubmitAll(Collection<IssueComment> comments) {
+    List<IssueCommentResult> results = new ArrayList<>(comments.size());
+    for (IssueComment comment : comments) {
+      try {
+        resubmit(comment.getIssueKey(), comment.getComment());
+        results.add(IssueCommentResult.success(comment));
+      } catch (IOException ex) {
+        results.add(IssueCommentResult.failure(comment, ex));
+      }
+    }
+    return results;
+  }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.issuetracker.api;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.io.IOException;
+import java.util.Optional;
+
+/**
+ * Result of adding a single {@link IssueComment} as part of a batch.
+ *
+ * @since 3.6.0
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public final class IssueCommentResult {
+
+  private final IssueComment comment;
+  @Getter(AccessLevel.NONE)
+  private final IOException failure;
+
+  /**
+   * Creates a result for a comment which was added successfully.
+   *
+   * @param comment comment
+   * @return successful result
+   */
+  public static IssueCommentResult success(IssueComment comment) {
+    return new IssueCommentResult(comment, null);
+  }
+
+  /**
+   * Creates a result for a comment which could not be added.
+   *
+   * @param comment comment
+   * @param failure cause of the failure
+   * @return failed result
+   */
+  public static IssueCommentResult failure(IssueComment comment, IOException failure) {
+    return new IssueCommentResult(comment, failure);
+  }
+
+  public boolean isSuccess() {
+    return failure == null;
+  }
+
+  public Optional<IOException> getFailure() {
+    return Optional.ofNullable(failure);
+  }
+}
@@ -19,6 +19,7 @@ package sonia.scm.issuetracker.api;
 import com.google.inject.ImplementedBy;
 import sonia.scm.issuetracker.internal.CompositeIssueTracker;
 
+import java.util.Collection;
 import java.util.Map;
 import java.util.Optional;
 
@@ -39,6 +40,32 @@ public interface IssueTracker {
    */
   void process(IssueReferencingObject object);
 
+  /**
+   * Process multiple {@link IssueReferencingObject}s, e.g. all changesets of a push, in the given order.
+   * Implementations can use this to batch work which would otherwise be done for every single object.
+   * The default implementation calls {@link #process(IssueReferencingObject)} for each object.
+   *
+   * @param objects issue referencing objects
+   * @since 3.6.0
+   */
+  default void processAll(Collection<IssueReferencingObject> objects) {
+    for (IssueReferencingObject object : objects) {
+      process(object);
+    }
+  }
+
+  /**
+   * Process multiple {@link IssueReferencingObject}s of one push like {@link #processAll(Collection)}, but create
+   * only one comment per issue for all objects which reference the issue. Each object is still marked as processed
+   * on its own. The default implementation delegates to {@link #processAll(Collection)}.
+   *
+   * @param objects issue referencing objects of one push
+   * @since 3.6.0
+   */
+  default void processAggregated(Collection<IssueReferencingObject> objects) {
+    processAll(objects);
+  }
+
   /**
    * Find issues in the {@link IssueReferencingObject}.
    * @param object issue referencing object
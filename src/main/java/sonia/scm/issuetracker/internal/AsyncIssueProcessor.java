@@ -0,0 +1,227 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.issuetracker.internal;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.shiro.SecurityUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sonia.scm.issuetracker.api.IssueReferencingObject;
+import sonia.scm.issuetracker.api.IssueTracker;
+import sonia.scm.issuetracker.internal.index.IssueReferenceIndexer;
+import sonia.scm.issuetracker.spi.TuningProperties;
+import sonia.scm.repository.Repository;
+
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Processes {@link IssueReferencingObject}s outside the thread which has received the event.
+ * Each call to {@link #process(List)} is handled as one unit of work. The units are distributed by the repository of
+ * their objects to a fixed number of lanes with a single worker each, so the units of a repository are processed in
+ * the order in which they were queued and a "fixes" is never applied after a later "reopens" of the same issue. The
+ * objects of a unit are added to the issue reference index and are passed together to
+ * {@link IssueTracker#processAll(java.util.Collection)}.
+ * <br>
+ * If the queue of a lane is full, the calling thread waits until the lane has free space again, so that no unit is
+ * dropped. Callers which had to wait longer than {@code scm.issuetracker.processing.offerTimeoutMillis} (default
+ * 1000) are logged and counted. The calling thread never processes a unit itself, because it is usually the thread of
+ * the event bus and processing includes calls to the remote issue trackers. Units are only dropped, if the calling
+ * thread is interrupted or the processor is closed.
+ *
+ * @since 3.6.0
+ */
+@Singleton
+public class AsyncIssueProcessor implements Closeable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(AsyncIssueProcessor.class);
+
+  @VisibleForTesting
+  static final String METRIC_QUEUE = "scm.issuetracker.processing.queue";
+  @VisibleForTesting
+  static final String METRIC_DURATION = "scm.issuetracker.processing.duration";
+  @VisibleForTesting
+  static final String METRIC_REJECTED = "scm.issuetracker.processing.rejected";
+  @VisibleForTesting
+  static final String METRIC_BACKPRESSURE = "scm.issuetracker.processing.backpressure";
+
+  private static final int DEFAULT_LANES = 4;
+  private static final int DEFAULT_CAPACITY = 100;
+  private static final int DEFAULT_OFFER_TIMEOUT_MILLIS = 1000;
+
+  private final IssueTracker issueTracker;
+  private final IssueReferenceIndexer indexer;
+  private final ThreadPoolExecutor[] lanes;
+  private final Timer timer;
+  private final Counter rejected;
+  private final Counter backpressure;
+  private final Duration offerTimeout;
+
+  @Inject
+  public AsyncIssueProcessor(IssueTracker issueTracker, IssueReferenceIndexer indexer, MeterRegistry meterRegistry) {
+    this(
+      issueTracker, indexer, meterRegistry, DEFAULT_LANES, DEFAULT_CAPACITY,
+      Duration.ofMillis(TuningProperties.getPositiveInt("processing.offerTimeoutMillis", DEFAULT_OFFER_TIMEOUT_MILLIS))
+    );
+  }
+
+  @VisibleForTesting
+  AsyncIssueProcessor(IssueTracker issueTracker, IssueReferenceIndexer indexer, MeterRegistry meterRegistry, int lanes, int capacity, Duration offerTimeout) {
+    this.issueTracker = issueTracker;
+    this.indexer = indexer;
+    this.offerTimeout = offerTimeout;
+
+    ThreadFactory threadFactory = new ThreadFactoryBuilder().setNameFormat("IssueTrackerProcessor-%d").setDaemon(true).build();
+    this.lanes = new ThreadPoolExecutor[lanes];
+    for (int i = 0; i < lanes; i++) {
+      this.lanes[i] = new ThreadPoolExecutor(
+        1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(capacity), threadFactory, this::offer
+      );
+    }
+
+    Gauge.builder(METRIC_QUEUE, this, AsyncIssueProcessor::queueSize)
+      .description("Number of units waiting to be processed by the issue trackers")
+      .register(meterRegistry);
+    this.timer = Timer.builder(METRIC_DURATION)
+      .description("Time needed to process all objects of a unit")
+      .publishPercentiles(0.5, 0.95, 0.99)
+      .register(meterRegistry);
+    this.rejected = Counter.builder(METRIC_REJECTED)
+      .description("Number of units which were dropped, because the caller was interrupted or the processor was closed")
+      .register(meterRegistry);
+    this.backpressure = Counter.builder(METRIC_BACKPRESSURE)
+      .description("Number of units whose caller had to wait, because the processing queue was full")
+      .register(meterRegistry);
+  }
+
+  private void offer(Runnable unit, ThreadPoolExecutor lane) {
+    try {
+      boolean waiting = false;
+      while (!lane.isShutdown()) {
+        if (lane.getQueue().offer(unit, offerTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+          return;
+        }
+        if (!waiting) {
+          waiting = true;
+          backpressure.increment();
+          LOG.warn("processing queue is full, wait until units are processed");
+        }
+      }
+      throw new RejectedExecutionException("processor is closed");
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new RejectedExecutionException("interrupted while waiting for the processing queue", ex);
+    }
+  }
+
+  private double queueSize() {
+    int size = 0;
+    for (ThreadPoolExecutor lane : lanes) {
+      size += lane.getQueue().size();
+    }
+    return size;
+  }
+
+  /**
+   * Queues the given objects for processing. The list is copied before it is queued.
+   *
+   * @param objects objects to process
+   */
+  public void process(List<IssueReferencingObject> objects) {
+    process(objects, false);
+  }
+
+  /**
+   * Queues the given objects for processing. If aggregate is {@code true}, the objects are passed to
+   * {@link IssueTracker#processAggregated(Collection)} instead of {@link IssueTracker#processAll(Collection)}.
+   *
+   * @param objects objects to process
+   * @param aggregate {@code true} to create one comment per issue for all objects
+   * @since 3.6.0
+   */
+  public void process(List<IssueReferencingObject> objects, boolean aggregate) {
+    if (objects.isEmpty()) {
+      return;
+    }
+    List<IssueReferencingObject> snapshot = ImmutableList.copyOf(objects);
+    LOG.debug("queue {} objects for processing", snapshot.size());
+    try {
+      lane(snapshot).execute(SecurityUtils.getSubject().associateWith(() -> processSnapshot(snapshot, aggregate)));
+    } catch (RejectedExecutionException ex) {
+      rejected.increment();
+      LOG.error("dropped {} objects, starting with {} {}: {}",
+        snapshot.size(), snapshot.get(0).getType(), snapshot.get(0).getId(), ex.getMessage());
+    }
+  }
+
+  private ThreadPoolExecutor lane(List<IssueReferencingObject> snapshot) {
+    // the units are created per push or event, so all objects of a unit belong to the same repository
+    Repository repository = snapshot.get(0).getRepository();
+    String repositoryId = repository != null ? repository.getId() : null;
+    return lanes[Math.floorMod(Objects.hashCode(repositoryId), lanes.length)];
+  }
+
+  private void processSnapshot(List<IssueReferencingObject> snapshot, boolean aggregate) {
+    try {
+      indexer.index(snapshot);
+      if (aggregate) {
+        timer.record(() -> issueTracker.processAggregated(snapshot));
+      } else {
+        timer.record(() -> issueTracker.processAll(snapshot));
+      }
+    } catch (Exception ex) {
+      LOG.error("failed to process {} objects", snapshot.size(), ex);
+    }
+  }
+
+  @Override
+  public void close() {
+    for (ThreadPoolExecutor lane : lanes) {
+      lane.shutdown();
+    }
+    try {
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+      for (ThreadPoolExecutor lane : lanes) {
+        if (!lane.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+          LOG.warn("issue tracker processor did not finish in time, {} units are dropped", lane.getQueue().size());
+          lane.shutdownNow();
+        }
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      for (ThreadPoolExecutor lane : lanes) {
+        lane.shutdownNow();
+      }
+    }
+  }
+}
@@ -68,13 +68,13 @@ public class ChangesetLinkEnricher implements HalEnricher {
     Map<String, String> issues = new LinkedHashMap<>();
 
     for (sonia.scm.issuetracker.IssueTracker legacyTracker : legacyIssueTrackers.getIssueTrackers()) {
-      Optional<IssueMatcher> issueMatcher = legacyTracker.createMatcher(repository);
+      Optional<IssueMatcher> issueMatcher = legacyIssueTrackers.getMatcher(legacyTracker, repository);
       if (!issueMatcher.isPresent()) continue;
 
       Pattern pattern = issueMatcher.get().getKeyPattern();
       Matcher matcher = pattern.matcher(Strings.nullToEmpty(changeset.getDescription()));
 
-      Optional<IssueLinkFactory> issueLinkFactory = legacyTracker.createLinkFactory(repository);
+      Optional<IssueLinkFactory> issueLinkFactory = legacyIssueTrackers.getLinkFactory(legacyTracker, repository);
 
       if (issueLinkFactory.isPresent()) {
         while (matcher.find()) {
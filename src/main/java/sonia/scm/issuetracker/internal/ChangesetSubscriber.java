@@ -17,11 +17,12 @@
 package sonia.scm.issuetracker.internal;
 
 import com.github.legman.Subscribe;
+import com.google.common.annotations.VisibleForTesting;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import sonia.scm.EagerSingleton;
 import sonia.scm.issuetracker.api.IssueReferencingObject;
-import sonia.scm.issuetracker.api.IssueTracker;
+import sonia.scm.issuetracker.spi.TuningProperties;
 import sonia.scm.plugin.Extension;
 import sonia.scm.repository.Changeset;
 import sonia.scm.repository.PostReceiveRepositoryHookEvent;
@@ -30,38 +31,92 @@ import sonia.scm.repository.api.HookContext;
 import sonia.scm.repository.api.HookFeature;
 
 import jakarta.inject.Inject;
+import java.util.ArrayList;
+import java.util.List;
 
+/**
+ * Passes the changesets of each push to the {@link AsyncIssueProcessor}. Changesets without issue keys are skipped
+ * before they are mapped.
+ * <br>
+ * If the system property {@code scm.issuetracker.aggregatePushes} is set to {@code true}, all changesets of a push are
+ * passed on as a single unit, so that only one comment per issue is created for the whole push. The remote calls are
+ * split into chunks by the issue tracker after the comments were aggregated. The property only allows aggregation,
+ * each issue tracker decides on its own by providing a template for aggregated comments; trackers without such a
+ * template still create one comment per changeset.
+ */
 @Extension
 @EagerSingleton
 public class ChangesetSubscriber {
 
   private static final Logger LOG = LoggerFactory.getLogger(ChangesetSubscriber.class);
 
-  private final IssueTracker issueTracker;
+  private static final int DEFAULT_CHUNK_SIZE = 500;
+
+  private final AsyncIssueProcessor processor;
   private final ChangesetMapper mapper;
+  private final IssueTrackerFactory issueTrackerFactory;
+  private final boolean aggregate;
+  private final int chunkSize;
 
   @Inject
-  public ChangesetSubscriber(IssueTracker issueTracker, ChangesetMapper mapper) {
-    this.issueTracker = issueTracker;
+  public ChangesetSubscriber(AsyncIssueProcessor processor, ChangesetMapper mapper, IssueTrackerFactory issueTrackerFactory) {
+    this(
+      processor, mapper, issueTrackerFactory,
+      TuningProperties.getBoolean("aggregatePushes", false),
+      TuningProperties.getPositiveInt("processing.chunkSize", DEFAULT_CHUNK_SIZE)
+    );
+  }
+
+  @VisibleForTesting
+  ChangesetSubscriber(AsyncIssueProcessor processor, ChangesetMapper mapper, IssueTrackerFactory issueTrackerFactory, boolean aggregate, int chunkSize) {
+    this.processor = processor;
     this.mapper = mapper;
+    this.issueTrackerFactory = issueTrackerFactory;
+    this.aggregate = aggregate;
+    this.chunkSize = chunkSize;
   }
 
   @Subscribe
   public void handle(PostReceiveRepositoryHookEvent event) {
     HookContext context = event.getContext();
     if (isSupported(context)) {
-      context.getChangesetProvider()
+      Iterable<Changeset> changesets = context.getChangesetProvider()
         .setDisablePreProcessors(true)
-        .getChangesets()
-        .forEach(changeset ->  process(event.getRepository(), changeset));
+        .getChangesets();
+      process(event.getRepository(), changesets);
     } else {
       LOG.debug("hook does not support changeset provider");
     }
   }
 
-  private void process(Repository repository, Changeset changeset) {
-    IssueReferencingObject ref = mapper.ref(repository, changeset);
-    issueTracker.process(ref);
+  /**
+   * Maps only changesets which might reference an issue and passes them on in chunks, so that large pushes
+   * (e.g. initial imports) are never held in memory as a whole. Aggregated pushes are not split, because the comments
+   * can only be aggregated over all changesets of the push; only the changesets with issue keys are held in memory.
+   */
+  private void process(Repository repository, Iterable<Changeset> changesets) {
+    IssueKeyScanner scanner = issueTrackerFactory.scanner(repository);
+    List<IssueReferencingObject> chunk = new ArrayList<>();
+    int skipped = 0;
+    for (Changeset changeset : changesets) {
+      if (scanner.mightContainKeys(changeset.getDescription())) {
+        chunk.add(mapper.ref(repository, changeset));
+        if (!aggregate && chunk.size() >= chunkSize) {
+          submit(chunk);
+          chunk = new ArrayList<>();
+        }
+      } else {
+        skipped++;
+      }
+    }
+    submit(chunk);
+    LOG.trace("skipped {} changesets without issue keys in repository {}", skipped, repository);
+  }
+
+  private void submit(List<IssueReferencingObject> chunk) {
+    if (!chunk.isEmpty()) {
+      processor.process(chunk, aggregate);
+    }
   }
 
   private boolean isSupported(HookContext context) {
@@ -17,12 +17,19 @@
 package sonia.scm.issuetracker.internal;
 
 import com.google.common.annotations.VisibleForTesting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import sonia.scm.issuetracker.api.IssueReferencingObject;
 import sonia.scm.issuetracker.api.IssueTracker;
+import sonia.scm.issuetracker.spi.IssueTrackerMetrics;
 
 import jakarta.inject.Inject;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.function.BiConsumer;
 
 /**
  * Delegates and merges results of multiple {@link IssueTracker}.
@@ -31,14 +38,23 @@ import java.util.Map;
  */
 public final class CompositeIssueTracker implements IssueTracker {
 
+  private static final Logger LOG = LoggerFactory.getLogger(CompositeIssueTracker.class);
+
   @VisibleForTesting
   static final String NAME = "composite";
 
   private final IssueTrackerFactory issueTrackerFactory;
+  private final IssueTrackerMetrics metrics;
+
+  @VisibleForTesting
+  CompositeIssueTracker(IssueTrackerFactory issueTrackerFactory) {
+    this(issueTrackerFactory, IssueTrackerMetrics.noop());
+  }
 
   @Inject
-  public CompositeIssueTracker(IssueTrackerFactory issueTrackerFactory) {
+  public CompositeIssueTracker(IssueTrackerFactory issueTrackerFactory, IssueTrackerMetrics metrics) {
     this.issueTrackerFactory = issueTrackerFactory;
+    this.metrics = metrics;
   }
 
   @Override
@@ -54,15 +70,39 @@ public final class CompositeIssueTracker implements IssueTracker {
   }
 
   @Override
-  public Map<String,String> findIssues(IssueReferencingObject object) {
-    Map<String,String> issues = new LinkedHashMap<>();
-    for (IssueTracker tracker : trackers(object)) {
-      Map<String, String> trackerMap = tracker.findIssues(object);
-      if (trackerMap != null) {
-        issues.putAll(trackerMap);
+  public void processAll(Collection<IssueReferencingObject> objects) {
+    processGrouped(objects, IssueTracker::processAll);
+  }
+
+  @Override
+  public void processAggregated(Collection<IssueReferencingObject> objects) {
+    processGrouped(objects, IssueTracker::processAggregated);
+  }
+
+  private void processGrouped(Collection<IssueReferencingObject> objects, BiConsumer<IssueTracker, List<IssueReferencingObject>> action) {
+    for (List<IssueReferencingObject> repositoryObjects : groupByRepository(objects)) {
+      for (IssueTracker tracker : trackers(repositoryObjects.get(0))) {
+        try {
+          action.accept(tracker, repositoryObjects);
+        } catch (Exception ex) {
+          LOG.error("issue tracker {} failed to process {} objects", tracker.getName(), repositoryObjects.size(), ex);
+        }
       }
     }
-    return issues;
+  }
+
+  private Collection<List<IssueReferencingObject>> groupByRepository(Collection<IssueReferencingObject> objects) {
+    Map<String, List<IssueReferencingObject>> groups = new LinkedHashMap<>();
+    for (IssueReferencingObject object : objects) {
+      groups.computeIfAbsent(object.getRepository().getId(), id -> new ArrayList<>()).add(object);
+    }
+    return groups.values();
+  }
+
+  @Override
+  public Map<String,String> findIssues(IssueReferencingObject object) {
+    // the enrichers find the issues for every changeset and pull request of the rest api
+    return metrics.findIssues(object.getType()).record(() -> issueTrackerFactory.findIssues(object));
   }
 
   private Iterable<IssueTracker> trackers(IssueReferencingObject object) {
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.issuetracker.internal;
+
+import com.google.common.base.Strings;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import sonia.scm.issuetracker.api.Content;
+import sonia.scm.issuetracker.api.IssueReferencingObject;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Caches the issues found in the content of {@link IssueReferencingObject}s. The cache is addressed by the id of
+ * the repository, the version of its issue trackers and a hash of the content, so the same description is scanned
+ * only once, no matter how often it is shown in lists, details or comments. New issue trackers get a new version,
+ * so entries of outdated trackers are never returned and are evicted over time.
+ */
+final class FoundIssuesCache {
+
+  private final Cache<Key, Map<String, String>> cache;
+
+  FoundIssuesCache(int maximumSize) {
+    this.cache = CacheBuilder.newBuilder()
+      .maximumSize(maximumSize)
+      .expireAfterAccess(10, TimeUnit.MINUTES)
+      .build();
+  }
+
+  /**
+   * Returns the issues of the object from the cache or finds and caches them.
+   *
+   * @param repositoryId id of the repository
+   * @param version version of the issue trackers of the repository
+   * @param object issue referencing object
+   * @param finder finds the issues on a cache miss
+   * @return unmodifiable map of issues, key is the issue id and value is a link to issue
+   */
+  Map<String, String> get(String repositoryId, long version, IssueReferencingObject object, Function<IssueReferencingObject, Map<String, String>> finder) {
+    Key key = new Key(repositoryId, version, hash(object.getContent()));
+    Map<String, String> issues = cache.getIfPresent(key);
+    if (issues == null) {
+      // concurrent misses scan twice, which is cheaper than blocking the enrichers
+      issues = Collections.unmodifiableMap(new LinkedHashMap<>(finder.apply(object)));
+      cache.put(key, issues);
+    }
+    return issues;
+  }
+
+  void invalidateAll() {
+    cache.invalidateAll();
+  }
+
+  long size() {
+    return cache.size();
+  }
+
+  private static HashCode hash(List<Content> contents) {
+    Hasher hasher = Hashing.murmur3_128().newHasher();
+    hasher.putInt(contents.size());
+    for (Content content : contents) {
+      put(hasher, content.getType());
+      put(hasher, content.getValue());
+    }
+    return hasher.hash();
+  }
+
+  private static void put(Hasher hasher, String value) {
+    String nonNull = Strings.nullToEmpty(value);
+    hasher.putInt(nonNull.length()).putString(nonNull, StandardCharsets.UTF_8);
+  }
+
+  private static final class Key {
+
+    private final String repositoryId;
+    private final long version;
+    private final HashCode content;
+
+    private Key(String repositoryId, long version, HashCode content) {
+      this.repositoryId = repositoryId;
+      this.version = version;
+      this.content = content;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      Key key = (Key) o;
+      return version == key.version
+        && repositoryId.equals(key.repositoryId)
+        && content.equals(key.content);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(repositoryId, version, content);
+    }
+  }
+}
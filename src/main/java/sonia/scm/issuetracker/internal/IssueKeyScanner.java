@@ -0,0 +1,272 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.issuetracker.internal;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sonia.scm.issuetracker.IssueMatcher;
+import sonia.scm.issuetracker.api.Content;
+import sonia.scm.issuetracker.api.IssueReferencingObject;
+import sonia.scm.issuetracker.api.IssueTracker;
+import sonia.scm.issuetracker.spi.MatchingIssueTracker;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Finds the issue keys of multiple issue trackers with a single pass over the content.
+ * <br>
+ * The key patterns of all {@link MatchingIssueTracker}s are combined into one alternation, which is used to find
+ * the positions at which at least one of the trackers could match. Only at those positions the pattern of each
+ * tracker is evaluated, which gives exactly the same keys as scanning the content with every pattern on its own.
+ * Patterns which can not be combined safely (e.g. because of back references) are scanned on their own.
+ * Trackers which do not expose their matcher are asked via {@link IssueTracker#findIssues(IssueReferencingObject)}.
+ * <br>
+ * The scanner is compared with the loop over all trackers by {@code IssueKeyScannerBenchmark} in the jmh source set.
+ */
+public final class IssueKeyScanner {
+
+  private static final Logger LOG = LoggerFactory.getLogger(IssueKeyScanner.class);
+
+  private static final Pattern UNSAFE_CONSTRUCTS = Pattern.compile("\\\\[1-9Gk]");
+
+  private static final int UNSUPPORTED_FLAGS = Pattern.LITERAL | Pattern.CANON_EQ;
+
+  private final List<IssueTracker> trackers;
+  private final List<IssueMatcher> matchers;
+  private final Pattern combined;
+
+  private IssueKeyScanner(List<IssueTracker> trackers, List<IssueMatcher> matchers, Pattern combined) {
+    this.trackers = trackers;
+    this.matchers = matchers;
+    this.combined = combined;
+  }
+
+  /**
+   * Creates a scanner for the given trackers.
+   *
+   * @param trackers issue trackers of a repository
+   * @return new scanner
+   */
+  public static IssueKeyScanner create(Iterable<IssueTracker> trackers) {
+    List<IssueTracker> trackerList = ImmutableList.copyOf(trackers);
+    List<IssueMatcher> matchers = new ArrayList<>();
+    for (IssueTracker tracker : trackerList) {
+      if (tracker instanceof MatchingIssueTracker) {
+        matchers.add(((MatchingIssueTracker) tracker).getMatcher());
+      } else {
+        matchers.add(null);
+      }
+    }
+    return new IssueKeyScanner(trackerList, matchers, combine(matchers));
+  }
+
+  private static Pattern combine(List<IssueMatcher> matchers) {
+    StringBuilder builder = new StringBuilder();
+    for (IssueMatcher matcher : matchers) {
+      if (matcher != null) {
+        Pattern pattern = matcher.getKeyPattern();
+        if (!isCombinable(pattern)) {
+          LOG.debug("pattern {} can not be combined, fall back to separate scans", pattern);
+          return null;
+        }
+        if (builder.length() > 0) {
+          builder.append('|');
+        }
+        append(builder, pattern);
+      }
+    }
+    if (builder.length() == 0) {
+      return null;
+    }
+    try {
+      return Pattern.compile(builder.toString());
+    } catch (PatternSyntaxException ex) {
+      LOG.debug("failed to combine patterns, fall back to separate scans", ex);
+      return null;
+    }
+  }
+
+  private static boolean isCombinable(Pattern pattern) {
+    return (pattern.flags() & UNSUPPORTED_FLAGS) == 0
+      && !UNSAFE_CONSTRUCTS.matcher(pattern.pattern()).find();
+  }
+
+  private static void append(StringBuilder builder, Pattern pattern) {
+    builder.append("(?").append(inlineFlags(pattern.flags())).append(':');
+    builder.append(pattern.pattern());
+    if ((pattern.flags() & Pattern.COMMENTS) != 0) {
+      // a trailing comment would swallow the closing parenthesis
+      builder.append('\n');
+    }
+    builder.append(')');
+  }
+
+  private static String inlineFlags(int flags) {
+    StringBuilder builder = new StringBuilder();
+    appendFlag(builder, flags, Pattern.CASE_INSENSITIVE, 'i');
+    appendFlag(builder, flags, Pattern.UNIX_LINES, 'd');
+    appendFlag(builder, flags, Pattern.MULTILINE, 'm');
+    appendFlag(builder, flags, Pattern.DOTALL, 's');
+    appendFlag(builder, flags, Pattern.UNICODE_CASE, 'u');
+    appendFlag(builder, flags, Pattern.COMMENTS, 'x');
+    appendFlag(builder, flags, Pattern.UNICODE_CHARACTER_CLASS, 'U');
+    return builder.toString();
+  }
+
+  private static void appendFlag(StringBuilder builder, int flags, int flag, char c) {
+    if ((flags & flag) != 0) {
+      builder.append(c);
+    }
+  }
+
+  /**
+   * Finds the issues of all trackers in the given object. The result is the same as merging the results of
+   * {@link IssueTracker#findIssues(IssueReferencingObject)} of every tracker in order.
+   *
+   * @param object issue referencing object
+   * @return map of issues, key is the issue id and value is a link to issue
+   */
+  public Map<String, String> findIssues(IssueReferencingObject object) {
+    List<Set<String>> keys = find(object.getContent());
+    Map<String, String> issues = new LinkedHashMap<>();
+    for (int i = 0; i < trackers.size(); i++) {
+      IssueTracker tracker = trackers.get(i);
+      if (matchers.get(i) != null) {
+        for (String key : keys.get(i)) {
+          issues.put(key, ((MatchingIssueTracker) tracker).getLinkFactory().createLink(key));
+        }
+      } else {
+        Map<String, String> trackerMap = tracker.findIssues(object);
+        if (trackerMap != null) {
+          issues.putAll(trackerMap);
+        }
+      }
+    }
+    return issues;
+  }
+
+  /**
+   * Returns {@code true} if all trackers find their issues only in the content of the objects. The result of
+   * {@link #findIssues(IssueReferencingObject)} for those trackers depends only on the content and can be cached.
+   *
+   * @return {@code true} if the issues depend only on the content
+   */
+  public boolean isContentBased() {
+    return !matchers.contains(null);
+  }
+
+  /**
+   * Returns {@code false} if none of the trackers can find an issue key in the given value. This is much cheaper than
+   * {@link #findIssues(IssueReferencingObject)}, because it stops at the first candidate and does not create any
+   * links. If a tracker does not expose its matcher, the value can not be checked and {@code true} is returned.
+   *
+   * @param value value to check, e.g. the description of a changeset
+   * @return {@code false} if the value contains no issue keys for sure
+   */
+  public boolean mightContainKeys(String value) {
+    if (!isContentBased()) {
+      return true;
+    }
+    if (Strings.isNullOrEmpty(value)) {
+      return false;
+    }
+    if (combined != null) {
+      return combined.matcher(value).find();
+    }
+    for (IssueMatcher matcher : matchers) {
+      if (matcher.getKeyPattern().matcher(value).find()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @VisibleForTesting
+  List<Set<String>> find(List<Content> contents) {
+    List<Set<String>> keys = new ArrayList<>(matchers.size());
+    for (int i = 0; i < matchers.size(); i++) {
+      keys.add(new LinkedHashSet<>());
+    }
+    for (Content content : contents) {
+      String value = Strings.nullToEmpty(content.getValue());
+      if (combined != null) {
+        scan(value, keys);
+      } else {
+        scanSeparately(value, keys);
+      }
+    }
+    return keys;
+  }
+
+  private void scan(String value, List<Set<String>> keys) {
+    Matcher candidates = combined.matcher(value);
+    Matcher[] trackerMatchers = new Matcher[matchers.size()];
+    int[] next = new int[matchers.size()];
+
+    int from = 0;
+    while (from <= value.length() && candidates.find(from)) {
+      int start = candidates.start();
+      for (int i = 0; i < matchers.size(); i++) {
+        IssueMatcher matcher = matchers.get(i);
+        if (matcher != null && next[i] <= start) {
+          Matcher m = trackerMatcher(trackerMatchers, i, value);
+          m.region(start, value.length());
+          if (m.lookingAt()) {
+            keys.get(i).add(matcher.getKey(m));
+            // same as Matcher#find, which continues after the last match or one char later on empty matches
+            next[i] = m.end() == start ? start + 1 : m.end();
+          }
+        }
+      }
+      from = start + 1;
+    }
+  }
+
+  private Matcher trackerMatcher(Matcher[] trackerMatchers, int index, String value) {
+    Matcher matcher = trackerMatchers[index];
+    if (matcher == null) {
+      matcher = matchers.get(index).getKeyPattern().matcher(value)
+        .useTransparentBounds(true)
+        .useAnchoringBounds(false);
+      trackerMatchers[index] = matcher;
+    }
+    return matcher;
+  }
+
+  private void scanSeparately(String value, List<Set<String>> keys) {
+    for (int i = 0; i < matchers.size(); i++) {
+      IssueMatcher matcher = matchers.get(i);
+      if (matcher != null) {
+        Matcher m = matcher.getKeyPattern().matcher(value);
+        while (m.find()) {
+          keys.get(i).add(matcher.getKey(m));
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.issuetracker.internal;
+
+import com.github.legman.Subscribe;
+import sonia.scm.EagerSingleton;
+import sonia.scm.HandlerEventType;
+import sonia.scm.issuetracker.spi.IssueTrackerConfigurationChangedEvent;
+import sonia.scm.plugin.Extension;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryEvent;
+
+import jakarta.inject.Inject;
+
+@Extension
+@EagerSingleton
+public class IssueTrackerCacheListener {
+
+  private final IssueTrackerFactory issueTrackerFactory;
+  private final IssueTrackerManager legacyIssueTrackers;
+
+  @Inject
+  public IssueTrackerCacheListener(IssueTrackerFactory issueTrackerFactory, IssueTrackerManager legacyIssueTrackers) {
+    this.issueTrackerFactory = issueTrackerFactory;
+    this.legacyIssueTrackers = legacyIssueTrackers;
+  }
+
+  @Subscribe(async = false)
+  public void handle(RepositoryEvent event) {
+    HandlerEventType eventType = event.getEventType();
+    if (eventType == HandlerEventType.MODIFY || eventType == HandlerEventType.DELETE) {
+      Repository repository = event.getItem();
+      if (repository != null) {
+        issueTrackerFactory.invalidate(repository.getId());
+        legacyIssueTrackers.invalidate(repository.getId());
+      }
+    }
+  }
+
+  @Subscribe(async = false)
+  public void handle(IssueTrackerConfigurationChangedEvent event) {
+    event.getRepositoryId().ifPresentOrElse(
+      repositoryId -> {
+        issueTrackerFactory.invalidate(repositoryId);
+        legacyIssueTrackers.invalidate(repositoryId);
+      },
+      () -> {
+        issueTrackerFactory.invalidateAll();
+        legacyIssueTrackers.invalidateAll();
+      }
+    );
+  }
+}
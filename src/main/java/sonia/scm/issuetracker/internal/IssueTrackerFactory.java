@@ -16,44 +16,170 @@
 
 package sonia.scm.issuetracker.internal;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.base.Throwables;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sonia.scm.issuetracker.api.IssueReferencingObject;
 import sonia.scm.issuetracker.api.IssueTracker;
 import sonia.scm.issuetracker.spi.IssueTrackerBuilder;
 import sonia.scm.issuetracker.spi.IssueTrackerProvider;
 import sonia.scm.repository.Repository;
 
 import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
+/**
+ * Creates the issue trackers of a repository from all registered {@link IssueTrackerProvider}s.
+ * The created trackers are cached by repository id, the cache is cleared by the {@link IssueTrackerCacheListener}.
+ * Not every provider fires an event if its global configuration changes, so the cached trackers are recreated
+ * 10 minutes after their creation at the latest.
+ * Every creation of the trackers gets a new version, which is part of the key of the cached issues.
+ * The cached trackers are shared by all threads, see {@link IssueTrackerProvider} for the thread safety contract.
+ */
+@Singleton
 public class IssueTrackerFactory {
 
+  private static final Logger LOG = LoggerFactory.getLogger(IssueTrackerFactory.class);
+
+  @VisibleForTesting
+  static final int CACHE_SIZE = 500;
+  @VisibleForTesting
+  static final int ISSUES_CACHE_SIZE = 2000;
+  @VisibleForTesting
+  static final Duration EXPIRATION = Duration.ofMinutes(10);
+
+  private static final AtomicLong VERSIONS = new AtomicLong();
+
   private final IssueTrackerBuilder builder;
   private final Set<IssueTrackerProvider> providers;
+  private final Cache<String, RepositoryTrackers> cache;
+  private final FoundIssuesCache issues = new FoundIssuesCache(ISSUES_CACHE_SIZE);
 
   @Inject
   public IssueTrackerFactory(IssueTrackerBuilder builder, Set<IssueTrackerProvider> providers) {
+    this(builder, providers, Ticker.systemTicker());
+  }
+
+  @VisibleForTesting
+  IssueTrackerFactory(IssueTrackerBuilder builder, Set<IssueTrackerProvider> providers, Ticker ticker) {
     this.builder = builder;
     this.providers = providers;
+    this.cache = CacheBuilder.newBuilder()
+      .maximumSize(CACHE_SIZE)
+      .expireAfterWrite(EXPIRATION.toMillis(), TimeUnit.MILLISECONDS)
+      .ticker(ticker)
+      .build();
   }
 
   public Iterable<IssueTracker> trackers(Repository repository) {
-    return stream(repository)
-      .collect(Collectors.toList());
+    return load(repository).trackers;
   }
 
   public Optional<IssueTracker> tracker(Repository repository, String name) {
-    return stream(repository)
+    return load(repository).trackers
+      .stream()
       .filter(tracker -> name.equals(tracker.getName()))
       .findAny();
   }
 
-  private Stream<IssueTracker> stream(Repository repository) {
-    return providers.stream()
+  /**
+   * Returns the {@link IssueKeyScanner} for the issue trackers of the repository.
+   * The scanner is created once and cached together with the trackers.
+   *
+   * @param repository repository
+   * @return scanner for all trackers of the repository
+   */
+  public IssueKeyScanner scanner(Repository repository) {
+    return load(repository).scanner.get();
+  }
+
+  /**
+   * Finds the issues of all trackers of the repository in the given object. Results are cached by the content of
+   * the object, as long as all trackers find their issues in the content only.
+   *
+   * @param object issue referencing object
+   * @return unmodifiable map of issues, key is the issue id and value is a link to issue
+   */
+  public Map<String, String> findIssues(IssueReferencingObject object) {
+    Repository repository = object.getRepository();
+    RepositoryTrackers trackers = load(repository);
+    IssueKeyScanner scanner = trackers.scanner.get();
+    if (repository.getId() == null || !scanner.isContentBased()) {
+      return scanner.findIssues(object);
+    }
+    return issues.get(repository.getId(), trackers.version, object, scanner::findIssues);
+  }
+
+  /**
+   * Removes the cached issue trackers of the repository with the given id.
+   *
+   * @param repositoryId id of repository
+   */
+  public void invalidate(String repositoryId) {
+    LOG.debug("invalidate issue trackers of repository {}", repositoryId);
+    cache.invalidate(repositoryId);
+  }
+
+  /**
+   * Removes the cached issue trackers of all repositories.
+   */
+  public void invalidateAll() {
+    LOG.debug("invalidate issue trackers of all repositories");
+    cache.invalidateAll();
+    issues.invalidateAll();
+  }
+
+  private RepositoryTrackers load(Repository repository) {
+    String id = repository.getId();
+    if (id == null) {
+      return create(repository);
+    }
+    try {
+      return cache.get(id, () -> create(repository));
+    } catch (UncheckedExecutionException ex) {
+      Throwables.throwIfUnchecked(ex.getCause());
+      throw ex;
+    } catch (ExecutionException ex) {
+      throw new IllegalStateException("failed to create issue trackers for repository " + id, ex.getCause());
+    }
+  }
+
+  private RepositoryTrackers create(Repository repository) {
+    LOG.trace("create issue trackers for repository {}", repository.getId());
+    List<IssueTracker> trackers = providers.stream()
       .map(provider -> provider.create(builder, repository))
       .filter(Optional::isPresent)
-      .map(Optional::get);
+      .map(Optional::get)
+      .collect(Collectors.toUnmodifiableList());
+    return new RepositoryTrackers(trackers);
+  }
+
+  private static class RepositoryTrackers {
+
+    private final long version = VERSIONS.incrementAndGet();
+    private final List<IssueTracker> trackers;
+    private final Supplier<IssueKeyScanner> scanner;
+
+    private RepositoryTrackers(List<IssueTracker> trackers) {
+      this.trackers = trackers;
+      this.scanner = Suppliers.memoize(() -> IssueKeyScanner.create(trackers));
+    }
   }
 
 }
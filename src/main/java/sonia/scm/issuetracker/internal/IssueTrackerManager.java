@@ -18,17 +18,34 @@ package sonia.scm.issuetracker.internal;
 
 //~--- non-JDK imports --------------------------------------------------------
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableSet;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 
+import sonia.scm.issuetracker.IssueLinkFactory;
+import sonia.scm.issuetracker.IssueMatcher;
 import sonia.scm.issuetracker.IssueTracker;
+import sonia.scm.repository.Repository;
 
 //~--- JDK imports ------------------------------------------------------------
 
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 /**
+ * Matchers and link factories of the legacy trackers are cached per
+ * repository, because most trackers read the repository properties and
+ * compile a new pattern for each call. The cache is cleared by the
+ * {@link IssueTrackerCacheListener}. Legacy trackers can also change their
+ * global configuration without any event, so the entries expire after a
+ * few minutes.
  *
  * @author Sebastian Sdorra
  * @deprecated use {@link sonia.scm.issuetracker.api.IssueTracker} instead.
@@ -70,8 +87,101 @@ public class IssueTrackerManager
     return issueTrackers;
   }
 
+  /**
+   * Returns the cached matcher of the tracker for the repository.
+   *
+   *
+   * @param tracker legacy issue tracker
+   * @param repository repository
+   *
+   * @return matcher or empty
+   */
+  public Optional<IssueMatcher> getMatcher(IssueTracker tracker,
+    Repository repository)
+  {
+    if (repository.getId() == null)
+    {
+      return tracker.createMatcher(repository);
+    }
+
+    return load(repository).matchers.computeIfAbsent(tracker,
+      t -> t.createMatcher(repository));
+  }
+
+  /**
+   * Returns the cached link factory of the tracker for the repository.
+   *
+   *
+   * @param tracker legacy issue tracker
+   * @param repository repository
+   *
+   * @return link factory or empty
+   */
+  public Optional<IssueLinkFactory> getLinkFactory(IssueTracker tracker,
+    Repository repository)
+  {
+    if (repository.getId() == null)
+    {
+      return tracker.createLinkFactory(repository);
+    }
+
+    return load(repository).linkFactories.computeIfAbsent(tracker,
+      t -> t.createLinkFactory(repository));
+  }
+
+  /**
+   * Removes the cached matchers and link factories of the repository.
+   *
+   *
+   * @param repositoryId id of repository
+   */
+  public void invalidate(String repositoryId)
+  {
+    cache.invalidate(repositoryId);
+  }
+
+  /**
+   * Removes the cached matchers and link factories of all repositories.
+   */
+  public void invalidateAll()
+  {
+    cache.invalidateAll();
+  }
+
+  private RepositoryEntry load(Repository repository)
+  {
+    try
+    {
+      return cache.get(repository.getId(), RepositoryEntry::new);
+    }
+    catch (ExecutionException ex)
+    {
+      throw new IllegalStateException("failed to create cache entry", ex);
+    }
+  }
+
+  //~--- inner classes --------------------------------------------------------
+
+  private static class RepositoryEntry
+  {
+    private final Map<IssueTracker, Optional<IssueMatcher>> matchers =
+      new ConcurrentHashMap<>();
+
+    private final Map<IssueTracker, Optional<IssueLinkFactory>> linkFactories =
+      new ConcurrentHashMap<>();
+  }
+
   //~--- fields ---------------------------------------------------------------
 
+  @VisibleForTesting
+  static final int CACHE_SIZE = 500;
+
   /** Field description */
   private final Set<IssueTracker> issueTrackers;
+
+  /** matchers and link factories by repository id */
+  private final Cache<String, RepositoryEntry> cache = CacheBuilder.newBuilder()
+    .maximumSize(CACHE_SIZE)
+    .expireAfterWrite(10, TimeUnit.MINUTES)
+    .build();
 }
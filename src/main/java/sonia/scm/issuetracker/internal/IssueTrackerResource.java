@@ -16,6 +16,7 @@
 
 package sonia.scm.issuetracker.internal;
 
+import sonia.scm.issuetracker.internal.index.IssueReferenceResource;
 import sonia.scm.issuetracker.internal.resubmit.ResubmitResource;
 
 import jakarta.inject.Inject;
@@ -26,10 +27,12 @@ import jakarta.ws.rs.Path;
 public class IssueTrackerResource {
 
   private final Provider<ResubmitResource> resubmitResource;
+  private final Provider<IssueReferenceResource> referenceResource;
 
   @Inject
-  public IssueTrackerResource(Provider<ResubmitResource> resubmitResource) {
+  public IssueTrackerResource(Provider<ResubmitResource> resubmitResource, Provider<IssueReferenceResource> referenceResource) {
     this.resubmitResource = resubmitResource;
+    this.referenceResource = referenceResource;
   }
 
   @Path("resubmits")
@@ -37,4 +40,9 @@ public class IssueTrackerResource {
     return resubmitResource.get();
   }
 
+  @Path("references")
+  public IssueReferenceResource references() {
+    return referenceResource.get();
+  }
+
 }
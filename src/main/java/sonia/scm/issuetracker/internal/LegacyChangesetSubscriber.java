@@ -92,9 +92,17 @@ public class LegacyChangesetSubscriber
 
       if (repository != null)
       {
+        Iterable<Changeset> changesets = null;
+
         for (IssueTracker tracker : manager.getIssueTrackers())
         {
-          handleEvent(event, repository, tracker);
+          if (changesets == null)
+          {
+            // read the changesets only once for all trackers
+            changesets = getChangesets(event, repository);
+          }
+
+          handleEvent(changesets, repository, tracker);
         }
       }
       else
@@ -144,17 +152,36 @@ public class LegacyChangesetSubscriber
    * @param repository
    * @param changeset
    * @param issueKeys
+   *
+   * @return true if the request was handled
    */
-  private void handleChangeset(IssueTracker tracker, Repository repository,
+  private boolean handleChangeset(IssueTracker tracker, Repository repository,
     Changeset changeset, List<String> issueKeys) 
   {
     Optional<User> committer = getCommitter();
     IssueRequest request = new IssueRequest(repository, changeset, issueKeys, committer);
     try {
       tracker.handleRequest(request);
-      tracker.markAsHandled(repository, changeset);
+      return true;
     } catch ( Exception ex ){
       logger.error("error during issue request handling", ex);
+      return false;
+    }
+  }
+
+  private void markAsHandled(IssueTracker tracker, Repository repository,
+    List<Changeset> handled)
+  {
+    if (!handled.isEmpty())
+    {
+      try
+      {
+        tracker.markAsHandled(repository, handled);
+      }
+      catch (Exception ex)
+      {
+        logger.error("failed to mark changesets as handled", ex);
+      }
     }
   }
 
@@ -172,39 +199,41 @@ public class LegacyChangesetSubscriber
    * Method description
    *
    *
-   * @param event
+   * @param changesets
    * @param repository
    * @param tracker
    */
-  private void handleEvent(PostReceiveRepositoryHookEvent event,
+  private void handleEvent(Iterable<Changeset> changesets,
     Repository repository, IssueTracker tracker)
   {
-    Optional<IssueMatcher> matcher = tracker.createMatcher(repository);
+    Optional<IssueMatcher> matcher = manager.getMatcher(tracker, repository);
 
     if (matcher.isPresent())
     {
-      Iterable<Changeset> changesets = getChangesets(event, repository);
-
       if (changesets != null)
       {
         Pattern pattern = matcher.get().getKeyPattern();
+        // the changesets of the push are marked at once, which allows the
+        // tracker to write its store only once
+        List<Changeset> handled = Lists.newArrayList();
 
         for (Changeset c : changesets)
         {
-          if (!tracker.isHandled(repository, c))
-          {
-
-            List<String> issueKeys = extractIssueKeys(matcher.get(), pattern,
-                                       c.getDescription());
+          // the keys are extracted first, because the lookup of handled
+          // changesets is much more expensive than the pattern
+          List<String> issueKeys = extractIssueKeys(matcher.get(), pattern,
+                                     c.getDescription());
 
-            if (!issueKeys.isEmpty())
-            {
-              handleChangeset(tracker, repository, c, issueKeys);
-            }
-            else
+          if (issueKeys.isEmpty())
+          {
+            logger.trace("no issue keys found for changeset {} at {}",
+              c.getId(), repository.getName());
+          }
+          else if (!tracker.isHandled(repository, c))
+          {
+            if (handleChangeset(tracker, repository, c, issueKeys))
             {
-              logger.trace("no issue keys found for changeset {} at {}",
-                c.getId(), repository.getName());
+              handled.add(c);
             }
           }
           else
@@ -213,6 +242,8 @@ public class LegacyChangesetSubscriber
               repository.getName());
           }
         }
+
+        markAsHandled(tracker, repository, handled);
       }
       else
       {
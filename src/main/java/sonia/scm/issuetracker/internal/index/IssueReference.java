@@ -0,0 +1,32 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.issuetracker.internal.index;
+
+import lombok.Value;
+
+import java.time.Instant;
+
+/**
+ * Reference from an object, e.g. a changeset or a pull request, to an issue.
+ */
+@Value
+public class IssueReference {
+  String issueKey;
+  String type;
+  String id;
+  Instant date;
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.issuetracker.internal.index;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.shiro.SecurityUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sonia.scm.issuetracker.api.IssueReferencingObject;
+import sonia.scm.issuetracker.internal.ChangesetMapper;
+import sonia.scm.issuetracker.spi.TuningProperties;
+import sonia.scm.repository.Branch;
+import sonia.scm.repository.Changeset;
+import sonia.scm.repository.ChangesetPagingResult;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.api.Command;
+import sonia.scm.repository.api.LogCommandBuilder;
+import sonia.scm.repository.api.RepositoryService;
+import sonia.scm.repository.api.RepositoryServiceFactory;
+
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Adds the changesets which were pushed before the index existed to the {@link IssueReferenceIndex}. The log of every
+ * branch is read in pages, so only one page of changesets is held in memory at a time. Repositories without branch
+ * support are read from their default log. Changesets which are reachable from more than one branch are read once per
+ * branch, but are skipped by the index if they are already part of it.
+ */
+@Singleton
+public class IssueReferenceBackfill implements Closeable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(IssueReferenceBackfill.class);
+
+  private static final int DEFAULT_BATCH_SIZE = 200;
+
+  private final RepositoryServiceFactory serviceFactory;
+  private final ChangesetMapper mapper;
+  private final IssueReferenceIndexer indexer;
+  private final ExecutorService executor;
+  private final int batchSize;
+
+  private final Set<String> running = ConcurrentHashMap.newKeySet();
+
+  @Inject
+  public IssueReferenceBackfill(RepositoryServiceFactory serviceFactory, ChangesetMapper mapper, IssueReferenceIndexer indexer) {
+    this(
+      serviceFactory, mapper, indexer,
+      Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setNameFormat("IssueReferenceBackfill-%d").setDaemon(true).build()),
+      TuningProperties.getPositiveInt("index.backfillBatchSize", DEFAULT_BATCH_SIZE)
+    );
+  }
+
+  @VisibleForTesting
+  IssueReferenceBackfill(RepositoryServiceFactory serviceFactory, ChangesetMapper mapper, IssueReferenceIndexer indexer, ExecutorService executor, int batchSize) {
+    this.serviceFactory = serviceFactory;
+    this.mapper = mapper;
+    this.indexer = indexer;
+    this.executor = executor;
+    this.batchSize = batchSize;
+  }
+
+  /**
+   * Starts the backfill of the repository in the background.
+   *
+   * @param repository repository
+   * @return {@code false} if a backfill for the repository is already running
+   */
+  public boolean start(Repository repository) {
+    if (!running.add(repository.getId())) {
+      return false;
+    }
+    executor.execute(SecurityUtils.getSubject().associateWith(() -> {
+      try {
+        backfill(repository);
+      } catch (Exception ex) {
+        LOG.error("failed to backfill issue references of repository {}", repository, ex);
+      } finally {
+        running.remove(repository.getId());
+      }
+    }));
+    return true;
+  }
+
+  public boolean isRunning(Repository repository) {
+    return running.contains(repository.getId());
+  }
+
+  private void backfill(Repository repository) throws IOException {
+    try (RepositoryService service = serviceFactory.create(repository)) {
+      if (!service.isSupported(Command.LOG)) {
+        LOG.debug("repository {} does not support the log command, skip backfill", repository);
+        return;
+      }
+      int changesets = 0;
+      if (service.isSupported(Command.BRANCHES)) {
+        for (Branch branch : service.getBranchesCommand().setDisableCache(true).getBranches()) {
+          changesets += backfill(repository, service, branch.getName());
+        }
+      } else {
+        changesets = backfill(repository, service, null);
+      }
+      LOG.info("backfilled issue references of {} changesets of repository {}", changesets, repository);
+    }
+  }
+
+  private int backfill(Repository repository, RepositoryService service, String branch) throws IOException {
+    int start = 0;
+    int count;
+    do {
+      LogCommandBuilder logCommand = service.getLogCommand()
+        .setDisableCache(true)
+        .setPagingStart(start)
+        .setPagingLimit(batchSize);
+      if (branch != null) {
+        logCommand.setBranch(branch);
+      }
+      count = index(repository, logCommand.getChangesets());
+      start += count;
+    } while (count == batchSize);
+    return start;
+  }
+
+  private int index(Repository repository, ChangesetPagingResult result) {
+    if (result == null || result.getChangesets() == null) {
+      return 0;
+    }
+    List<IssueReferencingObject> refs = new ArrayList<>(batchSize);
+    for (Changeset changeset : result.getChangesets()) {
+      refs.add(mapper.ref(repository, changeset));
+    }
+    indexer.index(refs);
+    return refs.size();
+  }
+
+  @Override
+  public void close() {
+    executor.shutdownNow();
+  }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.issuetracker.internal.index;
+
+import de.otto.edison.hal.HalRepresentation;
+import lombok.Getter;
+
+import java.time.Instant;
+
+@Getter
+@SuppressWarnings("java:S2160") // we don't need equals for dto
+public class IssueReferenceDto extends HalRepresentation {
+
+  private final String type;
+  private final String id;
+  private final Instant date;
+
+  public IssueReferenceDto(IssueReference reference) {
+    this.type = reference.getType();
+    this.id = reference.getId();
+    this.date = reference.getDate();
+  }
+}
@@ -0,0 +1,262 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.issuetracker.internal.index;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sonia.scm.issuetracker.spi.LongHashSet;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Append-only index of the issue references of one repository.
+ * <br>
+ * The file starts with a header of 8 bytes followed by length prefixed records of issue key, type, id and date.
+ * Appends are forced to disk before they return. A record which was only partially written, e.g. because of a
+ * crash, is dropped when the index is loaded. Each reference is stored only once, the index keeps the fingerprints
+ * of all references to skip duplicates. An index without path keeps the references only in memory.
+ * <br>
+ * The file is read on the first access. If it could not be read, every access fails until it was read successfully,
+ * so that an unreadable index is never mistaken for an empty one. Issue keys are compared case insensitive.
+ */
+public final class IssueReferenceIndex {
+
+  private static final Logger LOG = LoggerFactory.getLogger(IssueReferenceIndex.class);
+
+  @VisibleForTesting
+  static final long HEADER = 0x53434d4952490001L; // "SCMIRI" and version 1
+
+  private static final Comparator<IssueReference> NEWEST_FIRST =
+    Comparator.comparing(IssueReference::getDate, Comparator.nullsLast(Comparator.reverseOrder()));
+
+  private static final long NO_INSTANT = Long.MIN_VALUE;
+
+  private final Path path;
+
+  private Map<String, List<IssueReference>> references;
+  private LongHashSet fingerprints;
+
+  IssueReferenceIndex(Path path) {
+    this.path = path;
+  }
+
+  /**
+   * Creates an index which keeps the references only in memory.
+   *
+   * @return in memory index
+   */
+  public static IssueReferenceIndex inMemory() {
+    return new IssueReferenceIndex(null);
+  }
+
+  /**
+   * Adds the references, which are not yet part of the index.
+   *
+   * @param newReferences references to add
+   * @return number of added references
+   */
+  public synchronized int add(Collection<IssueReference> newReferences) {
+    load();
+    List<IssueReference> added = new ArrayList<>();
+    LongHashSet addedFingerprints = new LongHashSet();
+    for (IssueReference reference : newReferences) {
+      long fingerprint = fingerprint(reference);
+      if (!fingerprints.contains(fingerprint) && addedFingerprints.add(fingerprint)) {
+        added.add(reference);
+      }
+    }
+    if (added.isEmpty()) {
+      return 0;
+    }
+    if (path != null) {
+      appendToFile(added);
+    }
+    // the references are only part of the index, if they were written successfully
+    fingerprints.addAll(addedFingerprints.toArray());
+    added.forEach(this::put);
+    return added.size();
+  }
+
+  /**
+   * Returns all references to the issue, the newest references first.
+   *
+   * @param issueKey key of the issue
+   * @return references to the issue
+   */
+  public synchronized List<IssueReference> find(String issueKey) {
+    load();
+    List<IssueReference> issueReferences = new ArrayList<>(references.getOrDefault(normalize(issueKey), Collections.emptyList()));
+    issueReferences.sort(NEWEST_FIRST);
+    return issueReferences;
+  }
+
+  public synchronized int size() {
+    load();
+    return fingerprints.size();
+  }
+
+  private void put(IssueReference reference) {
+    references.computeIfAbsent(normalize(reference.getIssueKey()), key -> new ArrayList<>(1)).add(reference);
+  }
+
+  private void load() {
+    if (references != null) {
+      return;
+    }
+    // the file is read before the fields are assigned, so that a failed read is retried on the next access
+    List<IssueReference> stored = path != null && Files.exists(path) ? read() : Collections.emptyList();
+    references = new HashMap<>();
+    fingerprints = new LongHashSet();
+    for (IssueReference reference : stored) {
+      if (fingerprints.add(fingerprint(reference))) {
+        put(reference);
+      }
+    }
+  }
+
+  private List<IssueReference> read() {
+    try {
+      ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+      if (buffer.remaining() < Long.BYTES || buffer.getLong() != HEADER) {
+        throw new IOException("unknown format of issue reference index " + path);
+      }
+      List<IssueReference> result = new ArrayList<>();
+      int validSize = Long.BYTES;
+      while (buffer.remaining() >= Integer.BYTES) {
+        int length = buffer.getInt();
+        if (length < 0 || buffer.remaining() < length) {
+          break;
+        }
+        byte[] record = new byte[length];
+        buffer.get(record);
+        result.add(readRecord(record));
+        validSize = buffer.position();
+      }
+      if (validSize < buffer.limit()) {
+        LOG.warn("drop incomplete record at the end of issue reference index {}", path);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+          channel.truncate(validSize);
+        }
+      }
+      return result;
+    } catch (IOException ex) {
+      throw new UncheckedIOException("failed to read issue reference index " + path, ex);
+    }
+  }
+
+  private void appendToFile(List<IssueReference> added) {
+    try {
+      if (!Files.exists(path)) {
+        create();
+      }
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      try (DataOutputStream output = new DataOutputStream(bytes)) {
+        for (IssueReference reference : added) {
+          byte[] record = writeRecord(reference);
+          output.writeInt(record.length);
+          output.write(record);
+        }
+      }
+      try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+        writeFully(channel, ByteBuffer.wrap(bytes.toByteArray()));
+        channel.force(false);
+      }
+    } catch (IOException ex) {
+      throw new UncheckedIOException("failed to append to issue reference index " + path, ex);
+    }
+  }
+
+  private void create() throws IOException {
+    Files.createDirectories(path.getParent());
+    Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+    try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+      buffer.putLong(HEADER);
+      buffer.flip();
+      writeFully(channel, buffer);
+      channel.force(true);
+    }
+    Files.move(tmp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  private void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+
+  private byte[] writeRecord(IssueReference reference) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream output = new DataOutputStream(bytes)) {
+      output.writeUTF(reference.getIssueKey());
+      output.writeUTF(reference.getType());
+      output.writeUTF(reference.getId());
+      output.writeLong(reference.getDate() != null ? reference.getDate().toEpochMilli() : NO_INSTANT);
+    }
+    return bytes.toByteArray();
+  }
+
+  private IssueReference readRecord(byte[] record) throws IOException {
+    try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(record))) {
+      String issueKey = input.readUTF();
+      String type = input.readUTF();
+      String id = input.readUTF();
+      long millis = input.readLong();
+      return new IssueReference(issueKey, type, id, millis != NO_INSTANT ? Instant.ofEpochMilli(millis) : null);
+    }
+  }
+
+  private static long fingerprint(IssueReference reference) {
+    Hasher hasher = Hashing.murmur3_128().newHasher();
+    put(hasher, normalize(reference.getIssueKey()));
+    put(hasher, reference.getType());
+    put(hasher, reference.getId());
+    return hasher.hash().asLong();
+  }
+
+  private static void put(Hasher hasher, String value) {
+    hasher.putInt(value.length()).putString(value, StandardCharsets.UTF_8);
+  }
+
+  private static String normalize(String issueKey) {
+    return issueKey.toUpperCase(Locale.ENGLISH);
+  }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.issuetracker.internal.index;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryLocationResolver;
+
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+
+/**
+ * Creates the {@link IssueReferenceIndex} in the directory of a repository. As long as an index is in use, the same
+ * instance is returned for the same repository.
+ */
+@Singleton
+public class IssueReferenceIndexFactory {
+
+  private static final String DIRECTORY = "issuetracker";
+  private static final String FILE_NAME = "references.index";
+
+  private final Function<String, Path> repositoryDirectory;
+  private final Cache<Path, IssueReferenceIndex> indices = CacheBuilder.newBuilder().weakValues().build();
+
+  @Inject
+  public IssueReferenceIndexFactory(RepositoryLocationResolver locationResolver) {
+    this(repositoryId -> locationResolver.forClass(Path.class).getLocation(repositoryId));
+  }
+
+  @VisibleForTesting
+  public IssueReferenceIndexFactory(Function<String, Path> repositoryDirectory) {
+    this.repositoryDirectory = repositoryDirectory;
+  }
+
+  /**
+   * Returns the index of the repository.
+   *
+   * @param repository repository
+   * @return issue reference index
+   */
+  public IssueReferenceIndex get(Repository repository) {
+    Path path = repositoryDirectory.apply(repository.getId()).resolve(DIRECTORY).resolve(FILE_NAME);
+    try {
+      return indices.get(path.toAbsolutePath().normalize(), () -> new IssueReferenceIndex(path));
+    } catch (ExecutionException ex) {
+      throw new IllegalStateException("failed to create issue reference index " + path, ex.getCause());
+    }
+  }
+}
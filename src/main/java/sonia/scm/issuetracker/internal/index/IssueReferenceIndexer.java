@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.issuetracker.internal.index;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sonia.scm.issuetracker.api.IssueReferencingObject;
+import sonia.scm.issuetracker.api.IssueTracker;
+import sonia.scm.repository.Repository;
+
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Records which objects are referencing which issues in the {@link IssueReferenceIndex} of their repository.
+ * The issues are found by the issue trackers of the repository.
+ */
+@Singleton
+public class IssueReferenceIndexer {
+
+  private static final Logger LOG = LoggerFactory.getLogger(IssueReferenceIndexer.class);
+
+  private final IssueTracker issueTracker;
+  private final IssueReferenceIndexFactory indexFactory;
+
+  @Inject
+  public IssueReferenceIndexer(IssueTracker issueTracker, IssueReferenceIndexFactory indexFactory) {
+    this.issueTracker = issueTracker;
+    this.indexFactory = indexFactory;
+  }
+
+  /**
+   * Adds the references of the object to the index.
+   *
+   * @param object issue referencing object
+   */
+  public void index(IssueReferencingObject object) {
+    index(Collections.singletonList(object));
+  }
+
+  /**
+   * Adds the references of all objects to the indices of their repositories. Failures are logged, because the index
+   * must never stop the processing of the objects.
+   *
+   * @param objects issue referencing objects
+   */
+  public void index(Collection<IssueReferencingObject> objects) {
+    Map<String, List<IssueReferencingObject>> byRepository = new LinkedHashMap<>();
+    for (IssueReferencingObject object : objects) {
+      byRepository.computeIfAbsent(object.getRepository().getId(), id -> new ArrayList<>()).add(object);
+    }
+    for (List<IssueReferencingObject> repositoryObjects : byRepository.values()) {
+      Repository repository = repositoryObjects.get(0).getRepository();
+      try {
+        int added = indexFactory.get(repository).add(references(repositoryObjects));
+        LOG.trace("added {} issue references to index of repository {}", added, repository);
+      } catch (Exception ex) {
+        LOG.warn("failed to index issue references of repository {}", repository, ex);
+      }
+    }
+  }
+
+  private List<IssueReference> references(List<IssueReferencingObject> objects) {
+    List<IssueReference> references = new ArrayList<>();
+    for (IssueReferencingObject object : objects) {
+      for (String issueKey : issueTracker.findIssues(object).keySet()) {
+        references.add(new IssueReference(issueKey, object.getType(), object.getId(), object.getDate()));
+      }
+    }
+    return references;
+  }
+
+  /**
+   * Returns all references to the issue in the repository, the newest references first.
+   *
+   * @param repository repository
+   * @param issueKey key of the issue
+   * @return references to the issue
+   */
+  public List<IssueReference> find(Repository repository, String issueKey) {
+    return indexFactory.get(repository).find(issueKey);
+  }
+}
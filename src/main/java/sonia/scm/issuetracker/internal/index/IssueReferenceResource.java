@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.issuetracker.internal.index;
+
+import com.google.common.annotations.VisibleForTesting;
+import de.otto.edison.hal.Embedded;
+import de.otto.edison.hal.HalRepresentation;
+import de.otto.edison.hal.Links;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import sonia.scm.api.v2.resources.ErrorDto;
+import sonia.scm.repository.NamespaceAndName;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryManager;
+import sonia.scm.repository.RepositoryPermissions;
+import sonia.scm.web.VndMediaType;
+
+import jakarta.inject.Inject;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.UriInfo;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static sonia.scm.ContextEntry.ContextBuilder.entity;
+import static sonia.scm.NotFoundException.notFound;
+
+public class IssueReferenceResource {
+
+  @VisibleForTesting
+  static final String MEDIA_TYPE_REFERENCES = VndMediaType.PREFIX + "issueTrackerReferences" + VndMediaType.SUFFIX;
+
+  private final RepositoryManager repositoryManager;
+  private final IssueReferenceIndexer indexer;
+  private final IssueReferenceBackfill backfill;
+
+  @Inject
+  public IssueReferenceResource(RepositoryManager repositoryManager, IssueReferenceIndexer indexer, IssueReferenceBackfill backfill) {
+    this.repositoryManager = repositoryManager;
+    this.indexer = indexer;
+    this.backfill = backfill;
+  }
+
+  @GET
+  @Path("{namespace}/{name}/{issueKey}")
+  @Produces(MEDIA_TYPE_REFERENCES)
+  @Operation(
+    summary = "Get issue references",
+    description = "Returns all changesets, pull requests and comments of the repository which are referencing the issue.",
+    tags = "Issue Tracker",
+    operationId = "issue_tracker_references"
+  )
+  @ApiResponse(
+    responseCode = "200",
+    description = "success",
+    content = @Content(
+      mediaType = MEDIA_TYPE_REFERENCES,
+      schema = @Schema(implementation = HalRepresentation.class)
+    )
+  )
+  @ApiResponse(responseCode = "401", description = "not authenticated / invalid credentials")
+  @ApiResponse(responseCode = "403", description = "not authorized, the current user has no privileges to read the repository")
+  @ApiResponse(
+    responseCode = "404",
+    description = "not found, no repository with the specified namespace and name available",
+    content = @Content(
+      mediaType = VndMediaType.ERROR_TYPE,
+      schema = @Schema(implementation = ErrorDto.class)
+    )
+  )
+  @ApiResponse(
+    responseCode = "500",
+    description = "internal server error",
+    content = @Content(
+      mediaType = VndMediaType.ERROR_TYPE,
+      schema = @Schema(implementation = ErrorDto.class)
+    )
+  )
+  public HalRepresentation references(@Context UriInfo uriInfo,
+                                      @PathParam("namespace") String namespace,
+                                      @PathParam("name") String name,
+                                      @PathParam("issueKey") String issueKey) {
+    Repository repository = repository(namespace, name);
+    RepositoryPermissions.read(repository).check();
+
+    List<IssueReferenceDto> references = indexer.find(repository, issueKey)
+      .stream()
+      .map(IssueReferenceDto::new)
+      .collect(Collectors.toList());
+    Links links = Links.linkingTo().self(uriInfo.getAbsolutePath().toASCIIString()).build();
+    return new HalRepresentation(links, Embedded.embedded("references", references));
+  }
+
+  @POST
+  @Path("{namespace}/{name}/backfill")
+  @Operation(
+    summary = "Backfill issue references",
+    description = "Adds the issue references of the existing changesets of all branches of the repository to the index.",
+    tags = "Issue Tracker",
+    operationId = "issue_tracker_references_backfill"
+  )
+  @ApiResponse(responseCode = "202", description = "accepted")
+  @ApiResponse(responseCode = "401", description = "not authenticated / invalid credentials")
+  @ApiResponse(responseCode = "403", description = "not authorized, the current user has no privileges to modify the repository")
+  @ApiResponse(
+    responseCode = "404",
+    description = "not found, no repository with the specified namespace and name available",
+    content = @Content(
+      mediaType = VndMediaType.ERROR_TYPE,
+      schema = @Schema(implementation = ErrorDto.class)
+    )
+  )
+  @ApiResponse(
+    responseCode = "500",
+    description = "internal server error",
+    content = @Content(
+      mediaType = VndMediaType.ERROR_TYPE,
+      schema = @Schema(implementation = ErrorDto.class)
+    )
+  )
+  public Response backfill(@PathParam("namespace") String namespace, @PathParam("name") String name) {
+    Repository repository = repository(namespace, name);
+    RepositoryPermissions.modify(repository).check();
+
+    backfill.start(repository);
+    return Response.accepted().build();
+  }
+
+  private Repository repository(String namespace, String name) {
+    NamespaceAndName namespaceAndName = new NamespaceAndName(namespace, name);
+    Repository repository = repositoryManager.get(namespaceAndName);
+    if (repository == null) {
+      throw notFound(entity(namespaceAndName));
+    }
+    return repository;
+  }
+}
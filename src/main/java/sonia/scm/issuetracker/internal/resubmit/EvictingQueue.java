@@ -24,6 +24,7 @@ import com.google.errorprone.annotations.CanIgnoreReturnValue;
 import jakarta.xml.bind.annotation.XmlAccessType;
 import jakarta.xml.bind.annotation.XmlAccessorType;
 import java.util.ArrayDeque;
+import java.util.Collection;
 import java.util.Queue;
 
 @XmlAccessorType(XmlAccessType.FIELD)
@@ -66,4 +67,17 @@ public final class EvictingQueue<E> extends ForwardingQueue<E> {
     }
   }
 
+  @Override
+  @CanIgnoreReturnValue
+  public boolean offer(E e) {
+    return add(e);
+  }
+
+  @Override
+  @CanIgnoreReturnValue
+  public boolean addAll(Collection<? extends E> collection) {
+    // the forwarding implementations would add the elements to the delegate without eviction
+    return standardAddAll(collection);
+  }
+
 }
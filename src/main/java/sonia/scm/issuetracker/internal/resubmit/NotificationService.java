@@ -19,10 +19,12 @@ package sonia.scm.issuetracker.internal.resubmit;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import lombok.Value;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import sonia.scm.config.ScmConfiguration;
+import sonia.scm.issuetracker.spi.TuningProperties;
 import sonia.scm.mail.api.MailSendBatchException;
 import sonia.scm.mail.api.MailService;
 import sonia.scm.mail.api.MailTemplateType;
@@ -30,17 +32,32 @@ import sonia.scm.util.HttpUtil;
 
 import jakarta.inject.Inject;
 import jakarta.inject.Singleton;
+import java.io.Closeable;
 import java.text.MessageFormat;
+import java.time.Duration;
 import java.util.Collection;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.ResourceBundle;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Function;
 
+/**
+ * Sends mail notifications about queued comments and resubmits. Notifications are sent asynchronously. Failed
+ * comments are collected per issue tracker for a configurable window
+ * ({@code scm.issuetracker.resubmit.notification.windowSeconds}, default 60). If only one comment has failed within
+ * the window, a mail for this comment is sent, otherwise a single digest mail with the number of failed comments and
+ * the oldest and newest failure is sent.
+ */
 @Singleton
-public class NotificationService {
+public class NotificationService implements Closeable {
 
   private static final String SUBJECT_BUNDLE = "sonia.scm.issuetracker.internal.resubmit.subjects";
   private static final Locale DEFAULT_LOCALE = Locale.ENGLISH;
@@ -52,27 +69,96 @@ public class NotificationService {
   @VisibleForTesting
   static final String TEMPLATE_RESUBMIT = "/sonia/scm/issuetracker/internal/resubmit/resubmit-mail.mustache";
 
+  @VisibleForTesting
+  static final String TEMPLATE_DIGEST = "/sonia/scm/issuetracker/internal/resubmit/digest-mail.mustache";
+
+  private static final int DEFAULT_WINDOW_SECONDS = 60;
+
   private static final Logger LOG = LoggerFactory.getLogger(NotificationService.class);
 
   private final ResubmitConfigurationStore store;
   private final ScmConfiguration configuration;
   private final MailService mailService;
   private final Map<Locale, ResourceBundle> subjects;
+  private final ScheduledExecutorService executor;
+  private final Duration window;
+
+  private final Map<String, Digest> digests = new ConcurrentHashMap<>();
 
   @Inject
   public NotificationService(ResubmitConfigurationStore store, ScmConfiguration configuration, MailService mailService) {
+    this(
+      store, configuration, mailService,
+      Executors.newSingleThreadScheduledExecutor(
+        new ThreadFactoryBuilder().setNameFormat("IssueTrackerNotification-%d").setDaemon(true).build()
+      ),
+      Duration.ofSeconds(TuningProperties.getPositiveInt("resubmit.notification.windowSeconds", DEFAULT_WINDOW_SECONDS))
+    );
+  }
+
+  @VisibleForTesting
+  NotificationService(ResubmitConfigurationStore store, ScmConfiguration configuration, MailService mailService, ScheduledExecutorService executor, Duration window) {
     this.store = store;
     this.configuration = configuration;
     this.mailService = mailService;
+    this.executor = executor;
+    this.window = window;
 
     subjects = Maps.asMap(LOCALES, locale -> ResourceBundle.getBundle(SUBJECT_BUNDLE, locale));
   }
 
+  /**
+   * Collects the failed comment for the digest of its issue tracker. The digest is sent after the window has
+   * elapsed, counted from the first failure.
+   *
+   * @param comment failed comment
+   */
   public void notifyComment(QueuedComment comment) {
-    notify(TEMPLATE_COMMENT, new CommentModel(comment, createResubmitUrl()), bundle -> {
-      String subject = bundle.getString("comment");
-      return MessageFormat.format(subject, comment.getIssueTracker(), comment.getIssueKey());
+    String issueTracker = comment.getIssueTracker();
+    AtomicBoolean created = new AtomicBoolean();
+    digests.compute(issueTracker, (name, digest) -> {
+      if (digest == null) {
+        created.set(true);
+        return new Digest(comment);
+      }
+      digest.add(comment);
+      return digest;
     });
+    if (created.get()) {
+      schedule(() -> flush(issueTracker));
+    }
+  }
+
+  private void schedule(Runnable runnable) {
+    try {
+      executor.schedule(runnable, window.toMillis(), TimeUnit.MILLISECONDS);
+    } catch (RejectedExecutionException ex) {
+      LOG.debug("notification executor is shut down, send notification directly");
+      runnable.run();
+    }
+  }
+
+  private void flush(String issueTracker) {
+    Digest digest = digests.remove(issueTracker);
+    if (digest != null) {
+      send(issueTracker, digest);
+    }
+  }
+
+  private void send(String issueTracker, Digest digest) {
+    if (digest.count == 1) {
+      QueuedComment comment = digest.oldest;
+      notify(TEMPLATE_COMMENT, new CommentModel(comment, createResubmitUrl()), bundle -> {
+        String subject = bundle.getString("comment");
+        return MessageFormat.format(subject, comment.getIssueTracker(), comment.getIssueKey());
+      });
+    } else {
+      DigestModel model = new DigestModel(issueTracker, digest.count, digest.oldest, digest.newest, createResubmitUrl());
+      notify(TEMPLATE_DIGEST, model, bundle -> {
+        String subject = bundle.getString("digest");
+        return MessageFormat.format(subject, issueTracker, digest.count);
+      });
+    }
   }
 
   private String createResubmitUrl() {
@@ -80,10 +166,18 @@ public class NotificationService {
   }
 
   public void notifyResubmit(String issueTracker, Collection<QueuedComment> remove, Collection<QueuedComment> requeue) {
-    notify(TEMPLATE_RESUBMIT, new ResubmitModel(issueTracker, remove.size(), requeue.size(), createResubmitUrl()), bundle -> {
+    int removeCount = remove.size();
+    int requeueCount = requeue.size();
+    Runnable notification = () -> notify(TEMPLATE_RESUBMIT, new ResubmitModel(issueTracker, removeCount, requeueCount, createResubmitUrl()), bundle -> {
       String subject = bundle.getString("resubmit");
-      return MessageFormat.format(subject, issueTracker, remove.size(), requeue.size());
+      return MessageFormat.format(subject, issueTracker, removeCount, requeueCount);
     });
+    try {
+      executor.execute(notification);
+    } catch (RejectedExecutionException ex) {
+      LOG.debug("notification executor is shut down, send notification directly");
+      notification.run();
+    }
   }
 
   private void notify(String template, Object model, Function<ResourceBundle, String> subjectSupplier) {
@@ -119,6 +213,37 @@ public class NotificationService {
       mailBuilder.send();
     } catch (MailSendBatchException e) {
       LOG.warn("failed to send notification", e);
+    } catch (RuntimeException e) {
+      // notifications are sent asynchronously, nobody else would log the exception
+      LOG.warn("unexpected error while sending notification", e);
+    }
+  }
+
+  /**
+   * Sends the pending digests and stops the executor.
+   */
+  @Override
+  public void close() {
+    executor.shutdownNow();
+    for (String issueTracker : ImmutableSet.copyOf(digests.keySet())) {
+      flush(issueTracker);
+    }
+  }
+
+  private static final class Digest {
+
+    private final QueuedComment oldest;
+    private QueuedComment newest;
+    private int count = 1;
+
+    private Digest(QueuedComment comment) {
+      this.oldest = comment;
+      this.newest = comment;
+    }
+
+    private void add(QueuedComment comment) {
+      newest = comment;
+      count++;
     }
   }
 
@@ -129,6 +254,16 @@ public class NotificationService {
     String url;
   }
 
+  @Value
+  @VisibleForTesting
+  public static class DigestModel {
+    String issueTracker;
+    int count;
+    QueuedComment oldest;
+    QueuedComment newest;
+    String url;
+  }
+
   @Value
   @VisibleForTesting
   public static class ResubmitModel {
@@ -43,6 +43,10 @@ public class QueuedComment {
   @XmlJavaTypeAdapter(XmlInstantAdapter.class)
   private Instant date;
 
+  @EqualsAndHashCode.Exclude
+  @XmlJavaTypeAdapter(XmlInstantAdapter.class)
+  private Instant lastAttempt;
+
   public QueuedComment(String repository, String issueTracker, String issueKey, String comment) {
     this.repository = repository;
     this.issueTracker = issueTracker;
@@ -54,5 +58,6 @@ public class QueuedComment {
 
   void retried() {
     retries = retries + 1;
+    lastAttempt = Instant.now();
   }
 }
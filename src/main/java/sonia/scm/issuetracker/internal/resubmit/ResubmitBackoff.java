@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.issuetracker.internal.resubmit;
+
+import com.google.common.hash.Hashing;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Calculates the next attempt of a queued comment. The delay doubles with every retry, starting with the initial
+ * delay up to the max delay. The delay is shortened by a jitter of up to 50 percent, so that comments which were
+ * queued at the same time are not resubmitted at the same time. The jitter is derived from the comment itself,
+ * which makes the next attempt stable across multiple runs of the scheduler.
+ */
+final class ResubmitBackoff {
+
+  private final Duration initialDelay;
+  private final Duration maxDelay;
+
+  ResubmitBackoff(Duration initialDelay, Duration maxDelay) {
+    this.initialDelay = initialDelay;
+    this.maxDelay = maxDelay;
+  }
+
+  boolean isDue(QueuedComment comment, Instant now) {
+    return !now.isBefore(nextAttempt(comment));
+  }
+
+  Instant nextAttempt(QueuedComment comment) {
+    Instant last = comment.getLastAttempt() != null ? comment.getLastAttempt() : comment.getDate();
+    if (last == null) {
+      return Instant.EPOCH;
+    }
+    return last.plus(delay(comment));
+  }
+
+  Duration delay(QueuedComment comment) {
+    long millis = initialDelay.toMillis();
+    long max = maxDelay.toMillis();
+    for (int i = 0; i < comment.getRetries() && millis < max; i++) {
+      millis *= 2;
+    }
+    millis = Math.min(millis, max);
+    return Duration.ofMillis(millis - (long) (millis * jitter(comment)));
+  }
+
+  private double jitter(QueuedComment comment) {
+    int hash = Hashing.murmur3_128().newHasher()
+      .putString(String.valueOf(comment.getIssueKey()), StandardCharsets.UTF_8)
+      .putLong(comment.getDate() != null ? comment.getDate().toEpochMilli() : 0L)
+      .putInt(comment.getRetries())
+      .hash()
+      .asInt();
+    return (hash & 0xFFFF) / (double) 0x10000 / 2;
+  }
+}
@@ -16,23 +16,32 @@
 
 package sonia.scm.issuetracker.internal.resubmit;
 
+import sonia.scm.event.ScmEventBus;
 import sonia.scm.issuetracker.internal.Permissions;
+import sonia.scm.issuetracker.spi.IssueTrackerConfigurationChangedEvent;
 import sonia.scm.store.ConfigurationStore;
 import sonia.scm.store.ConfigurationStoreFactory;
 
 import jakarta.inject.Inject;
 import jakarta.inject.Singleton;
 
+/**
+ * Stores the global resubmit configuration. Every change is announced with an
+ * {@link IssueTrackerConfigurationChangedEvent}, like the configuration changes of the providers, so that no cached
+ * issue tracker keeps using the former configuration.
+ */
 @Singleton
 public class ResubmitConfigurationStore {
 
   private static final String STORE_NAME = "issue-tracker-resubmit-notification";
 
   private final ConfigurationStore<ResubmitConfiguration> store;
+  private final ScmEventBus eventBus;
 
   @Inject
-  public ResubmitConfigurationStore(ConfigurationStoreFactory storeFactory) {
+  public ResubmitConfigurationStore(ConfigurationStoreFactory storeFactory, ScmEventBus eventBus) {
     this.store = storeFactory.withType(ResubmitConfiguration.class).withName(STORE_NAME).build();
+    this.eventBus = eventBus;
   }
 
   public ResubmitConfiguration get() {
@@ -42,6 +51,7 @@ public class ResubmitConfigurationStore {
   public void set(ResubmitConfiguration configuration) {
     Permissions.checkResubmit();
     store.set(configuration);
+    eventBus.post(new IssueTrackerConfigurationChangedEvent());
   }
 
 }
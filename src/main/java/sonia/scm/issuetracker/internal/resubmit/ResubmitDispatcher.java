@@ -23,6 +23,7 @@ import jakarta.inject.Singleton;
 import java.io.Closeable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.function.Predicate;
 
 @Singleton
 public class ResubmitDispatcher implements Closeable {
@@ -57,6 +58,28 @@ public class ResubmitDispatcher implements Closeable {
     }
   }
 
+  /**
+   * Resubmits only the queued comments which are accepted by the filter. A notification is only sent, if at least
+   * one comment could be resubmitted.
+   *
+   * @param issueTrackerName name of issue tracker
+   * @param filter filter for queued comments
+   * @return processor with the removed and requeued comments
+   */
+  synchronized ResubmitProcessor resubmit(String issueTrackerName, Predicate<QueuedComment> filter) {
+    Permissions.checkResubmit(issueTrackerName);
+    inProgress = true;
+    try {
+      ResubmitProcessor processor = processorFactory.create();
+      processor.resubmit(issueTrackerName, filter);
+      // notify only about progress, a tracker which is still down would otherwise cause a mail on every run
+      queue.sync(issueTrackerName, processor.getRemove(), processor.getRequeue(), !processor.getRemove().isEmpty());
+      return processor;
+    } finally {
+      inProgress = false;
+    }
+  }
+
   public boolean isInProgress() {
     return inProgress;
   }
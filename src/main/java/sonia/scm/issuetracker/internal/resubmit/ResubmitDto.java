@@ -19,6 +19,9 @@ package sonia.scm.issuetracker.internal.resubmit;
 import de.otto.edison.hal.HalRepresentation;
 import de.otto.edison.hal.Links;
 import lombok.Getter;
+import sonia.scm.issuetracker.spi.CircuitBreaker;
+
+import java.time.Instant;
 
 @Getter
 @SuppressWarnings("java:S2160") // we don't need equals for dto
@@ -27,11 +30,23 @@ public class ResubmitDto extends HalRepresentation {
   private final String issueTracker;
   private final int queueSize;
   private final boolean inProgress;
+  private final CircuitBreaker.State circuitBreaker;
+  private final Instant retryAt;
 
   public ResubmitDto(Links links, String issueTracker, int queueSize, boolean inProgress) {
+    this(links, issueTracker, queueSize, inProgress, CircuitBreaker.State.CLOSED, null);
+  }
+
+  /**
+   * @since 3.6.0
+   */
+  public ResubmitDto(Links links, String issueTracker, int queueSize, boolean inProgress,
+                     CircuitBreaker.State circuitBreaker, Instant retryAt) {
     super(links);
     this.issueTracker = issueTracker;
     this.queueSize = queueSize;
     this.inProgress = inProgress;
+    this.circuitBreaker = circuitBreaker;
+    this.retryAt = retryAt;
   }
 }
@@ -0,0 +1,249 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.issuetracker.internal.resubmit;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.RateLimiter;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.shiro.subject.Subject;
+import org.apache.shiro.util.ThreadContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sonia.scm.issuetracker.spi.TuningProperties;
+
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import java.io.Closeable;
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executes the remote calls of a resubmit in parallel. The number of concurrent calls is limited per issue tracker
+ * and per repository, and all calls share a global rate limit, so that a recovering issue tracker is not flooded.
+ * <br>
+ * The limits can be changed with the following system properties:
+ * <ul>
+ *   <li>{@code scm.issuetracker.resubmit.poolSize} - threads, if virtual threads are not available (default 8)</li>
+ *   <li>{@code scm.issuetracker.resubmit.virtualThreads} - use virtual threads if available (default true)</li>
+ *   <li>{@code scm.issuetracker.resubmit.maxConcurrentPerTracker} - concurrent calls per tracker (default 4)</li>
+ *   <li>{@code scm.issuetracker.resubmit.maxConcurrentPerRepository} - concurrent calls per repository (default 2)</li>
+ *   <li>{@code scm.issuetracker.resubmit.requestsPerSecond} - global rate limit (default 10)</li>
+ *   <li>{@code scm.issuetracker.resubmit.batchSize} - comments per call of a batch resubmitter (default 50)</li>
+ * </ul>
+ */
+@Singleton
+public class ResubmitExecutor implements Closeable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ResubmitExecutor.class);
+
+  private static final long SIGNAL_TIMEOUT_MILLIS = 100;
+
+  private final ExecutorService executor;
+  private final int maxConcurrentPerTracker;
+  private final int maxConcurrentPerRepository;
+  private final RateLimiter rateLimiter;
+  private final int batchSize;
+
+  private final ConcurrentMap<String, Semaphore> trackerPermits = new ConcurrentHashMap<>();
+
+  @Inject
+  public ResubmitExecutor() {
+    this(
+      createExecutorService(),
+      TuningProperties.getPositiveInt("resubmit.maxConcurrentPerTracker", 4),
+      TuningProperties.getPositiveInt("resubmit.maxConcurrentPerRepository", 2),
+      TuningProperties.getPositiveDouble("resubmit.requestsPerSecond", 10d),
+      TuningProperties.getPositiveInt("resubmit.batchSize", 50)
+    );
+  }
+
+  @VisibleForTesting
+  ResubmitExecutor(ExecutorService executor, int maxConcurrentPerTracker, int maxConcurrentPerRepository, double requestsPerSecond, int batchSize) {
+    this.executor = executor;
+    this.maxConcurrentPerTracker = maxConcurrentPerTracker;
+    this.maxConcurrentPerRepository = maxConcurrentPerRepository;
+    this.rateLimiter = RateLimiter.create(requestsPerSecond);
+    this.batchSize = batchSize;
+  }
+
+  /**
+   * Creates an executor which runs everything on the calling thread, without rate limit.
+   */
+  static ResubmitExecutor direct() {
+    return new ResubmitExecutor(MoreExecutors.newDirectExecutorService(), 1, 1, Double.MAX_VALUE, 50);
+  }
+
+  private static ExecutorService createExecutorService() {
+    if (TuningProperties.getBoolean("resubmit.virtualThreads", true)) {
+      try {
+        // virtual threads are available since java 21, but the plugin is compiled for java 17
+        Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        LOG.debug("use virtual threads for resubmit");
+        return (ExecutorService) method.invoke(null);
+      } catch (ReflectiveOperationException ex) {
+        LOG.debug("virtual threads are not available, use pool of platform threads for resubmit");
+      }
+    }
+    return Executors.newFixedThreadPool(
+      TuningProperties.getPositiveInt("resubmit.poolSize", 8),
+      new ThreadFactoryBuilder().setNameFormat("IssueTrackerResubmit-%d").setDaemon(true).build()
+    );
+  }
+
+  int getBatchSize() {
+    return batchSize;
+  }
+
+  /**
+   * Starts a new run for the given issue tracker.
+   *
+   * @param issueTracker name of issue tracker
+   * @return new run
+   */
+  Run start(String issueTracker) {
+    return new Run(trackerPermits.computeIfAbsent(issueTracker, name -> new Semaphore(maxConcurrentPerTracker)));
+  }
+
+  @Override
+  public void close() {
+    executor.shutdown();
+    try {
+      if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+        executor.shutdownNow();
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Collects units of work, each unit should be a single remote call. The units of different repositories are
+   * submitted alternately, so that a repository which has reached its limit does not block the others.
+   */
+  final class Run {
+
+    private final Semaphore trackerSemaphore;
+    private final Map<String, Deque<Runnable>> units = new LinkedHashMap<>();
+    private final Map<String, Semaphore> repositoryPermits = new HashMap<>();
+    private final Object signal = new Object();
+
+    private Run(Semaphore trackerSemaphore) {
+      this.trackerSemaphore = trackerSemaphore;
+    }
+
+    void add(String repository, Runnable unit) {
+      units.computeIfAbsent(repository, r -> new ArrayDeque<>()).add(unit);
+    }
+
+    /**
+     * Executes all units and waits until they are finished. If the thread is interrupted, the remaining units are
+     * skipped.
+     */
+    void execute() {
+      int count = units.values().stream().mapToInt(Deque::size).sum();
+      CountDownLatch finished = new CountDownLatch(count);
+      try {
+        while (!units.isEmpty()) {
+          if (!submitNext(finished)) {
+            waitForSignal();
+          }
+        }
+        finished.await();
+      } catch (InterruptedException ex) {
+        LOG.warn("resubmit was interrupted, skip {} units", finished.getCount());
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    private boolean submitNext(CountDownLatch finished) {
+      boolean submitted = false;
+      Iterator<Map.Entry<String, Deque<Runnable>>> iterator = units.entrySet().iterator();
+      while (iterator.hasNext()) {
+        Map.Entry<String, Deque<Runnable>> entry = iterator.next();
+        Semaphore repositorySemaphore = repositoryPermits.computeIfAbsent(
+          entry.getKey(), r -> new Semaphore(maxConcurrentPerRepository)
+        );
+        if (repositorySemaphore.tryAcquire()) {
+          if (!trackerSemaphore.tryAcquire()) {
+            repositorySemaphore.release();
+            return submitted;
+          }
+          rateLimiter.acquire();
+          submit(entry.getValue().poll(), repositorySemaphore, finished);
+          submitted = true;
+          if (entry.getValue().isEmpty()) {
+            iterator.remove();
+          }
+        }
+      }
+      return submitted;
+    }
+
+    private void submit(Runnable unit, Semaphore repositorySemaphore, CountDownLatch finished) {
+      Runnable task = withSubject(() -> {
+        try {
+          unit.run();
+        } catch (Exception ex) {
+          LOG.error("failed to execute resubmit unit", ex);
+        } finally {
+          repositorySemaphore.release();
+          trackerSemaphore.release();
+          finished.countDown();
+          synchronized (signal) {
+            signal.notifyAll();
+          }
+        }
+      });
+      try {
+        executor.execute(task);
+      } catch (RejectedExecutionException ex) {
+        LOG.debug("executor rejected resubmit unit, run on calling thread");
+        task.run();
+      }
+    }
+
+    private void waitForSignal() throws InterruptedException {
+      synchronized (signal) {
+        // the timeout protects against a signal which was sent before we started to wait
+        signal.wait(SIGNAL_TIMEOUT_MILLIS);
+      }
+    }
+
+    private Runnable withSubject(Runnable runnable) {
+      Subject subject = ThreadContext.getSubject();
+      if (subject != null) {
+        return subject.associateWith(runnable);
+      }
+      return runnable;
+    }
+  }
+}
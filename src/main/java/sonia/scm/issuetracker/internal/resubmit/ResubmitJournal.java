@@ -0,0 +1,295 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.issuetracker.internal.resubmit;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.io.BaseEncoding;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Append-only journal of queued comments, with one file per issue tracker. The journal holds the comments which were
+ * queued since the last compaction of the {@link ResubmitQueue}.
+ * <br>
+ * Each file starts with a header and the generation of the journal, followed by length prefixed records. The
+ * generation is also written to the compacted queue, which allows to detect a journal which was already merged, e.g.
+ * because of a crash between writing the queue and resetting the journal. A record which was only partially written
+ * is dropped when the journal is read. A journal without directory does not write anything.
+ * <br>
+ * The journal is not thread safe, the callers have to synchronize access for each issue tracker.
+ */
+final class ResubmitJournal {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ResubmitJournal.class);
+
+  @VisibleForTesting
+  static final long HEADER = 0x53434d4952510001L; // "SCMIRQ" and version 1
+
+  private static final String EXTENSION = ".journal";
+  private static final int HEADER_SIZE = Long.BYTES * 2;
+  private static final long NO_INSTANT = Long.MIN_VALUE;
+
+  private static final BaseEncoding FILE_NAME_ENCODING = BaseEncoding.base32Hex().lowerCase().omitPadding();
+
+  private final Path directory;
+
+  ResubmitJournal(Path directory) {
+    this.directory = directory;
+  }
+
+  /**
+   * Creates a journal which does not persist anything.
+   *
+   * @return in memory journal
+   */
+  static ResubmitJournal inMemory() {
+    return new ResubmitJournal(null);
+  }
+
+  /**
+   * Returns the names of all issue trackers with a journal.
+   *
+   * @return names of issue trackers
+   */
+  Set<String> issueTrackers() {
+    if (directory == null || !Files.isDirectory(directory)) {
+      return Collections.emptySet();
+    }
+    Set<String> issueTrackers = new HashSet<>();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + EXTENSION)) {
+      for (Path path : stream) {
+        String fileName = path.getFileName().toString();
+        String encoded = fileName.substring(0, fileName.length() - EXTENSION.length());
+        issueTrackers.add(new String(FILE_NAME_ENCODING.decode(encoded), StandardCharsets.UTF_8));
+      }
+    } catch (IOException ex) {
+      throw new UncheckedIOException("failed to list resubmit journals in " + directory, ex);
+    }
+    return issueTrackers;
+  }
+
+  /**
+   * Reads the journal of the issue tracker.
+   *
+   * @param issueTracker name of issue tracker
+   * @return journal entries or an empty journal with generation 0, if there is none
+   */
+  Entries read(String issueTracker) {
+    if (directory == null) {
+      return new Entries(0, new ArrayList<>());
+    }
+    Path path = path(issueTracker);
+    if (!Files.exists(path)) {
+      return new Entries(0, new ArrayList<>());
+    }
+    try {
+      ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+      if (buffer.remaining() < HEADER_SIZE || buffer.getLong() != HEADER) {
+        throw new IOException("unknown format of resubmit journal " + path);
+      }
+      long generation = buffer.getLong();
+      List<QueuedComment> comments = new ArrayList<>();
+      int validSize = HEADER_SIZE;
+      while (buffer.remaining() >= Integer.BYTES) {
+        int length = buffer.getInt();
+        if (length < 0 || buffer.remaining() < length) {
+          break;
+        }
+        comments.add(readRecord(buffer.slice(buffer.position(), length)));
+        buffer.position(buffer.position() + length);
+        validSize = buffer.position();
+      }
+      if (validSize < buffer.limit()) {
+        LOG.warn("drop incomplete record at the end of resubmit journal {}", path);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+          channel.truncate(validSize);
+        }
+      }
+      return new Entries(generation, comments);
+    } catch (IOException | BufferUnderflowException ex) {
+      throw new UncheckedIOException("failed to read resubmit journal " + path, asIOException(ex));
+    }
+  }
+
+  /**
+   * Appends a comment to the journal of the issue tracker. If the journal does not exist, it is created with the
+   * given generation.
+   *
+   * @param generation generation of the journal
+   * @param comment queued comment
+   */
+  void append(long generation, QueuedComment comment) {
+    if (directory == null) {
+      return;
+    }
+    Path path = path(comment.getIssueTracker());
+    try {
+      if (!Files.exists(path)) {
+        reset(comment.getIssueTracker(), generation);
+      }
+      byte[] record = writeRecord(comment);
+      ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + record.length);
+      buffer.putInt(record.length);
+      buffer.put(record);
+      try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+        writeFully(channel, buffer);
+        channel.force(false);
+      }
+    } catch (IOException ex) {
+      throw new UncheckedIOException("failed to append to resubmit journal " + path, ex);
+    }
+  }
+
+  /**
+   * Replaces the journal of the issue tracker with an empty journal of the given generation.
+   *
+   * @param issueTracker name of issue tracker
+   * @param generation new generation
+   */
+  void reset(String issueTracker, long generation) {
+    if (directory == null) {
+      return;
+    }
+    Path path = path(issueTracker);
+    try {
+      Files.createDirectories(directory);
+      Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+      try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE);
+        buffer.putLong(HEADER);
+        buffer.putLong(generation);
+        writeFully(channel, buffer);
+        channel.force(true);
+      }
+      Files.move(tmp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException ex) {
+      throw new UncheckedIOException("failed to reset resubmit journal " + path, ex);
+    }
+  }
+
+  private Path path(String issueTracker) {
+    return directory.resolve(FILE_NAME_ENCODING.encode(issueTracker.getBytes(StandardCharsets.UTF_8)) + EXTENSION);
+  }
+
+  private byte[] writeRecord(QueuedComment comment) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream output = new DataOutputStream(bytes)) {
+      writeString(output, comment.getRepository());
+      writeString(output, comment.getIssueTracker());
+      writeString(output, comment.getIssueKey());
+      writeString(output, comment.getComment());
+      output.writeInt(comment.getRetries());
+      writeInstant(output, comment.getDate());
+      writeInstant(output, comment.getLastAttempt());
+    }
+    return bytes.toByteArray();
+  }
+
+  private void writeString(DataOutputStream output, String value) throws IOException {
+    if (value == null) {
+      output.writeInt(-1);
+    } else {
+      byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      output.writeInt(bytes.length);
+      output.write(bytes);
+    }
+  }
+
+  private void writeInstant(DataOutputStream output, Instant instant) throws IOException {
+    output.writeLong(instant != null ? instant.toEpochMilli() : NO_INSTANT);
+  }
+
+  private QueuedComment readRecord(ByteBuffer buffer) {
+    QueuedComment comment = new QueuedComment();
+    comment.setRepository(readString(buffer));
+    comment.setIssueTracker(readString(buffer));
+    comment.setIssueKey(readString(buffer));
+    comment.setComment(readString(buffer));
+    comment.setRetries(buffer.getInt());
+    comment.setDate(readInstant(buffer));
+    comment.setLastAttempt(readInstant(buffer));
+    return comment;
+  }
+
+  private String readString(ByteBuffer buffer) {
+    int length = buffer.getInt();
+    if (length < 0) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private Instant readInstant(ByteBuffer buffer) {
+    long millis = buffer.getLong();
+    return millis != NO_INSTANT ? Instant.ofEpochMilli(millis) : null;
+  }
+
+  private void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+
+  private IOException asIOException(Exception ex) {
+    if (ex instanceof IOException) {
+      return (IOException) ex;
+    }
+    return new IOException("corrupt record", ex);
+  }
+
+  static final class Entries {
+
+    private final long generation;
+    private final List<QueuedComment> comments;
+
+    private Entries(long generation, List<QueuedComment> comments) {
+      this.generation = generation;
+      this.comments = comments;
+    }
+
+    long getGeneration() {
+      return generation;
+    }
+
+    List<QueuedComment> getComments() {
+      return comments;
+    }
+  }
+}
@@ -17,10 +17,14 @@
 package sonia.scm.issuetracker.internal.resubmit;
 
 import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
 import lombok.Value;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import sonia.scm.issuetracker.api.BatchResubmitter;
+import sonia.scm.issuetracker.api.IssueComment;
+import sonia.scm.issuetracker.api.IssueCommentResult;
 import sonia.scm.issuetracker.api.IssueTracker;
 import sonia.scm.issuetracker.api.Resubmitter;
 import sonia.scm.issuetracker.internal.IssueTrackerFactory;
@@ -30,32 +34,48 @@ import sonia.scm.repository.RepositoryManager;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 class ResubmitProcessor {
 
   private static final Logger LOG = LoggerFactory.getLogger(ResubmitProcessor.class);
 
-  private final List<QueuedComment> remove = new ArrayList<>();
-  private final List<QueuedComment> requeue = new ArrayList<>();
+  // remote calls are executed in parallel, so the results must be collected thread safe
+  private final List<QueuedComment> remove = Collections.synchronizedList(new ArrayList<>());
+  private final List<QueuedComment> requeue = Collections.synchronizedList(new ArrayList<>());
 
   private final RepositoryManager repositoryManager;
   private final IssueTrackerFactory issueTrackerFactory;
   private final ResubmitQueue queue;
+  private final ResubmitExecutor executor;
 
   ResubmitProcessor(RepositoryManager repositoryManager, IssueTrackerFactory issueTrackerFactory, ResubmitQueue queue) {
+    this(repositoryManager, issueTrackerFactory, queue, ResubmitExecutor.direct());
+  }
+
+  ResubmitProcessor(RepositoryManager repositoryManager, IssueTrackerFactory issueTrackerFactory, ResubmitQueue queue, ResubmitExecutor executor) {
     this.repositoryManager = repositoryManager;
     this.issueTrackerFactory = issueTrackerFactory;
     this.queue = queue;
+    this.executor = executor;
   }
 
   void resubmit(String issueTrackerName) {
-    Multimap<IssueTrackerId, QueuedComment> comments = comments(issueTrackerName);
+    resubmit(issueTrackerName, comment -> true);
+  }
+
+  void resubmit(String issueTrackerName, Predicate<QueuedComment> filter) {
+    Multimap<IssueTrackerId, QueuedComment> comments = comments(issueTrackerName, filter);
     LOG.info("resubmit {} comments", comments.size());
+    ResubmitExecutor.Run run = executor.start(issueTrackerName);
     for (IssueTrackerId issueTrackerId : comments.keySet()) {
-      process(issueTrackerId, comments.get(issueTrackerId));
+      process(run, issueTrackerId, comments.get(issueTrackerId));
     }
+    run.execute();
   }
 
   public Collection<QueuedComment> getRemove() {
@@ -66,39 +86,72 @@ class ResubmitProcessor {
     return requeue;
   }
 
-  private void process(IssueTrackerId id, Collection<QueuedComment> queuedComments) {
+  private void process(ResubmitExecutor.Run run, IssueTrackerId id, Collection<QueuedComment> queuedComments) {
     Repository repository = repositoryManager.get(id.getRepository());
     if (repository != null) {
-      process(repository, id.getIssueTracker(), queuedComments);
+      process(run, repository, id.getIssueTracker(), queuedComments);
     } else {
       LOG.warn("repository with id {} does not exists, remove {} comments from queue", id.getRepository(), queuedComments.size());
       remove.addAll(queuedComments);
     }
   }
 
-  private void process(Repository repository, String issueTracker, Collection<QueuedComment> queuedComments) {
+  private void process(ResubmitExecutor.Run run, Repository repository, String issueTracker, Collection<QueuedComment> queuedComments) {
     Optional<IssueTracker> tracker = issueTrackerFactory.tracker(repository, issueTracker);
     if (tracker.isPresent()) {
-      process(tracker.get(), queuedComments);
+      process(run, repository.getId(), tracker.get(), queuedComments);
     } else {
       LOG.warn("could not find tracker {} for repository {}, requeue {} comments", issueTracker, repository.getNamespaceAndName(), queuedComments.size());
       requeue.addAll(queuedComments);
     }
   }
 
-  private void process(IssueTracker tracker, Collection<QueuedComment> queuedComments) {
+  private void process(ResubmitExecutor.Run run, String repository, IssueTracker tracker, Collection<QueuedComment> queuedComments) {
     Optional<Resubmitter> resubmitter = tracker.getResubmitter();
     if (resubmitter.isPresent()) {
-      process(resubmitter.get(), queuedComments);
+      process(run, repository, resubmitter.get(), queuedComments);
     } else {
       LOG.warn("tracker {} does not support resubmit, requeue {} comments", tracker.getName(), queuedComments.size());
       requeue.addAll(queuedComments);
     }
   }
 
-  private void process(Resubmitter resubmitter, Collection<QueuedComment> queuedComments) {
-    for (QueuedComment queuedComment : queuedComments) {
-      resubmit(resubmitter, queuedComment);
+  private void process(ResubmitExecutor.Run run, String repository, Resubmitter resubmitter, Collection<QueuedComment> queuedComments) {
+    if (resubmitter instanceof BatchResubmitter) {
+      BatchResubmitter batchResubmitter = (BatchResubmitter) resubmitter;
+      for (List<QueuedComment> chunk : Lists.partition(new ArrayList<>(queuedComments), executor.getBatchSize())) {
+        run.add(repository, () -> resubmitAll(batchResubmitter, chunk));
+      }
+    } else {
+      for (QueuedComment queuedComment : queuedComments) {
+        run.add(repository, () -> resubmit(resubmitter, queuedComment));
+      }
+    }
+  }
+
+  private void resubmitAll(BatchResubmitter resubmitter, List<QueuedComment> queuedComments) {
+    List<IssueComment> comments = queuedComments.stream()
+      .map(queuedComment -> new IssueComment(queuedComment.getIssueKey(), queuedComment.getComment()))
+      .collect(Collectors.toList());
+    List<IssueCommentResult> results;
+    try {
+      results = resubmitter.resubmitAll(comments);
+    } catch (Exception ex) {
+      LOG.warn("failed to resubmit {} queued comments", queuedComments.size(), ex);
+      requeue.addAll(queuedComments);
+      return;
+    }
+    for (int i = 0; i < queuedComments.size(); i++) {
+      QueuedComment queuedComment = queuedComments.get(i);
+      // a missing result is handled as failure, to avoid losing the comment
+      Optional<IOException> failure = i < results.size() ? results.get(i).getFailure() : Optional.of(new IOException("no result"));
+      if (failure.isEmpty()) {
+        LOG.debug("successfully resubmit queued comment for tracker {} and issue key {}", queuedComment.getIssueTracker(), queuedComment.getIssueKey());
+        remove.add(queuedComment);
+      } else {
+        LOG.warn("failed to resubmit queued comment for tracker {} and issue key {}", queuedComment.getIssueTracker(), queuedComment.getIssueKey(), failure.get());
+        requeue.add(queuedComment);
+      }
     }
   }
 
@@ -113,10 +166,12 @@ class ResubmitProcessor {
     }
   }
 
-  private Multimap<IssueTrackerId, QueuedComment> comments(String issueTrackerName) {
+  private Multimap<IssueTrackerId, QueuedComment> comments(String issueTrackerName, Predicate<QueuedComment> filter) {
     Multimap<IssueTrackerId, QueuedComment> comments = HashMultimap.create();
     for (QueuedComment comment : queue.getComments(issueTrackerName)) {
-      comments.put(new IssueTrackerId(comment.getRepository(), comment.getIssueTracker()), comment);
+      if (filter.test(comment)) {
+        comments.put(new IssueTrackerId(comment.getRepository(), comment.getIssueTracker()), comment);
+      }
     }
     return comments;
   }
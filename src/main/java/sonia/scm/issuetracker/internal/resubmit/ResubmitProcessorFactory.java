@@ -26,15 +26,17 @@ public class ResubmitProcessorFactory {
   private final RepositoryManager repositoryManager;
   private final IssueTrackerFactory issueTrackerFactory;
   private final ResubmitQueue queue;
+  private final ResubmitExecutor executor;
 
   @Inject
-  public ResubmitProcessorFactory(RepositoryManager repositoryManager, IssueTrackerFactory issueTrackerFactory, ResubmitQueue queue) {
+  public ResubmitProcessorFactory(RepositoryManager repositoryManager, IssueTrackerFactory issueTrackerFactory, ResubmitQueue queue, ResubmitExecutor executor) {
     this.repositoryManager = repositoryManager;
     this.queue = queue;
     this.issueTrackerFactory = issueTrackerFactory;
+    this.executor = executor;
   }
 
   public ResubmitProcessor create() {
-    return new ResubmitProcessor(repositoryManager, issueTrackerFactory, queue);
+    return new ResubmitProcessor(repositoryManager, issueTrackerFactory, queue, executor);
   }
 }
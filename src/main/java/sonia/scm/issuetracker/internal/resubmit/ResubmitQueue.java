@@ -20,8 +20,13 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Multimap;
+import com.google.common.util.concurrent.Striped;
 import lombok.NoArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sonia.scm.SCMContextProvider;
 import sonia.scm.issuetracker.internal.Permissions;
+import sonia.scm.issuetracker.spi.TuningProperties;
 import sonia.scm.store.DataStore;
 import sonia.scm.store.DataStoreFactory;
 
@@ -31,48 +36,98 @@ import jakarta.xml.bind.annotation.XmlAccessType;
 import jakarta.xml.bind.annotation.XmlAccessorType;
 import jakarta.xml.bind.annotation.XmlElement;
 import jakarta.xml.bind.annotation.XmlRootElement;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Supplier;
 
+/**
+ * Queue of comments which could not be sent to the issue tracker. New comments are appended to a journal per issue
+ * tracker (see {@link ResubmitJournal}), which is merged into the stored queue on every resubmit or after a number
+ * of appends. So an append does not have to rewrite the whole queue. Access is synchronized per issue tracker with
+ * striped locks, so that appends for different trackers do not block each other.
+ */
 @Singleton
 public class ResubmitQueue {
 
+  private static final Logger LOG = LoggerFactory.getLogger(ResubmitQueue.class);
+
   private static final String STORE_NAME = "issue-tracker-resubmit-queue";
   private static final int DEFAULT_QUEUE_SIZE = 1000;
+  private static final int DEFAULT_COMPACTION_THRESHOLD = 100;
 
   private final DataStore<StoreEntry> store;
   private final NotificationService notificationService;
+  private final ResubmitJournal journal;
   private final int queueSize;
+  private final int compactionThreshold;
+
+  private final Striped<Lock> locks = Striped.lock(16);
+  private final Map<String, Tail> tails = new ConcurrentHashMap<>();
 
   @Inject
-  public ResubmitQueue(DataStoreFactory dataStoreFactory, NotificationService notificationService) {
+  public ResubmitQueue(DataStoreFactory dataStoreFactory, NotificationService notificationService, SCMContextProvider contextProvider) {
+    this(
+      dataStoreFactory,
+      notificationService,
+      new ResubmitJournal(contextProvider.getBaseDirectory().toPath().resolve("issuetracker").resolve("resubmit")),
+      DEFAULT_QUEUE_SIZE,
+      TuningProperties.getPositiveInt("resubmit.journal.compactionThreshold", DEFAULT_COMPACTION_THRESHOLD)
+    );
+  }
+
+  @VisibleForTesting
+  ResubmitQueue(DataStoreFactory dataStoreFactory, NotificationService notificationService) {
     this(dataStoreFactory, notificationService, DEFAULT_QUEUE_SIZE);
   }
 
   @VisibleForTesting
   ResubmitQueue(DataStoreFactory dataStoreFactory, NotificationService notificationService, int queueSize) {
+    this(dataStoreFactory, notificationService, ResubmitJournal.inMemory(), queueSize, DEFAULT_COMPACTION_THRESHOLD);
+  }
+
+  @VisibleForTesting
+  ResubmitQueue(DataStoreFactory dataStoreFactory, NotificationService notificationService, ResubmitJournal journal, int queueSize, int compactionThreshold) {
     this.store = dataStoreFactory.withType(StoreEntry.class)
       .withName(STORE_NAME)
       .build();
     this.notificationService = notificationService;
+    this.journal = journal;
     this.queueSize = queueSize;
+    this.compactionThreshold = compactionThreshold;
   }
 
-  public synchronized void append(QueuedComment comment) {
-    StoreEntry entry = entry(comment.getIssueTracker());
-    entry.getComments().add(comment);
-    store.put(comment.getIssueTracker(), entry);
+  public void append(QueuedComment comment) {
+    String issueTracker = comment.getIssueTracker();
+    withLock(issueTracker, () -> {
+      Tail tail = tail(issueTracker);
+      journal.append(tail.generation, comment);
+      tail.comments.add(comment);
+      if (tail.comments.size() >= compactionThreshold) {
+        StoreEntry entry = merge(issueTracker, tail);
+        store.put(issueTracker, entry);
+        resetJournal(issueTracker, tail, entry);
+      }
+      return null;
+    });
     notificationService.notifyComment(comment);
   }
 
   public Multimap<String, QueuedComment> getComments() {
     Permissions.Checker checker = Permissions.resubmitChecker();
+    Set<String> issueTrackers = new HashSet<>(store.getAll().keySet());
+    issueTrackers.addAll(journal.issueTrackers());
+    issueTrackers.addAll(tails.keySet());
+
     Multimap<String, QueuedComment> comments = HashMultimap.create();
-    for (Map.Entry<String, StoreEntry> entry : store.getAll().entrySet()) {
-      String issueTrackerName = entry.getKey();
+    for (String issueTrackerName : issueTrackers) {
       if (checker.isPermitted(issueTrackerName)) {
-        comments.putAll(issueTrackerName, ImmutableList.copyOf(entry.getValue().getComments()));
+        comments.putAll(issueTrackerName, read(issueTrackerName));
       }
     }
     return comments;
@@ -80,33 +135,125 @@ public class ResubmitQueue {
 
   public List<QueuedComment> getComments(String issueTracker) {
     Permissions.checkResubmit(issueTracker);
-    return ImmutableList.copyOf(entry(issueTracker).getComments());
+    return read(issueTracker);
   }
 
-  public synchronized void clear(String issueTracker) {
+  public void clear(String issueTracker) {
     Permissions.checkResubmit(issueTracker);
-    StoreEntry entry = entry(issueTracker);
-    entry.getComments().clear();
-    store.put(issueTracker, entry);
+    withLock(issueTracker, () -> {
+      Tail tail = tail(issueTracker);
+      StoreEntry entry = entry(issueTracker);
+      entry.getComments().clear();
+      entry.journalGeneration = tail.generation + 1;
+      store.put(issueTracker, entry);
+      resetJournal(issueTracker, tail, entry);
+      return null;
+    });
   }
 
-  public synchronized void sync(String issueTracker, Collection<QueuedComment> remove, Collection<QueuedComment> requeue) {
+  public void sync(String issueTracker, Collection<QueuedComment> remove, Collection<QueuedComment> requeue) {
+    sync(issueTracker, remove, requeue, true);
+  }
+
+  /**
+   * Removes the resubmitted comments and increases the retries of the failed comments.
+   *
+   * @param issueTracker name of issue tracker
+   * @param remove successfully resubmitted comments
+   * @param requeue failed comments
+   * @param notify {@code true} to send a notification about the result
+   */
+  public void sync(String issueTracker, Collection<QueuedComment> remove, Collection<QueuedComment> requeue, boolean notify) {
     Permissions.checkResubmit(issueTracker);
-    StoreEntry entry = entry(issueTracker);
-    entry.getComments().removeAll(remove);
-    for (QueuedComment comment : entry.getComments()) {
-      if (requeue.contains(comment)) {
-        comment.retried();
+    withLock(issueTracker, () -> {
+      Tail tail = tail(issueTracker);
+      StoreEntry entry = merge(issueTracker, tail);
+      entry.getComments().removeAll(remove);
+      for (QueuedComment comment : entry.getComments()) {
+        if (requeue.contains(comment)) {
+          comment.retried();
+        }
       }
+      store.put(issueTracker, entry);
+      resetJournal(issueTracker, tail, entry);
+      return null;
+    });
+    if (notify) {
+      notificationService.notifyResubmit(issueTracker, remove, requeue);
+    }
+  }
+
+  private List<QueuedComment> read(String issueTracker) {
+    return withLock(issueTracker, () -> {
+      Tail tail = tail(issueTracker);
+      EvictingQueue<QueuedComment> comments = EvictingQueue.create(queueSize);
+      comments.addAll(entry(issueTracker).getComments());
+      comments.addAll(tail.comments);
+      return ImmutableList.copyOf(comments);
+    });
+  }
+
+  private StoreEntry merge(String issueTracker, Tail tail) {
+    StoreEntry entry = entry(issueTracker);
+    entry.getComments().addAll(tail.comments);
+    entry.journalGeneration = tail.generation + 1;
+    return entry;
+  }
+
+  private void resetJournal(String issueTracker, Tail tail, StoreEntry entry) {
+    // the journal must be reset after the entry was stored, otherwise we could lose comments on a crash
+    journal.reset(issueTracker, entry.journalGeneration);
+    tail.generation = entry.journalGeneration;
+    tail.comments.clear();
+  }
+
+  private Tail tail(String issueTracker) {
+    // we are holding the lock of the issue tracker, so we do not need an atomic compute
+    Tail tail = tails.get(issueTracker);
+    if (tail == null) {
+      tail = loadTail(issueTracker);
+      tails.put(issueTracker, tail);
+    }
+    return tail;
+  }
+
+  private Tail loadTail(String issueTracker) {
+    long generation = entry(issueTracker).journalGeneration;
+    ResubmitJournal.Entries entries = journal.read(issueTracker);
+    Tail tail = new Tail(generation);
+    if (entries.getGeneration() == generation) {
+      tail.comments.addAll(entries.getComments());
+    } else if (!entries.getComments().isEmpty()) {
+      LOG.debug("journal of {} was already merged, reset it", issueTracker);
+      journal.reset(issueTracker, generation);
+    }
+    return tail;
+  }
+
+  private <T> T withLock(String issueTracker, Supplier<T> supplier) {
+    Lock lock = locks.get(issueTracker);
+    lock.lock();
+    try {
+      return supplier.get();
+    } finally {
+      lock.unlock();
     }
-    store.put(issueTracker, entry);
-    notificationService.notifyResubmit(issueTracker, remove, requeue);
   }
 
   private StoreEntry entry(String issueTracker) {
     return store.getOptional(issueTracker).orElseGet(() -> new StoreEntry(queueSize));
   }
 
+  private static final class Tail {
+
+    private long generation;
+    private final List<QueuedComment> comments = new ArrayList<>();
+
+    private Tail(long generation) {
+      this.generation = generation;
+    }
+  }
+
   @NoArgsConstructor
   @XmlRootElement
   @XmlAccessorType(XmlAccessType.FIELD)
@@ -118,6 +265,9 @@ public class ResubmitQueue {
     @XmlElement(name = "comments")
     private EvictingQueue<QueuedComment> comments;
 
+    @XmlElement(name = "journal-generation")
+    private long journalGeneration;
+
     public StoreEntry(int storeSize) {
       this.storeSize = storeSize;
     }
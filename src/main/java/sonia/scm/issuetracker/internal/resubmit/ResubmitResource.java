@@ -28,6 +28,8 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import sonia.scm.api.v2.resources.ErrorDto;
 import sonia.scm.issuetracker.internal.Permissions;
+import sonia.scm.issuetracker.spi.CircuitBreaker;
+import sonia.scm.issuetracker.spi.CommentCircuitBreakers;
 import sonia.scm.web.VndMediaType;
 
 import jakarta.inject.Inject;
@@ -42,9 +44,11 @@ import jakarta.ws.rs.core.Context;
 import jakarta.ws.rs.core.Response;
 import jakarta.ws.rs.core.UriInfo;
 import java.net.URI;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public class ResubmitResource {
 
@@ -56,12 +60,14 @@ public class ResubmitResource {
   private final ResubmitQueue queue;
   private final ResubmitDispatcher action;
   private final ResubmitConfigurationStore resubmitConfigurationStore;
+  private final CommentCircuitBreakers circuitBreakers;
 
   @Inject
-  public ResubmitResource(ResubmitQueue queue, ResubmitDispatcher action, ResubmitConfigurationStore resubmitConfigurationStore) {
+  public ResubmitResource(ResubmitQueue queue, ResubmitDispatcher action, ResubmitConfigurationStore resubmitConfigurationStore, CommentCircuitBreakers circuitBreakers) {
     this.queue = queue;
     this.action = action;
     this.resubmitConfigurationStore = resubmitConfigurationStore;
+    this.circuitBreakers = circuitBreakers;
   }
 
   @GET
@@ -135,7 +141,7 @@ public class ResubmitResource {
   @Produces(MEDIA_TYPE_RESUBMIT)
   @Operation(
     summary = "Get issue tracker resubmits",
-    description = "Returns a collection of issue trackers which have queued comments.",
+    description = "Returns a collection of issue trackers which have queued comments, together with the state of their circuit breakers.",
     tags = "Issue Tracker",
     operationId = "issue_tracker_resubmits"
   )
@@ -172,7 +178,14 @@ public class ResubmitResource {
   }
 
   private ResubmitDto createDto(UriInfo uriInfo, String issueTracker, int size) {
-    return new ResubmitDto(createLinks(uriInfo, issueTracker), issueTracker, size, action.isInProgress());
+    CircuitBreaker.State state = CircuitBreaker.State.CLOSED;
+    Instant retryAt = null;
+    Optional<CircuitBreaker> circuitBreaker = circuitBreakers.find(issueTracker);
+    if (circuitBreaker.isPresent()) {
+      state = circuitBreaker.get().getState();
+      retryAt = circuitBreaker.get().getRetryAt();
+    }
+    return new ResubmitDto(createLinks(uriInfo, issueTracker), issueTracker, size, action.isInProgress(), state, retryAt);
   }
 
   private Links createLinks(UriInfo uriInfo, String issueTracker) {
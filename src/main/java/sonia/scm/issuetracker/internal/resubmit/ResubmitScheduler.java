@@ -0,0 +1,237 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.issuetracker.internal.resubmit;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Multimap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sonia.scm.EagerSingleton;
+import sonia.scm.issuetracker.spi.CircuitBreaker;
+import sonia.scm.issuetracker.spi.CommentCircuitBreakers;
+import sonia.scm.issuetracker.spi.TuningProperties;
+import sonia.scm.plugin.Extension;
+import sonia.scm.web.security.AdministrationContext;
+
+import jakarta.inject.Inject;
+import java.io.Closeable;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Resubmits queued comments automatically in the background. Every comment is retried with an exponential backoff
+ * (see {@link ResubmitBackoff}). The attempts are guarded by the same circuit breaker per issue tracker as the
+ * comments which are sent while objects are processed (see {@link CommentCircuitBreakers}), so the scheduler stops
+ * as soon as the tracker is known to be down and vice versa.
+ * <br>
+ * The scheduler can be tuned with the following system properties:
+ * <ul>
+ *   <li>{@code scm.issuetracker.resubmit.scheduler.enabled} - enables the scheduler (default true)</li>
+ *   <li>{@code scm.issuetracker.resubmit.scheduler.intervalSeconds} - interval between two runs (default 60)</li>
+ *   <li>{@code scm.issuetracker.resubmit.backoff.initialSeconds} - delay before the first retry (default 60)</li>
+ *   <li>{@code scm.issuetracker.resubmit.backoff.maxSeconds} - max delay between two retries (default 21600)</li>
+ * </ul>
+ *
+ * @since 3.6.0
+ */
+@Extension
+@EagerSingleton
+public class ResubmitScheduler implements Closeable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ResubmitScheduler.class);
+
+  @VisibleForTesting
+  static final String METRIC_COMMENTS = "scm.issuetracker.resubmit.comments";
+  @VisibleForTesting
+  static final String METRIC_QUEUE_SIZE = "scm.issuetracker.resubmit.queue.size";
+  @VisibleForTesting
+  static final String METRIC_QUEUE_AGE = "scm.issuetracker.resubmit.queue.age";
+
+  private final ResubmitQueue queue;
+  private final ResubmitDispatcher dispatcher;
+  private final AdministrationContext administrationContext;
+  private final ResubmitBackoff backoff;
+  private final Clock clock;
+  private final CommentCircuitBreakers circuitBreakers;
+  private final ScheduledExecutorService executor;
+
+  private final Counter resubmitted;
+  private final Counter requeued;
+  private final MeterRegistry meterRegistry;
+  private final Map<String, AtomicLong> queueSizes = new ConcurrentHashMap<>();
+  private final Map<String, AtomicLong> queueAges = new ConcurrentHashMap<>();
+
+  @Inject
+  public ResubmitScheduler(ResubmitQueue queue, ResubmitDispatcher dispatcher, AdministrationContext administrationContext,
+                           MeterRegistry meterRegistry, CommentCircuitBreakers circuitBreakers) {
+    this(
+      queue, dispatcher, administrationContext, meterRegistry,
+      new ResubmitBackoff(
+        Duration.ofSeconds(TuningProperties.getPositiveInt("resubmit.backoff.initialSeconds", 60)),
+        Duration.ofSeconds(TuningProperties.getPositiveInt("resubmit.backoff.maxSeconds", 21600))
+      ),
+      Clock.systemUTC(),
+      circuitBreakers,
+      TuningProperties.getBoolean("resubmit.scheduler.enabled", true) ? createExecutor() : null
+    );
+  }
+
+  @VisibleForTesting
+  @SuppressWarnings("java:S107") // the large constructor is ok for this use case
+  ResubmitScheduler(ResubmitQueue queue, ResubmitDispatcher dispatcher, AdministrationContext administrationContext,
+                    MeterRegistry meterRegistry, ResubmitBackoff backoff, Clock clock,
+                    CommentCircuitBreakers circuitBreakers, ScheduledExecutorService executor) {
+    this.queue = queue;
+    this.dispatcher = dispatcher;
+    this.administrationContext = administrationContext;
+    this.backoff = backoff;
+    this.clock = clock;
+    this.circuitBreakers = circuitBreakers;
+    this.executor = executor;
+
+    this.resubmitted = Counter.builder(METRIC_COMMENTS)
+      .description("Number of queued comments which were resubmitted by the scheduler")
+      .tag("result", "resubmitted")
+      .register(meterRegistry);
+    this.requeued = Counter.builder(METRIC_COMMENTS)
+      .description("Number of queued comments which were resubmitted by the scheduler")
+      .tag("result", "requeued")
+      .register(meterRegistry);
+    this.meterRegistry = meterRegistry;
+
+    if (executor != null) {
+      long interval = TuningProperties.getPositiveInt("resubmit.scheduler.intervalSeconds", 60);
+      executor.scheduleWithFixedDelay(this::runSafely, interval, interval, TimeUnit.SECONDS);
+    }
+  }
+
+  private static ScheduledExecutorService createExecutor() {
+    return Executors.newSingleThreadScheduledExecutor(
+      new ThreadFactoryBuilder().setNameFormat("IssueTrackerResubmitScheduler-%d").setDaemon(true).build()
+    );
+  }
+
+  private void runSafely() {
+    try {
+      administrationContext.runAsAdmin(this::run);
+    } catch (Exception ex) {
+      // an exception would cancel all further executions
+      LOG.error("scheduled resubmit failed", ex);
+    }
+  }
+
+  @VisibleForTesting
+  void run() {
+    Instant now = clock.instant();
+    Multimap<String, QueuedComment> comments = queue.getComments();
+    updateQueueMetrics(comments, now);
+    for (String issueTracker : comments.keySet()) {
+      resubmit(issueTracker, comments.get(issueTracker), now);
+    }
+  }
+
+  private void updateQueueMetrics(Multimap<String, QueuedComment> comments, Instant now) {
+    // trackers without queued comments keep their gauges, but are reset to zero
+    queueSizes.values().forEach(size -> size.set(0));
+    queueAges.values().forEach(age -> age.set(0));
+    for (String issueTracker : comments.keySet()) {
+      Collection<QueuedComment> trackerComments = comments.get(issueTracker);
+      queueSize(issueTracker).set(trackerComments.size());
+      queueAge(issueTracker).set(
+        trackerComments.stream()
+          .map(QueuedComment::getDate)
+          .filter(Objects::nonNull)
+          .min(Instant::compareTo)
+          .map(oldest -> Math.max(0, Duration.between(oldest, now).getSeconds()))
+          .orElse(0L)
+      );
+    }
+  }
+
+  private AtomicLong queueSize(String issueTracker) {
+    return queueSizes.computeIfAbsent(issueTracker, name -> {
+      AtomicLong size = new AtomicLong();
+      Gauge.builder(METRIC_QUEUE_SIZE, size, AtomicLong::get)
+        .description("Number of queued comments per issue tracker, updated on every run of the scheduler")
+        .tag("tracker", name)
+        .register(meterRegistry);
+      return size;
+    });
+  }
+
+  private AtomicLong queueAge(String issueTracker) {
+    return queueAges.computeIfAbsent(issueTracker, name -> {
+      AtomicLong age = new AtomicLong();
+      Gauge.builder(METRIC_QUEUE_AGE, age, AtomicLong::get)
+        .description("Age of the oldest queued comment per issue tracker, updated on every run of the scheduler")
+        .baseUnit("seconds")
+        .tag("tracker", name)
+        .register(meterRegistry);
+      return age;
+    });
+  }
+
+  private void resubmit(String issueTracker, Collection<QueuedComment> comments, Instant now) {
+    if (comments.stream().noneMatch(comment -> backoff.isDue(comment, now))) {
+      return;
+    }
+    CircuitBreaker circuitBreaker = circuitBreakers.get(issueTracker);
+    if (!circuitBreaker.tryAcquire()) {
+      LOG.debug("skip resubmit for {}, circuit breaker is open until {}", issueTracker, circuitBreaker.getRetryAt());
+      return;
+    }
+    try {
+      ResubmitProcessor processor = dispatcher.resubmit(issueTracker, comment -> backoff.isDue(comment, now));
+      int removed = processor.getRemove().size();
+      int failed = processor.getRequeue().size();
+      resubmitted.increment(removed);
+      requeued.increment(failed);
+      if (removed > 0) {
+        circuitBreaker.recordSuccess();
+      } else if (failed > 0) {
+        circuitBreaker.recordFailure();
+      } else {
+        // nothing was sent, so we know nothing about the state of the tracker
+        circuitBreaker.release();
+      }
+      LOG.debug("scheduled resubmit for {}: {} resubmitted, {} requeued", issueTracker, removed, failed);
+    } catch (RuntimeException ex) {
+      circuitBreaker.recordFailure();
+      LOG.warn("scheduled resubmit for {} failed", issueTracker, ex);
+    }
+  }
+
+  @Override
+  public void close() {
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+  }
+}
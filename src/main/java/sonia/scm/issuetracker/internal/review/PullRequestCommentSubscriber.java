@@ -21,6 +21,7 @@ import com.github.legman.Subscribe;
 import sonia.scm.EagerSingleton;
 import sonia.scm.issuetracker.api.IssueReferencingObject;
 import sonia.scm.issuetracker.api.IssueTracker;
+import sonia.scm.issuetracker.internal.index.IssueReferenceIndexer;
 import sonia.scm.plugin.Extension;
 import sonia.scm.plugin.Requires;
 
@@ -33,17 +34,20 @@ public class PullRequestCommentSubscriber {
 
   private final IssueTracker issueTracker;
   private final PullRequestCommentMapper commentMapper;
+  private final IssueReferenceIndexer indexer;
 
   @Inject
-  public PullRequestCommentSubscriber(IssueTracker issueTracker, PullRequestCommentMapper commentMapper) {
+  public PullRequestCommentSubscriber(IssueTracker issueTracker, PullRequestCommentMapper commentMapper, IssueReferenceIndexer indexer) {
     this.issueTracker = issueTracker;
     this.commentMapper = commentMapper;
+    this.indexer = indexer;
   }
 
   @Subscribe
   public void handle(BasicCommentEvent<?> event) {
     if (PullRequestEvents.isSupported(event)) {
       IssueReferencingObject ref = commentMapper.ref(event.getRepository(), event.getPullRequest(), event.getItem());
+      indexer.index(ref);
       issueTracker.process(ref);
     }
   }
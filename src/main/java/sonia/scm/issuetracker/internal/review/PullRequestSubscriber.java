@@ -22,6 +22,7 @@ import com.github.legman.Subscribe;
 import sonia.scm.EagerSingleton;
 import sonia.scm.issuetracker.api.IssueReferencingObject;
 import sonia.scm.issuetracker.api.IssueTracker;
+import sonia.scm.issuetracker.internal.index.IssueReferenceIndexer;
 import sonia.scm.plugin.Extension;
 import sonia.scm.plugin.Requires;
 
@@ -34,17 +35,20 @@ public class PullRequestSubscriber {
 
   private final IssueTracker issueTracker;
   private final PullRequestMapper mapper;
+  private final IssueReferenceIndexer indexer;
 
   @Inject
-  public PullRequestSubscriber(IssueTracker issueTracker, PullRequestMapper mapper) {
+  public PullRequestSubscriber(IssueTracker issueTracker, PullRequestMapper mapper, IssueReferenceIndexer indexer) {
     this.issueTracker = issueTracker;
     this.mapper = mapper;
+    this.indexer = indexer;
   }
 
   @Subscribe
   public void handle(PullRequestEvent event) {
     if (PullRequestEvents.isSupported(event)) {
       IssueReferencingObject ref = mapper.ref(event.getRepository(), event.getItem(), false);
+      indexer.index(ref);
       issueTracker.process(ref);
     }
   }
@@ -52,6 +56,7 @@ public class PullRequestSubscriber {
   @Subscribe
   public void handle(PullRequestMergedEvent event) {
     IssueReferencingObject ref = mapper.ref(event.getRepository(), event.getPullRequest(), true);
+    indexer.index(ref);
     issueTracker.process(ref);
   }
 }
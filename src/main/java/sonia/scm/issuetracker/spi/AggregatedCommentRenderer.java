@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.issuetracker.spi;
+
+import sonia.scm.issuetracker.api.IssueReferencingObject;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Renders one comment for an issue which is referenced by multiple objects of the same push.
+ * A {@link ReferenceCommentRenderer} can implement this interface to enable aggregated comments for
+ * {@link sonia.scm.issuetracker.api.IssueTracker#processAggregated(java.util.Collection)}.
+ *
+ * @since 3.6.0
+ */
+public interface AggregatedCommentRenderer {
+
+  /**
+   * Type of the template which is used for aggregated comments.
+   */
+  String TYPE = "push";
+
+  /**
+   * Creates one comment for all objects which are referencing the issue.
+   *
+   * @param issueKey key of the referenced issue
+   * @param objects objects referencing the issue, in the order of the push
+   * @return comment that will be added to the issue
+   * @throws IOException when the comment could not be rendered
+   */
+  String render(String issueKey, List<IssueReferencingObject> objects) throws IOException;
+}
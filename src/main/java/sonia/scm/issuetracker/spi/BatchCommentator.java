@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.issuetracker.spi;
+
+import sonia.scm.issuetracker.api.IssueComment;
+import sonia.scm.issuetracker.api.IssueCommentResult;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * {@link Commentator} which is able to add multiple comments with one request, e.g. by using a bulk endpoint of the
+ * external issue tracker. If the commentator passed to the {@link IssueTrackerBuilder} implements this interface, it
+ * is used to send all comments of a push and to resubmit queued comments.
+ *
+ * @since 3.6.0
+ */
+public interface BatchCommentator extends Commentator {
+
+  /**
+   * Adds all comments. The result must contain one entry for each comment in the order of the given comments.
+   * Comments which could not be added are reported as failed result and are queued for resubmit one by one.
+   * Implementations are responsible to split large collections, if the external issue tracker has a limit.
+   *
+   * @param comments comments to add
+   * @return result for each comment
+   *
+   * @throws IOException if none of the comments could be added
+   */
+  List<IssueCommentResult> comment(Collection<IssueComment> comments) throws IOException;
+}
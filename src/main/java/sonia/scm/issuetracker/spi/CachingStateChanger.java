@@ -0,0 +1,231 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.issuetracker.spi;
+
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+
+/**
+ * {@link StateChanger} which caches the key words of the delegate. Concurrent requests for the same cache key are
+ * answered by a single call to the delegate, failed calls are not cached.
+ * <br>
+ * By default the key words are cached per issue and are invalidated when the state of the issue is changed. If the
+ * key words of the issue tracker do not depend on the issue, they could be cached per project or for the whole
+ * tracker:
+ * <pre>
+ * StateChanger changer = CachingStateChanger.wrap(new JiraStateChanger(...))
+ *   .expireAfterWrite(Duration.ofMinutes(10))
+ *   .perProject()
+ *   .build();
+ * </pre>
+ *
+ * @since 3.6.0
+ */
+public final class CachingStateChanger implements StateChanger {
+
+  private static final String TRACKER_KEY = "";
+
+  private final StateChanger delegate;
+  private final Function<String, String> cacheKey;
+  private final boolean invalidateOnChange;
+  private final Cache<String, List<String>> cache;
+
+  private CachingStateChanger(Builder builder) {
+    this.delegate = builder.delegate;
+    this.cacheKey = builder.cacheKey;
+    this.invalidateOnChange = builder.invalidateOnChange;
+    this.cache = CacheBuilder.newBuilder()
+      .expireAfterWrite(builder.expireAfterWrite)
+      .maximumSize(builder.maximumSize)
+      .build();
+  }
+
+  /**
+   * Starts the configuration of a caching state changer for the given delegate.
+   *
+   * @param delegate state changer which fetches the key words
+   * @return builder
+   */
+  public static Builder wrap(StateChanger delegate) {
+    return new Builder(delegate);
+  }
+
+  @Override
+  public void changeState(String issueKey, String keyWord) throws IOException {
+    try {
+      delegate.changeState(issueKey, keyWord);
+    } finally {
+      if (invalidateOnChange) {
+        // the available transitions depend on the current state of the issue
+        cache.invalidate(cacheKey.apply(issueKey));
+      }
+    }
+  }
+
+  @Override
+  public Iterable<String> getKeyWords(String issueKey) throws IOException {
+    try {
+      return cache.get(cacheKey.apply(issueKey), () -> load(issueKey));
+    } catch (ExecutionException ex) {
+      if (ex.getCause() instanceof IOException) {
+        throw (IOException) ex.getCause();
+      }
+      throw new IOException("failed to fetch key words for " + issueKey, ex.getCause());
+    } catch (UncheckedExecutionException ex) {
+      if (ex.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) ex.getCause();
+      }
+      throw ex;
+    }
+  }
+
+  private List<String> load(String issueKey) throws IOException {
+    Iterable<String> keyWords = delegate.getKeyWords(issueKey);
+    return keyWords != null ? ImmutableList.copyOf(keyWords) : ImmutableList.of();
+  }
+
+  /**
+   * Removes all cached key words.
+   */
+  public void invalidateAll() {
+    cache.invalidateAll();
+  }
+
+  @Override
+  public boolean isStateChangeActivatedFor(String type) {
+    return delegate.isStateChangeActivatedFor(type);
+  }
+
+  @Override
+  public boolean isStateChangeActivatedForCommits() {
+    return delegate.isStateChangeActivatedForCommits();
+  }
+
+  @Override
+  public boolean isStateChangeActivatedForPullRequests() {
+    return delegate.isStateChangeActivatedForPullRequests();
+  }
+
+  /**
+   * Extracts the project of an issue key, which is everything before the last dash, e.g. {@code SCM} for
+   * {@code SCM-42}. Keys without dash are returned unchanged.
+   *
+   * @param issueKey key of issue
+   * @return project of issue
+   */
+  static String projectPrefix(String issueKey) {
+    int index = issueKey.lastIndexOf('-');
+    return index > 0 ? issueKey.substring(0, index) : issueKey;
+  }
+
+  /**
+   * Builder for {@link CachingStateChanger}.
+   */
+  public static final class Builder {
+
+    private final StateChanger delegate;
+    private Duration expireAfterWrite = Duration.ofMinutes(5);
+    private long maximumSize = 1000;
+    private Function<String, String> cacheKey = Function.identity();
+    private boolean invalidateOnChange = true;
+
+    private Builder(StateChanger delegate) {
+      this.delegate = Preconditions.checkNotNull(delegate, "delegate is required");
+    }
+
+    /**
+     * Sets the time after which cached key words are fetched again. Default is five minutes.
+     *
+     * @param expireAfterWrite time to live of cached key words
+     * @return {@code this}
+     */
+    public Builder expireAfterWrite(Duration expireAfterWrite) {
+      Preconditions.checkArgument(!expireAfterWrite.isNegative(), "expireAfterWrite must not be negative");
+      this.expireAfterWrite = expireAfterWrite;
+      return this;
+    }
+
+    /**
+     * Sets the maximum number of cached key word lists. Default is 1000.
+     *
+     * @param maximumSize maximum size of cache
+     * @return {@code this}
+     */
+    public Builder maximumSize(long maximumSize) {
+      Preconditions.checkArgument(maximumSize >= 0, "maximumSize must not be negative");
+      this.maximumSize = maximumSize;
+      return this;
+    }
+
+    /**
+     * Caches the key words for each issue. This is the default.
+     *
+     * @return {@code this}
+     */
+    public Builder perIssue() {
+      this.cacheKey = Function.identity();
+      this.invalidateOnChange = true;
+      return this;
+    }
+
+    /**
+     * Caches the key words for each project, the project is the part of the issue key before the last dash.
+     *
+     * @return {@code this}
+     */
+    public Builder perProject() {
+      return perProject(CachingStateChanger::projectPrefix);
+    }
+
+    /**
+     * Caches the key words for each project, which is extracted from the issue key with the given function.
+     *
+     * @param projectExtractor function to extract the project from an issue key
+     * @return {@code this}
+     */
+    public Builder perProject(Function<String, String> projectExtractor) {
+      this.cacheKey = Preconditions.checkNotNull(projectExtractor, "projectExtractor is required");
+      this.invalidateOnChange = false;
+      return this;
+    }
+
+    /**
+     * Caches a single list of key words for the whole issue tracker. This should be used, if the transitions of the
+     * tracker do not depend on the issue.
+     *
+     * @return {@code this}
+     */
+    public Builder perTracker() {
+      this.cacheKey = issueKey -> TRACKER_KEY;
+      this.invalidateOnChange = false;
+      return this;
+    }
+
+    public CachingStateChanger build() {
+      return new CachingStateChanger(this);
+    }
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.issuetracker.spi;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Simple circuit breaker, which stops calls to a remote system after a number of consecutive failures.
+ * After the open duration has elapsed, a single trial call is permitted (half open). If the trial succeeds the
+ * breaker is closed again, otherwise it is opened for another period.
+ */
+public final class CircuitBreaker {
+
+  public enum State {
+    CLOSED, OPEN, HALF_OPEN
+  }
+
+  private final int failureThreshold;
+  private final Duration openDuration;
+  private final Clock clock;
+
+  private State state = State.CLOSED;
+  private int failures = 0;
+  private Instant openedAt;
+  private boolean trialInProgress = false;
+
+  public CircuitBreaker(int failureThreshold, Duration openDuration) {
+    this(failureThreshold, openDuration, Clock.systemUTC());
+  }
+
+  public CircuitBreaker(int failureThreshold, Duration openDuration, Clock clock) {
+    this.failureThreshold = failureThreshold;
+    this.openDuration = openDuration;
+    this.clock = clock;
+  }
+
+  /**
+   * Returns {@code true} if a call is permitted. If the breaker is half open, only the first caller is permitted
+   * until its result is recorded.
+   *
+   * @return {@code true} if a call is permitted
+   */
+  public synchronized boolean tryAcquire() {
+    State current = getState();
+    if (current == State.CLOSED) {
+      return true;
+    }
+    if (current == State.HALF_OPEN && !trialInProgress) {
+      trialInProgress = true;
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Releases a permit without a result, because the call was not executed. If the permit was the trial of a half
+   * open breaker, the next caller is permitted.
+   */
+  public synchronized void release() {
+    trialInProgress = false;
+  }
+
+  public synchronized void recordSuccess() {
+    state = State.CLOSED;
+    failures = 0;
+    openedAt = null;
+    trialInProgress = false;
+  }
+
+  public synchronized void recordFailure() {
+    failures++;
+    if (trialInProgress || failures >= failureThreshold) {
+      state = State.OPEN;
+      openedAt = clock.instant();
+    }
+    trialInProgress = false;
+  }
+
+  public synchronized State getState() {
+    if (state == State.OPEN && !clock.instant().isBefore(openedAt.plus(openDuration))) {
+      state = State.HALF_OPEN;
+    }
+    return state;
+  }
+
+  /**
+   * Returns the time at which the breaker will permit a trial call or {@code null}, if the breaker is not open.
+   *
+   * @return time of next trial call or {@code null}
+   */
+  public synchronized Instant getRetryAt() {
+    if (getState() == State.OPEN) {
+      return openedAt.plus(openDuration);
+    }
+    return null;
+  }
+}
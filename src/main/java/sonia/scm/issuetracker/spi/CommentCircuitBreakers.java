@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.issuetracker.spi;
+
+import com.google.common.annotations.VisibleForTesting;
+
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds one {@link CircuitBreaker} per issue tracker, which guards the comments sent while objects are processed.
+ * While the breaker of a tracker is open, new comments are queued for resubmit without calling the tracker.
+ * <br>
+ * The breakers can be tuned with the following system properties:
+ * <ul>
+ *   <li>{@code scm.issuetracker.comment.circuitBreaker.failureThreshold} - consecutive failures until the breaker opens (default 5)</li>
+ *   <li>{@code scm.issuetracker.comment.circuitBreaker.openSeconds} - time until the next trial (default 60)</li>
+ * </ul>
+ *
+ * @since 3.6.0
+ */
+@Singleton
+public class CommentCircuitBreakers {
+
+  private final int failureThreshold;
+  private final Duration openDuration;
+  private final Clock clock;
+
+  private final Map<String, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+
+  @Inject
+  public CommentCircuitBreakers() {
+    this(
+      TuningProperties.getPositiveInt("comment.circuitBreaker.failureThreshold", 5),
+      Duration.ofSeconds(TuningProperties.getPositiveInt("comment.circuitBreaker.openSeconds", 60)),
+      Clock.systemUTC()
+    );
+  }
+
+  @VisibleForTesting
+  public CommentCircuitBreakers(int failureThreshold, Duration openDuration, Clock clock) {
+    this.failureThreshold = failureThreshold;
+    this.openDuration = openDuration;
+    this.clock = clock;
+  }
+
+  /**
+   * Returns the circuit breaker of the given issue tracker, the breaker is created on first access.
+   *
+   * @param issueTracker name of the issue tracker
+   * @return circuit breaker of the issue tracker
+   */
+  public CircuitBreaker get(String issueTracker) {
+    return circuitBreakers.computeIfAbsent(issueTracker, name -> create());
+  }
+
+  /**
+   * Returns the circuit breaker of the given issue tracker, if the tracker has sent comments before.
+   *
+   * @param issueTracker name of the issue tracker
+   * @return circuit breaker or empty
+   */
+  public Optional<CircuitBreaker> find(String issueTracker) {
+    return Optional.ofNullable(circuitBreakers.get(issueTracker));
+  }
+
+  /**
+   * Creates a new breaker, which is not shared with other trackers.
+   *
+   * @return new circuit breaker
+   */
+  public CircuitBreaker create() {
+    return new CircuitBreaker(failureThreshold, openDuration, clock);
+  }
+}
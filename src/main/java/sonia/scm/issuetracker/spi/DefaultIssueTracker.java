@@ -16,26 +16,33 @@
 
 package sonia.scm.issuetracker.spi;
 
+import com.google.common.annotations.VisibleForTesting;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import sonia.scm.issuetracker.IssueLinkFactory;
 import sonia.scm.issuetracker.IssueMatcher;
+import sonia.scm.issuetracker.api.IssueComment;
 import sonia.scm.issuetracker.api.IssueReferencingObject;
 import sonia.scm.issuetracker.api.IssueTracker;
 import sonia.scm.issuetracker.api.Resubmitter;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.function.BiConsumer;
 
 /**
  * Default implementation of the {@link IssueTracker}. This will be build using a {@link IssueTrackerBuilder}.
  *
  * @since 3.0.0
  */
-class DefaultIssueTracker implements IssueTracker {
+class DefaultIssueTracker implements MatchingIssueTracker {
 
   private static final Logger LOG = LoggerFactory.getLogger(DefaultIssueTracker.class);
 
+  @VisibleForTesting
+  static final int MAX_COMMENTS_PER_CALL = 500;
+
   // must
   private final String name;
   private final IssueMatcher matcher;
@@ -50,6 +57,8 @@ class DefaultIssueTracker implements IssueTracker {
   private final StateChangeCommentRenderer stateChangeCommentRenderer;
   private final StateChanger stateChanger;
 
+  private final IssueTrackerMetrics metrics;
+
   DefaultIssueTracker(String name, IssueMatcher matcher, IssueLinkFactory linkFactory) {
     this(name, matcher, linkFactory, null, null, null);
   }
@@ -72,6 +81,19 @@ class DefaultIssueTracker implements IssueTracker {
                       ResubmittingCommentator commentator,
                       StateChangeCommentRenderer stateChangeCommentRenderer,
                       StateChanger stateChanger) {
+    this(name, matcher, linkFactory, store, referenceCommentRenderer, commentator, stateChangeCommentRenderer, stateChanger, IssueTrackerMetrics.noop());
+  }
+
+  @SuppressWarnings("java:S107") // the large constructor is ok for this use case
+  DefaultIssueTracker(String name,
+                      IssueMatcher matcher,
+                      IssueLinkFactory linkFactory,
+                      ProcessedStore store,
+                      ReferenceCommentRenderer referenceCommentRenderer,
+                      ResubmittingCommentator commentator,
+                      StateChangeCommentRenderer stateChangeCommentRenderer,
+                      StateChanger stateChanger,
+                      IssueTrackerMetrics metrics) {
     this.name = name;
     this.matcher = matcher;
     this.linkFactory = linkFactory;
@@ -80,6 +102,7 @@ class DefaultIssueTracker implements IssueTracker {
     this.commentator = commentator;
     this.stateChangeCommentRenderer = stateChangeCommentRenderer;
     this.stateChanger = stateChanger;
+    this.metrics = metrics;
   }
 
   @Override
@@ -87,15 +110,92 @@ class DefaultIssueTracker implements IssueTracker {
     return name;
   }
 
+  @Override
+  public IssueMatcher getMatcher() {
+    return matcher;
+  }
+
+  @Override
+  public IssueLinkFactory getLinkFactory() {
+    return linkFactory;
+  }
+
   @Override
   public void process(IssueReferencingObject object) {
-    Set<String> issueKeys = Issues.find(matcher, object);
-    if (!issueKeys.isEmpty()) {
-      process(object, issueKeys);
-    } else {
-      LOG.debug("object {} of type {} does not reference any issues of issue tracker {}",
-        object.getId(), object.getType(), name
-      );
+    PendingComments comments = new PendingComments();
+    process(object, comments);
+    send(comments);
+  }
+
+  private void process(IssueReferencingObject object, PendingComments comments) {
+    metrics.process(name, object.getType()).record(() -> {
+      Set<String> issueKeys = Issues.find(matcher, object);
+      if (!issueKeys.isEmpty()) {
+        process(object, issueKeys, comments);
+      } else {
+        LOG.debug("object {} of type {} does not reference any issues of issue tracker {}",
+          object.getId(), object.getType(), name
+        );
+      }
+    });
+  }
+
+  @Override
+  public void processAll(Collection<IssueReferencingObject> objects) {
+    PendingComments comments = new PendingComments();
+    if (store == null) {
+      objects.forEach(object -> processSafely(object, comments));
+      return;
+    }
+    // marks of all objects are written once per issue, when the batch is closed
+    try (ProcessedStore.Batch batch = store.batch()) {
+      objects.forEach(object -> processSafely(object, comments));
+      send(comments);
+    }
+  }
+
+  /**
+   * Processes the objects like {@link #processAll(Collection)}, but renders only one comment per issue for all
+   * objects which are referencing it. If the reference renderer is not able to render aggregated comments or the
+   * template for aggregated comments is missing, one comment per object is created.
+   */
+  @Override
+  public void processAggregated(Collection<IssueReferencingObject> objects) {
+    if (store == null || !(referenceCommentRenderer instanceof AggregatedCommentRenderer)) {
+      processAll(objects);
+      return;
+    }
+    PendingComments comments = new PendingComments(true);
+    try (ProcessedStore.Batch batch = store.batch()) {
+      objects.forEach(object -> processSafely(object, comments));
+      comments.forEachDeferred(this::renderAggregated);
+      send(comments);
+    }
+  }
+
+  private void renderAggregated(String issueKey, List<IssueReferencingObject> objects, PendingComments comments) {
+    if (objects.size() == 1) {
+      render(objects.get(0), issueKey, comments);
+      return;
+    }
+    Timer.Sample sample = metrics.start();
+    try {
+      String comment = ((AggregatedCommentRenderer) referenceCommentRenderer).render(issueKey, objects);
+      sample.stop(metrics.render(name, AggregatedCommentRenderer.TYPE));
+      add(issueKey, objects, comment, comments);
+    } catch (TemplateNotFoundException ex) {
+      LOG.debug("no template for aggregated comments found, create one comment per object on issue {}", issueKey);
+      objects.forEach(object -> render(object, issueKey, comments));
+    } catch (IOException ex) {
+      LOG.warn("failed to create aggregated comment on issue {}", issueKey, ex);
+    }
+  }
+
+  private void processSafely(IssueReferencingObject object, PendingComments comments) {
+    try {
+      process(object, comments);
+    } catch (Exception ex) {
+      LOG.error("issue tracker {} failed to process {} with id {}", name, object.getType(), object.getId(), ex);
     }
   }
 
@@ -108,64 +208,123 @@ class DefaultIssueTracker implements IssueTracker {
     return issues;
   }
 
-  private void process(IssueReferencingObject object, Set<String> issueKeys) {
+  private void process(IssueReferencingObject object, Set<String> issueKeys, PendingComments comments) {
+    // the detector tokenizes the content only once for all issue keys
+    Issues.StateChangeDetector detector = Issues.stateChangeDetector(object);
     for (String issueKey : issueKeys) {
-      process(object, issueKey);
+      process(object, detector, issueKey, comments);
     }
   }
 
-  private void process(IssueReferencingObject object, String issueKey) {
+  private void process(IssueReferencingObject object, Issues.StateChangeDetector detector, String issueKey, PendingComments comments) {
     if (stateChanger != null && object.isTriggeringStateChange()) {
-      processWithStateChange(object, issueKey);
+      processWithStateChange(object, detector, issueKey, comments);
     } else if (commentator != null) {
-      comment(object, issueKey);
+      comment(object, issueKey, comments);
     }
   }
 
-  private void comment(IssueReferencingObject object, String issueKey) {
-    if (store.isProcessed(issueKey, object)) {
+  private void comment(IssueReferencingObject object, String issueKey, PendingComments comments) {
+    if (isProcessed(issueKey, object, null) || comments.contains(issueKey, object)) {
       LOG.debug("{} is already commented", issueKey);
       return;
     }
+    if (comments.isAggregating()) {
+      comments.defer(issueKey, object);
+    } else {
+      render(object, issueKey, comments);
+    }
+  }
+
+  private void render(IssueReferencingObject object, String issueKey, PendingComments comments) {
     try {
+      Timer.Sample sample = metrics.start();
       String comment = referenceCommentRenderer.render(object);
-      commentator.comment(issueKey, comment);
-      store.mark(issueKey, object);
+      sample.stop(metrics.render(name, object.getType()));
+      add(issueKey, List.of(object), comment, comments);
     } catch (IOException ex) {
       LOG.warn("failed to create comment on issue {}", issueKey, ex);
     }
   }
 
-  private void processWithStateChange(IssueReferencingObject object, String issueKey) {
+  /**
+   * Collects the comment, if the commentator supports batches. Otherwise the comment is sent and the objects are
+   * marked as processed immediately, because there is nothing to gain by waiting for the other comments.
+   */
+  private void add(String issueKey, List<IssueReferencingObject> objects, String comment, PendingComments comments) {
+    if (commentator.isBatching()) {
+      comments.add(issueKey, objects, comment);
+    } else {
+      commentator.comment(issueKey, comment);
+      objects.forEach(object -> store.mark(issueKey, object));
+    }
+  }
+
+  /**
+   * Sends the collected comments to the batch commentator, with one call for at most {@link #MAX_COMMENTS_PER_CALL}
+   * comments, and marks them as processed after each call. Comments which could not be sent are queued for resubmit
+   * by the commentator.
+   */
+  private void send(PendingComments comments) {
+    for (int from = 0; from < comments.size(); from += MAX_COMMENTS_PER_CALL) {
+      int to = Math.min(from + MAX_COMMENTS_PER_CALL, comments.size());
+      commentator.commentAll(comments.comments(from, to));
+      comments.forEach(from, to, store::mark);
+    }
+  }
+
+  private void processWithStateChange(IssueReferencingObject object, Issues.StateChangeDetector detector, String issueKey, PendingComments comments) {
     Iterable<String> keyWords = getKeyWords(issueKey);
-    Optional<String> stateChange = Issues.detectStateChange(issueKey, keyWords, object);
+    Optional<String> stateChange = detector.detect(issueKey, keyWords);
     if (stateChange.isPresent()) {
       if (stateChanger.isStateChangeActivatedFor(object.getType())) {
         changeState(object, issueKey, stateChange.get());
       } else {
         LOG.trace("ignoring state change for type '{}' in repository {}, because state change for this type is disabled", object.getType(), object.getRepository());
-        comment(object, issueKey);
+        comment(object, issueKey, comments);
       }
     } else {
-      comment(object, issueKey);
+      comment(object, issueKey, comments);
     }
   }
 
   private void changeState(IssueReferencingObject object, String issueKey, String keyWord) {
-    if (store.isProcessed(issueKey, object, keyWord)) {
+    if (isProcessed(issueKey, object, keyWord)) {
       LOG.debug("{} with key word {} was already processed", issueKey, keyWord);
       return;
     }
     try {
+      Timer.Sample renderSample = metrics.start();
       String comment = stateChangeCommentRenderer.render(object, keyWord);
-      stateChanger.changeState(issueKey, keyWord);
+      renderSample.stop(metrics.render(name, object.getType()));
+      changeStateOfIssue(issueKey, keyWord);
       commentator.comment(issueKey, comment);
       store.mark(issueKey, object, keyWord);
+    } catch (RemoteCallRejectedException ex) {
+      // only comments can be resubmitted and the object is usually never processed again, so the change is lost
+      LOG.error("state change of {} to {} could not be sent in time and will not be retried: {}", issueKey, keyWord, ex.getMessage());
     } catch (IOException ex) {
       LOG.warn("failed to change state of {} to {}", issueKey, keyWord, ex);
     }
   }
 
+  private void changeStateOfIssue(String issueKey, String keyWord) throws IOException {
+    Timer.Sample sample = metrics.start();
+    boolean success = false;
+    try {
+      stateChanger.changeState(issueKey, keyWord);
+      success = true;
+    } finally {
+      sample.stop(metrics.remoteCall(name, IssueTrackerMetrics.OPERATION_CHANGE_STATE, success));
+    }
+  }
+
+  private boolean isProcessed(String issueKey, IssueReferencingObject object, String keyWord) {
+    boolean processed = keyWord != null ? store.isProcessed(issueKey, object, keyWord) : store.isProcessed(issueKey, object);
+    metrics.processedLookup(name, processed);
+    return processed;
+  }
+
   private Iterable<String> getKeyWords(String issueKey) {
     try {
       return stateChanger.getKeyWords(issueKey);
@@ -179,4 +338,74 @@ class DefaultIssueTracker implements IssueTracker {
   public Optional<Resubmitter> getResubmitter() {
     return Optional.ofNullable(commentator);
   }
+
+  private static class PendingComments {
+
+    private final boolean aggregating;
+    private final Map<String, Set<String>> objectsByIssue = new HashMap<>();
+    private final Map<String, List<IssueReferencingObject>> deferred = new LinkedHashMap<>();
+    private final List<String> issueKeys = new ArrayList<>();
+    private final List<List<IssueReferencingObject>> objects = new ArrayList<>();
+    private final List<IssueComment> comments = new ArrayList<>();
+
+    PendingComments() {
+      this(false);
+    }
+
+    PendingComments(boolean aggregating) {
+      this.aggregating = aggregating;
+    }
+
+    boolean isAggregating() {
+      return aggregating;
+    }
+
+    boolean contains(String issueKey, IssueReferencingObject object) {
+      return objectsByIssue.getOrDefault(issueKey, Collections.emptySet()).contains(id(object));
+    }
+
+    void defer(String issueKey, IssueReferencingObject object) {
+      objectsByIssue.computeIfAbsent(issueKey, key -> new HashSet<>()).add(id(object));
+      deferred.computeIfAbsent(issueKey, key -> new ArrayList<>()).add(object);
+    }
+
+    void forEachDeferred(DeferredConsumer consumer) {
+      for (Map.Entry<String, List<IssueReferencingObject>> entry : deferred.entrySet()) {
+        consumer.accept(entry.getKey(), entry.getValue(), this);
+      }
+    }
+
+    void add(String issueKey, List<IssueReferencingObject> issueObjects, String comment) {
+      Set<String> ids = objectsByIssue.computeIfAbsent(issueKey, key -> new HashSet<>());
+      issueObjects.forEach(object -> ids.add(id(object)));
+      issueKeys.add(issueKey);
+      objects.add(issueObjects);
+      comments.add(new IssueComment(issueKey, comment));
+    }
+
+    int size() {
+      return comments.size();
+    }
+
+    List<IssueComment> comments(int from, int to) {
+      return comments.subList(from, to);
+    }
+
+    void forEach(int from, int to, BiConsumer<String, IssueReferencingObject> consumer) {
+      for (int i = from; i < to; i++) {
+        String issueKey = issueKeys.get(i);
+        // every object is marked on its own, even if it was part of an aggregated comment
+        objects.get(i).forEach(object -> consumer.accept(issueKey, object));
+      }
+    }
+
+    private String id(IssueReferencingObject object) {
+      return object.getType() + "/" + object.getId();
+    }
+  }
+
+  @FunctionalInterface
+  private interface DeferredConsumer {
+    void accept(String issueKey, List<IssueReferencingObject> objects, PendingComments comments);
+  }
 }
@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.issuetracker.spi;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Append-only log of 64-bit fingerprints with an in-memory index. Lookups and appends are O(1).
+ * <br>
+ * The file starts with a header of 8 bytes followed by the fingerprints in big endian order. Appends are forced to
+ * disk before they return. A record which was only partially written, e.g. because of a crash, is dropped when the log
+ * is opened. A log without path keeps the fingerprints only in memory.
+ */
+final class FingerprintLog {
+
+  private static final Logger LOG = LoggerFactory.getLogger(FingerprintLog.class);
+
+  @VisibleForTesting
+  static final long HEADER = 0x53434d4946500001L; // "SCMIFP" and version 1
+
+  private static final int RECORD_SIZE = Long.BYTES;
+  private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+  private final Path path;
+
+  private LongHashSet index;
+
+  FingerprintLog(Path path) {
+    this.path = path;
+  }
+
+  /**
+   * Creates a log which keeps the fingerprints only in memory.
+   *
+   * @return in memory log
+   */
+  public static FingerprintLog inMemory() {
+    return new FingerprintLog(null);
+  }
+
+  /**
+   * Creates the log with the fingerprints of the given supplier, if it does not exist yet. The log is written to a
+   * temporary file first, which is moved to the final path afterwards. So the log is either created completely or not
+   * at all.
+   *
+   * @param initial supplier for the initial fingerprints
+   * @return {@code true} if the log was created
+   */
+  public synchronized boolean initialize(Supplier<long[]> initial) {
+    if (index != null || (path != null && Files.exists(path))) {
+      return false;
+    }
+    long[] fingerprints = initial.get();
+    if (path != null) {
+      write(fingerprints);
+    }
+    index = new LongHashSet(fingerprints.length);
+    index.addAll(fingerprints);
+    return true;
+  }
+
+  /**
+   * Returns {@code true} if the fingerprints are written to a file.
+   *
+   * @return {@code true} for a file based log
+   */
+  public boolean isPersistent() {
+    return path != null;
+  }
+
+  public synchronized boolean contains(long fingerprint) {
+    return index().contains(fingerprint);
+  }
+
+  public synchronized void append(long... fingerprints) {
+    LongHashSet known = index();
+    LongHashSet newFingerprints = new LongHashSet(fingerprints.length);
+    for (long fingerprint : fingerprints) {
+      if (!known.contains(fingerprint)) {
+        newFingerprints.add(fingerprint);
+      }
+    }
+    if (newFingerprints.isEmpty()) {
+      return;
+    }
+    long[] records = newFingerprints.toArray();
+    if (path != null) {
+      appendToFile(records);
+    }
+    known.addAll(records);
+  }
+
+  public synchronized int size() {
+    return index().size();
+  }
+
+  private LongHashSet index() {
+    if (index == null) {
+      LongHashSet fingerprints = new LongHashSet();
+      if (path != null && Files.exists(path)) {
+        read(fingerprints::add);
+      }
+      index = fingerprints;
+    }
+    return index;
+  }
+
+  private void read(LongConsumer consumer) {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      long size = channel.size();
+      ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+      readFully(channel, buffer);
+      if (buffer.remaining() < RECORD_SIZE || buffer.getLong() != HEADER) {
+        throw new IOException("unknown format of fingerprint log " + path);
+      }
+      long validSize = RECORD_SIZE;
+      while (true) {
+        while (buffer.remaining() >= RECORD_SIZE) {
+          consumer.accept(buffer.getLong());
+          validSize += RECORD_SIZE;
+        }
+        buffer.compact();
+        if (channel.read(buffer) < 0) {
+          break;
+        }
+        buffer.flip();
+      }
+      if (validSize < size) {
+        LOG.warn("drop incomplete record at the end of fingerprint log {}", path);
+        channel.truncate(validSize);
+      }
+    } catch (IOException ex) {
+      throw new UncheckedIOException("failed to read fingerprint log " + path, ex);
+    }
+  }
+
+  private void readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+      // read until the buffer is full or the end of the file is reached
+    }
+    buffer.flip();
+  }
+
+  private void write(long[] fingerprints) {
+    try {
+      Files.createDirectories(path.getParent());
+      Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+      try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE + fingerprints.length * RECORD_SIZE);
+        buffer.putLong(HEADER);
+        for (long fingerprint : fingerprints) {
+          buffer.putLong(fingerprint);
+        }
+        writeFully(channel, buffer);
+        channel.force(true);
+      }
+      Files.move(tmp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException ex) {
+      throw new UncheckedIOException("failed to write fingerprint log " + path, ex);
+    }
+  }
+
+  private void appendToFile(long[] fingerprints) {
+    try {
+      if (!Files.exists(path)) {
+        write(new long[0]);
+      }
+      try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+        ByteBuffer buffer = ByteBuffer.allocate(fingerprints.length * RECORD_SIZE);
+        for (long fingerprint : fingerprints) {
+          buffer.putLong(fingerprint);
+        }
+        writeFully(channel, buffer);
+        channel.force(false);
+      }
+    } catch (IOException ex) {
+      throw new UncheckedIOException("failed to append to fingerprint log " + path, ex);
+    }
+  }
+
+  private void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+}
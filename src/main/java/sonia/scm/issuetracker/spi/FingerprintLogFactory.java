@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.issuetracker.spi;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryLocationResolver;
+
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+
+/**
+ * Creates {@link FingerprintLog}s in the directory of a repository. As long as a log is in use, the same instance
+ * is returned for the same repository and name, so that there is only one index per file.
+ */
+@Singleton
+class FingerprintLogFactory {
+
+  private static final String DIRECTORY = "issuetracker";
+  private static final String EXTENSION = ".fingerprints";
+
+  private final Function<String, Path> repositoryDirectory;
+  private final Cache<Path, FingerprintLog> logs = CacheBuilder.newBuilder().weakValues().build();
+
+  @Inject
+  public FingerprintLogFactory(RepositoryLocationResolver locationResolver) {
+    this(repositoryId -> locationResolver.forClass(Path.class).getLocation(repositoryId));
+  }
+
+  @VisibleForTesting
+  public FingerprintLogFactory(Function<String, Path> repositoryDirectory) {
+    this.repositoryDirectory = repositoryDirectory;
+  }
+
+  /**
+   * Returns the log with the given name for the repository.
+   *
+   * @param repository repository
+   * @param name name of the log
+   * @return fingerprint log
+   */
+  public FingerprintLog get(Repository repository, String name) {
+    Path path = repositoryDirectory.apply(repository.getId()).resolve(DIRECTORY).resolve(name + EXTENSION);
+    try {
+      return logs.get(path.toAbsolutePath().normalize(), () -> new FingerprintLog(path));
+    } catch (ExecutionException ex) {
+      throw new IllegalStateException("failed to create fingerprint log " + path, ex.getCause());
+    }
+  }
+
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.issuetracker.spi;
+
+import sonia.scm.issuetracker.api.IssueComment;
+import sonia.scm.issuetracker.api.IssueCommentResult;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * {@link Commentator} which passes all calls through the {@link RemoteCallGuard} of the issue tracker.
+ */
+class GuardedCommentator implements Commentator {
+
+  private final Commentator delegate;
+  protected final RemoteCallGuard guard;
+
+  private GuardedCommentator(Commentator delegate, RemoteCallGuard guard) {
+    this.delegate = delegate;
+    this.guard = guard;
+  }
+
+  /**
+   * Wraps the commentator. Batch commentators are wrapped as {@link BatchCommentator}.
+   *
+   * @param delegate commentator to wrap
+   * @param guard guard of the issue tracker
+   * @return guarded commentator
+   */
+  static Commentator guard(Commentator delegate, RemoteCallGuard guard) {
+    if (delegate instanceof BatchCommentator) {
+      return new Batch((BatchCommentator) delegate, guard);
+    }
+    return new GuardedCommentator(delegate, guard);
+  }
+
+  @Override
+  public void comment(String issueKey, String comment) throws IOException {
+    guard.call(() -> {
+      delegate.comment(issueKey, comment);
+      return null;
+    });
+  }
+
+  private static class Batch extends GuardedCommentator implements BatchCommentator {
+
+    private final BatchCommentator batchDelegate;
+
+    private Batch(BatchCommentator delegate, RemoteCallGuard guard) {
+      super(delegate, guard);
+      this.batchDelegate = delegate;
+    }
+
+    @Override
+    public List<IssueCommentResult> comment(Collection<IssueComment> comments) throws IOException {
+      return guard.call(() -> batchDelegate.comment(comments));
+    }
+  }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.issuetracker.spi;
+
+import java.io.IOException;
+
+/**
+ * {@link StateChanger} which passes state changes and the requests for key words through the
+ * {@link RemoteCallGuard} of the issue tracker. State changes can not be queued for resubmit like comments, so they
+ * wait for the rate limit and for a free slot instead of being rejected immediately. Only a state change which could
+ * not be started or finished within the timeout of the guard is lost.
+ */
+class GuardedStateChanger implements StateChanger {
+
+  private final StateChanger delegate;
+  private final RemoteCallGuard guard;
+
+  GuardedStateChanger(StateChanger delegate, RemoteCallGuard guard) {
+    this.delegate = delegate;
+    this.guard = guard;
+  }
+
+  @Override
+  public void changeState(String issueKey, String keyWord) throws IOException {
+    guard.callWaiting(() -> {
+      delegate.changeState(issueKey, keyWord);
+      return null;
+    });
+  }
+
+  @Override
+  public Iterable<String> getKeyWords(String issueKey) throws IOException {
+    return guard.callWaiting(() -> delegate.getKeyWords(issueKey));
+  }
+
+  @Override
+  public boolean isStateChangeActivatedFor(String type) {
+    return delegate.isStateChangeActivatedFor(type);
+  }
+
+  @Override
+  public boolean isStateChangeActivatedForCommits() {
+    return delegate.isStateChangeActivatedForCommits();
+  }
+
+  @Override
+  public boolean isStateChangeActivatedForPullRequests() {
+    return delegate.isStateChangeActivatedForPullRequests();
+  }
+}
@@ -29,11 +29,17 @@ import sonia.scm.store.DataStoreFactory;
 
 import jakarta.inject.Inject;
 import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Builder for the default {@link IssueTracker} implementation. Start by calling
  * {@link #start(String, IssueMatcher, IssueLinkFactory)}, setting the least required
  * fields.
+ * <br>
+ * Commentators and state changers are wrapped, so that the calls to the remote issue tracker are limited by a
+ * {@link RemoteCallGuard} per tracker name. Comments are queued for resubmit without calling the remote issue tracker,
+ * while its circuit breaker is open (see {@link CommentCircuitBreakers}).
  *
  * @since 3.0.0
  */
@@ -42,12 +48,35 @@ public class IssueTrackerBuilder {
   private final DataStoreFactory dataStoreFactory;
   private final ResubmitQueue resubmitQueue;
   private final TemplateCommentRendererFactory templateCommentRendererFactory;
+  private final FingerprintLogFactory fingerprintLogFactory;
+  private final IssueTrackerMetrics metrics;
+  private final CommentCircuitBreakers circuitBreakers;
+  private final RemoteCallExecutor remoteCallExecutor;
+  private final Map<String, RemoteCallGuard> guards = new ConcurrentHashMap<>();
 
-  @Inject
+  /**
+   * Creates a builder which stores the marks of processed objects in the xml data store of older versions. The
+   * threads for the remote calls of this builder are not shut down with the plugin, idle threads end after a minute.
+   */
   public IssueTrackerBuilder(DataStoreFactory dataStoreFactory, ResubmitQueue resubmitQueue, TemplateCommentRendererFactory templateCommentRendererFactory) {
+    this(dataStoreFactory, resubmitQueue, templateCommentRendererFactory, null, IssueTrackerMetrics.noop(), new CommentCircuitBreakers(), new RemoteCallExecutor());
+  }
+
+  @Inject
+  IssueTrackerBuilder(DataStoreFactory dataStoreFactory,
+                      ResubmitQueue resubmitQueue,
+                      TemplateCommentRendererFactory templateCommentRendererFactory,
+                      FingerprintLogFactory fingerprintLogFactory,
+                      IssueTrackerMetrics metrics,
+                      CommentCircuitBreakers circuitBreakers,
+                      RemoteCallExecutor remoteCallExecutor) {
     this.dataStoreFactory = dataStoreFactory;
     this.resubmitQueue = resubmitQueue;
     this.templateCommentRendererFactory = templateCommentRendererFactory;
+    this.fingerprintLogFactory = fingerprintLogFactory;
+    this.metrics = metrics;
+    this.circuitBreakers = circuitBreakers;
+    this.remoteCallExecutor = remoteCallExecutor;
   }
 
   /**
@@ -66,6 +95,10 @@ public class IssueTrackerBuilder {
     return new ReadStage(this, name, matcher, linkFactory);
   }
 
+  private RemoteCallGuard guard(String name) {
+    return guards.computeIfAbsent(name, key -> RemoteCallGuard.create(key, remoteCallExecutor));
+  }
+
   public static class ReadStage {
 
     private final IssueTrackerBuilder builder;
@@ -99,16 +132,24 @@ public class IssueTrackerBuilder {
     public CommentingStage commenting(Repository repository, Commentator commentator) {
       Preconditions.checkNotNull(repository, "repository is required");
       Preconditions.checkNotNull(commentator, "commentator is required");
-      DataStore<ProcessedMarks> dataStore = createStore(repository);
-      return new CommentingStage(this, repository, new ProcessedStore(dataStore), commentator);
+      String storeName = "issueTracker" + name.substring(0, 1).toUpperCase(Locale.ENGLISH) + name.substring(1);
+      ProcessedStore store = new ProcessedStore(createStore(repository, storeName), createLog(repository, storeName));
+      return new CommentingStage(this, repository, store, commentator);
     }
 
-    private DataStore<ProcessedMarks> createStore(Repository repository) {
+    private DataStore<ProcessedMarks> createStore(Repository repository, String storeName) {
       return builder.dataStoreFactory.withType(ProcessedMarks.class)
-        .withName("issueTracker" + name.substring(0, 1).toUpperCase(Locale.ENGLISH) + name.substring(1))
+        .withName(storeName)
         .forRepository(repository)
         .build();
     }
+
+    private FingerprintLog createLog(Repository repository, String storeName) {
+      if (builder.fingerprintLogFactory == null) {
+        return FingerprintLog.inMemory();
+      }
+      return builder.fingerprintLogFactory.get(repository, storeName);
+    }
   }
 
   public static class CommentingStage {
@@ -122,7 +163,17 @@ public class IssueTrackerBuilder {
       this.readStage = readStage;
       this.repository = repository;
       this.store = store;
-      this.commentator = new ResubmittingCommentator(queue(), commentator);
+      this.commentator = new ResubmittingCommentator(
+        queue(),
+        GuardedCommentator.guard(commentator, guard()),
+        readStage.name,
+        readStage.builder.metrics,
+        readStage.builder.circuitBreakers.get(readStage.name)
+      );
+    }
+
+    private RemoteCallGuard guard() {
+      return readStage.builder.guard(readStage.name);
     }
 
     private ResubmitRepositoryQueue queue() {
@@ -178,7 +229,7 @@ public class IssueTrackerBuilder {
      */
     public ChangeStateRenderStage stateChanging(StateChanger stateChanger) {
       Preconditions.checkNotNull(stateChanger, "stateChanger is required");
-      return new ChangeStateRenderStage(this, stateChanger);
+      return new ChangeStateRenderStage(this, new GuardedStateChanger(stateChanger, commentingStage.guard()));
     }
 
     /**
@@ -193,7 +244,10 @@ public class IssueTrackerBuilder {
         commentingStage.readStage.linkFactory,
         commentingStage.store,
         renderer,
-        commentingStage.commentator
+        commentingStage.commentator,
+        null,
+        null,
+        commentingStage.readStage.builder.metrics
       );
     }
   }
@@ -261,7 +315,8 @@ public class IssueTrackerBuilder {
         changeStateRenderStage.changeStateStage.renderer,
         changeStateRenderStage.changeStateStage.commentingStage.commentator,
         renderer,
-        changeStateRenderStage.stateChanger
+        changeStateRenderStage.stateChanger,
+        changeStateRenderStage.changeStateStage.commentingStage.readStage.builder.metrics
       );
     }
 
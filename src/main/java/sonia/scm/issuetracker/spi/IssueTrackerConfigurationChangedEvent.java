@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.issuetracker.spi;
+
+import sonia.scm.event.Event;
+import sonia.scm.repository.Repository;
+
+import java.util.Optional;
+
+/**
+ * Event which should be fired by an {@link IssueTrackerProvider} whenever its configuration has changed.
+ * The issue trackers created by the provider are cached, the event makes sure the trackers are created again
+ * with the new configuration.
+ *
+ * @since 3.6.0
+ */
+@Event
+public final class IssueTrackerConfigurationChangedEvent {
+
+  private final String repositoryId;
+
+  /**
+   * Creates an event for a change of the global configuration, which affects the trackers of all repositories.
+   */
+  public IssueTrackerConfigurationChangedEvent() {
+    this.repositoryId = null;
+  }
+
+  /**
+   * Creates an event for a change of the configuration of a single repository.
+   *
+   * @param repository repository with changed configuration
+   */
+  public IssueTrackerConfigurationChangedEvent(Repository repository) {
+    this.repositoryId = repository.getId();
+  }
+
+  /**
+   * Returns the id of the repository with the changed configuration or an empty optional,
+   * if the global configuration was changed.
+   *
+   * @return optional repository id
+   */
+  public Optional<String> getRepositoryId() {
+    return Optional.ofNullable(repositoryId);
+  }
+}
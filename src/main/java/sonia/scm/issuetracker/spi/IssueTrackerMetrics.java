@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.issuetracker.spi;
+
+import com.google.common.base.MoreObjects;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+
+/**
+ * Meters for the processing of issue referencing objects. All meters are tagged with the name of the issue tracker
+ * and the type of the object or the operation, so that the costs of each tracker can be compared. The latency of
+ * calls to the remote issue trackers is published with percentiles, which are needed to size the worker pools.
+ *
+ * @since 3.6.0
+ */
+@Singleton
+public final class IssueTrackerMetrics {
+
+  public static final String METRIC_PROCESS = "scm.issuetracker.process";
+  public static final String METRIC_REMOTE = "scm.issuetracker.remote";
+  public static final String METRIC_RENDER = "scm.issuetracker.render";
+  public static final String METRIC_PROCESSED_LOOKUPS = "scm.issuetracker.processed.lookups";
+  public static final String METRIC_FIND_ISSUES = "scm.issuetracker.find_issues";
+
+  public static final String OPERATION_COMMENT = "comment";
+  public static final String OPERATION_BATCH_COMMENT = "batch_comment";
+  public static final String OPERATION_CHANGE_STATE = "change_state";
+
+  private static final String TAG_TRACKER = "tracker";
+  private static final String TAG_TYPE = "type";
+
+  private static final IssueTrackerMetrics NOOP = new IssueTrackerMetrics(new CompositeMeterRegistry());
+
+  private final MeterRegistry registry;
+
+  @Inject
+  public IssueTrackerMetrics(MeterRegistry registry) {
+    this.registry = registry;
+  }
+
+  /**
+   * Returns metrics which are not published anywhere.
+   *
+   * @return metrics without registry
+   */
+  public static IssueTrackerMetrics noop() {
+    return NOOP;
+  }
+
+  /**
+   * Starts the measurement of a remote call.
+   *
+   * @return sample which must be stopped with {@link #remoteCall(String, String, boolean)}
+   */
+  public Timer.Sample start() {
+    return Timer.start(registry);
+  }
+
+  /**
+   * Timer for the processing of a single object by an issue tracker. Comments for batch commentators are sent after
+   * all objects were processed, so their remote calls are only measured by {@link #remoteCall(String, String, boolean)}.
+   *
+   * @param tracker name of the issue tracker
+   * @param type type of the object
+   * @return timer
+   */
+  public Timer process(String tracker, String type) {
+    return Timer.builder(METRIC_PROCESS)
+      .description("Time needed by an issue tracker to process an object, excluding comments which are sent in batches")
+      .tag(TAG_TRACKER, tagValue(tracker))
+      .tag(TAG_TYPE, tagValue(type))
+      .register(registry);
+  }
+
+  /**
+   * Timer for calls of the commentator or the state changer of an issue tracker.
+   *
+   * @param tracker name of the issue tracker
+   * @param operation one of the operation constants
+   * @param success {@code true} if the call has succeeded
+   * @return timer
+   */
+  public Timer remoteCall(String tracker, String operation, boolean success) {
+    return Timer.builder(METRIC_REMOTE)
+      .description("Latency of calls to the remote issue tracker")
+      .tag(TAG_TRACKER, tagValue(tracker))
+      .tag("operation", operation)
+      .tag("outcome", success ? "success" : "failure")
+      .publishPercentiles(0.5, 0.95, 0.99)
+      .register(registry);
+  }
+
+  /**
+   * Timer for the rendering of comments.
+   *
+   * @param tracker name of the issue tracker
+   * @param type type of the object or {@link sonia.scm.issuetracker.spi.AggregatedCommentRenderer#TYPE}
+   * @return timer
+   */
+  public Timer render(String tracker, String type) {
+    return Timer.builder(METRIC_RENDER)
+      .description("Time needed to render a comment")
+      .tag(TAG_TRACKER, tagValue(tracker))
+      .tag(TAG_TYPE, tagValue(type))
+      .register(registry);
+  }
+
+  /**
+   * Counts a lookup of the processed marks.
+   *
+   * @param tracker name of the issue tracker
+   * @param processed {@code true} if the object was already processed
+   */
+  public void processedLookup(String tracker, boolean processed) {
+    Counter.builder(METRIC_PROCESSED_LOOKUPS)
+      .description("Lookups of processed marks, a hit means the object was already processed")
+      .tag(TAG_TRACKER, tagValue(tracker))
+      .tag("result", processed ? "hit" : "miss")
+      .register(registry)
+      .increment();
+  }
+
+  /**
+   * Timer for finding the issues of an object for the links of the rest api.
+   *
+   * @param type type of the object
+   * @return timer
+   */
+  public Timer findIssues(String type) {
+    return Timer.builder(METRIC_FIND_ISSUES)
+      .description("Time needed to find the issues of an object with all issue trackers of the repository")
+      .tag(TAG_TYPE, tagValue(type))
+      .register(registry);
+  }
+
+  private static String tagValue(String value) {
+    return MoreObjects.firstNonNull(value, "unknown");
+  }
+}
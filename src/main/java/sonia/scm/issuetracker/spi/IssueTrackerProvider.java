@@ -25,6 +25,13 @@ import java.util.Optional;
 /**
  * Creates issue trackers for an external issue tracker system such as jira or redmine.
  * This is the main entry point for plugin developers that want to connect to a new issue tracker system.
+ * <br>
+ * The created issue trackers are cached per repository and shared by all threads. Objects of a repository are
+ * processed by a single thread in the order of their events, but the same tracker is used concurrently for rest
+ * requests, link enrichment and resubmits. So the issue tracker and everything it holds, such as the
+ * {@link Commentator} and the {@link StateChanger}, must be thread safe. The implementations of the
+ * {@link IssueTrackerBuilder} are thread safe. Providers should fire an {@link IssueTrackerConfigurationChangedEvent}
+ * whenever their configuration changes, instead of reading a mutable configuration from the created tracker.
  *
  * @since 3.0.0
  */
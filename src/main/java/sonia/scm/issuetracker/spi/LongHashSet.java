@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.issuetracker.spi;
+
+import com.google.common.base.Preconditions;
+import com.google.errorprone.annotations.CanIgnoreReturnValue;
+
+import java.util.Arrays;
+
+/**
+ * Set of primitive long values with open addressing. Uses about 16 bytes per value, which is a fraction of a
+ * {@code HashSet<Long>}. The set is not thread safe.
+ */
+public final class LongHashSet {
+
+  private static final int MIN_CAPACITY = 16;
+
+  private long[] values;
+  private boolean containsZero = false;
+  private int size = 0;
+
+  public LongHashSet() {
+    this(MIN_CAPACITY);
+  }
+
+  public LongHashSet(int expectedSize) {
+    Preconditions.checkArgument(expectedSize >= 0, "expectedSize (%s) must >= 0", expectedSize);
+    this.values = new long[capacityFor(expectedSize)];
+  }
+
+  private static int capacityFor(int expectedSize) {
+    // keep the load factor at or below 0.5
+    int capacity = MIN_CAPACITY;
+    while (capacity < expectedSize * 2L) {
+      capacity <<= 1;
+    }
+    return capacity;
+  }
+
+  @CanIgnoreReturnValue
+  public boolean add(long value) {
+    if (value == 0) {
+      if (containsZero) {
+        return false;
+      }
+      containsZero = true;
+      size++;
+      return true;
+    }
+    int mask = values.length - 1;
+    int index = index(value, mask);
+    while (values[index] != 0) {
+      if (values[index] == value) {
+        return false;
+      }
+      index = (index + 1) & mask;
+    }
+    values[index] = value;
+    size++;
+    if (size * 2L > values.length) {
+      resize(values.length << 1);
+    }
+    return true;
+  }
+
+  public void addAll(long[] newValues) {
+    for (long value : newValues) {
+      add(value);
+    }
+  }
+
+  public boolean contains(long value) {
+    if (value == 0) {
+      return containsZero;
+    }
+    int mask = values.length - 1;
+    int index = index(value, mask);
+    while (values[index] != 0) {
+      if (values[index] == value) {
+        return true;
+      }
+      index = (index + 1) & mask;
+    }
+    return false;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public void clear() {
+    Arrays.fill(values, 0L);
+    containsZero = false;
+    size = 0;
+  }
+
+  public long[] toArray() {
+    long[] array = new long[size];
+    int i = 0;
+    if (containsZero) {
+      array[i++] = 0;
+    }
+    for (long value : values) {
+      if (value != 0) {
+        array[i++] = value;
+      }
+    }
+    return array;
+  }
+
+  private void resize(int capacity) {
+    long[] old = values;
+    values = new long[capacity];
+    int mask = capacity - 1;
+    for (long value : old) {
+      if (value != 0) {
+        int index = index(value, mask);
+        while (values[index] != 0) {
+          index = (index + 1) & mask;
+        }
+        values[index] = value;
+      }
+    }
+  }
+
+  private static int index(long value, int mask) {
+    // finalizer of murmur3, spreads sequential values over the whole table
+    long h = value;
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return (int) h & mask;
+  }
+}
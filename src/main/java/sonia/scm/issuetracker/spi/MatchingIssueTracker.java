@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.issuetracker.spi;
+
+import sonia.scm.issuetracker.IssueLinkFactory;
+import sonia.scm.issuetracker.IssueMatcher;
+import sonia.scm.issuetracker.api.IssueTracker;
+
+/**
+ * {@link IssueTracker} which finds its issues with an {@link IssueMatcher}.
+ * The issue key scanner of the plugin uses the matchers of those trackers to find the issues of all trackers at once.
+ */
+public interface MatchingIssueTracker extends IssueTracker {
+
+  /**
+   * Returns the matcher which is used to find issue keys.
+   *
+   * @return issue matcher
+   */
+  IssueMatcher getMatcher();
+
+  /**
+   * Returns the factory which is used to create links for the found issue keys.
+   *
+   * @return link factory
+   */
+  IssueLinkFactory getLinkFactory();
+}
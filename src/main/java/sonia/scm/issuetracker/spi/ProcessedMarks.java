@@ -21,6 +21,7 @@ import lombok.Data;
 import jakarta.xml.bind.annotation.XmlAccessType;
 import jakarta.xml.bind.annotation.XmlAccessorType;
 import jakarta.xml.bind.annotation.XmlRootElement;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -41,6 +42,10 @@ class ProcessedMarks {
     marks.add(mark);
   }
 
+  public Set<Mark> getMarks() {
+    return Collections.unmodifiableSet(marks);
+  }
+
   @Data
   @XmlAccessorType(XmlAccessType.FIELD)
   static class Mark {
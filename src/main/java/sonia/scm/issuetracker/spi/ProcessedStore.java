@@ -16,54 +16,185 @@
 
 package sonia.scm.issuetracker.spi;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Strings;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import sonia.scm.issuetracker.api.IssueReferencingObject;
 import sonia.scm.store.DataStore;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Stores which objects were already processed for an issue.
+ * <br>
+ * Each mark is stored as a 64-bit fingerprint of issue key, type and id of the object and the key word in an
+ * append-only {@link FingerprintLog}. Marks of older versions, which were stored as one xml file per issue, are
+ * migrated into the log on first access. The xml files are kept untouched, so that a downgrade or a repository
+ * export still finds the marks which were created before the migration. Marks which are added after the migration
+ * are only stored in the log, which is a plain file in the repository directory and not part of the
+ * {@link DataStore}: an export, an import or a downgrade loses them and the affected objects are processed again.
+ * <br>
+ * If the log is kept in memory only, the xml files stay the persistent storage: they are loaded into the log on
+ * first access, are never removed and every new mark is written to them as well.
+ * <br>
+ * Marks which are added within a {@link #batch()} are written behind: they are visible to
+ * {@link #isProcessed(String, IssueReferencingObject)} immediately, but are appended to the log with a single write
+ * when the batch is closed. To limit the marks which could get lost on a crash, pending marks are written as soon as
+ * {@link #MAX_PENDING_MARKS} are reached.
+ */
 class ProcessedStore {
 
-  private final DataStore<ProcessedMarks> store;
+  private static final Logger LOG = LoggerFactory.getLogger(ProcessedStore.class);
+
+  @VisibleForTesting
+  static final int MAX_PENDING_MARKS = 500;
+
+  private final DataStore<ProcessedMarks> legacyStore;
+  private final FingerprintLog log;
+  private final LongHashSet pending = new LongHashSet();
+
+  private int openBatches = 0;
+  private boolean migrated = false;
+
+  ProcessedStore(DataStore<ProcessedMarks> legacyStore, FingerprintLog log) {
+    this.legacyStore = legacyStore;
+    this.log = log;
+  }
+
+  public synchronized boolean isProcessed(String issueKey, IssueReferencingObject object) {
+    return contains(fingerprint(issueKey, object, null));
+  }
 
-  ProcessedStore(DataStore<ProcessedMarks> store) {
-    this.store = store;
+  public synchronized boolean isProcessed(String issueKey, IssueReferencingObject object, String keyWord) {
+    return contains(fingerprint(issueKey, object, keyWord));
   }
 
-  public boolean isProcessed(String issueKey, IssueReferencingObject object) {
-    return getMarks(issueKey).contains(mark(object));
+  public synchronized void mark(String issueKey, IssueReferencingObject object) {
+    add(issueKey, object, null);
   }
 
-  private ProcessedMarks.Mark mark(IssueReferencingObject object) {
-    return new ProcessedMarks.Mark(object.getType(), object.getId());
+  public synchronized void mark(String issueKey, IssueReferencingObject object, String keyWord) {
+    add(issueKey, object, keyWord);
   }
 
-  public boolean isProcessed(String issueKey, IssueReferencingObject object, String keyWord) {
-    return getMarks(issueKey).contains(mark(object, keyWord));
+  /**
+   * Starts a batch. All marks are written when the last open batch is closed.
+   *
+   * @return batch which must be closed
+   */
+  public synchronized Batch batch() {
+    openBatches++;
+    return new Batch();
   }
 
-  private ProcessedMarks.Mark mark(IssueReferencingObject object, String keyWord) {
-    return new ProcessedMarks.Mark(object.getType(), object.getId(), keyWord);
+  private boolean contains(long fingerprint) {
+    migrate();
+    return pending.contains(fingerprint) || log.contains(fingerprint);
   }
 
-  public void mark(String issueKey, IssueReferencingObject object) {
-    ProcessedMarks marks = getMarks(issueKey);
-    marks.add(mark(object));
-    store(issueKey, marks);
+  private void add(String issueKey, IssueReferencingObject object, String keyWord) {
+    migrate();
+    long fingerprint = fingerprint(issueKey, object, keyWord);
+    if (!log.isPersistent()) {
+      storeLegacyMark(issueKey, object, keyWord);
+      log.append(fingerprint);
+    } else if (openBatches > 0) {
+      pending.add(fingerprint);
+      if (pending.size() >= MAX_PENDING_MARKS) {
+        flush();
+      }
+    } else {
+      log.append(fingerprint);
+    }
   }
 
-  private void store(String issueKey, ProcessedMarks marks) {
-    store.put(Issues.normalize(issueKey), marks);
+  private void flush() {
+    if (!pending.isEmpty()) {
+      LOG.debug("write {} pending marks", pending.size());
+      log.append(pending.toArray());
+      pending.clear();
+    }
   }
 
-  public void mark(String issueKey, IssueReferencingObject object, String keyWord) {
-    ProcessedMarks marks = getMarks(issueKey);
-    marks.add(mark(object, keyWord));
-    store(issueKey, marks);
+  private synchronized void close() {
+    openBatches--;
+    if (openBatches == 0) {
+      flush();
+    }
   }
 
-  private ProcessedMarks getMarks(String issueKey) {
-    ProcessedMarks marks = store.get(Issues.normalize(issueKey));
+  private void storeLegacyMark(String issueKey, IssueReferencingObject object, String keyWord) {
+    String normalizedKey = Issues.normalize(issueKey);
+    ProcessedMarks marks = legacyStore.get(normalizedKey);
     if (marks == null) {
-      return new ProcessedMarks();
+      marks = new ProcessedMarks();
+    }
+    marks.add(new ProcessedMarks.Mark(object.getType(), object.getId(), keyWord));
+    legacyStore.put(normalizedKey, marks);
+  }
+
+  private void migrate() {
+    if (!migrated) {
+      // the xml files are kept as fallback for downgrades and exports, which do not know the log
+      log.initialize(this::legacyFingerprints);
+      migrated = true;
+    }
+  }
+
+  private long[] legacyFingerprints() {
+    LongHashSet fingerprints = new LongHashSet();
+    for (Map.Entry<String, ProcessedMarks> e : legacyStore.getAll().entrySet()) {
+      for (ProcessedMarks.Mark mark : e.getValue().getMarks()) {
+        fingerprints.add(fingerprint(e.getKey(), mark.getType(), mark.getId(), mark.getKeyword()));
+      }
+    }
+    if (!fingerprints.isEmpty()) {
+      LOG.info("migrate {} processed marks to fingerprint log", fingerprints.size());
+    }
+    return fingerprints.toArray();
+  }
+
+  private static long fingerprint(String issueKey, IssueReferencingObject object, String keyWord) {
+    // the legacy store knows only the normalized keys, so we have to use them for the fingerprints, too
+    return fingerprint(Issues.normalize(issueKey), object.getType(), object.getId(), keyWord);
+  }
+
+  @VisibleForTesting
+  static long fingerprint(String normalizedIssueKey, String type, String id, String keyWord) {
+    Hasher hasher = Hashing.murmur3_128().newHasher();
+    put(hasher, normalizedIssueKey);
+    put(hasher, type);
+    put(hasher, id);
+    hasher.putBoolean(keyWord != null);
+    put(hasher, keyWord);
+    return hasher.hash().asLong();
+  }
+
+  private static void put(Hasher hasher, String value) {
+    String nonNull = Strings.nullToEmpty(value);
+    hasher.putInt(nonNull.length()).putString(nonNull, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Batch of marks, which are written on close.
+   */
+  class Batch implements AutoCloseable {
+
+    private boolean closed = false;
+
+    private Batch() {
+    }
+
+    @Override
+    public void close() {
+      if (!closed) {
+        closed = true;
+        ProcessedStore.this.close();
+      }
     }
-    return marks;
   }
 }
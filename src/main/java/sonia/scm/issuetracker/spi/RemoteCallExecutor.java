@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.issuetracker.spi;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import jakarta.inject.Singleton;
+import java.io.Closeable;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs the calls of all {@link RemoteCallGuard}s, so that the caller is able to stop waiting after the timeout. The
+ * number of threads is bound by the concurrency limits of the guards. Calls which are still running are interrupted,
+ * when the executor is closed on shutdown.
+ */
+@Singleton
+class RemoteCallExecutor implements Closeable {
+
+  private final ExecutorService executor = Executors.newCachedThreadPool(
+    new ThreadFactoryBuilder().setNameFormat("IssueTrackerRemoteCall-%d").setDaemon(true).build()
+  );
+
+  <T> Future<T> submit(Callable<T> callable) {
+    return executor.submit(callable);
+  }
+
+  @Override
+  public void close() {
+    executor.shutdownNow();
+  }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.issuetracker.spi;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.RateLimiter;
+import org.apache.shiro.subject.Subject;
+import org.apache.shiro.util.ThreadContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Limits the calls to a remote issue tracker. Each issue tracker name gets its own guard, which is shared by the
+ * trackers of all repositories. A guard combines a token bucket for the rate of calls, a semaphore for the number of
+ * concurrent calls and a timeout for each call. Comments which exceed one of the limits fail immediately with a
+ * {@link RemoteCallRejectedException}, so that they are queued for resubmit. Calls which could not be resubmitted,
+ * like state changes, wait up to the timeout for the limits instead (see {@link GuardedStateChanger}). The calls are
+ * executed by the shared {@link RemoteCallExecutor}.
+ * <br>
+ * The limits can be configured for all trackers or per tracker name, e.g.
+ * {@code -Dscm.issuetracker.remote.jira.concurrency=2}:
+ * <ul>
+ *   <li>{@code remote.ratePerSecond}: calls per second, default {@value #DEFAULT_RATE}</li>
+ *   <li>{@code remote.concurrency}: concurrent calls, default {@value #DEFAULT_CONCURRENCY}</li>
+ *   <li>{@code remote.timeoutSeconds}: timeout of a call, default {@value #DEFAULT_TIMEOUT_SECONDS}</li>
+ * </ul>
+ */
+final class RemoteCallGuard {
+
+  private static final Logger LOG = LoggerFactory.getLogger(RemoteCallGuard.class);
+
+  private static final double DEFAULT_RATE = 50;
+  private static final int DEFAULT_CONCURRENCY = 8;
+  private static final int DEFAULT_TIMEOUT_SECONDS = 60;
+
+  private final String name;
+  private final RateLimiter rateLimiter;
+  private final Semaphore bulkhead;
+  private final Duration timeout;
+  private final RemoteCallExecutor executor;
+
+  @VisibleForTesting
+  RemoteCallGuard(String name, double ratePerSecond, int concurrency, Duration timeout, RemoteCallExecutor executor) {
+    this.name = name;
+    this.rateLimiter = RateLimiter.create(ratePerSecond);
+    this.bulkhead = new Semaphore(concurrency);
+    this.timeout = timeout;
+    this.executor = executor;
+  }
+
+  /**
+   * Creates a guard with the configured limits for the issue tracker with the given name.
+   *
+   * @param name name of the issue tracker
+   * @param executor executor for the calls
+   * @return new guard
+   */
+  static RemoteCallGuard create(String name, RemoteCallExecutor executor) {
+    String prefix = "remote." + name + ".";
+    double rate = TuningProperties.getPositiveDouble(prefix + "ratePerSecond",
+      TuningProperties.getPositiveDouble("remote.ratePerSecond", DEFAULT_RATE));
+    int concurrency = TuningProperties.getPositiveInt(prefix + "concurrency",
+      TuningProperties.getPositiveInt("remote.concurrency", DEFAULT_CONCURRENCY));
+    int timeoutSeconds = TuningProperties.getPositiveInt(prefix + "timeoutSeconds",
+      TuningProperties.getPositiveInt("remote.timeoutSeconds", DEFAULT_TIMEOUT_SECONDS));
+    LOG.debug("limit remote calls of {} to {}/s, {} concurrent calls and {}s timeout", name, rate, concurrency, timeoutSeconds);
+    return new RemoteCallGuard(name, rate, concurrency, Duration.ofSeconds(timeoutSeconds), executor);
+  }
+
+  <T> T call(RemoteCall<T> remoteCall) throws IOException {
+    if (!rateLimiter.tryAcquire()) {
+      throw new RemoteCallRejectedException(name, "rate limit exceeded");
+    }
+    if (!bulkhead.tryAcquire()) {
+      throw new RemoteCallRejectedException(name, "too many concurrent calls");
+    }
+    return execute(remoteCall);
+  }
+
+  /**
+   * Executes the call like {@link #call(RemoteCall)}, but waits up to the timeout of a call for the rate limit and for
+   * a free slot, instead of failing immediately. This is used for calls which could not be queued for resubmit.
+   */
+  <T> T callWaiting(RemoteCall<T> remoteCall) throws IOException {
+    try {
+      if (!rateLimiter.tryAcquire(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+        throw new RemoteCallRejectedException(name, "rate limit exceeded for " + timeout.getSeconds() + "s");
+      }
+      if (!bulkhead.tryAcquire(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+        throw new RemoteCallRejectedException(name, "too many concurrent calls for " + timeout.getSeconds() + "s");
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("interrupted while waiting for remote call to " + name);
+    }
+    return execute(remoteCall);
+  }
+
+  private <T> T execute(RemoteCall<T> remoteCall) throws IOException {
+    Future<T> future = submit(remoteCall);
+    try {
+      return future.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+    } catch (TimeoutException ex) {
+      future.cancel(true);
+      throw new RemoteCallRejectedException(name, "call has not finished within " + timeout.getSeconds() + "s", true);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      future.cancel(true);
+      throw new InterruptedIOException("interrupted during remote call to " + name);
+    } catch (ExecutionException ex) {
+      throw unwrap(ex.getCause());
+    }
+  }
+
+  private <T> Future<T> submit(RemoteCall<T> remoteCall) throws RemoteCallRejectedException {
+    Callable<T> callable = () -> {
+      try {
+        return remoteCall.call();
+      } finally {
+        // the permit is released by the call itself, so that calls which are still running after the timeout count
+        bulkhead.release();
+      }
+    };
+    Subject subject = ThreadContext.getSubject();
+    if (subject != null) {
+      callable = subject.associateWith(callable);
+    }
+    try {
+      return executor.submit(callable);
+    } catch (RejectedExecutionException ex) {
+      bulkhead.release();
+      throw new RemoteCallRejectedException(name, "executor rejected call");
+    }
+  }
+
+  private IOException unwrap(Throwable cause) {
+    if (cause instanceof IOException) {
+      return (IOException) cause;
+    }
+    if (cause instanceof RuntimeException) {
+      throw (RuntimeException) cause;
+    }
+    if (cause instanceof Error) {
+      throw (Error) cause;
+    }
+    return new IOException("remote call to " + name + " failed", cause);
+  }
+
+  @FunctionalInterface
+  interface RemoteCall<T> {
+    T call() throws IOException;
+  }
+}
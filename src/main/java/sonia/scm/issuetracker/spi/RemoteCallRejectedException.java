@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.issuetracker.spi;
+
+import java.io.IOException;
+
+/**
+ * Thrown if a call to the remote issue tracker was not executed, because the rate limit or the maximum of concurrent
+ * calls of the issue tracker was reached, or if the call has not finished in time. Rejected comments are queued for
+ * resubmit.
+ *
+ * @since 3.6.0
+ */
+public class RemoteCallRejectedException extends IOException {
+
+  private final String issueTracker;
+  private final boolean timeout;
+
+  public RemoteCallRejectedException(String issueTracker, String message) {
+    this(issueTracker, message, false);
+  }
+
+  public RemoteCallRejectedException(String issueTracker, String message, boolean timeout) {
+    super(message + " for issue tracker " + issueTracker);
+    this.issueTracker = issueTracker;
+    this.timeout = timeout;
+  }
+
+  public String getIssueTracker() {
+    return issueTracker;
+  }
+
+  /**
+   * Returns {@code true} if the call was executed, but has not finished in time. Otherwise the call was rejected
+   * locally and the remote issue tracker was not called at all. A call which has timed out might still succeed on the
+   * remote side, so a comment which is resubmitted after a timeout could be added twice.
+   *
+   * @return {@code true} if the call has timed out
+   */
+  public boolean isTimeout() {
+    return timeout;
+  }
+}
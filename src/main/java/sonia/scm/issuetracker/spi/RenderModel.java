@@ -0,0 +1,228 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.issuetracker.spi;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterators;
+import org.apache.shiro.SecurityUtils;
+import org.apache.shiro.subject.PrincipalCollection;
+import sonia.scm.issuetracker.api.Content;
+import sonia.scm.issuetracker.api.IssueReferencingObject;
+import sonia.scm.repository.Person;
+import sonia.scm.user.User;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Read-only model for comment templates. The values are computed when they are accessed for the first time, so a
+ * template pays only for the values it uses. Entries without value are not part of the model. A model is created
+ * once per {@link IssueReferencingObject} and is shared by all comments for the object. The principal depends on the
+ * subject of the rendering thread, so it is not part of the shared model but of the {@link #view() view} which is
+ * created for each render.
+ */
+final class RenderModel extends AbstractMap<String, Object> {
+
+  private static final String KEY_WORD = "keyWord";
+
+  private static final List<String> KEYS = ImmutableList.of(
+    "repository", "type", "id", "author", "contributors", "date", "content", "link", "origin"
+  );
+
+  private final IssueReferencingObject object;
+  private final Supplier<Map<String, String>> content;
+
+  RenderModel(IssueReferencingObject object) {
+    this.object = object;
+    this.content = Suppliers.memoize(() -> content(object.getContent()));
+  }
+
+  /**
+   * Returns a view of this model for a single render. The view adds the principal of the current subject, which is
+   * resolved at most once for the view.
+   *
+   * @return model for a single render
+   */
+  Map<String, Object> view() {
+    return view(principal(), null);
+  }
+
+  /**
+   * Returns a view of this model for a single render with an additional entry for the key word.
+   *
+   * @param keyWord key word of the state change
+   * @return model for a single render with key word
+   */
+  Map<String, Object> withKeyWord(String keyWord) {
+    return view(principal(), keyWord);
+  }
+
+  /**
+   * Returns a view of this model which uses the given principal. This allows a render of multiple objects to share a
+   * single resolution of the principal.
+   *
+   * @param principal supplier of the principal
+   * @param keyWord key word of the state change or {@code null}
+   * @return model for a single render
+   */
+  Map<String, Object> view(Supplier<Person> principal, String keyWord) {
+    return new RenderView(this, principal, keyWord);
+  }
+
+  /**
+   * Returns a supplier which resolves the principal of the current subject on first access.
+   *
+   * @return memoizing supplier of the principal
+   */
+  static Supplier<Person> principal() {
+    return Suppliers.memoize(RenderModel::findPrincipal);
+  }
+
+  @Override
+  public Object get(Object key) {
+    if (!(key instanceof String)) {
+      return null;
+    }
+    switch ((String) key) {
+      case "repository":
+        return object.getRepository();
+      case "type":
+        return object.getType();
+      case "id":
+        return object.getId();
+      case "author":
+        return object.getAuthor();
+      case "contributors":
+        return object.getContributors();
+      case "date":
+        return object.getDate();
+      case "content":
+        return content.get();
+      case "link":
+        return object.getLink();
+      case "origin":
+        return object.getOrigin();
+      default:
+        return null;
+    }
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return get(key) != null;
+  }
+
+  @Override
+  public Set<Entry<String, Object>> entrySet() {
+    return new AbstractSet<>() {
+      @Override
+      public Iterator<Entry<String, Object>> iterator() {
+        Iterator<String> keys = Iterators.filter(KEYS.iterator(), RenderModel.this::containsKey);
+        return Iterators.transform(keys, key -> new SimpleImmutableEntry<>(key, get(key)));
+      }
+
+      @Override
+      public int size() {
+        return Iterators.size(iterator());
+      }
+    };
+  }
+
+  private static Map<String, String> content(List<Content> contents) {
+    if (contents == null) {
+      return null;
+    }
+    Map<String, String> map = new LinkedHashMap<>();
+    contents.forEach(c -> map.put(c.getType(), c.getValue()));
+    return Collections.unmodifiableMap(map);
+  }
+
+  private static Person findPrincipal() {
+    PrincipalCollection principals = SecurityUtils.getSubject().getPrincipals();
+    if (principals != null) {
+      User user = principals.oneByType(User.class);
+      if (user != null) {
+        return new Person(
+          MoreObjects.firstNonNull(user.getDisplayName(), user.getName()),
+          user.getMail()
+        );
+      }
+    }
+    return null;
+  }
+
+  private static final class RenderView extends AbstractMap<String, Object> {
+
+    private static final String PRINCIPAL = "principal";
+
+    private final RenderModel model;
+    private final Supplier<Person> principal;
+    private final String keyWord;
+
+    private RenderView(RenderModel model, Supplier<Person> principal, String keyWord) {
+      this.model = model;
+      this.principal = principal;
+      this.keyWord = keyWord;
+    }
+
+    @Override
+    public Object get(Object key) {
+      if (PRINCIPAL.equals(key)) {
+        return principal.get();
+      }
+      if (KEY_WORD.equals(key)) {
+        return keyWord;
+      }
+      return model.get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      return get(key) != null;
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+      return new AbstractSet<>() {
+        @Override
+        public Iterator<Entry<String, Object>> iterator() {
+          Iterator<Entry<String, Object>> entries = model.entrySet().iterator();
+          Iterator<String> additional = Iterators.filter(
+            Iterators.forArray(PRINCIPAL, KEY_WORD), RenderView.this::containsKey
+          );
+          return Iterators.concat(
+            entries, Iterators.transform(additional, key -> new SimpleImmutableEntry<>(key, get(key)))
+          );
+        }
+
+        @Override
+        public int size() {
+          return Iterators.size(iterator());
+        }
+      };
+    }
+  }
+}
@@ -16,36 +16,208 @@
 
 package sonia.scm.issuetracker.spi;
 
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import sonia.scm.issuetracker.api.Resubmitter;
+import sonia.scm.issuetracker.api.BatchResubmitter;
+import sonia.scm.issuetracker.api.IssueComment;
+import sonia.scm.issuetracker.api.IssueCommentResult;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 
-class ResubmittingCommentator implements Commentator, Resubmitter {
+/**
+ * Sends comments to the issue tracker and queues them for resubmit, if they could not be sent. A
+ * {@link CircuitBreaker} opens after too many consecutive failures. While it is open, comments are queued without
+ * calling the issue tracker. After the open duration a single comment is sent as trial, which closes the breaker on
+ * success. Resubmits always call the issue tracker, but their results are recorded by the breaker as well.
+ * Calls which were rejected by the {@link RemoteCallGuard} without calling the issue tracker (rate limit or maximum of
+ * concurrent calls) are not counted as failures.
+ * <br>
+ * Comments whose call has timed out are queued as well, although the issue tracker might still add them after the
+ * timeout. Such a comment is added twice after the resubmit, which is preferred over losing it.
+ */
+class ResubmittingCommentator implements Commentator, BatchResubmitter {
 
   private static final Logger LOG = LoggerFactory.getLogger(ResubmittingCommentator.class);
 
   private final Commentator commentator;
   private final ResubmitRepositoryQueue queue;
+  private final String name;
+  private final IssueTrackerMetrics metrics;
+  private final CircuitBreaker circuitBreaker;
 
   ResubmittingCommentator(ResubmitRepositoryQueue queue, Commentator commentator) {
+    this(queue, commentator, null, IssueTrackerMetrics.noop(), new CommentCircuitBreakers().create());
+  }
+
+  ResubmittingCommentator(ResubmitRepositoryQueue queue, Commentator commentator, String name, IssueTrackerMetrics metrics, CircuitBreaker circuitBreaker) {
     this.queue = queue;
     this.commentator = commentator;
+    this.name = name;
+    this.metrics = metrics;
+    this.circuitBreaker = circuitBreaker;
   }
 
   @Override
-  public void comment(String issueKey, String comment) throws IOException {
+  public void comment(String issueKey, String comment) {
+    commentOrQueue(issueKey, comment);
+  }
+
+  private void commentOrQueue(String issueKey, String comment) {
+    if (!circuitBreaker.tryAcquire()) {
+      LOG.debug("circuit breaker of {} is open until {}, queue comment for issue {}", name, circuitBreaker.getRetryAt(), issueKey);
+      queue.append(issueKey, comment);
+      return;
+    }
     try {
-      commentator.comment(issueKey, comment);
-    } catch (IOException ex) {
+      send(issueKey, comment);
+      circuitBreaker.recordSuccess();
+    } catch (IOException | RuntimeException ex) {
+      recordFailure(ex);
       LOG.warn("failed to append comment for issue {}, queue for resubmit", issueKey, ex);
       queue.append(issueKey, comment);
     }
   }
 
+  /**
+   * Returns {@code true} if the commentator is able to add multiple comments with a single call.
+   *
+   * @return {@code true} if comments should be collected and sent with {@link #commentAll(Collection)}
+   */
+  boolean isBatching() {
+    return commentator instanceof BatchCommentator;
+  }
+
+  /**
+   * Adds all comments, with a single call if the commentator supports batches. Each comment which could not be added
+   * is queued for resubmit.
+   *
+   * @param comments comments to add
+   */
+  void commentAll(Collection<IssueComment> comments) {
+    if (comments.isEmpty()) {
+      return;
+    }
+    if (!isBatching()) {
+      for (IssueComment comment : comments) {
+        commentOrQueue(comment.getIssueKey(), comment.getComment());
+      }
+      return;
+    }
+    if (!circuitBreaker.tryAcquire()) {
+      LOG.debug("circuit breaker of {} is open until {}, queue {} comments", name, circuitBreaker.getRetryAt(), comments.size());
+      comments.forEach(comment -> queue.append(comment.getIssueKey(), comment.getComment()));
+      return;
+    }
+    for (IssueCommentResult result : record(sendBatch((BatchCommentator) commentator, comments))) {
+      result.getFailure().ifPresent(ex -> {
+        IssueComment comment = result.getComment();
+        LOG.warn("failed to append comment for issue {}, queue for resubmit", comment.getIssueKey(), ex);
+        queue.append(comment.getIssueKey(), comment.getComment());
+      });
+    }
+  }
+
   @Override
   public void resubmit(String issueKey, String comment) throws IOException {
-    commentator.comment(issueKey, comment);
+    try {
+      send(issueKey, comment);
+      circuitBreaker.recordSuccess();
+    } catch (IOException | RuntimeException ex) {
+      recordFailure(ex);
+      throw ex;
+    }
+  }
+
+  private void send(String issueKey, String comment) throws IOException {
+    Timer.Sample sample = metrics.start();
+    boolean success = false;
+    try {
+      commentator.comment(issueKey, comment);
+      success = true;
+    } finally {
+      sample.stop(metrics.remoteCall(name, IssueTrackerMetrics.OPERATION_COMMENT, success));
+    }
+  }
+
+  @Override
+  public List<IssueCommentResult> resubmitAll(Collection<IssueComment> comments) {
+    if (commentator instanceof BatchCommentator) {
+      return record(sendBatch((BatchCommentator) commentator, comments));
+    }
+    List<IssueCommentResult> results = new ArrayList<>(comments.size());
+    for (IssueComment comment : comments) {
+      try {
+        resubmit(comment.getIssueKey(), comment.getComment());
+        results.add(IssueCommentResult.success(comment));
+      } catch (IOException ex) {
+        results.add(IssueCommentResult.failure(comment, ex));
+      }
+    }
+    return results;
+  }
+
+  private List<IssueCommentResult> record(List<IssueCommentResult> results) {
+    // a batch counts as a single call, the tracker is reachable if at least one comment was added
+    if (results.stream().anyMatch(IssueCommentResult::isSuccess)) {
+      circuitBreaker.recordSuccess();
+    } else {
+      results.stream()
+        .map(IssueCommentResult::getFailure)
+        .flatMap(Optional::stream)
+        .filter(ex -> !isLocalRejection(ex))
+        .findFirst()
+        .ifPresentOrElse(ex -> circuitBreaker.recordFailure(), circuitBreaker::release);
+    }
+    return results;
+  }
+
+  private void recordFailure(Exception ex) {
+    if (isLocalRejection(ex)) {
+      // the issue tracker was not called, so we know nothing about its health
+      circuitBreaker.release();
+    } else {
+      circuitBreaker.recordFailure();
+    }
+  }
+
+  private boolean isLocalRejection(Exception ex) {
+    return ex instanceof RemoteCallRejectedException && !((RemoteCallRejectedException) ex).isTimeout();
+  }
+
+  private List<IssueCommentResult> sendBatch(BatchCommentator batchCommentator, Collection<IssueComment> comments) {
+    List<IssueCommentResult> results = new ArrayList<>(comments.size());
+    Timer.Sample sample = metrics.start();
+    boolean success = false;
+    try {
+      List<IssueCommentResult> batchResults = batchCommentator.comment(comments);
+      success = true;
+      results.addAll(batchResults);
+      if (batchResults.size() < comments.size()) {
+        // should not happen, but we do not want to lose comments of a faulty implementation
+        IOException ex = new IOException("batch commentator returned no result for comment");
+        comments.stream()
+          .skip(batchResults.size())
+          .forEach(comment -> results.add(IssueCommentResult.failure(comment, ex)));
+      }
+    } catch (IOException ex) {
+      LOG.debug("failed to send batch of {} comments", comments.size(), ex);
+      fail(results, comments, ex);
+    } catch (RuntimeException ex) {
+      LOG.debug("batch commentator failed to send {} comments", comments.size(), ex);
+      fail(results, comments, new IOException("batch commentator failed", ex));
+    } finally {
+      sample.stop(metrics.remoteCall(name, IssueTrackerMetrics.OPERATION_BATCH_COMMENT, success));
+    }
+    return results;
+  }
+
+  private void fail(List<IssueCommentResult> results, Collection<IssueComment> comments, IOException ex) {
+    results.clear();
+    comments.forEach(comment -> results.add(IssueCommentResult.failure(comment, ex)));
   }
 }
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.issuetracker.spi;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import sonia.scm.SCMContextProvider;
+import sonia.scm.Stage;
+import sonia.scm.template.Template;
+import sonia.scm.template.TemplateEngine;
+import sonia.scm.template.TemplateEngineFactory;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Cache for resolved templates, shared by all {@link TemplateCommentRenderer}s. The key is the resolved path of the
+ * template. Templates which could not be found are not cached. In development stage the cache is bypassed, so that
+ * changed templates are picked up immediately. Otherwise templates are part of the installed plugins, which can only
+ * change with a restart, so the cache is never invalidated.
+ */
+final class TemplateCache {
+
+  @VisibleForTesting
+  static final String METRIC_NAME = "scm.issuetracker.templates";
+
+  private static final int MAX_SIZE = 200;
+
+  private final TemplateEngineFactory engineFactory;
+  private final boolean bypass;
+  private final Cache<String, Template> cache = CacheBuilder.newBuilder()
+    .maximumSize(MAX_SIZE)
+    .recordStats()
+    .build();
+
+  TemplateCache(TemplateEngineFactory engineFactory, boolean bypass) {
+    this.engineFactory = engineFactory;
+    this.bypass = bypass;
+  }
+
+  static TemplateCache create(TemplateEngineFactory engineFactory, SCMContextProvider contextProvider, MeterRegistry meterRegistry) {
+    TemplateCache templateCache = new TemplateCache(engineFactory, contextProvider.getStage() == Stage.DEVELOPMENT);
+    GuavaCacheMetrics.monitor(meterRegistry, templateCache.cache, METRIC_NAME);
+    return templateCache;
+  }
+
+  Template get(String path) throws IOException {
+    if (bypass) {
+      return load(path);
+    }
+    try {
+      return cache.get(path, () -> load(path));
+    } catch (ExecutionException ex) {
+      if (ex.getCause() instanceof IOException) {
+        throw (IOException) ex.getCause();
+      }
+      throw new IOException("failed to load template " + path, ex.getCause());
+    }
+  }
+
+  @VisibleForTesting
+  Cache<String, Template> getCache() {
+    return cache;
+  }
+
+  private Template load(String path) throws IOException {
+    TemplateEngine engine = engineFactory.getEngineByExtension(path);
+    if (engine == null) {
+      throw new TemplateEngineNotFoundException(path);
+    }
+
+    Template template = engine.getTemplate(path);
+    if (template == null) {
+      throw new TemplateNotFoundException(path);
+    }
+
+    return template;
+  }
+}
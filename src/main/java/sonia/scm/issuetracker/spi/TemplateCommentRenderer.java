@@ -16,45 +16,61 @@
 
 package sonia.scm.issuetracker.spi;
 
-import com.google.common.base.MoreObjects;
-import com.google.common.collect.ImmutableMap;
-import org.apache.shiro.SecurityUtils;
-import org.apache.shiro.subject.PrincipalCollection;
-import sonia.scm.issuetracker.api.Content;
+import com.google.common.base.Supplier;
 import sonia.scm.issuetracker.api.IssueReferencingObject;
 import sonia.scm.repository.Person;
 import sonia.scm.template.Template;
-import sonia.scm.template.TemplateEngine;
-import sonia.scm.template.TemplateEngineFactory;
-import sonia.scm.user.User;
 
 import java.io.IOException;
 import java.io.StringWriter;
 import java.text.MessageFormat;
-import java.util.LinkedHashMap;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
-class TemplateCommentRenderer implements ReferenceCommentRenderer, StateChangeCommentRenderer {
+class TemplateCommentRenderer implements ReferenceCommentRenderer, StateChangeCommentRenderer, AggregatedCommentRenderer {
 
-  private final TemplateEngineFactory templateEngineFactory;
+  private final TemplateCache templateCache;
+  private final Function<IssueReferencingObject, RenderModel> models;
   private final String resourcePathTemplate;
+  private final Map<String, String> paths = new ConcurrentHashMap<>();
 
-  TemplateCommentRenderer(TemplateEngineFactory templateEngineFactory, String resourcePathTemplate) {
-    this.templateEngineFactory = templateEngineFactory;
+  TemplateCommentRenderer(TemplateCache templateCache, Function<IssueReferencingObject, RenderModel> models, String resourcePathTemplate) {
+    this.templateCache = templateCache;
+    this.models = models;
     this.resourcePathTemplate = resourcePathTemplate;
   }
 
   @Override
   public String render(IssueReferencingObject object) throws IOException {
-    Map<String, Object> model = model(object).build();
-    return render(object.getType(), model);
+    return render(object.getType(), models.apply(object).view());
   }
 
   @Override
   public String render(IssueReferencingObject object, String keyWord) throws IOException {
-    Map<String, Object> model = model(object).put("keyWord", keyWord).build();
-    return render(object.getType(), model);
+    return render(object.getType(), models.apply(object).withKeyWord(keyWord));
+  }
+
+  @Override
+  public String render(String issueKey, List<IssueReferencingObject> objects) throws IOException {
+    Supplier<Person> principal = RenderModel.principal();
+    List<Map<String, Object>> objectModels = new ArrayList<>(objects.size());
+    for (IssueReferencingObject object : objects) {
+      objectModels.add(models.apply(object).view(principal, null));
+    }
+    Map<String, Object> model = new HashMap<>();
+    model.put("issueKey", issueKey);
+    model.put("type", TYPE);
+    model.put("count", objects.size());
+    model.put("objects", objectModels);
+    if (!objectModels.isEmpty()) {
+      model.put("repository", objectModels.get(0).get("repository"));
+      model.put("principal", principal.get());
+    }
+    return render(TYPE, model);
   }
 
   private String render(String type, Map<String, Object> model) throws IOException {
@@ -68,61 +84,9 @@ class TemplateCommentRenderer implements ReferenceCommentRenderer, StateChangeCo
     return writer.toString();
   }
 
-  private ImmutableMap.Builder<String, Object> model(IssueReferencingObject object) {
-    ImmutableMap.Builder<String, Object> builder = ImmutableMap.builder();
-    put(builder, "repository", object.getRepository());
-    put(builder, "type", object.getType());
-    put(builder, "id", object.getId());
-    put(builder, "author", object.getAuthor());
-    put(builder, "contributors", object.getContributors());
-    put(builder, "date", object.getDate());
-    put(builder, "content", object.getContent());
-    put(builder, "link", object.getLink());
-    put(builder, "origin", object.getOrigin());
-    put(builder, "principal", findPrincipal());
-    return builder;
-  }
-
-  private void put(ImmutableMap.Builder<String, Object> builder, String key, List<Content> content) {
-    Map<String,String> map = new LinkedHashMap<>();
-    content.forEach(c -> map.put(c.getType(), c.getValue()));
-    put(builder, key, map);
-  }
-
-  private void put(ImmutableMap.Builder<String, Object> builder, String key, Object value) {
-    if (value != null) {
-      builder.put(key, value);
-    }
-  }
-
-  private Person findPrincipal() {
-    PrincipalCollection principals = SecurityUtils.getSubject().getPrincipals();
-    if (principals != null) {
-      User user = principals.oneByType(User.class);
-      if (user != null) {
-        return new Person(
-          MoreObjects.firstNonNull(user.getDisplayName(), user.getName()),
-          user.getMail()
-        );
-      }
-    }
-    return null;
-  }
-
   private Template findTemplate(String type) throws IOException {
-    String path = MessageFormat.format(resourcePathTemplate, type);
-
-    TemplateEngine engine = templateEngineFactory.getEngineByExtension(path);
-    if (engine == null) {
-      throw new TemplateEngineNotFoundException(path);
-    }
-
-    Template template = engine.getTemplate(path);
-    if (template == null) {
-      throw new TemplateNotFoundException(path);
-    }
-
-    return template;
+    String path = paths.computeIfAbsent(type, t -> MessageFormat.format(resourcePathTemplate, t));
+    return templateCache.get(path);
   }
 
 }
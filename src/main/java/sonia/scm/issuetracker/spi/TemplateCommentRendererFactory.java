@@ -16,26 +16,64 @@
 
 package sonia.scm.issuetracker.spi;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.micrometer.core.instrument.MeterRegistry;
+import sonia.scm.SCMContextProvider;
+import sonia.scm.issuetracker.api.IssueReferencingObject;
 import sonia.scm.template.TemplateEngineFactory;
 
 import jakarta.inject.Inject;
 import jakarta.inject.Singleton;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Creates template based comment renderers. Renderers are shared for the same resource path template and all
+ * renderers share one cache of resolved templates and one {@link RenderModel} per object.
+ */
 @Singleton
 class TemplateCommentRendererFactory {
 
-  private final TemplateEngineFactory engineFactory;
+  private static final int MAX_MODELS = 100;
+
+  private final TemplateCache templateCache;
+  private final Map<String, TemplateCommentRenderer> renderers = new ConcurrentHashMap<>();
+
+  // weak keys are compared by identity, so each object gets its own model
+  private final Cache<IssueReferencingObject, RenderModel> models = CacheBuilder.newBuilder()
+    .weakKeys()
+    .maximumSize(MAX_MODELS)
+    .build();
 
   @Inject
-  public TemplateCommentRendererFactory(TemplateEngineFactory engineFactory) {
-    this.engineFactory = engineFactory;
+  public TemplateCommentRendererFactory(TemplateEngineFactory engineFactory, SCMContextProvider contextProvider, MeterRegistry meterRegistry) {
+    this(TemplateCache.create(engineFactory, contextProvider, meterRegistry));
+  }
+
+  @VisibleForTesting
+  TemplateCommentRendererFactory(TemplateEngineFactory engineFactory) {
+    this(new TemplateCache(engineFactory, false));
+  }
+
+  private TemplateCommentRendererFactory(TemplateCache templateCache) {
+    this.templateCache = templateCache;
   }
 
   public ReferenceCommentRenderer reference(String resourcePathTemplate) {
-    return new TemplateCommentRenderer(engineFactory, resourcePathTemplate);
+    return renderer(resourcePathTemplate);
   }
 
   public StateChangeCommentRenderer stateChange(String resourcePathTemplate) {
-    return new TemplateCommentRenderer(engineFactory, resourcePathTemplate);
+    return renderer(resourcePathTemplate);
+  }
+
+  private TemplateCommentRenderer renderer(String resourcePathTemplate) {
+    return renderers.computeIfAbsent(resourcePathTemplate, path -> new TemplateCommentRenderer(templateCache, this::model, path));
+  }
+
+  private RenderModel model(IssueReferencingObject object) {
+    return models.asMap().computeIfAbsent(object, RenderModel::new);
   }
 }
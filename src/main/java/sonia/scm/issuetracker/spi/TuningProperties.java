@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.issuetracker.spi;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads tuning parameters of the plugin from system properties. All properties are prefixed with
+ * {@code scm.issuetracker.}, e.g. {@code -Dscm.issuetracker.resubmit.poolSize=16}. Invalid values are logged and
+ * replaced by the default.
+ */
+public final class TuningProperties {
+
+  private static final Logger LOG = LoggerFactory.getLogger(TuningProperties.class);
+
+  static final String PREFIX = "scm.issuetracker.";
+
+  private TuningProperties() {
+  }
+
+  /**
+   * Returns the positive int value of the property or the default value.
+   *
+   * @param name name of the property without prefix
+   * @param defaultValue default value
+   * @return value of property
+   */
+  public static int getPositiveInt(String name, int defaultValue) {
+    String value = System.getProperty(PREFIX + name);
+    if (value == null) {
+      return defaultValue;
+    }
+    try {
+      int intValue = Integer.parseInt(value.trim());
+      if (intValue > 0) {
+        return intValue;
+      }
+    } catch (NumberFormatException ex) {
+      // handled below
+    }
+    LOG.warn("invalid value '{}' for {}{}, must be a positive integer; using default {}", value, PREFIX, name, defaultValue);
+    return defaultValue;
+  }
+
+  /**
+   * Returns the positive double value of the property or the default value.
+   *
+   * @param name name of the property without prefix
+   * @param defaultValue default value
+   * @return value of property
+   */
+  public static double getPositiveDouble(String name, double defaultValue) {
+    String value = System.getProperty(PREFIX + name);
+    if (value == null) {
+      return defaultValue;
+    }
+    try {
+      double doubleValue = Double.parseDouble(value.trim());
+      if (doubleValue > 0 && Double.isFinite(doubleValue)) {
+        return doubleValue;
+      }
+    } catch (NumberFormatException ex) {
+      // handled below
+    }
+    LOG.warn("invalid value '{}' for {}{}, must be a positive number; using default {}", value, PREFIX, name, defaultValue);
+    return defaultValue;
+  }
+
+  /**
+   * Returns the boolean value of the property or the default value.
+   *
+   * @param name name of the property without prefix
+   * @param defaultValue default value
+   * @return value of property
+   */
+  public static boolean getBoolean(String name, boolean defaultValue) {
+    String value = System.getProperty(PREFIX + name);
+    if (value == null) {
+      return defaultValue;
+    }
+    return Boolean.parseBoolean(value.trim());
+  }
+}
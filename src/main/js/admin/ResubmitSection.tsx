@@ -18,7 +18,7 @@ import React, { FC } from "react";
 import { Link } from "@scm-manager/ui-types";
 import { useTranslation } from "react-i18next";
 import { Resubmit, ResubmitCollection, useResubmits } from "./hooks";
-import { Button, Notification, ErrorNotification, Loading } from "@scm-manager/ui-components";
+import { Button, DateFromNow, Notification, ErrorNotification, Loading } from "@scm-manager/ui-components";
 import styled from "styled-components";
 
 type ActionProps = {
@@ -65,6 +65,7 @@ const ResubmitTable: FC<ResubmitTableProps> = ({ data, actionDispatcher }) => {
         <tr>
           <th>{t("scm-issuetracker-plugin.resubmit.issueTracker")}</th>
           <th>{t("scm-issuetracker-plugin.resubmit.queueCount")}</th>
+          <th>{t("scm-issuetracker-plugin.resubmit.circuitBreaker.title")}</th>
           <th />
           <th />
         </tr>
@@ -74,6 +75,10 @@ const ResubmitTable: FC<ResubmitTableProps> = ({ data, actionDispatcher }) => {
           <tr className="border-is-green">
             <TextTd>{resubmit.issueTracker}</TextTd>
             <TextTd>{resubmit.queueSize}</TextTd>
+            <TextTd>
+              {t(`scm-issuetracker-plugin.resubmit.circuitBreaker.${resubmit.circuitBreaker}`)}
+              {resubmit.retryAt ? <DateFromNow date={resubmit.retryAt} /> : null}
+            </TextTd>
             <ActionTd>
               <Action
                 label={t("scm-issuetracker-plugin.resubmit.resubmit")}
@@ -28,6 +28,8 @@ export type Resubmit = HalRepresentation & {
   issueTracker: string;
   queueSize: number;
   inProgress: boolean;
+  circuitBreaker: "CLOSED" | "OPEN" | "HALF_OPEN";
+  retryAt?: string;
 };
 
 export const useResubmits = (link: string) => {
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.issuetracker;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import sonia.scm.repository.Changeset;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryTestData;
+import sonia.scm.store.DataStoreFactory;
+import sonia.scm.store.InMemoryDataStoreFactory;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DataStoreBasedIssueTrackerTest {
+
+  private static final String SHA_ONE = "0a1b2c3d4e5f60718293a4b5c6d7e8f901234567";
+  private static final String SHA_TWO = "fedcba98765432100123456789abcdef01234567";
+
+  private final Repository repository = RepositoryTestData.createHeartOfGold();
+
+  private DataStoreFactory storeFactory;
+  private DataStoreBasedIssueTracker tracker;
+
+  @BeforeEach
+  void setUp() {
+    repository.setId("42");
+    storeFactory = new InMemoryDataStoreFactory();
+    tracker = new SimpleIssueTracker(storeFactory);
+  }
+
+  @Test
+  void shouldNotBeHandled() {
+    assertThat(tracker.isHandled(repository, changeset(SHA_ONE))).isFalse();
+  }
+
+  @Test
+  void shouldMarkAsHandled() {
+    tracker.markAsHandled(repository, changeset(SHA_ONE));
+
+    assertThat(tracker.isHandled(repository, changeset(SHA_ONE))).isTrue();
+    assertThat(tracker.isHandled(repository, changeset(SHA_TWO))).isFalse();
+  }
+
+  @Test
+  void shouldMarkAllChangesetsAsHandled() {
+    tracker.markAsHandled(repository, ImmutableList.of(changeset(SHA_ONE), changeset("42")));
+
+    assertThat(tracker.isHandled(repository, changeset(SHA_ONE))).isTrue();
+    assertThat(tracker.isHandled(repository, changeset("42"))).isTrue();
+    assertThat(tracker.isHandled(repository, changeset("21"))).isFalse();
+  }
+
+  @Test
+  void shouldReadMarksFromStore() {
+    tracker.markAsHandled(repository, ImmutableList.of(changeset(SHA_ONE), changeset("42")));
+
+    SimpleIssueTracker other = new SimpleIssueTracker(storeFactory);
+
+    assertThat(other.isHandled(repository, changeset(SHA_ONE))).isTrue();
+    assertThat(other.isHandled(repository, changeset("42"))).isTrue();
+    assertThat(other.isHandled(repository, changeset(SHA_TWO))).isFalse();
+  }
+
+  @Test
+  void shouldKeepMarksOfEarlierPushes() {
+    tracker.markAsHandled(repository, ImmutableList.of(changeset(SHA_ONE)));
+    tracker.markAsHandled(repository, ImmutableList.of(changeset(SHA_TWO)));
+
+    SimpleIssueTracker other = new SimpleIssueTracker(storeFactory);
+
+    assertThat(other.isHandled(repository, changeset(SHA_ONE))).isTrue();
+    assertThat(other.isHandled(repository, changeset(SHA_TWO))).isTrue();
+  }
+
+  @Test
+  void shouldRemoveHandledMarks() {
+    tracker.markAsHandled(repository, changeset(SHA_ONE));
+
+    tracker.removeHandledMarks(repository);
+
+    assertThat(tracker.isHandled(repository, changeset(SHA_ONE))).isFalse();
+    assertThat(new SimpleIssueTracker(storeFactory).isHandled(repository, changeset(SHA_ONE))).isFalse();
+  }
+
+  @Test
+  void shouldUsePrefixOfHashesAsFingerprint() {
+    assertThat(DataStoreBasedIssueTracker.fingerprint(SHA_ONE)).isEqualTo(0x0a1b2c3d4e5f6071L);
+    assertThat(DataStoreBasedIssueTracker.fingerprint(SHA_TWO)).isEqualTo(0xfedcba9876543210L);
+  }
+
+  @Test
+  void shouldHashOtherIds() {
+    assertThat(DataStoreBasedIssueTracker.fingerprint("42"))
+      .isNotEqualTo(DataStoreBasedIssueTracker.fingerprint("21"));
+  }
+
+  private Changeset changeset(String id) {
+    Changeset changeset = new Changeset();
+    changeset.setId(id);
+    return changeset;
+  }
+
+  private static class SimpleIssueTracker extends DataStoreBasedIssueTracker {
+
+    SimpleIssueTracker(DataStoreFactory storeFactory) {
+      super("simple", storeFactory);
+    }
+
+    @Override
+    public Optional<IssueMatcher> createMatcher(Repository repository) {
+      return Optional.empty();
+    }
+
+    @Override
+    public Optional<IssueLinkFactory> createLinkFactory(Repository repository) {
+      return Optional.empty();
+    }
+  }
+}
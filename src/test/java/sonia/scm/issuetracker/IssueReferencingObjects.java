@@ -19,6 +19,7 @@ package sonia.scm.issuetracker;
 import sonia.scm.issuetracker.api.Content;
 import sonia.scm.issuetracker.api.IssueReferencingObject;
 import sonia.scm.repository.Person;
+import sonia.scm.repository.Repository;
 import sonia.scm.repository.RepositoryTestData;
 
 import java.time.Instant;
@@ -31,15 +32,19 @@ public class IssueReferencingObjects {
   private IssueReferencingObjects() {
   }
 
-  public static IssueReferencingObject ref(String type, String id) {
+  public static IssueReferencingObject ref(String type, String id, String... values) {
+    return ref(RepositoryTestData.createHeartOfGold(), type, id, values);
+  }
+
+  public static IssueReferencingObject ref(Repository repository, String type, String id, String... values) {
     return new IssueReferencingObject(
-      RepositoryTestData.createHeartOfGold(),
+      repository,
       type,
       id,
       Person.toPerson("Trillian"),
       Collections.emptyMap(),
       Instant.now(),
-      Collections.emptyList(),
+      contents(values),
       "https://hitchhiker.com/scm",
       true,
       type + "/" + id
@@ -51,10 +56,6 @@ public class IssueReferencingObjects {
   }
 
   public static IssueReferencingObject content(boolean triggeringStateChange, String... values) {
-    List<Content> content = new ArrayList<>();
-    for (int i = 0; i < values.length; i++) {
-      content.add(new Content("c" + i, values[i]));
-    }
     return new IssueReferencingObject(
       RepositoryTestData.createHeartOfGold(),
       "unit-test",
@@ -62,10 +63,18 @@ public class IssueReferencingObjects {
       Person.toPerson("Trillian"),
       Collections.emptyMap(),
       Instant.now(),
-      content,
+      contents(values),
       "https://hitchhiker.com/scm",
       triggeringStateChange,
       values
     );
   }
+
+  private static List<Content> contents(String... values) {
+    List<Content> content = new ArrayList<>();
+    for (int i = 0; i < values.length; i++) {
+      content.add(new Content("c" + i, values[i]));
+    }
+    return content;
+  }
 }
@@ -0,0 +1,244 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.issuetracker.internal;
+
+import com.google.common.collect.ImmutableList;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.github.sdorra.jse.ShiroExtension;
+import org.github.sdorra.jse.SubjectAware;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import sonia.scm.issuetracker.IssueReferencingObjects;
+import sonia.scm.issuetracker.api.IssueReferencingObject;
+import sonia.scm.issuetracker.api.IssueTracker;
+import sonia.scm.issuetracker.internal.index.IssueReferenceIndexer;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryTestData;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(ShiroExtension.class)
+@SubjectAware("trillian")
+class AsyncIssueProcessorTest {
+
+  private static final Duration TIMEOUT = Duration.ofMillis(50);
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final RecordingIssueTracker issueTracker = new RecordingIssueTracker();
+  private final IssueReferenceIndexer indexer = mock(IssueReferenceIndexer.class);
+
+  private AsyncIssueProcessor processor;
+
+  @AfterEach
+  void tearDown() {
+    issueTracker.release();
+    if (processor != null) {
+      processor.close();
+    }
+  }
+
+  @Test
+  void shouldProcessObjectsInOrder() {
+    processor = new AsyncIssueProcessor(issueTracker, indexer, meterRegistry, 1, 10, TIMEOUT);
+
+    IssueReferencingObject one = IssueReferencingObjects.ref("changeset", "1");
+    IssueReferencingObject two = IssueReferencingObjects.ref("changeset", "2");
+    processor.process(ImmutableList.of(one, two));
+
+    await().atMost(5, TimeUnit.SECONDS).until(() -> issueTracker.processed.size() == 2);
+    assertThat(issueTracker.processed).containsExactly(one, two);
+  }
+
+  @Test
+  void shouldPassUnitToProcessAll() {
+    processor = new AsyncIssueProcessor(issueTracker, indexer, meterRegistry, 1, 10, TIMEOUT);
+
+    IssueReferencingObject one = IssueReferencingObjects.ref("changeset", "1");
+    IssueReferencingObject two = IssueReferencingObjects.ref("changeset", "2");
+    processor.process(ImmutableList.of(one, two));
+
+    await().atMost(5, TimeUnit.SECONDS).until(() -> issueTracker.units.size() == 1);
+    assertThat(issueTracker.units.get(0)).containsExactly(one, two);
+  }
+
+  @Test
+  void shouldIndexUnitBeforeProcessing() {
+    processor = new AsyncIssueProcessor(issueTracker, indexer, meterRegistry, 1, 10, TIMEOUT);
+    List<String> indexingThreads = new CopyOnWriteArrayList<>();
+    doAnswer(invocation -> {
+      indexingThreads.add(Thread.currentThread().getName());
+      return null;
+    }).when(indexer).index(anyCollection());
+
+    List<IssueReferencingObject> unit = ImmutableList.of(IssueReferencingObjects.ref("changeset", "1"));
+    processor.process(unit);
+
+    await().atMost(5, TimeUnit.SECONDS).until(() -> issueTracker.processed.size() == 1);
+    verify(indexer).index(unit);
+    assertThat(indexingThreads).containsExactlyElementsOf(issueTracker.threads);
+  }
+
+  @Test
+  void shouldNotBlockTheCaller() {
+    issueTracker.block();
+    processor = new AsyncIssueProcessor(issueTracker, indexer, meterRegistry, 1, 10, TIMEOUT);
+
+    processor.process(ImmutableList.of(IssueReferencingObjects.ref("changeset", "1")));
+
+    assertThat(issueTracker.processed).isEmpty();
+  }
+
+  @Test
+  void shouldWaitForFreeSpaceIfQueueIsFull() {
+    issueTracker.block();
+    processor = new AsyncIssueProcessor(issueTracker, indexer, meterRegistry, 1, 1, TIMEOUT);
+
+    processor.process(ImmutableList.of(IssueReferencingObjects.ref("changeset", "1")));
+    await().atMost(5, TimeUnit.SECONDS).until(() -> issueTracker.threads.size() == 1);
+    processor.process(ImmutableList.of(IssueReferencingObjects.ref("changeset", "2")));
+    CompletableFuture<Void> waiting = CompletableFuture.runAsync(
+      () -> processor.process(ImmutableList.of(IssueReferencingObjects.ref("changeset", "3")))
+    );
+
+    await().atMost(5, TimeUnit.SECONDS)
+      .until(() -> meterRegistry.get(AsyncIssueProcessor.METRIC_BACKPRESSURE).counter().count() == 1d);
+    assertThat(waiting).isNotDone();
+
+    issueTracker.release();
+
+    await().atMost(5, TimeUnit.SECONDS).until(() -> issueTracker.processed.size() == 3);
+    assertThat(waiting).isDone();
+    assertThat(meterRegistry.get(AsyncIssueProcessor.METRIC_REJECTED).counter().count()).isZero();
+  }
+
+  @Test
+  void shouldProcessUnitsOfRepositoryInOrder() {
+    processor = new AsyncIssueProcessor(issueTracker, indexer, meterRegistry, 4, 10, TIMEOUT);
+
+    Repository repository = RepositoryTestData.createHeartOfGold();
+    repository.setId("42");
+    List<IssueReferencingObject> objects = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      IssueReferencingObject object = IssueReferencingObjects.ref(repository, "changeset", String.valueOf(i));
+      objects.add(object);
+      processor.process(ImmutableList.of(object));
+    }
+
+    await().atMost(5, TimeUnit.SECONDS).until(() -> issueTracker.processed.size() == 20);
+    assertThat(issueTracker.processed).containsExactlyElementsOf(objects);
+    assertThat(issueTracker.threads).containsOnly(issueTracker.threads.get(0));
+  }
+
+  @Test
+  void shouldQueueUnitIfSpaceIsFreedInTime() {
+    issueTracker.block();
+    processor = new AsyncIssueProcessor(issueTracker, indexer, meterRegistry, 1, 1, Duration.ofSeconds(5));
+
+    processor.process(ImmutableList.of(IssueReferencingObjects.ref("changeset", "1")));
+    await().atMost(5, TimeUnit.SECONDS).until(() -> issueTracker.threads.size() == 1);
+    processor.process(ImmutableList.of(IssueReferencingObjects.ref("changeset", "2")));
+
+    new Thread(issueTracker::release).start();
+    processor.process(ImmutableList.of(IssueReferencingObjects.ref("changeset", "3")));
+
+    await().atMost(5, TimeUnit.SECONDS).until(() -> issueTracker.processed.size() == 3);
+    assertThat(meterRegistry.get(AsyncIssueProcessor.METRIC_REJECTED).counter().count()).isZero();
+  }
+
+  @Test
+  void shouldContinueAfterFailure() {
+    processor = new AsyncIssueProcessor(issueTracker, indexer, meterRegistry, 1, 10, TIMEOUT);
+
+    IssueReferencingObject failing = IssueReferencingObjects.ref("fail", "1");
+    IssueReferencingObject ok = IssueReferencingObjects.ref("changeset", "2");
+    processor.process(ImmutableList.of(failing));
+    processor.process(ImmutableList.of(ok));
+
+    await().atMost(5, TimeUnit.SECONDS).until(() -> issueTracker.processed.contains(ok));
+  }
+
+  @Test
+  void shouldRecordProcessingTime() {
+    processor = new AsyncIssueProcessor(issueTracker, indexer, meterRegistry, 1, 10, TIMEOUT);
+
+    processor.process(ImmutableList.of(IssueReferencingObjects.ref("changeset", "1")));
+    processor.process(ImmutableList.of(IssueReferencingObjects.ref("changeset", "2")));
+
+    await().atMost(5, TimeUnit.SECONDS)
+      .until(() -> meterRegistry.get(AsyncIssueProcessor.METRIC_DURATION).timer().count() == 2);
+  }
+
+  private static class RecordingIssueTracker implements IssueTracker {
+
+    private final List<IssueReferencingObject> processed = new CopyOnWriteArrayList<>();
+    private final List<String> threads = new CopyOnWriteArrayList<>();
+    private final List<Collection<IssueReferencingObject>> units = new CopyOnWriteArrayList<>();
+    private final CountDownLatch latch = new CountDownLatch(1);
+    private volatile boolean blocking = false;
+
+    void block() {
+      blocking = true;
+    }
+
+    void release() {
+      latch.countDown();
+    }
+
+    @Override
+    public void processAll(Collection<IssueReferencingObject> objects) {
+      units.add(objects);
+      IssueTracker.super.processAll(objects);
+    }
+
+    @Override
+    public void process(IssueReferencingObject object) {
+      threads.add(Thread.currentThread().getName());
+      if (blocking) {
+        try {
+          latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      if ("fail".equals(object.getType())) {
+        throw new IllegalStateException("failed to process");
+      }
+      processed.add(object);
+    }
+
+    @Override
+    public Map<String, String> findIssues(IssueReferencingObject object) {
+      return Map.of();
+    }
+  }
+}
@@ -21,12 +21,12 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Answers;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.issuetracker.ExampleIssueMatcher;
 import sonia.scm.issuetracker.IssueReferencingObjects;
 import sonia.scm.issuetracker.api.IssueReferencingObject;
-import sonia.scm.issuetracker.api.IssueTracker;
+import sonia.scm.issuetracker.spi.MatchingIssueTracker;
 import sonia.scm.repository.Changeset;
 import sonia.scm.repository.PostReceiveRepositoryHookEvent;
 import sonia.scm.repository.Repository;
@@ -34,6 +34,9 @@ import sonia.scm.repository.RepositoryTestData;
 import sonia.scm.repository.api.HookContext;
 import sonia.scm.repository.api.HookFeature;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -46,48 +49,106 @@ class ChangesetSubscriberTest {
   private PostReceiveRepositoryHookEvent event;
 
   @Mock
-  private IssueTracker issueTracker;
+  private AsyncIssueProcessor processor;
 
   @Mock
   private ChangesetMapper mapper;
 
-  @InjectMocks
+  @Mock
+  private IssueTrackerFactory issueTrackerFactory;
+
+  private final Repository repository = RepositoryTestData.create42Puzzle();
+
   private ChangesetSubscriber subscriber;
 
   @BeforeEach
   void prepare() {
+    subscriber = subscriber(false, 10);
     when(event.getContext()).thenReturn(context);
   }
 
   @Test
   void shouldIgnoreUnsupportedEvents() {
     subscriber.handle(event);
-    verify(issueTracker, never()).process(any());
+    verify(processor, never()).process(any(), anyBoolean());
   }
 
   @Test
   void shouldProcessEvents() {
-    Repository repository = RepositoryTestData.create42Puzzle();
-    when(event.getRepository()).thenReturn(repository);
-    when(context.isFeatureSupported(HookFeature.CHANGESET_PROVIDER)).thenReturn(true);
+    List<IssueReferencingObject> refs = mockChangesets("Fixes #1", "Fixes #2");
 
-    Changeset one = new Changeset();
-    one.setId("1");
-    Changeset two = new Changeset();
-    two.setId("2");
+    subscriber.handle(event);
 
-    when(context.getChangesetProvider().setDisablePreProcessors(true).getChangesets()).thenReturn(
-      ImmutableList.of(one, two)
-    );
+    verify(processor).process(refs, false);
+  }
 
-    IssueReferencingObject refOne = IssueReferencingObjects.ref("sample", "one");
-    doReturn(refOne).when(mapper).ref(repository, one);
-    IssueReferencingObject refTwo = IssueReferencingObjects.ref("sample", "two");
-    doReturn(refTwo).when(mapper).ref(repository, two);
+  @Test
+  void shouldProcessEventsAggregated() {
+    subscriber = subscriber(true, 10);
+    List<IssueReferencingObject> refs = mockChangesets("Fixes #1", "Fixes #2");
 
     subscriber.handle(event);
 
-    verify(issueTracker).process(refOne);
-    verify(issueTracker).process(refTwo);
+    verify(processor).process(refs, true);
+  }
+
+  @Test
+  void shouldSkipChangesetsWithoutIssueKeys() {
+    List<IssueReferencingObject> refs = mockChangesets("Fixes #1", "Typo", null, "Fixes #4");
+
+    subscriber.handle(event);
+
+    verify(processor).process(ImmutableList.of(refs.get(0), refs.get(3)), false);
+    verify(mapper, times(2)).ref(eq(repository), any());
+  }
+
+  @Test
+  void shouldProcessInChunks() {
+    subscriber = subscriber(false, 2);
+    List<IssueReferencingObject> refs = mockChangesets("Fixes #1", "Fixes #2", "Fixes #3");
+
+    subscriber.handle(event);
+
+    verify(processor).process(refs.subList(0, 2), false);
+    verify(processor).process(refs.subList(2, 3), false);
+  }
+
+  @Test
+  void shouldProcessAggregatedPushAsWhole() {
+    subscriber = subscriber(true, 2);
+    List<IssueReferencingObject> refs = mockChangesets("Fixes #1", "Fixes #2", "Fixes #3");
+
+    subscriber.handle(event);
+
+    verify(processor).process(refs, true);
+    verifyNoMoreInteractions(processor);
+  }
+
+  private ChangesetSubscriber subscriber(boolean aggregate, int chunkSize) {
+    return new ChangesetSubscriber(processor, mapper, issueTrackerFactory, aggregate, chunkSize);
+  }
+
+  private List<IssueReferencingObject> mockChangesets(String... descriptions) {
+    when(event.getRepository()).thenReturn(repository);
+    when(context.isFeatureSupported(HookFeature.CHANGESET_PROVIDER)).thenReturn(true);
+    MatchingIssueTracker redmine = mock(MatchingIssueTracker.class);
+    when(redmine.getMatcher()).thenReturn(ExampleIssueMatcher.createRedmine());
+    when(issueTrackerFactory.scanner(repository)).thenReturn(IssueKeyScanner.create(ImmutableList.of(redmine)));
+
+    List<Changeset> changesets = new ArrayList<>();
+    List<IssueReferencingObject> refs = new ArrayList<>();
+    for (int i = 0; i < descriptions.length; i++) {
+      Changeset changeset = new Changeset();
+      changeset.setId(String.valueOf(i + 1));
+      changeset.setDescription(descriptions[i]);
+      changesets.add(changeset);
+
+      IssueReferencingObject ref = IssueReferencingObjects.ref("sample", changeset.getId());
+      lenient().doReturn(ref).when(mapper).ref(repository, changeset);
+      refs.add(ref);
+    }
+
+    when(context.getChangesetProvider().setDisablePreProcessors(true).getChangesets()).thenReturn(changesets);
+    return refs;
   }
 }
@@ -18,6 +18,7 @@ package sonia.scm.issuetracker.internal;
 
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
@@ -25,9 +26,11 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import sonia.scm.issuetracker.api.IssueReferencingObject;
 import sonia.scm.issuetracker.api.IssueTracker;
 import sonia.scm.issuetracker.spi.IssueTrackerBuilder;
+import sonia.scm.issuetracker.spi.IssueTrackerMetrics;
 import sonia.scm.issuetracker.spi.IssueTrackerProvider;
 
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
@@ -65,6 +68,36 @@ class CompositeIssueTrackerTest {
     verify(jira).process(ref);
   }
 
+  @Test
+  void shouldDelegateProcessAllToPresentIssueTrackers() {
+    CompositeIssueTracker tracker = tracker(redmine, null, jira);
+
+    List<IssueReferencingObject> refs = List.of(content("one"), content("two"));
+    tracker.processAll(refs);
+    verify(redmine).processAll(refs);
+    verify(jira).processAll(refs);
+  }
+
+  @Test
+  void shouldContinueProcessAllIfOneTrackerFails() {
+    CompositeIssueTracker tracker = tracker(redmine, jira);
+
+    List<IssueReferencingObject> refs = List.of(content("one"));
+    doThrow(new IllegalStateException("failed")).when(redmine).processAll(refs);
+    tracker.processAll(refs);
+    verify(jira).processAll(refs);
+  }
+
+  @Test
+  void shouldDelegateProcessAggregated() {
+    CompositeIssueTracker tracker = tracker(redmine, jira);
+
+    List<IssueReferencingObject> refs = List.of(content("one"), content("two"));
+    tracker.processAggregated(refs);
+    verify(redmine).processAggregated(refs);
+    verify(jira).processAggregated(refs);
+  }
+
   @Test
   void shouldMergeIssues() {
     IssueReferencingObject ref = content();
@@ -79,10 +112,25 @@ class CompositeIssueTrackerTest {
       .containsEntry("ABC-21", "https://jira/ABC-21");
   }
 
+  @Test
+  void shouldRecordFindIssues() {
+    IssueReferencingObject ref = content();
+    when(redmine.findIssues(ref)).thenReturn(ImmutableMap.of("#42", "https://redmine/42"));
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    CompositeIssueTracker tracker = new CompositeIssueTracker(factory(redmine), new IssueTrackerMetrics(meterRegistry));
+    tracker.findIssues(ref);
+
+    assertThat(meterRegistry.get(IssueTrackerMetrics.METRIC_FIND_ISSUES).tag("type", "unit-test").timer().count()).isEqualTo(1);
+  }
+
   private CompositeIssueTracker tracker(IssueTracker... trackers) {
+    return new CompositeIssueTracker(factory(trackers));
+  }
+
+  private IssueTrackerFactory factory(IssueTracker... trackers) {
     Set<IssueTrackerProvider> providers = Arrays.stream(trackers).map(this::provider).collect(Collectors.toSet());
-    IssueTrackerFactory factory = new IssueTrackerFactory(builder, ImmutableSet.copyOf(providers));
-    return new CompositeIssueTracker(factory);
+    return new IssueTrackerFactory(builder, ImmutableSet.copyOf(providers));
   }
 
   private IssueTrackerProvider provider(IssueTracker two) {
@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.issuetracker.internal;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.junit.jupiter.api.Test;
+import sonia.scm.issuetracker.ExampleIssueLinkFactory;
+import sonia.scm.issuetracker.ExampleIssueMatcher;
+import sonia.scm.issuetracker.IssueLinkFactory;
+import sonia.scm.issuetracker.IssueMatcher;
+import sonia.scm.issuetracker.api.IssueReferencingObject;
+import sonia.scm.issuetracker.api.IssueTracker;
+import sonia.scm.issuetracker.spi.MatchingIssueTracker;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static sonia.scm.issuetracker.IssueReferencingObjects.content;
+
+class IssueKeyScannerTest {
+
+  private final IssueTracker jira = tracker("jira", ExampleIssueMatcher.createJira(), ExampleIssueLinkFactory.createJira());
+  private final IssueTracker redmine = tracker("redmine", ExampleIssueMatcher.createRedmine(), ExampleIssueLinkFactory.createRedmine());
+
+  @Test
+  void shouldFindIssuesOfAllTrackers() {
+    IssueKeyScanner scanner = IssueKeyScanner.create(ImmutableList.of(jira, redmine));
+
+    Map<String, String> issues = scanner.findIssues(content("ABC-42 fixes #21", "and NBC-12"));
+
+    assertThat(issues)
+      .containsEntry("ABC-42", "https://jira.hitchhiker.com/issues/ABC-42")
+      .containsEntry("NBC-12", "https://jira.hitchhiker.com/issues/NBC-12")
+      .containsEntry("#21", "https://redmine.hitchhiker.com/issues/21")
+      .hasSize(3);
+  }
+
+  @Test
+  void shouldReturnEmptyMapWithoutIssueKeys() {
+    IssueKeyScanner scanner = IssueKeyScanner.create(ImmutableList.of(jira, redmine));
+
+    assertThat(scanner.findIssues(content("Nothing to see here"))).isEmpty();
+  }
+
+  @Test
+  void shouldDetectValuesWhichMightContainKeys() {
+    IssueKeyScanner scanner = IssueKeyScanner.create(ImmutableList.of(jira, redmine));
+
+    assertThat(scanner.mightContainKeys("Fixes ABC-42")).isTrue();
+    assertThat(scanner.mightContainKeys("Fixes #42")).isTrue();
+    assertThat(scanner.mightContainKeys("Nothing to see here")).isFalse();
+    assertThat(scanner.mightContainKeys(null)).isFalse();
+  }
+
+  @Test
+  void shouldDetectKeysWithPatternsWhichCanNotBeCombined() {
+    IssueTracker twice = tracker("twice", matcher("(\\d)\\1", 0), key -> "twice/" + key);
+    IssueKeyScanner scanner = IssueKeyScanner.create(ImmutableList.of(redmine, twice));
+
+    assertThat(scanner.mightContainKeys("Version 33")).isTrue();
+    assertThat(scanner.mightContainKeys("Version 3")).isFalse();
+  }
+
+  @Test
+  void shouldAssumeKeysForTrackersWithoutMatcher() {
+    IssueTracker custom = mock(IssueTracker.class);
+    IssueKeyScanner scanner = IssueKeyScanner.create(ImmutableList.of(redmine, custom));
+
+    assertThat(scanner.mightContainKeys("Nothing to see here")).isTrue();
+  }
+
+  @Test
+  void shouldFindOverlappingKeysOfDifferentTrackers() {
+    IssueTracker digits = tracker("digits", matcher("\\d+", 0), key -> "digits/" + key);
+    IssueKeyScanner scanner = IssueKeyScanner.create(ImmutableList.of(jira, digits));
+
+    Map<String, String> issues = scanner.findIssues(content("ABC-42 and 21"));
+
+    assertThat(issues)
+      .containsEntry("ABC-42", "https://jira.hitchhiker.com/issues/ABC-42")
+      .containsEntry("42", "digits/42")
+      .containsEntry("21", "digits/21");
+  }
+
+  @Test
+  void shouldRespectFlagsOfPatterns() {
+    IssueTracker bugzilla = tracker("bugzilla", matcher("\\bbug\\s*(\\d+)", Pattern.CASE_INSENSITIVE), key -> "bz/" + key);
+    IssueKeyScanner scanner = IssueKeyScanner.create(ImmutableList.of(jira, bugzilla));
+
+    Map<String, String> issues = scanner.findIssues(content("Fixes BUG 42 and ABC-1"));
+
+    assertThat(issues)
+      .containsEntry("BUG 42", "bz/BUG 42")
+      .containsEntry("ABC-1", "https://jira.hitchhiker.com/issues/ABC-1");
+  }
+
+  @Test
+  void shouldFallbackForBackReferences() {
+    IssueTracker twice = tracker("twice", matcher("(\\d)\\1", 0), key -> "twice/" + key);
+    IssueKeyScanner scanner = IssueKeyScanner.create(ImmutableList.of(redmine, twice));
+
+    Map<String, String> issues = scanner.findIssues(content("#21 and 33"));
+
+    assertThat(issues)
+      .containsEntry("#21", "https://redmine.hitchhiker.com/issues/21")
+      .containsEntry("33", "twice/33")
+      .hasSize(2);
+  }
+
+  @Test
+  void shouldDelegateToTrackersWithoutMatcher() {
+    IssueTracker custom = new IssueTracker() {
+      @Override
+      public void process(IssueReferencingObject object) {
+      }
+
+      @Override
+      public Map<String, String> findIssues(IssueReferencingObject object) {
+        return ImmutableMap.of("custom", "https://custom");
+      }
+    };
+    IssueKeyScanner scanner = IssueKeyScanner.create(ImmutableList.of(jira, custom));
+
+    Map<String, String> issues = scanner.findIssues(content("ABC-42"));
+
+    assertThat(issues)
+      .containsEntry("ABC-42", "https://jira.hitchhiker.com/issues/ABC-42")
+      .containsEntry("custom", "https://custom");
+  }
+
+  @Test
+  void shouldReturnSameResultAsSeparateTrackers() {
+    IssueTracker github = tracker("github", matcher("(?<![\\w/])GH-(\\d+)", 0), key -> "gh/" + key);
+    IssueTracker lines = tracker("lines", matcher("^fix (\\w+)", Pattern.MULTILINE), key -> "lines/" + key);
+    ImmutableList<IssueTracker> trackers = ImmutableList.of(jira, redmine, github, lines);
+    IssueKeyScanner scanner = IssueKeyScanner.create(trackers);
+
+    IssueReferencingObject object = content(
+      "ABC-42: GH-12 is resolved, see #21 and x/GH-13",
+      "fix this\nfix that and ABC-42 #1#2 ##3\nnot fix those",
+      "ABC-",
+      ""
+    );
+
+    assertThat(scanner.findIssues(object)).isEqualTo(separate(trackers, object));
+  }
+
+  private Map<String, String> separate(Iterable<IssueTracker> trackers, IssueReferencingObject object) {
+    Map<String, String> issues = new LinkedHashMap<>();
+    for (IssueTracker tracker : trackers) {
+      MatchingIssueTracker matching = (MatchingIssueTracker) tracker;
+      for (var content : object.getContent()) {
+        Matcher matcher = matching.getMatcher().getKeyPattern().matcher(content.getValue());
+        while (matcher.find()) {
+          String key = matching.getMatcher().getKey(matcher);
+          issues.put(key, matching.getLinkFactory().createLink(key));
+        }
+      }
+    }
+    return issues;
+  }
+
+  private IssueMatcher matcher(String pattern, int flags) {
+    return new ExampleIssueMatcher(Pattern.compile(pattern, flags));
+  }
+
+  private IssueTracker tracker(String name, IssueMatcher matcher, IssueLinkFactory linkFactory) {
+    return new MatchingIssueTracker() {
+      @Override
+      public IssueMatcher getMatcher() {
+        return matcher;
+      }
+
+      @Override
+      public IssueLinkFactory getLinkFactory() {
+        return linkFactory;
+      }
+
+      @Override
+      public String getName() {
+        return name;
+      }
+
+      @Override
+      public void process(IssueReferencingObject object) {
+      }
+
+      @Override
+      public Map<String, String> findIssues(IssueReferencingObject object) {
+        throw new IllegalStateException("should not be called");
+      }
+    };
+  }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.issuetracker.internal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.HandlerEventType;
+import sonia.scm.issuetracker.spi.IssueTrackerConfigurationChangedEvent;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryEvent;
+import sonia.scm.repository.RepositoryModificationEvent;
+import sonia.scm.repository.RepositoryTestData;
+
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+@ExtendWith(MockitoExtension.class)
+class IssueTrackerCacheListenerTest {
+
+  @Mock
+  private IssueTrackerFactory issueTrackerFactory;
+
+  @Mock
+  private IssueTrackerManager legacyIssueTrackers;
+
+  @InjectMocks
+  private IssueTrackerCacheListener listener;
+
+  @Test
+  void shouldInvalidateOnModify() {
+    Repository repository = repository();
+    listener.handle(new RepositoryModificationEvent(HandlerEventType.MODIFY, repository, repository));
+    verify(issueTrackerFactory).invalidate("42");
+    verify(legacyIssueTrackers).invalidate("42");
+  }
+
+  @Test
+  void shouldInvalidateOnDelete() {
+    listener.handle(new RepositoryEvent(HandlerEventType.DELETE, repository()));
+    verify(issueTrackerFactory).invalidate("42");
+  }
+
+  @Test
+  void shouldIgnoreCreate() {
+    listener.handle(new RepositoryEvent(HandlerEventType.CREATE, repository()));
+    verifyNoInteractions(issueTrackerFactory, legacyIssueTrackers);
+  }
+
+  @Test
+  void shouldInvalidateRepositoryOnConfigurationChange() {
+    listener.handle(new IssueTrackerConfigurationChangedEvent(repository()));
+    verify(issueTrackerFactory).invalidate("42");
+    verify(legacyIssueTrackers).invalidate("42");
+  }
+
+  @Test
+  void shouldInvalidateAllOnGlobalConfigurationChange() {
+    listener.handle(new IssueTrackerConfigurationChangedEvent());
+    verify(issueTrackerFactory).invalidateAll();
+    verify(legacyIssueTrackers).invalidateAll();
+  }
+
+  private Repository repository() {
+    Repository repository = RepositoryTestData.createHeartOfGold();
+    repository.setId("42");
+    return repository;
+  }
+}
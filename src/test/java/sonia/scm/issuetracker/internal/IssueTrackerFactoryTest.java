@@ -17,22 +17,41 @@
 package sonia.scm.issuetracker.internal;
 
 
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.issuetracker.ExampleIssueLinkFactory;
+import sonia.scm.issuetracker.ExampleIssueMatcher;
+import sonia.scm.issuetracker.IssueLinkFactory;
+import sonia.scm.issuetracker.api.Content;
+import sonia.scm.issuetracker.api.IssueReferencingObject;
 import sonia.scm.issuetracker.api.IssueTracker;
 import sonia.scm.issuetracker.spi.IssueTrackerBuilder;
 import sonia.scm.issuetracker.spi.IssueTrackerProvider;
+import sonia.scm.issuetracker.spi.MatchingIssueTracker;
+import sonia.scm.repository.Person;
+import sonia.scm.repository.Repository;
 import sonia.scm.repository.RepositoryTestData;
 
+import java.time.Instant;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -83,6 +102,175 @@ class IssueTrackerFactoryTest {
     assertThat(tracker).contains(redmine);
   }
 
+  @Test
+  void shouldCacheIssueTrackers() {
+    AtomicInteger counter = new AtomicInteger();
+    IssueTrackerFactory factory = countingFactory(counter);
+    Repository repository = repository("42");
+
+    factory.trackers(repository);
+    factory.trackers(repository);
+    factory.tracker(repository, "redmine");
+
+    assertThat(counter).hasValue(1);
+  }
+
+  @Test
+  void shouldCacheIssueTrackersPerRepository() {
+    AtomicInteger counter = new AtomicInteger();
+    IssueTrackerFactory factory = countingFactory(counter);
+
+    factory.trackers(repository("21"));
+    factory.trackers(repository("42"));
+
+    assertThat(counter).hasValue(2);
+  }
+
+  @Test
+  void shouldCreateIssueTrackersAfterInvalidation() {
+    AtomicInteger counter = new AtomicInteger();
+    IssueTrackerFactory factory = countingFactory(counter);
+    Repository repository = repository("42");
+
+    factory.trackers(repository);
+    factory.invalidate("42");
+    factory.trackers(repository);
+
+    assertThat(counter).hasValue(2);
+  }
+
+  @Test
+  void shouldCreateIssueTrackersAfterExpiration() {
+    AtomicInteger counter = new AtomicInteger();
+    AtomicLong nanos = new AtomicLong();
+    IssueTrackerProvider provider = (b, r) -> {
+      counter.incrementAndGet();
+      return Optional.of(redmine);
+    };
+    Ticker ticker = new Ticker() {
+      @Override
+      public long read() {
+        return nanos.get();
+      }
+    };
+    IssueTrackerFactory factory = new IssueTrackerFactory(builder, ImmutableSet.of(provider), ticker);
+    Repository repository = repository("42");
+
+    factory.trackers(repository);
+    nanos.addAndGet(IssueTrackerFactory.EXPIRATION.toNanos() - 1);
+    factory.trackers(repository);
+    assertThat(counter).hasValue(1);
+
+    nanos.addAndGet(1);
+    factory.trackers(repository);
+    assertThat(counter).hasValue(2);
+  }
+
+  @Test
+  void shouldCreateIssueTrackersAfterInvalidateAll() {
+    AtomicInteger counter = new AtomicInteger();
+    IssueTrackerFactory factory = countingFactory(counter);
+
+    factory.trackers(repository("21"));
+    factory.trackers(repository("42"));
+    factory.invalidateAll();
+    factory.trackers(repository("21"));
+    factory.trackers(repository("42"));
+
+    assertThat(counter).hasValue(4);
+  }
+
+  @Test
+  void shouldCacheFoundIssuesByContent() {
+    AtomicInteger links = new AtomicInteger();
+    IssueTrackerFactory factory = factory(matchingTracker(links));
+    Repository repository = repository("42");
+
+    Map<String, String> first = factory.findIssues(ref(repository, "1", "Fixes #21"));
+    Map<String, String> second = factory.findIssues(ref(repository, "2", "Fixes #21"));
+
+    assertThat(first).containsEntry("#21", "https://redmine.hitchhiker.com/issues/21");
+    assertThat(second).isEqualTo(first);
+    assertThat(links).hasValue(1);
+  }
+
+  @Test
+  void shouldNotShareFoundIssuesBetweenRepositories() {
+    AtomicInteger links = new AtomicInteger();
+    IssueTrackerFactory factory = factory(matchingTracker(links));
+
+    factory.findIssues(ref(repository("21"), "1", "Fixes #21"));
+    factory.findIssues(ref(repository("42"), "1", "Fixes #21"));
+
+    assertThat(links).hasValue(2);
+  }
+
+  @Test
+  void shouldFindIssuesAgainAfterInvalidation() {
+    AtomicInteger links = new AtomicInteger();
+    IssueTrackerFactory factory = factory(matchingTracker(links));
+    Repository repository = repository("42");
+
+    factory.findIssues(ref(repository, "1", "Fixes #21"));
+    factory.invalidate("42");
+    factory.findIssues(ref(repository, "1", "Fixes #21"));
+
+    assertThat(links).hasValue(2);
+  }
+
+  @Test
+  void shouldNotCacheIssuesOfTrackersWithoutMatcher() {
+    Repository repository = repository("42");
+    IssueReferencingObject ref = ref(repository, "1", "Fixes #21");
+    when(redmine.findIssues(ref)).thenReturn(ImmutableMap.of("#21", "https://redmine/21"));
+    IssueTrackerFactory factory = factory(redmine);
+
+    factory.findIssues(ref);
+    factory.findIssues(ref);
+
+    verify(redmine, times(2)).findIssues(ref);
+  }
+
+  private IssueTracker matchingTracker(AtomicInteger links) {
+    IssueLinkFactory linkFactory = ExampleIssueLinkFactory.createRedmine();
+    MatchingIssueTracker tracker = mock(MatchingIssueTracker.class);
+    when(tracker.getMatcher()).thenReturn(ExampleIssueMatcher.createRedmine());
+    lenient().when(tracker.getLinkFactory()).thenReturn(key -> {
+      links.incrementAndGet();
+      return linkFactory.createLink(key);
+    });
+    return tracker;
+  }
+
+  private IssueReferencingObject ref(Repository repository, String id, String description) {
+    return new IssueReferencingObject(
+      repository,
+      "changeset",
+      id,
+      Person.toPerson("Trillian"),
+      Collections.emptyMap(),
+      Instant.now(),
+      Collections.singletonList(new Content("description", description)),
+      "https://hitchhiker.com/scm",
+      true,
+      description
+    );
+  }
+
+  private IssueTrackerFactory countingFactory(AtomicInteger counter) {
+    IssueTrackerProvider provider = (b, r) -> {
+      counter.incrementAndGet();
+      return Optional.of(redmine);
+    };
+    return new IssueTrackerFactory(builder, ImmutableSet.of(provider));
+  }
+
+  private Repository repository(String id) {
+    Repository repository = RepositoryTestData.createHeartOfGold();
+    repository.setId(id);
+    return repository;
+  }
+
   private IssueTrackerFactory factory(IssueTracker... trackers) {
     Set<IssueTrackerProvider> providers = Arrays.stream(trackers)
       .map(this::provider)
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.issuetracker.internal;
+
+import com.google.common.collect.ImmutableSet;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.issuetracker.ExampleIssueLinkFactory;
+import sonia.scm.issuetracker.ExampleIssueMatcher;
+import sonia.scm.issuetracker.IssueTracker;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryTestData;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class IssueTrackerManagerTest {
+
+  @Mock
+  private IssueTracker tracker;
+
+  private IssueTrackerManager manager;
+
+  @BeforeEach
+  void setUp() {
+    lenient().when(tracker.createMatcher(any())).thenAnswer(ic -> Optional.of(ExampleIssueMatcher.createJira()));
+    lenient().when(tracker.createLinkFactory(any())).thenAnswer(ic -> Optional.of(ExampleIssueLinkFactory.createJira()));
+    manager = new IssueTrackerManager(ImmutableSet.of(tracker));
+  }
+
+  @Test
+  void shouldCacheMatcherPerRepository() {
+    Repository repository = repository("42");
+
+    assertThat(manager.getMatcher(tracker, repository)).isPresent();
+    assertThat(manager.getMatcher(tracker, repository)).isPresent();
+    manager.getMatcher(tracker, repository("21"));
+
+    verify(tracker).createMatcher(repository);
+    verify(tracker, times(2)).createMatcher(any());
+  }
+
+  @Test
+  void shouldCacheLinkFactoryPerRepository() {
+    Repository repository = repository("42");
+
+    manager.getLinkFactory(tracker, repository);
+    manager.getLinkFactory(tracker, repository);
+
+    verify(tracker).createLinkFactory(repository);
+  }
+
+  @Test
+  void shouldCreateMatcherAgainAfterInvalidation() {
+    Repository repository = repository("42");
+
+    manager.getMatcher(tracker, repository);
+    manager.invalidate("42");
+    manager.getMatcher(tracker, repository);
+    manager.invalidateAll();
+    manager.getMatcher(tracker, repository);
+
+    verify(tracker, times(3)).createMatcher(repository);
+  }
+
+  @Test
+  void shouldNotCacheRepositoriesWithoutId() {
+    Repository repository = repository(null);
+
+    manager.getMatcher(tracker, repository);
+    manager.getMatcher(tracker, repository);
+
+    verify(tracker, times(2)).createMatcher(repository);
+  }
+
+  private Repository repository(String id) {
+    Repository repository = RepositoryTestData.createHeartOfGold();
+    repository.setId(id);
+    return repository;
+  }
+}
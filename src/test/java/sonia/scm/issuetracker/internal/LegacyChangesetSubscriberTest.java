@@ -95,7 +95,7 @@ public class LegacyChangesetSubscriberTest {
     LegacyChangesetSubscriber legacyChangesetSubscriber = new LegacyChangesetSubscriber(manager);
     legacyChangesetSubscriber.handleEvent(mockEvent(repository, c1, c2));
 
-    verify(jira, times(1)).isHandled(repository, c1);
+    verify(jira, never()).isHandled(repository, c1);
     verify(jira, times(1)).isHandled(repository, c2);
 
     IssueRequest request = new IssueRequest(repository, c2, Lists.newArrayList("SCM-42"), of(new User()));
@@ -103,8 +103,7 @@ public class LegacyChangesetSubscriberTest {
     verify(jira, times(1)).handleRequest(request);
     verify(jira, times(1)).handleRequest(any(IssueRequest.class));
 
-    verify(jira, never()).markAsHandled(repository, c1);
-    verify(jira, times(1)).markAsHandled(repository, c2);
+    verify(jira, times(1)).markAsHandled(repository, ImmutableList.of(c2));
   }
 
   @Test
@@ -114,12 +113,13 @@ public class LegacyChangesetSubscriberTest {
     Changeset c1 = new Changeset();
 
     c1.setId("1");
-    c1.setDescription("description without issue key");
+    c1.setDescription("description with issue key SCM-42");
 
     LegacyChangesetSubscriber legacyChangesetSubscriber = new LegacyChangesetSubscriber(manager);
     legacyChangesetSubscriber.handleEvent(mockEvent(repository, c1));
 
     verify(jira, times(1)).isHandled(repository, c1);
+    verify(jira, times(1)).markAsHandled(repository, ImmutableList.of(c1));
   }
 
   private IssueTracker createIssueTracker(String name, IssueMatcher matcher) {
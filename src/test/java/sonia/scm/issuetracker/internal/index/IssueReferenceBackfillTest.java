@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.issuetracker.internal.index;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import org.github.sdorra.jse.ShiroExtension;
+import org.github.sdorra.jse.SubjectAware;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Answers;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.issuetracker.IssueReferencingObjects;
+import sonia.scm.issuetracker.api.IssueReferencingObject;
+import sonia.scm.issuetracker.internal.ChangesetMapper;
+import sonia.scm.repository.Branch;
+import sonia.scm.repository.Branches;
+import sonia.scm.repository.Changeset;
+import sonia.scm.repository.ChangesetPagingResult;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryTestData;
+import sonia.scm.repository.api.BranchesCommandBuilder;
+import sonia.scm.repository.api.Command;
+import sonia.scm.repository.api.LogCommandBuilder;
+import sonia.scm.repository.api.RepositoryService;
+import sonia.scm.repository.api.RepositoryServiceFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith({MockitoExtension.class, ShiroExtension.class})
+@SubjectAware("trillian")
+class IssueReferenceBackfillTest {
+
+  private final Repository repository = RepositoryTestData.createHeartOfGold();
+
+  @Mock
+  private RepositoryServiceFactory serviceFactory;
+  @Mock
+  private RepositoryService service;
+  @Mock(answer = Answers.RETURNS_SELF)
+  private LogCommandBuilder logCommand;
+  @Mock(answer = Answers.RETURNS_SELF)
+  private BranchesCommandBuilder branchesCommand;
+  @Mock
+  private ChangesetMapper mapper;
+  @Mock
+  private IssueReferenceIndexer indexer;
+
+  private IssueReferenceBackfill backfill;
+
+  @BeforeEach
+  void setUp() {
+    repository.setId("42");
+    when(serviceFactory.create(repository)).thenReturn(service);
+    backfill = new IssueReferenceBackfill(serviceFactory, mapper, indexer, MoreExecutors.newDirectExecutorService(), 2);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void shouldIndexLogInBatches() throws IOException {
+    when(service.isSupported(Command.LOG)).thenReturn(true);
+    when(service.isSupported(Command.BRANCHES)).thenReturn(false);
+    when(service.getLogCommand()).thenReturn(logCommand);
+    when(logCommand.getChangesets()).thenReturn(
+      page(changeset("1"), changeset("2")),
+      page(changeset("3"), changeset("4")),
+      page(changeset("5"))
+    );
+    when(mapper.ref(any(), any())).thenAnswer(ic -> IssueReferencingObjects.ref("changeset", ic.getArgument(1, Changeset.class).getId()));
+
+    assertThat(backfill.start(repository)).isTrue();
+
+    ArgumentCaptor<Collection<IssueReferencingObject>> captor = ArgumentCaptor.forClass(Collection.class);
+    verify(indexer, times(3)).index(captor.capture());
+    assertThat(captor.getAllValues()).extracting(Collection::size).containsExactly(2, 2, 1);
+    verify(logCommand).setPagingStart(4);
+    assertThat(backfill.isRunning(repository)).isFalse();
+  }
+
+  @Test
+  void shouldIndexLogOfEveryBranch() throws IOException {
+    when(service.isSupported(Command.LOG)).thenReturn(true);
+    when(service.isSupported(Command.BRANCHES)).thenReturn(true);
+    when(service.getBranchesCommand()).thenReturn(branchesCommand);
+    when(branchesCommand.getBranches()).thenReturn(new Branches(
+      Branch.defaultBranch("main", "2", 0L), Branch.normalBranch("feature/spaceship", "3", 0L)
+    ));
+    when(service.getLogCommand()).thenReturn(logCommand);
+    when(logCommand.getChangesets()).thenReturn(
+      page(changeset("1")),
+      page(changeset("3"))
+    );
+    when(mapper.ref(any(), any())).thenAnswer(ic -> IssueReferencingObjects.ref("changeset", ic.getArgument(1, Changeset.class).getId()));
+
+    backfill.start(repository);
+
+    verify(logCommand).setBranch("main");
+    verify(logCommand).setBranch("feature/spaceship");
+    verify(indexer, times(2)).index(any());
+  }
+
+  @Test
+  void shouldSkipRepositoriesWithoutLog() {
+    when(service.isSupported(Command.LOG)).thenReturn(false);
+
+    backfill.start(repository);
+
+    verify(service, never()).getLogCommand();
+  }
+
+  private ChangesetPagingResult page(Changeset... changesets) {
+    List<Changeset> list = new ArrayList<>(List.of(changesets));
+    return new ChangesetPagingResult(list.size(), list);
+  }
+
+  private Changeset changeset(String id) {
+    Changeset changeset = new Changeset();
+    changeset.setId(id);
+    return changeset;
+  }
+}
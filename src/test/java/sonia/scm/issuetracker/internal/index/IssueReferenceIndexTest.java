@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.issuetracker.internal.index;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class IssueReferenceIndexTest {
+
+  private static final Instant OLD = Instant.ofEpochMilli(1000);
+  private static final Instant NEW = Instant.ofEpochMilli(2000);
+
+  @Test
+  void shouldFindReferencesNewestFirst() {
+    IssueReferenceIndex index = IssueReferenceIndex.inMemory();
+    index.add(List.of(
+      new IssueReference("ABC-42", "changeset", "1", OLD),
+      new IssueReference("ABC-42", "pr", "2", NEW),
+      new IssueReference("ABC-21", "changeset", "1", OLD)
+    ));
+
+    assertThat(index.find("ABC-42")).extracting(IssueReference::getId).containsExactly("2", "1");
+    assertThat(index.find("ABC-21")).extracting(IssueReference::getId).containsExactly("1");
+    assertThat(index.find("ABC-1")).isEmpty();
+  }
+
+  @Test
+  void shouldFindIssueKeysCaseInsensitive() {
+    IssueReferenceIndex index = IssueReferenceIndex.inMemory();
+    index.add(List.of(new IssueReference("abc-42", "changeset", "1", OLD)));
+
+    assertThat(index.find("ABC-42")).hasSize(1);
+  }
+
+  @Test
+  void shouldSkipDuplicates() {
+    IssueReferenceIndex index = IssueReferenceIndex.inMemory();
+    IssueReference reference = new IssueReference("ABC-42", "changeset", "1", OLD);
+
+    assertThat(index.add(List.of(reference, reference))).isEqualTo(1);
+    assertThat(index.add(List.of(reference))).isZero();
+    assertThat(index.size()).isEqualTo(1);
+  }
+
+  @Test
+  void shouldReadPersistedReferences(@TempDir Path directory) {
+    Path path = directory.resolve("issuetracker").resolve("references.index");
+    new IssueReferenceIndex(path).add(List.of(
+      new IssueReference("ABC-42", "changeset", "1", OLD),
+      new IssueReference("ABC-42", "pr", "2", null)
+    ));
+
+    IssueReferenceIndex index = new IssueReferenceIndex(path);
+
+    assertThat(index.find("ABC-42")).containsExactly(
+      new IssueReference("ABC-42", "changeset", "1", OLD),
+      new IssueReference("ABC-42", "pr", "2", null)
+    );
+  }
+
+  @Test
+  void shouldReadPersistedNullCharactersAndSupplementaryCharacters(@TempDir Path directory) {
+    Path path = directory.resolve("references.index");
+    IssueReference reference = new IssueReference("ABC-42", "pr\u0000review", "\uD83D\uDE80 \u00dcn\u00efc\u00f6d\u00e9", OLD);
+    new IssueReferenceIndex(path).add(List.of(reference));
+
+    IssueReferenceIndex index = new IssueReferenceIndex(path);
+
+    assertThat(index.find("ABC-42")).containsExactly(reference);
+  }
+
+  @Test
+  void shouldNotPersistDuplicates(@TempDir Path directory) throws IOException {
+    Path path = directory.resolve("references.index");
+    IssueReference reference = new IssueReference("ABC-42", "changeset", "1", OLD);
+    new IssueReferenceIndex(path).add(List.of(reference));
+    long size = Files.size(path);
+
+    new IssueReferenceIndex(path).add(List.of(reference));
+
+    assertThat(Files.size(path)).isEqualTo(size);
+  }
+
+  @Test
+  void shouldDropIncompleteRecord(@TempDir Path directory) throws IOException {
+    Path path = directory.resolve("references.index");
+    new IssueReferenceIndex(path).add(List.of(new IssueReference("ABC-42", "changeset", "1", OLD)));
+    long size = Files.size(path);
+    Files.write(path, new byte[]{0, 0, 0, 42, 1, 2}, StandardOpenOption.APPEND);
+
+    IssueReferenceIndex index = new IssueReferenceIndex(path);
+
+    assertThat(index.find("ABC-42")).hasSize(1);
+    assertThat(Files.size(path)).isEqualTo(size);
+  }
+
+  @Test
+  void shouldAddReferencesAgainAfterFailedAppend(@TempDir Path directory) throws IOException {
+    Path parent = directory.resolve("issuetracker");
+    Files.createFile(parent);
+    IssueReferenceIndex index = new IssueReferenceIndex(parent.resolve("references.index"));
+    List<IssueReference> references = List.of(new IssueReference("ABC-42", "changeset", "1", OLD));
+
+    assertThrows(UncheckedIOException.class, () -> index.add(references));
+    assertThat(index.size()).isZero();
+
+    Files.delete(parent);
+
+    assertThat(index.add(references)).isEqualTo(1);
+  }
+
+  @Test
+  void shouldFailAgainIfIndexCouldNotBeRead(@TempDir Path directory) throws IOException {
+    Path path = directory.resolve("references.index");
+    Files.write(path, new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+    IssueReferenceIndex index = new IssueReferenceIndex(path);
+
+    assertThrows(UncheckedIOException.class, () -> index.find("ABC-42"));
+    assertThrows(UncheckedIOException.class, () -> index.find("ABC-42"));
+  }
+}
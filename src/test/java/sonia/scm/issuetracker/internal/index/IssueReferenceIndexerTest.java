@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.issuetracker.internal.index;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.issuetracker.IssueReferencingObjects;
+import sonia.scm.issuetracker.api.IssueReferencingObject;
+import sonia.scm.issuetracker.api.IssueTracker;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class IssueReferenceIndexerTest {
+
+  @Mock
+  private IssueTracker issueTracker;
+
+  private IssueReferenceIndexer indexer;
+
+  @BeforeEach
+  void setUp(@TempDir Path directory) {
+    indexer = new IssueReferenceIndexer(issueTracker, new IssueReferenceIndexFactory(id -> directory.resolve(String.valueOf(id))));
+  }
+
+  @Test
+  void shouldIndexReferences() {
+    IssueReferencingObject one = IssueReferencingObjects.ref("changeset", "1");
+    IssueReferencingObject two = IssueReferencingObjects.ref("changeset", "2");
+    when(issueTracker.findIssues(one)).thenReturn(Map.of("#42", "https://redmine/42"));
+    when(issueTracker.findIssues(two)).thenReturn(Map.of("#42", "https://redmine/42", "#21", "https://redmine/21"));
+
+    indexer.index(List.of(one, two));
+
+    assertThat(indexer.find(one.getRepository(), "#42")).extracting(IssueReference::getId).containsExactlyInAnyOrder("1", "2");
+    assertThat(indexer.find(one.getRepository(), "#21")).extracting(IssueReference::getId).containsExactly("2");
+  }
+
+  @Test
+  void shouldNotFailIfIssuesCouldNotBeFound() {
+    IssueReferencingObject ref = IssueReferencingObjects.ref("changeset", "1");
+    when(issueTracker.findIssues(ref)).thenThrow(new IllegalStateException("failed"));
+
+    indexer.index(ref);
+
+    assertThat(indexer.find(ref.getRepository(), "#42")).isEmpty();
+  }
+}
@@ -18,6 +18,7 @@ package sonia.scm.issuetracker.internal.resubmit;
 
 import org.junit.jupiter.api.Test;
 
+import java.util.List;
 import java.util.Queue;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -39,4 +40,20 @@ class EvictingQueueTest {
     assertThat(queue).containsOnly("b", "c");
   }
 
+  @Test
+  void shouldEvictOnAddAll() {
+    Queue<String> queue = EvictingQueue.create(2);
+    queue.add("a");
+    assertThat(queue.addAll(List.of("b", "c", "d"))).isTrue();
+    assertThat(queue).containsExactly("c", "d");
+  }
+
+  @Test
+  void shouldEvictOnOffer() {
+    Queue<String> queue = EvictingQueue.create(1);
+    assertThat(queue.offer("a")).isTrue();
+    assertThat(queue.offer("b")).isTrue();
+    assertThat(queue).containsExactly("b");
+  }
+
 }
@@ -29,8 +29,13 @@ import sonia.scm.mail.api.MailSendBatchException;
 import sonia.scm.mail.api.MailService;
 import sonia.scm.mail.api.MailTemplateType;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.*;
@@ -46,13 +51,33 @@ class NotificationServiceTest {
   @Mock
   private MailService mailService;
 
+  @Mock
+  private ScheduledExecutorService executor;
+
   private final QueuedComment commentOne = new QueuedComment("abc", "redmine", "#42", "Awesome");
 
+  private final List<Runnable> scheduled = new ArrayList<>();
+
   @BeforeEach
   void setUpService() {
     ScmConfiguration configuration = new ScmConfiguration();
     configuration.setBaseUrl("https://hitchhiker.com/scm");
-    service = new NotificationService(store, configuration, mailService);
+    service = new NotificationService(store, configuration, mailService, executor, Duration.ofMinutes(1));
+
+    lenient().doAnswer(ic -> {
+      scheduled.add(ic.getArgument(0));
+      return null;
+    }).when(executor).schedule(any(Runnable.class), anyLong(), any());
+    lenient().doAnswer(ic -> {
+      ic.<Runnable>getArgument(0).run();
+      return null;
+    }).when(executor).execute(any());
+  }
+
+  private void runScheduled() {
+    List<Runnable> runnables = new ArrayList<>(scheduled);
+    scheduled.clear();
+    runnables.forEach(Runnable::run);
   }
 
   @Test
@@ -60,6 +85,7 @@ class NotificationServiceTest {
     configuration(false, "trillian@hitchhiker.com");
 
     service.notifyComment(commentOne);
+    runScheduled();
 
     verify(mailService, never()).emailTemplateBuilder();
   }
@@ -69,6 +95,7 @@ class NotificationServiceTest {
     configuration(true);
 
     service.notifyComment(commentOne);
+    runScheduled();
 
     verify(mailService, never()).emailTemplateBuilder();
   }
@@ -92,6 +119,7 @@ class NotificationServiceTest {
     mockMailBuilder(NotificationService.TEMPLATE_COMMENT);
 
     service.notifyComment(commentOne);
+    runScheduled();
 
     verify(envelopeBuilder).toAddress("trillian@hitchhiker.com");
     assertSubject(envelopeBuilder, "comment", "#42", "redmine");
@@ -118,6 +146,7 @@ class NotificationServiceTest {
     mockMailBuilder(NotificationService.TEMPLATE_COMMENT);
 
     service.notifyComment(commentOne);
+    runScheduled();
 
     verify(subjectBuilder).withSubject(eq(Locale.ENGLISH), anyString());
     verify(subjectBuilder).withSubject(eq(Locale.GERMAN), anyString());
@@ -131,12 +160,85 @@ class NotificationServiceTest {
     doThrow(new MailSendBatchException("failed")).when(mailBuilder).send();
 
     service.notifyComment(commentOne);
+    runScheduled();
 
     verify(envelopeBuilder).toAddress("trillian@hitchhiker.com");
     assertSubject(envelopeBuilder, "comment", "#42", "redmine");
     verify(mailBuilder).send();
   }
 
+  @Test
+  void shouldNotSendNotificationBeforeWindowHasElapsed() {
+    service.notifyComment(commentOne);
+
+    verify(executor).schedule(any(Runnable.class), eq(60000L), eq(TimeUnit.MILLISECONDS));
+    verify(mailService, never()).emailTemplateBuilder();
+  }
+
+  @Test
+  void shouldCoalesceFailuresOfSameTracker() {
+    configuration(true, "trillian@hitchhiker.com");
+    mockMailBuilder(NotificationService.TEMPLATE_DIGEST);
+
+    QueuedComment two = new QueuedComment("abc", "redmine", "#43", "Awesome");
+    QueuedComment three = new QueuedComment("abc", "redmine", "#44", "Awesome");
+    service.notifyComment(commentOne);
+    service.notifyComment(two);
+    service.notifyComment(three);
+    runScheduled();
+
+    verify(executor, times(1)).schedule(any(Runnable.class), anyLong(), any());
+    assertSubject(envelopeBuilder, "3", "redmine");
+    ArgumentCaptor<Object> modelCaptor = ArgumentCaptor.forClass(Object.class);
+    verify(templateBuilder).andModel(modelCaptor.capture());
+    NotificationService.DigestModel model = (NotificationService.DigestModel) modelCaptor.getValue();
+    assertThat(model.getCount()).isEqualTo(3);
+    assertThat(model.getOldest()).isSameAs(commentOne);
+    assertThat(model.getNewest()).isSameAs(three);
+  }
+
+  @Test
+  void shouldUseSeparateDigestForEachTracker() {
+    service.notifyComment(commentOne);
+    service.notifyComment(new QueuedComment("abc", "jira", "ISD-1", "Awesome"));
+
+    verify(executor, times(2)).schedule(any(Runnable.class), anyLong(), any());
+  }
+
+  @Test
+  void shouldStartNewDigestAfterFlush() {
+    configuration(true, "trillian@hitchhiker.com");
+    mockMailBuilder(NotificationService.TEMPLATE_COMMENT);
+
+    service.notifyComment(commentOne);
+    runScheduled();
+    service.notifyComment(commentOne);
+    runScheduled();
+
+    verify(mailBuilder, times(2)).send();
+  }
+
+  @Test
+  void shouldSendPendingDigestsOnClose() {
+    configuration(true, "trillian@hitchhiker.com");
+    mockMailBuilder(NotificationService.TEMPLATE_COMMENT);
+
+    service.notifyComment(commentOne);
+    service.close();
+
+    verify(executor).shutdownNow();
+    verify(envelopeBuilder).toAddress("trillian@hitchhiker.com");
+  }
+
+  @Test
+  void shouldSendResubmitNotificationAsync() {
+    configuration(false);
+
+    service.notifyResubmit("jira", Collections.emptyList(), Collections.singleton(commentOne));
+
+    verify(executor).execute(any());
+  }
+
   private void mockMailBuilder(String template) {
     when(mailService.emailTemplateBuilder()).thenReturn(envelopeBuilder);
     when(envelopeBuilder.withSubject(any())).thenReturn(subjectBuilder);
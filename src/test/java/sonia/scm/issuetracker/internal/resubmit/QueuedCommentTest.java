@@ -43,4 +43,12 @@ class QueuedCommentTest {
     assertThat(comment.getRetries()).isEqualTo(2);
   }
 
+  @Test
+  void shouldSetLastAttemptOnRetry() {
+    QueuedComment comment = new QueuedComment("21", "jira", "ISD-4", "No");
+    assertThat(comment.getLastAttempt()).isNull();
+    comment.retried();
+    assertThat(comment.getLastAttempt()).isNotNull();
+  }
+
 }
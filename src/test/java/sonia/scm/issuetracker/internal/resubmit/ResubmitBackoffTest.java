@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.issuetracker.internal.resubmit;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ResubmitBackoffTest {
+
+  private final ResubmitBackoff backoff = new ResubmitBackoff(Duration.ofMinutes(1), Duration.ofHours(1));
+
+  @Test
+  void shouldDoubleDelayWithEveryRetry() {
+    QueuedComment comment = comment();
+    for (int i = 0; i < 6; i++) {
+      long max = Duration.ofMinutes(1).toMillis() << i;
+      assertThat(backoff.delay(comment).toMillis()).isBetween(max / 2, max);
+      comment.retried();
+    }
+  }
+
+  @Test
+  void shouldLimitDelay() {
+    QueuedComment comment = comment();
+    for (int i = 0; i < 40; i++) {
+      comment.retried();
+    }
+
+    assertThat(backoff.delay(comment)).isBetween(Duration.ofMinutes(30), Duration.ofHours(1));
+  }
+
+  @Test
+  void shouldReturnStableDelay() {
+    QueuedComment comment = comment();
+
+    assertThat(backoff.delay(comment)).isEqualTo(backoff.delay(comment));
+  }
+
+  @Test
+  void shouldSpreadCommentsOfSameTime() {
+    Instant date = Instant.parse("2020-01-01T00:00:00Z");
+    QueuedComment one = comment("#1", date);
+    QueuedComment two = comment("#2", date);
+
+    assertThat(backoff.delay(one)).isNotEqualTo(backoff.delay(two));
+  }
+
+  @Test
+  void shouldCalculateNextAttemptFromDate() {
+    Instant date = Instant.parse("2020-01-01T00:00:00Z");
+    QueuedComment comment = comment("#1", date);
+    Instant next = backoff.nextAttempt(comment);
+
+    assertThat(next).isEqualTo(date.plus(backoff.delay(comment)));
+    assertThat(backoff.isDue(comment, next.minusMillis(1))).isFalse();
+    assertThat(backoff.isDue(comment, next)).isTrue();
+  }
+
+  @Test
+  void shouldCalculateNextAttemptFromLastAttempt() {
+    QueuedComment comment = comment("#1", Instant.parse("2020-01-01T00:00:00Z"));
+    Instant lastAttempt = Instant.parse("2020-01-02T00:00:00Z");
+    comment.retried();
+    comment.setLastAttempt(lastAttempt);
+
+    assertThat(backoff.nextAttempt(comment)).isEqualTo(lastAttempt.plus(backoff.delay(comment)));
+  }
+
+  private QueuedComment comment() {
+    return comment("#42", Instant.parse("2020-01-01T00:00:00Z"));
+  }
+
+  private QueuedComment comment(String issueKey, Instant date) {
+    QueuedComment comment = new QueuedComment("hog", "redmine", issueKey, "Awesome");
+    comment.setDate(date);
+    return comment;
+  }
+}
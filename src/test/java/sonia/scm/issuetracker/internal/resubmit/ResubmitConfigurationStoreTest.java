@@ -23,19 +23,28 @@ import org.github.sdorra.jse.SubjectAware;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import sonia.scm.event.ScmEventBus;
+import sonia.scm.issuetracker.spi.IssueTrackerConfigurationChangedEvent;
 import sonia.scm.store.InMemoryConfigurationStoreFactory;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 
 @ExtendWith(ShiroExtension.class)
 class ResubmitConfigurationStoreTest {
 
+  private final ScmEventBus eventBus = mock(ScmEventBus.class);
+
   private ResubmitConfigurationStore store;
 
   @BeforeEach
   void setUpStore() {
-    store = new ResubmitConfigurationStore(new InMemoryConfigurationStoreFactory());
+    store = new ResubmitConfigurationStore(new InMemoryConfigurationStoreFactory(), eventBus);
   }
 
   @Test
@@ -43,6 +52,7 @@ class ResubmitConfigurationStoreTest {
   void shouldFailWithoutPermission() {
     ResubmitConfiguration configuration = new ResubmitConfiguration();
     assertThrows(UnauthorizedException.class, () -> store.set(configuration));
+    verify(eventBus, never()).post(any());
   }
 
   @Test
@@ -65,4 +75,15 @@ class ResubmitConfigurationStoreTest {
     assertThat(store.get().getAddresses()).containsOnly("trillian@hitchhiker.com");
   }
 
+  @Test
+  @SubjectAware(value = "trillian", permissions = "issuetracker:resubmit:*")
+  void shouldFireConfigurationChangedEvent() {
+    store.set(new ResubmitConfiguration());
+
+    verify(eventBus).post(argThat(event ->
+      event instanceof IssueTrackerConfigurationChangedEvent
+        && ((IssueTrackerConfigurationChangedEvent) event).getRepositoryId().isEmpty()
+    ));
+  }
+
 }
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.issuetracker.internal.resubmit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ResubmitExecutorTest {
+
+  private final AtomicInteger running = new AtomicInteger();
+  private final AtomicInteger maxRunning = new AtomicInteger();
+  private final List<String> executed = new CopyOnWriteArrayList<>();
+
+  private ResubmitExecutor executor;
+
+  @AfterEach
+  void tearDown() {
+    executor.close();
+  }
+
+  @Test
+  void shouldLimitConcurrentUnitsPerRepository() {
+    executor = executor(4, 2);
+
+    ResubmitExecutor.Run run = executor.start("redmine");
+    for (int i = 0; i < 6; i++) {
+      run.add("hog", unit("hog-" + i));
+    }
+    run.execute();
+
+    assertThat(executed).hasSize(6);
+    assertThat(maxRunning.get()).isLessThanOrEqualTo(2);
+  }
+
+  @Test
+  void shouldLimitConcurrentUnitsPerTracker() {
+    executor = executor(3, 2);
+
+    ResubmitExecutor.Run run = executor.start("redmine");
+    for (int i = 0; i < 6; i++) {
+      run.add("repository-" + i, unit("unit-" + i));
+    }
+    run.execute();
+
+    assertThat(executed).hasSize(6);
+    assertThat(maxRunning.get()).isLessThanOrEqualTo(3);
+  }
+
+  @Test
+  void shouldNotBlockOtherRepositories() {
+    executor = executor(4, 1);
+    CountDownLatch latch = new CountDownLatch(1);
+
+    ResubmitExecutor.Run run = executor.start("jira");
+    run.add("hog", () -> {
+      try {
+        if (latch.await(5, TimeUnit.SECONDS)) {
+          executed.add("hog-1");
+        }
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    run.add("hog", unit("hog-2"));
+    run.add("puzzle", () -> {
+      executed.add("puzzle");
+      latch.countDown();
+    });
+    run.execute();
+
+    assertThat(executed).containsExactly("puzzle", "hog-1", "hog-2");
+  }
+
+  @Test
+  void shouldContinueAfterFailure() {
+    executor = executor(1, 1);
+
+    ResubmitExecutor.Run run = executor.start("jira");
+    run.add("hog", () -> {
+      throw new IllegalStateException("failed");
+    });
+    run.add("hog", unit("hog"));
+    run.execute();
+
+    assertThat(executed).containsExactly("hog");
+  }
+
+  @Test
+  void shouldRunUnitsOnCallingThreadWithDirectExecutor() {
+    executor = ResubmitExecutor.direct();
+    String thread = Thread.currentThread().getName();
+
+    ResubmitExecutor.Run run = executor.start("jira");
+    run.add("hog", () -> executed.add(Thread.currentThread().getName()));
+    run.add("puzzle", () -> executed.add(Thread.currentThread().getName()));
+    run.execute();
+
+    assertThat(executed).containsExactly(thread, thread);
+  }
+
+  private ResubmitExecutor executor(int maxPerTracker, int maxPerRepository) {
+    return new ResubmitExecutor(Executors.newFixedThreadPool(8), maxPerTracker, maxPerRepository, 1000d, 50);
+  }
+
+  private Runnable unit(String name) {
+    return () -> {
+      int current = running.incrementAndGet();
+      maxRunning.accumulateAndGet(current, Math::max);
+      try {
+        Thread.sleep(20);
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+      } finally {
+        running.decrementAndGet();
+      }
+      executed.add(name);
+    };
+  }
+}
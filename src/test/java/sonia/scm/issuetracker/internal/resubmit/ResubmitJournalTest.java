@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.issuetracker.internal.resubmit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ResubmitJournalTest {
+
+  @TempDir
+  private Path directory;
+
+  private ResubmitJournal journal;
+
+  @BeforeEach
+  void setUpJournal() {
+    journal = new ResubmitJournal(directory);
+  }
+
+  @Test
+  void shouldReturnEmptyJournalIfFileDoesNotExist() {
+    ResubmitJournal.Entries entries = journal.read("redmine");
+
+    assertThat(entries.getGeneration()).isZero();
+    assertThat(entries.getComments()).isEmpty();
+  }
+
+  @Test
+  void shouldReadAppendedComments() {
+    QueuedComment one = comment("redmine", "#1");
+    one.retried();
+    QueuedComment two = comment("redmine", "#2");
+    two.setComment(null);
+
+    journal.append(3, one);
+    journal.append(3, two);
+
+    ResubmitJournal.Entries entries = journal.read("redmine");
+    assertThat(entries.getGeneration()).isEqualTo(3);
+    assertThat(entries.getComments()).containsExactly(one, two);
+    QueuedComment read = entries.getComments().get(0);
+    assertThat(read.getRetries()).isOne();
+    assertThat(read.getDate()).isEqualTo(one.getDate());
+    assertThat(read.getLastAttempt()).isEqualTo(one.getLastAttempt());
+    assertThat(entries.getComments().get(1).getComment()).isNull();
+  }
+
+  @Test
+  void shouldUseSeparateJournalForEachTracker() {
+    QueuedComment redmine = comment("redmine", "#1");
+    QueuedComment jira = comment("jira/cloud", "ISD-1");
+
+    journal.append(0, redmine);
+    journal.append(0, jira);
+
+    assertThat(journal.read("redmine").getComments()).containsExactly(redmine);
+    assertThat(journal.read("jira/cloud").getComments()).containsExactly(jira);
+    assertThat(journal.issueTrackers()).containsOnly("redmine", "jira/cloud");
+  }
+
+  @Test
+  void shouldResetJournal() {
+    journal.append(0, comment("redmine", "#1"));
+
+    journal.reset("redmine", 1);
+
+    ResubmitJournal.Entries entries = journal.read("redmine");
+    assertThat(entries.getGeneration()).isOne();
+    assertThat(entries.getComments()).isEmpty();
+  }
+
+  @Test
+  void shouldDropIncompleteRecord() throws IOException {
+    QueuedComment comment = comment("redmine", "#1");
+    journal.append(0, comment);
+    journal.append(0, comment("redmine", "#2"));
+
+    Path file = journalFile();
+    long size = Files.size(file);
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+      channel.truncate(size - 3);
+    }
+
+    assertThat(journal.read("redmine").getComments()).containsExactly(comment);
+
+    QueuedComment three = comment("redmine", "#3");
+    journal.append(0, three);
+    assertThat(journal.read("redmine").getComments()).containsExactly(comment, three);
+  }
+
+  @Test
+  void shouldNotWriteInMemory() {
+    ResubmitJournal inMemory = ResubmitJournal.inMemory();
+
+    inMemory.append(0, comment("redmine", "#1"));
+
+    assertThat(inMemory.read("redmine").getComments()).isEmpty();
+    assertThat(inMemory.issueTrackers()).isEmpty();
+  }
+
+  private Path journalFile() throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.filter(path -> path.toString().endsWith(".journal")).findFirst().orElseThrow();
+    }
+  }
+
+  private QueuedComment comment(String issueTracker, String issueKey) {
+    QueuedComment comment = new QueuedComment("hog", issueTracker, issueKey, "Awesome comment for " + issueKey);
+    comment.setDate(Instant.ofEpochMilli(1600000000000L));
+    return comment;
+  }
+}
@@ -16,12 +16,16 @@
 
 package sonia.scm.issuetracker.internal.resubmit;
 
+import com.google.common.util.concurrent.MoreExecutors;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.issuetracker.api.BatchResubmitter;
+import sonia.scm.issuetracker.api.IssueComment;
+import sonia.scm.issuetracker.api.IssueCommentResult;
 import sonia.scm.issuetracker.api.IssueTracker;
 import sonia.scm.issuetracker.api.Resubmitter;
 import sonia.scm.issuetracker.internal.IssueTrackerFactory;
@@ -31,9 +35,11 @@ import sonia.scm.repository.RepositoryTestData;
 
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.*;
@@ -143,6 +149,79 @@ class ResubmitProcessorTest {
     assertThat(processor.getRequeue()).containsOnly(two);
   }
 
+  @Test
+  void shouldResubmitWithBatchResubmitter() {
+    QueuedComment one = comment("hog", "youtrack");
+    QueuedComment two = comment("hog", "youtrack");
+    List<QueuedComment> comments = Arrays.asList(one, two);
+
+    when(queue.getComments("youtrack")).thenReturn(comments);
+    Repository repository = RepositoryTestData.createHeartOfGold();
+    when(repositoryManager.get("hog")).thenReturn(repository);
+    when(issueTrackerFactory.tracker(repository, "youtrack")).thenReturn(Optional.of(issueTracker));
+    when(issueTracker.getResubmitter()).thenReturn(Optional.of(batchResubmitter));
+    when(batchResubmitter.resubmitAll(anyCollection())).thenAnswer(ic -> {
+      Collection<IssueComment> issueComments = ic.getArgument(0);
+      return issueComments.stream()
+        .map(c -> c.getIssueKey().equals(two.getIssueKey()) ? IssueCommentResult.failure(c, new IOException("failed")) : IssueCommentResult.success(c))
+        .collect(Collectors.toList());
+    });
+
+    processor.resubmit("youtrack");
+
+    assertThat(processor.getRemove()).containsOnly(one);
+    assertThat(processor.getRequeue()).containsOnly(two);
+    verify(batchResubmitter, never()).resubmit(anyString(), anyString());
+  }
+
+  @Test
+  void shouldResubmitBatchesInChunks() {
+    List<QueuedComment> comments = Arrays.asList(
+      comment("hog", "youtrack"),
+      comment("hog", "youtrack"),
+      comment("hog", "youtrack")
+    );
+
+    when(queue.getComments("youtrack")).thenReturn(comments);
+    Repository repository = RepositoryTestData.createHeartOfGold();
+    when(repositoryManager.get("hog")).thenReturn(repository);
+    when(issueTrackerFactory.tracker(repository, "youtrack")).thenReturn(Optional.of(issueTracker));
+    when(issueTracker.getResubmitter()).thenReturn(Optional.of(batchResubmitter));
+    when(batchResubmitter.resubmitAll(anyCollection())).thenAnswer(ic -> {
+      Collection<IssueComment> issueComments = ic.getArgument(0);
+      return issueComments.stream().map(IssueCommentResult::success).collect(Collectors.toList());
+    });
+
+    ResubmitExecutor executor = new ResubmitExecutor(MoreExecutors.newDirectExecutorService(), 1, 1, 1000d, 2);
+    ResubmitProcessor chunkingProcessor = new ResubmitProcessor(repositoryManager, issueTrackerFactory, queue, executor);
+    chunkingProcessor.resubmit("youtrack");
+
+    assertThat(chunkingProcessor.getRemove()).containsExactlyInAnyOrderElementsOf(comments);
+    verify(batchResubmitter, times(2)).resubmitAll(anyCollection());
+  }
+
+  @Test
+  void shouldRequeueChunkIfBatchResubmitterFails() {
+    List<QueuedComment> comments = Arrays.asList(
+      comment("hog", "youtrack"),
+      comment("hog", "youtrack")
+    );
+
+    when(queue.getComments("youtrack")).thenReturn(comments);
+    Repository repository = RepositoryTestData.createHeartOfGold();
+    when(repositoryManager.get("hog")).thenReturn(repository);
+    when(issueTrackerFactory.tracker(repository, "youtrack")).thenReturn(Optional.of(issueTracker));
+    when(issueTracker.getResubmitter()).thenReturn(Optional.of(batchResubmitter));
+    when(batchResubmitter.resubmitAll(anyCollection())).thenThrow(new IllegalStateException("failed"));
+
+    processor.resubmit("youtrack");
+
+    assertThat(processor.getRequeue()).containsExactlyInAnyOrderElementsOf(comments);
+  }
+
+  @Mock
+  private BatchResubmitter batchResubmitter;
+
   private AtomicInteger counter;
 
   @BeforeEach
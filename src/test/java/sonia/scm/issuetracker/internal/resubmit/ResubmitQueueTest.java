@@ -24,10 +24,12 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import sonia.scm.store.InMemoryDataStoreFactory;
 
+import java.nio.file.Path;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
@@ -171,6 +173,115 @@ class ResubmitQueueTest {
 
   }
 
+  @Nested
+  @SubjectAware(value = "trillian", permissions = "issuetracker:resubmit:*")
+  class WithJournal {
+
+    @TempDir
+    private Path directory;
+
+    private InMemoryDataStoreFactory dataStoreFactory;
+    private ResubmitJournal journal;
+
+    @BeforeEach
+    void setUp() {
+      dataStoreFactory = new InMemoryDataStoreFactory();
+      journal = new ResubmitJournal(directory);
+    }
+
+    @Test
+    void shouldRestoreAppendedCommentsFromJournal() {
+      QueuedComment one = comment("redmine");
+      QueuedComment two = comment("redmine");
+      ResubmitQueue queue = queue(10);
+      queue.append(one);
+      queue.append(two);
+
+      ResubmitQueue restarted = queue(10);
+
+      assertThat(restarted.getComments("redmine")).containsExactly(one, two);
+      assertThat(restarted.getComments().get("redmine")).containsOnly(one, two);
+    }
+
+    @Test
+    void shouldCompactJournal() {
+      ResubmitQueue queue = queue(2);
+      QueuedComment one = comment("redmine");
+      QueuedComment two = comment("redmine");
+      QueuedComment three = comment("redmine");
+      queue.append(one);
+      queue.append(two);
+      queue.append(three);
+
+      assertThat(journal.read("redmine").getComments()).containsExactly(three);
+      assertThat(queue(2).getComments("redmine")).containsExactly(one, two, three);
+    }
+
+    @Test
+    void shouldKeepOnlyTheLastCommentsOnCompaction() {
+      ResubmitQueue queue = new ResubmitQueue(dataStoreFactory, notificationService, journal, 2, 2);
+      QueuedComment three = comment("redmine");
+      QueuedComment four = comment("redmine");
+      queue.append(comment("redmine"));
+      queue.append(comment("redmine"));
+      queue.append(three);
+      queue.append(four);
+
+      assertThat(queue.getComments("redmine")).containsExactly(three, four);
+      assertThat(new ResubmitQueue(dataStoreFactory, notificationService, journal, 2, 2).getComments("redmine"))
+        .containsExactly(three, four);
+    }
+
+    @Test
+    void shouldResetJournalOnSync() {
+      ResubmitQueue queue = queue(10);
+      QueuedComment one = comment("redmine");
+      QueuedComment two = comment("redmine");
+      queue.append(one);
+      queue.append(two);
+
+      queue.sync("redmine", Collections.singleton(one), Collections.singleton(two));
+
+      assertThat(journal.read("redmine").getComments()).isEmpty();
+      List<QueuedComment> comments = queue(10).getComments("redmine");
+      assertThat(comments).containsExactly(two);
+      assertThat(comments.get(0).getRetries()).isOne();
+    }
+
+    @Test
+    void shouldIgnoreJournalWhichWasAlreadyMerged() {
+      ResubmitQueue queue = queue(10);
+      QueuedComment one = comment("redmine");
+      queue.append(one);
+      queue.sync("redmine", Collections.emptySet(), Collections.emptySet());
+
+      // simulate a crash after the queue was stored, but before the journal was reset
+      journal.reset("redmine", 0);
+      journal.append(0, one);
+
+      assertThat(queue(10).getComments("redmine")).containsExactly(one);
+    }
+
+    @Test
+    void shouldNotMixJournalsOfDifferentTrackers() {
+      ResubmitQueue queue = queue(10);
+      QueuedComment redmine = comment("redmine");
+      QueuedComment jira = comment("jira");
+      queue.append(redmine);
+      queue.append(jira);
+
+      queue.clear("redmine");
+
+      ResubmitQueue restarted = queue(10);
+      assertThat(restarted.getComments("redmine")).isEmpty();
+      assertThat(restarted.getComments("jira")).containsExactly(jira);
+    }
+
+    private ResubmitQueue queue(int compactionThreshold) {
+      return new ResubmitQueue(dataStoreFactory, notificationService, journal, 1000, compactionThreshold);
+    }
+  }
+
   @Nested
   class Unauthorized {
 
@@ -33,16 +33,21 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.event.ScmEventBus;
 import sonia.scm.issuetracker.internal.IssueTrackerResource;
+import sonia.scm.issuetracker.spi.CommentCircuitBreakers;
 import sonia.scm.store.InMemoryByteConfigurationStoreFactory;
 import sonia.scm.web.RestDispatcher;
 
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.time.Clock;
+import java.time.Duration;
 import java.util.Collections;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -61,15 +66,17 @@ class ResubmitResourceTest {
 
   private ResubmitConfigurationStore configurationStore;
 
+  private final CommentCircuitBreakers circuitBreakers = new CommentCircuitBreakers(1, Duration.ofMinutes(1), Clock.systemUTC());
+
   @BeforeEach
   void setUp() {
     configurationStore = new ResubmitConfigurationStore(
-      new InMemoryByteConfigurationStoreFactory()
+      new InMemoryByteConfigurationStoreFactory(), mock(ScmEventBus.class)
     );
     Provider<ResubmitResource> resubmitProvider = Providers.of(
-      new ResubmitResource(queue, dispatcher, configurationStore)
+      new ResubmitResource(queue, dispatcher, configurationStore, circuitBreakers)
     );
-    IssueTrackerResource resource = new IssueTrackerResource(resubmitProvider);
+    IssueTrackerResource resource = new IssueTrackerResource(resubmitProvider, () -> null);
 
     restDispatcher = new RestDispatcher();
     restDispatcher.addSingletonResource(resource);
@@ -147,12 +154,25 @@ class ResubmitResourceTest {
       assertThat(resubmit.get("issueTracker").asText()).isEqualTo("jira");
       assertThat(resubmit.get("queueSize").asInt()).isEqualTo(2);
       assertThat(resubmit.get("inProgress").asBoolean()).isFalse();
+      assertThat(resubmit.get("circuitBreaker").asText()).isEqualTo("CLOSED");
 
       JsonNode links = resubmit.get("_links");
       assertThat(links.get("resubmit").get("href").asText()).isEqualTo("/v2/issue-tracker/resubmits/jira/resubmit");
       assertThat(links.get("clear").get("href").asText()).isEqualTo("/v2/issue-tracker/resubmits/jira/clear");
     }
 
+    @Test
+    void shouldReturnStateOfCircuitBreaker() throws IOException, URISyntaxException {
+      comments("jira");
+      circuitBreakers.get("jira").recordFailure();
+
+      MockHttpResponse response = invoke(MockHttpRequest.get("/v2/issue-tracker/resubmits"));
+
+      JsonNode resubmit = mapper.readTree(response.getContentAsString()).get("_embedded").get("resubmit").get(0);
+      assertThat(resubmit.get("circuitBreaker").asText()).isEqualTo("OPEN");
+      assertThat(resubmit.hasNonNull("retryAt")).isTrue();
+    }
+
     @Test
     void shouldTriggerResubmit() throws URISyntaxException {
       MockHttpResponse response = invoke(MockHttpRequest.post("/v2/issue-tracker/resubmits/redmine/resubmit"));
@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.issuetracker.internal.resubmit;
+
+import com.google.common.collect.ImmutableListMultimap;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.issuetracker.MutableClock;
+import sonia.scm.issuetracker.spi.CircuitBreaker;
+import sonia.scm.issuetracker.spi.CommentCircuitBreakers;
+import sonia.scm.web.security.AdministrationContext;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ResubmitSchedulerTest {
+
+  private static final Instant QUEUED = Instant.parse("2020-01-01T00:00:00Z");
+
+  @Mock
+  private ResubmitQueue queue;
+
+  @Mock
+  private ResubmitDispatcher dispatcher;
+
+  @Mock
+  private AdministrationContext administrationContext;
+
+  @Mock
+  private ResubmitProcessor processor;
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final MutableClock clock = new MutableClock();
+  private final CommentCircuitBreakers circuitBreakers = new CommentCircuitBreakers(2, Duration.ofMinutes(10), clock);
+
+  private ResubmitScheduler scheduler;
+
+  @BeforeEach
+  void setUpScheduler() {
+    scheduler = new ResubmitScheduler(
+      queue, dispatcher, administrationContext, meterRegistry,
+      new ResubmitBackoff(Duration.ofMinutes(1), Duration.ofHours(1)),
+      clock, circuitBreakers, null
+    );
+  }
+
+  @Test
+  void shouldNotResubmitBeforeBackoff() {
+    when(queue.getComments()).thenReturn(ImmutableListMultimap.of("redmine", comment("#1")));
+
+    scheduler.run();
+
+    verify(dispatcher, never()).resubmit(anyString(), any());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void shouldResubmitOnlyDueComments() {
+    QueuedComment due = comment("#1");
+    QueuedComment retried = comment("#2");
+    retried.retried();
+    retried.setLastAttempt(QUEUED.plus(Duration.ofMinutes(2)));
+    when(queue.getComments()).thenReturn(ImmutableListMultimap.of("redmine", due, "redmine", retried));
+    resubmitResult(1, 0);
+    clock.forward(Duration.ofMinutes(2));
+
+    scheduler.run();
+
+    ArgumentCaptor<Predicate<QueuedComment>> captor = ArgumentCaptor.forClass(Predicate.class);
+    verify(dispatcher).resubmit(eq("redmine"), captor.capture());
+    assertThat(captor.getValue()).accepts(due).rejects(retried);
+  }
+
+  @Test
+  void shouldOpenCircuitBreakerAfterFailedRuns() {
+    when(queue.getComments()).thenReturn(ImmutableListMultimap.of("redmine", comment("#1")));
+    resubmitResult(0, 1);
+    clock.forward(Duration.ofMinutes(2));
+
+    scheduler.run();
+    scheduler.run();
+
+    assertThat(circuitBreakers.get("redmine").getState()).isEqualTo(CircuitBreaker.State.OPEN);
+
+    scheduler.run();
+
+    verify(dispatcher, times(2)).resubmit(eq("redmine"), any());
+  }
+
+  @Test
+  void shouldCloseCircuitBreakerOnSuccess() {
+    when(queue.getComments()).thenReturn(ImmutableListMultimap.of("redmine", comment("#1")));
+    resubmitResult(0, 1);
+    clock.forward(Duration.ofMinutes(2));
+    scheduler.run();
+
+    resubmitResult(1, 0);
+    scheduler.run();
+
+    assertThat(circuitBreakers.get("redmine").getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+  }
+
+  @Test
+  void shouldSkipTrackerIfCommentsHaveOpenedTheCircuitBreaker() {
+    when(queue.getComments()).thenReturn(ImmutableListMultimap.of("redmine", comment("#1")));
+    clock.forward(Duration.ofMinutes(2));
+    circuitBreakers.get("redmine").recordFailure();
+    circuitBreakers.get("redmine").recordFailure();
+
+    scheduler.run();
+
+    verify(dispatcher, never()).resubmit(anyString(), any());
+  }
+
+  @Test
+  void shouldReleaseTrialIfNothingWasResubmitted() {
+    when(queue.getComments()).thenReturn(ImmutableListMultimap.of("redmine", comment("#1")));
+    resubmitResult(0, 0);
+    CircuitBreaker circuitBreaker = circuitBreakers.get("redmine");
+    circuitBreaker.recordFailure();
+    circuitBreaker.recordFailure();
+    clock.forward(Duration.ofMinutes(10));
+
+    scheduler.run();
+
+    assertThat(circuitBreaker.tryAcquire()).isTrue();
+  }
+
+  @Test
+  void shouldRecordMetrics() {
+    when(queue.getComments()).thenReturn(ImmutableListMultimap.of("redmine", comment("#1"), "jira", comment("#2")));
+    when(dispatcher.resubmit(anyString(), any())).thenReturn(processor);
+    when(processor.getRemove()).thenReturn(Collections.singletonList(comment("#1")));
+    when(processor.getRequeue()).thenReturn(Collections.singletonList(comment("#2")));
+    clock.forward(Duration.ofMinutes(5));
+
+    scheduler.run();
+
+    assertThat(meterRegistry.get(ResubmitScheduler.METRIC_COMMENTS).tag("result", "resubmitted").counter().count()).isEqualTo(2);
+    assertThat(meterRegistry.get(ResubmitScheduler.METRIC_COMMENTS).tag("result", "requeued").counter().count()).isEqualTo(2);
+    assertThat(meterRegistry.get(ResubmitScheduler.METRIC_QUEUE_SIZE).tag("tracker", "redmine").gauge().value()).isEqualTo(1);
+    assertThat(meterRegistry.get(ResubmitScheduler.METRIC_QUEUE_SIZE).tag("tracker", "jira").gauge().value()).isEqualTo(1);
+    assertThat(meterRegistry.get(ResubmitScheduler.METRIC_QUEUE_AGE).tag("tracker", "redmine").gauge().value()).isEqualTo(300);
+  }
+
+  @Test
+  void shouldResetQueueMetricsOfEmptyQueues() {
+    when(queue.getComments()).thenReturn(ImmutableListMultimap.of("redmine", comment("#1")));
+    when(dispatcher.resubmit(anyString(), any())).thenReturn(processor);
+    when(processor.getRemove()).thenReturn(Collections.singletonList(comment("#1")));
+    clock.forward(Duration.ofMinutes(5));
+    scheduler.run();
+
+    when(queue.getComments()).thenReturn(ImmutableListMultimap.of());
+    scheduler.run();
+
+    assertThat(meterRegistry.get(ResubmitScheduler.METRIC_QUEUE_SIZE).tag("tracker", "redmine").gauge().value()).isZero();
+    assertThat(meterRegistry.get(ResubmitScheduler.METRIC_QUEUE_AGE).tag("tracker", "redmine").gauge().value()).isZero();
+  }
+
+  @Test
+  void shouldContinueWithOtherTrackersAfterFailure() {
+    when(queue.getComments()).thenReturn(ImmutableListMultimap.of("redmine", comment("#1"), "jira", comment("#2")));
+    when(dispatcher.resubmit(eq("redmine"), any())).thenThrow(new IllegalStateException("failed"));
+    when(dispatcher.resubmit(eq("jira"), any())).thenReturn(processor);
+    clock.forward(Duration.ofMinutes(2));
+
+    scheduler.run();
+
+    verify(dispatcher).resubmit(eq("jira"), any());
+  }
+
+  private void resubmitResult(int removed, int requeued) {
+    when(dispatcher.resubmit(anyString(), any())).thenReturn(processor);
+    when(processor.getRemove()).thenReturn(Collections.nCopies(removed, comment("#1")));
+    when(processor.getRequeue()).thenReturn(Collections.nCopies(requeued, comment("#1")));
+  }
+
+  private QueuedComment comment(String issueKey) {
+    QueuedComment comment = new QueuedComment("hog", "redmine", issueKey, "Awesome");
+    comment.setDate(QUEUED);
+    return comment;
+  }
+}
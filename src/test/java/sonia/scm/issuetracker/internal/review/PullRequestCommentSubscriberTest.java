@@ -30,6 +30,7 @@ import sonia.scm.HandlerEventType;
 import sonia.scm.issuetracker.IssueReferencingObjects;
 import sonia.scm.issuetracker.api.IssueReferencingObject;
 import sonia.scm.issuetracker.api.IssueTracker;
+import sonia.scm.issuetracker.internal.index.IssueReferenceIndexer;
 import sonia.scm.repository.Repository;
 import sonia.scm.repository.RepositoryTestData;
 
@@ -45,6 +46,9 @@ class PullRequestCommentSubscriberTest {
   @Mock
   private PullRequestCommentMapper mapper;
 
+  @Mock
+  private IssueReferenceIndexer indexer;
+
   private final Repository repository = RepositoryTestData.createHeartOfGold();
   private final PullRequest pullRequest = new PullRequest();
 
@@ -52,7 +56,7 @@ class PullRequestCommentSubscriberTest {
 
   @BeforeEach
   void setUp() {
-    subscriber = new PullRequestCommentSubscriber(issueTracker, mapper);
+    subscriber = new PullRequestCommentSubscriber(issueTracker, mapper, indexer);
   }
 
   @Test
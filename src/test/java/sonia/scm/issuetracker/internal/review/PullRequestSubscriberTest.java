@@ -29,6 +29,7 @@ import sonia.scm.HandlerEventType;
 import sonia.scm.issuetracker.IssueReferencingObjects;
 import sonia.scm.issuetracker.api.IssueReferencingObject;
 import sonia.scm.issuetracker.api.IssueTracker;
+import sonia.scm.issuetracker.internal.index.IssueReferenceIndexer;
 import sonia.scm.repository.Repository;
 import sonia.scm.repository.RepositoryTestData;
 
@@ -43,6 +44,9 @@ class PullRequestSubscriberTest {
   @Mock
   private PullRequestMapper mapper;
 
+  @Mock
+  private IssueReferenceIndexer indexer;
+
   private final Repository repository = RepositoryTestData.createHeartOfGold();
   private final PullRequest pullRequest = new PullRequest();
 
@@ -50,7 +54,7 @@ class PullRequestSubscriberTest {
 
   @BeforeEach
   void setUp() {
-    subscriber = new PullRequestSubscriber(issueTracker, mapper);
+    subscriber = new PullRequestSubscriber(issueTracker, mapper, indexer);
   }
 
   @Nested
@@ -65,6 +69,7 @@ class PullRequestSubscriberTest {
       subscriber.handle(event);
 
       verify(issueTracker).process(ref);
+      verify(indexer).index(ref);
     }
 
     @Test
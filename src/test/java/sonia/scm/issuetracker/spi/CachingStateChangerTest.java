@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.issuetracker.spi;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CachingStateChangerTest {
+
+  @Mock
+  private StateChanger delegate;
+
+  @Test
+  void shouldCacheKeyWordsPerIssue() throws IOException {
+    when(delegate.getKeyWords("SCM-1")).thenReturn(List.of("fixes", "closes"));
+    when(delegate.getKeyWords("SCM-2")).thenReturn(List.of("reopens"));
+    CachingStateChanger changer = CachingStateChanger.wrap(delegate).build();
+
+    assertThat(changer.getKeyWords("SCM-1")).containsExactly("fixes", "closes");
+    assertThat(changer.getKeyWords("SCM-1")).containsExactly("fixes", "closes");
+    assertThat(changer.getKeyWords("SCM-2")).containsExactly("reopens");
+
+    verify(delegate, times(1)).getKeyWords("SCM-1");
+  }
+
+  @Test
+  void shouldInvalidateIssueOnStateChange() throws IOException {
+    when(delegate.getKeyWords("SCM-1")).thenReturn(List.of("fixes"), List.of("reopens"));
+    CachingStateChanger changer = CachingStateChanger.wrap(delegate).build();
+
+    changer.getKeyWords("SCM-1");
+    changer.changeState("SCM-1", "fixes");
+
+    assertThat(changer.getKeyWords("SCM-1")).containsExactly("reopens");
+    verify(delegate).changeState("SCM-1", "fixes");
+  }
+
+  @Test
+  void shouldCacheKeyWordsPerProject() throws IOException {
+    when(delegate.getKeyWords("SCM-1")).thenReturn(List.of("fixes"));
+    when(delegate.getKeyWords("HOG-1")).thenReturn(List.of("resolves"));
+    CachingStateChanger changer = CachingStateChanger.wrap(delegate).perProject().build();
+
+    changer.getKeyWords("SCM-1");
+    changer.changeState("SCM-1", "fixes");
+    assertThat(changer.getKeyWords("SCM-2")).containsExactly("fixes");
+    assertThat(changer.getKeyWords("HOG-1")).containsExactly("resolves");
+
+    verify(delegate, never()).getKeyWords("SCM-2");
+  }
+
+  @Test
+  void shouldCacheKeyWordsForWholeTracker() throws IOException {
+    when(delegate.getKeyWords("#1")).thenReturn(List.of("fixes"));
+    CachingStateChanger changer = CachingStateChanger.wrap(delegate).perTracker().build();
+
+    changer.getKeyWords("#1");
+
+    assertThat(changer.getKeyWords("#2")).containsExactly("fixes");
+    verify(delegate, never()).getKeyWords("#2");
+  }
+
+  @Test
+  void shouldExtractProjectPrefix() {
+    assertThat(CachingStateChanger.projectPrefix("SCM-42")).isEqualTo("SCM");
+    assertThat(CachingStateChanger.projectPrefix("MY-APP-42")).isEqualTo("MY-APP");
+    assertThat(CachingStateChanger.projectPrefix("#42")).isEqualTo("#42");
+  }
+
+  @Test
+  void shouldNotCacheFailures() throws IOException {
+    when(delegate.getKeyWords("SCM-1"))
+      .thenThrow(new IOException("tracker is down"))
+      .thenReturn(List.of("fixes"));
+    CachingStateChanger changer = CachingStateChanger.wrap(delegate).build();
+
+    IOException exception = assertThrows(IOException.class, () -> changer.getKeyWords("SCM-1"));
+    assertThat(exception).hasMessage("tracker is down");
+    assertThat(changer.getKeyWords("SCM-1")).containsExactly("fixes");
+  }
+
+  @Test
+  void shouldExpireKeyWords() throws IOException {
+    when(delegate.getKeyWords("SCM-1")).thenReturn(List.of("fixes"));
+    CachingStateChanger changer = CachingStateChanger.wrap(delegate).expireAfterWrite(Duration.ZERO).build();
+
+    changer.getKeyWords("SCM-1");
+    changer.getKeyWords("SCM-1");
+
+    verify(delegate, times(2)).getKeyWords("SCM-1");
+  }
+
+  @Test
+  void shouldLoadOnlyOnceForConcurrentCallers() throws Exception {
+    CountDownLatch latch = new CountDownLatch(1);
+    when(delegate.getKeyWords("SCM-1")).thenAnswer(ic -> {
+      latch.await(5, TimeUnit.SECONDS);
+      return List.of("fixes");
+    });
+    CachingStateChanger changer = CachingStateChanger.wrap(delegate).build();
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      Future<?>[] futures = new Future[4];
+      for (int i = 0; i < futures.length; i++) {
+        futures[i] = executor.submit(() -> changer.getKeyWords("SCM-1"));
+      }
+      Thread.sleep(100);
+      latch.countDown();
+      for (Future<?> future : futures) {
+        future.get(5, TimeUnit.SECONDS);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    verify(delegate, times(1)).getKeyWords("SCM-1");
+  }
+
+  @Test
+  void shouldDelegateActivation() {
+    when(delegate.isStateChangeActivatedFor("changeset")).thenReturn(false);
+    CachingStateChanger changer = CachingStateChanger.wrap(delegate).build();
+
+    assertThat(changer.isStateChangeActivatedFor("changeset")).isFalse();
+  }
+}
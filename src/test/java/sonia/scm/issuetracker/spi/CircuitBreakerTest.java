@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.issuetracker.spi;
+
+import org.junit.jupiter.api.Test;
+import sonia.scm.issuetracker.MutableClock;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CircuitBreakerTest {
+
+  private final MutableClock clock = new MutableClock();
+  private final CircuitBreaker circuitBreaker = new CircuitBreaker(2, Duration.ofMinutes(5), clock);
+
+  @Test
+  void shouldBeClosedByDefault() {
+    assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    assertThat(circuitBreaker.tryAcquire()).isTrue();
+    assertThat(circuitBreaker.getRetryAt()).isNull();
+  }
+
+  @Test
+  void shouldOpenAfterThreshold() {
+    circuitBreaker.recordFailure();
+    assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+
+    circuitBreaker.recordFailure();
+    assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    assertThat(circuitBreaker.tryAcquire()).isFalse();
+    assertThat(circuitBreaker.getRetryAt()).isEqualTo(clock.instant().plus(Duration.ofMinutes(5)));
+  }
+
+  @Test
+  void shouldResetFailuresOnSuccess() {
+    circuitBreaker.recordFailure();
+    circuitBreaker.recordSuccess();
+    circuitBreaker.recordFailure();
+
+    assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+  }
+
+  @Test
+  void shouldPermitSingleTrialAfterOpenDuration() {
+    open();
+    clock.forward(Duration.ofMinutes(5));
+
+    assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+    assertThat(circuitBreaker.tryAcquire()).isTrue();
+    assertThat(circuitBreaker.tryAcquire()).isFalse();
+  }
+
+  @Test
+  void shouldCloseAfterSuccessfulTrial() {
+    open();
+    clock.forward(Duration.ofMinutes(5));
+    circuitBreaker.tryAcquire();
+
+    circuitBreaker.recordSuccess();
+
+    assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+  }
+
+  @Test
+  void shouldReopenAfterFailedTrial() {
+    open();
+    clock.forward(Duration.ofMinutes(5));
+    circuitBreaker.tryAcquire();
+
+    circuitBreaker.recordFailure();
+
+    assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    assertThat(circuitBreaker.tryAcquire()).isFalse();
+  }
+
+  @Test
+  void shouldPermitNextTrialAfterRelease() {
+    open();
+    clock.forward(Duration.ofMinutes(5));
+    circuitBreaker.tryAcquire();
+
+    circuitBreaker.release();
+
+    assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+    assertThat(circuitBreaker.tryAcquire()).isTrue();
+  }
+
+  private void open() {
+    circuitBreaker.recordFailure();
+    circuitBreaker.recordFailure();
+  }
+}
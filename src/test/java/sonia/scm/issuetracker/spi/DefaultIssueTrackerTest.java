@@ -17,28 +17,48 @@
 package sonia.scm.issuetracker.spi;
 
 import com.google.common.collect.ImmutableSet;
+import io.micrometer.core.instrument.search.RequiredSearch;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import sonia.scm.issuetracker.ExampleIssueLinkFactory;
 import sonia.scm.issuetracker.ExampleIssueMatcher;
+import sonia.scm.issuetracker.IssueReferencingObjects;
+import sonia.scm.issuetracker.api.IssueComment;
+import sonia.scm.issuetracker.api.IssueCommentResult;
 import sonia.scm.issuetracker.api.IssueReferencingObject;
 import sonia.scm.issuetracker.api.IssueTracker;
+import sonia.scm.issuetracker.internal.resubmit.QueuedComment;
 import sonia.scm.issuetracker.internal.resubmit.ResubmitQueue;
 import sonia.scm.repository.RepositoryTestData;
 import sonia.scm.store.InMemoryDataStoreFactory;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
@@ -118,6 +138,43 @@ class DefaultIssueTrackerTest {
         .build();
     }
 
+    @Test
+    void shouldHandleEachObjectOnceIfSharedByMultipleThreads() throws Exception {
+      // comments which are rejected by the rate limit are queued, so every comment is either sent or queued once
+      Map<String, Integer> comments = new ConcurrentHashMap<>();
+      lenient().doAnswer(ic -> comments.merge(ic.getArgument(0, QueuedComment.class).getComment(), 1, Integer::sum))
+        .when(resubmitQueue).append(any(QueuedComment.class));
+      IssueTracker sharedTracker = new IssueTrackerBuilder(new InMemoryDataStoreFactory(), resubmitQueue, rendererFactory)
+        .start("testing", ExampleIssueMatcher.createRedmine(), ExampleIssueLinkFactory.createRedmine())
+        .commenting(RepositoryTestData.createHeartOfGold(), (issueKey, comment) -> comments.merge(comment, 1, Integer::sum))
+        .renderer(renderer)
+        .build();
+      when(renderer.render(any(IssueReferencingObject.class)))
+        .thenAnswer(ic -> ic.getArgument(0, IssueReferencingObject.class).getId());
+
+      List<Callable<Void>> workers = new ArrayList<>();
+      for (int worker = 0; worker < 4; worker++) {
+        List<IssueReferencingObject> objects = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+          objects.add(IssueReferencingObjects.ref("changeset", worker + "-" + i, "Comment #42"));
+        }
+        workers.add(() -> {
+          sharedTracker.processAll(objects);
+          return null;
+        });
+      }
+      ExecutorService executor = Executors.newFixedThreadPool(workers.size());
+      try {
+        for (Future<Void> future : executor.invokeAll(workers)) {
+          future.get();
+        }
+      } finally {
+        executor.shutdownNow();
+      }
+
+      assertThat(comments).hasSize(200).allSatisfy((comment, count) -> assertThat(count).isEqualTo(1));
+    }
+
     @Test
     void shouldReturnResubmitter() {
       assertThat(tracker.getResubmitter()).isPresent();
@@ -155,6 +212,217 @@ class DefaultIssueTrackerTest {
       verify(commentator).comment("#42", "Super");
     }
 
+    @Test
+    void shouldSendCommentsOnlyOnceWithinProcessAll() throws IOException {
+      IssueReferencingObject ref = content("Comment #21");
+      when(renderer.render(ref)).thenReturn("Incredible");
+
+      tracker.processAll(List.of(ref, ref));
+      verify(commentator).comment("#21", "Incredible");
+
+      tracker.process(ref);
+      verifyNoMoreInteractions(commentator);
+    }
+
+    @Test
+    void shouldContinueProcessAllAfterFailure() throws IOException {
+      IssueReferencingObject failing = content("Comment #7");
+      IssueReferencingObject ref = content("Comment #8");
+      when(renderer.render(failing)).thenThrow(new IllegalStateException("failed to render"));
+      when(renderer.render(ref)).thenReturn("Awesome");
+
+      tracker.processAll(List.of(failing, ref));
+
+      verify(commentator).comment("#8", "Awesome");
+    }
+
+    @Test
+    void shouldSendCommentBeforeNextObjectIsProcessed() throws IOException {
+      IssueReferencingObject one = IssueReferencingObjects.ref("changeset", "1", "Comment #21");
+      IssueReferencingObject two = IssueReferencingObjects.ref("changeset", "2", "Comment #42");
+      when(renderer.render(one)).thenReturn("One");
+      when(renderer.render(two)).thenReturn("Two");
+
+      tracker.processAll(List.of(one, two));
+
+      InOrder inOrder = inOrder(renderer, commentator);
+      inOrder.verify(renderer).render(one);
+      inOrder.verify(commentator).comment("#21", "One");
+      inOrder.verify(renderer).render(two);
+      inOrder.verify(commentator).comment("#42", "Two");
+    }
+
+    @Test
+    void shouldQueueCommentAndContinueProcessAllOnRuntimeException() throws IOException {
+      IssueReferencingObject failing = content("Comment #7");
+      IssueReferencingObject ref = content("Comment #8");
+      when(renderer.render(failing)).thenReturn("Failing");
+      when(renderer.render(ref)).thenReturn("Awesome");
+      lenient().doThrow(new IllegalStateException("failed to send")).when(commentator).comment("#7", "Failing");
+
+      tracker.processAll(List.of(failing, ref));
+
+      verify(resubmitQueue).append(any());
+      verify(commentator).comment("#8", "Awesome");
+
+      tracker.processAll(List.of(failing, ref));
+      verify(commentator).comment("#7", "Failing");
+    }
+
+  }
+
+  @Nested
+  @ExtendWith(MockitoExtension.class)
+  class BatchCommenting {
+
+    @Mock
+    private ResubmitQueue resubmitQueue;
+
+    @Mock
+    private TemplateCommentRendererFactory rendererFactory;
+
+    @Mock
+    private ReferenceCommentRenderer renderer;
+
+    @Mock
+    private BatchCommentator commentator;
+
+    private IssueTracker tracker;
+
+    @BeforeEach
+    void setUpIssueTracker() {
+      tracker = new IssueTrackerBuilder(new InMemoryDataStoreFactory(), resubmitQueue, rendererFactory)
+        .start("testing", ExampleIssueMatcher.createRedmine(), ExampleIssueLinkFactory.createRedmine())
+        .commenting(RepositoryTestData.createHeartOfGold(), commentator)
+        .renderer(renderer)
+        .build();
+    }
+
+    @Test
+    void shouldSendCommentsOfAllObjectsWithOneBatch() throws IOException {
+      IssueReferencingObject one = IssueReferencingObjects.ref("changeset", "1", "Comment #21 and #42");
+      IssueReferencingObject two = IssueReferencingObjects.ref("changeset", "2", "Comment #42");
+      when(renderer.render(one)).thenReturn("One");
+      when(renderer.render(two)).thenReturn("Two");
+      List<IssueComment> expected = List.of(
+        new IssueComment("#21", "One"), new IssueComment("#42", "One"), new IssueComment("#42", "Two")
+      );
+      when(commentator.comment(expected)).thenReturn(
+        expected.stream().map(IssueCommentResult::success).collect(Collectors.toList())
+      );
+
+      tracker.processAll(List.of(one, two));
+      tracker.processAll(List.of(one, two));
+
+      verify(commentator).comment(expected);
+      verify(commentator, never()).comment(anyString(), anyString());
+    }
+
+    @Test
+    void shouldSplitLargeBatchesIntoMultipleCalls() throws IOException {
+      List<IssueReferencingObject> objects = new ArrayList<>();
+      for (int i = 0; i <= DefaultIssueTracker.MAX_COMMENTS_PER_CALL; i++) {
+        objects.add(IssueReferencingObjects.ref("changeset", String.valueOf(i), "Comment #42"));
+      }
+      when(renderer.render(any(IssueReferencingObject.class))).thenReturn("Comment");
+      when(commentator.comment(any())).thenAnswer(ic -> {
+        Collection<IssueComment> comments = ic.getArgument(0);
+        return comments.stream().map(IssueCommentResult::success).collect(Collectors.toList());
+      });
+
+      tracker.processAll(objects);
+
+      verify(commentator).comment(argThat(comments -> comments.size() == DefaultIssueTracker.MAX_COMMENTS_PER_CALL));
+      verify(commentator).comment(argThat(comments -> comments.size() == 1));
+    }
+  }
+
+  @Nested
+  @ExtendWith(MockitoExtension.class)
+  class AggregatedCommenting {
+
+    @Mock
+    private ResubmitQueue resubmitQueue;
+
+    @Mock
+    private TemplateCommentRendererFactory rendererFactory;
+
+    @Mock
+    private AggregatingRenderer renderer;
+
+    @Mock
+    private Commentator commentator;
+
+    private IssueTracker tracker;
+
+    @BeforeEach
+    void setUpIssueTracker() {
+      tracker = new IssueTrackerBuilder(new InMemoryDataStoreFactory(), resubmitQueue, rendererFactory)
+        .start("testing", ExampleIssueMatcher.createRedmine(), ExampleIssueLinkFactory.createRedmine())
+        .commenting(RepositoryTestData.createHeartOfGold(), commentator)
+        .renderer(renderer)
+        .build();
+    }
+
+    @Test
+    void shouldSendOneCommentPerIssue() throws IOException {
+      IssueReferencingObject one = IssueReferencingObjects.ref("changeset", "1", "Comment #21 and #42");
+      IssueReferencingObject two = IssueReferencingObjects.ref("changeset", "2", "Comment #42");
+      when(renderer.render(one)).thenReturn("One");
+      when(renderer.render("#42", List.of(one, two))).thenReturn("Push");
+
+      tracker.processAggregated(List.of(one, two));
+
+      verify(commentator).comment("#21", "One");
+      verify(commentator).comment("#42", "Push");
+      verifyNoMoreInteractions(commentator);
+    }
+
+    @Test
+    void shouldMarkEachObjectOfAggregatedComment() throws IOException {
+      IssueReferencingObject one = IssueReferencingObjects.ref("changeset", "1", "Comment #42");
+      IssueReferencingObject two = IssueReferencingObjects.ref("changeset", "2", "Comment #42");
+      when(renderer.render("#42", List.of(one, two))).thenReturn("Push");
+
+      tracker.processAggregated(List.of(one, two));
+      tracker.process(one);
+      tracker.process(two);
+
+      verify(commentator).comment("#42", "Push");
+      verifyNoMoreInteractions(commentator);
+    }
+
+    @Test
+    void shouldNotAggregateAlreadyProcessedObjects() throws IOException {
+      IssueReferencingObject one = IssueReferencingObjects.ref("changeset", "1", "Comment #42");
+      IssueReferencingObject two = IssueReferencingObjects.ref("changeset", "2", "Comment #42");
+      when(renderer.render(one)).thenReturn("One");
+      when(renderer.render(two)).thenReturn("Two");
+
+      tracker.process(one);
+      tracker.processAggregated(List.of(one, two));
+
+      verify(commentator).comment("#42", "One");
+      verify(commentator).comment("#42", "Two");
+      verify(renderer, never()).render(anyString(), any());
+    }
+
+    @Test
+    void shouldFallbackToCommentPerObjectWithoutTemplate() throws IOException {
+      IssueReferencingObject one = IssueReferencingObjects.ref("changeset", "1", "Comment #42");
+      IssueReferencingObject two = IssueReferencingObjects.ref("changeset", "2", "Comment #42");
+      when(renderer.render("#42", List.of(one, two))).thenThrow(new TemplateNotFoundException("push.mustache"));
+      when(renderer.render(one)).thenReturn("One");
+      when(renderer.render(two)).thenReturn("Two");
+
+      tracker.processAggregated(List.of(one, two));
+
+      verify(commentator).comment("#42", "One");
+      verify(commentator).comment("#42", "Two");
+    }
+  }
+
+  interface AggregatingRenderer extends ReferenceCommentRenderer, AggregatedCommentRenderer {
   }
 
   @Nested
@@ -278,4 +546,86 @@ class DefaultIssueTrackerTest {
       verify(stateChanger, never()).isStateChangeActivatedFor(anyString());
     }
   }
+
+  @Nested
+  @ExtendWith(MockitoExtension.class)
+  class Metrics {
+
+    @Mock
+    private ResubmitQueue resubmitQueue;
+
+    @Mock
+    private TemplateCommentRendererFactory rendererFactory;
+
+    @Mock
+    private ReferenceCommentRenderer referenceCommentRenderer;
+
+    @Mock
+    private StateChangeCommentRenderer stateChangeCommentRenderer;
+
+    @Mock
+    private Commentator commentator;
+
+    @Mock
+    private StateChanger stateChanger;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private IssueTracker tracker;
+
+    @BeforeEach
+    void setUpIssueTracker() {
+      IssueTrackerMetrics metrics = new IssueTrackerMetrics(meterRegistry);
+      tracker = new IssueTrackerBuilder(new InMemoryDataStoreFactory(), resubmitQueue, rendererFactory, null, metrics, new CommentCircuitBreakers(), new RemoteCallExecutor())
+        .start("testing", ExampleIssueMatcher.createRedmine(), ExampleIssueLinkFactory.createRedmine())
+        .commenting(RepositoryTestData.createHeartOfGold(), commentator)
+        .renderer(referenceCommentRenderer)
+        .stateChanging(stateChanger)
+        .renderer(stateChangeCommentRenderer)
+        .build();
+    }
+
+    @Test
+    void shouldRecordProcessingAndRemoteCalls() throws IOException {
+      IssueReferencingObject ref = content("#42 is great");
+      when(stateChanger.getKeyWords("#42")).thenReturn(ImmutableSet.of("fixes"));
+      when(referenceCommentRenderer.render(ref)).thenReturn("Great");
+
+      tracker.process(ref);
+      tracker.process(ref);
+
+      assertThat(meter(IssueTrackerMetrics.METRIC_PROCESS).tag("type", "unit-test").timer().count()).isEqualTo(2);
+      assertThat(meter(IssueTrackerMetrics.METRIC_RENDER).tag("type", "unit-test").timer().count()).isEqualTo(1);
+      assertThat(
+        meter(IssueTrackerMetrics.METRIC_REMOTE)
+          .tag("operation", IssueTrackerMetrics.OPERATION_COMMENT)
+          .tag("outcome", "success")
+          .timer().count()
+      ).isEqualTo(1);
+      assertThat(meter(IssueTrackerMetrics.METRIC_PROCESSED_LOOKUPS).tag("result", "miss").counter().count()).isEqualTo(1);
+      assertThat(meter(IssueTrackerMetrics.METRIC_PROCESSED_LOOKUPS).tag("result", "hit").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldRecordFailedStateChanges() throws IOException {
+      IssueReferencingObject ref = content("Fixes #42");
+      when(stateChanger.isStateChangeActivatedFor("unit-test")).thenReturn(true);
+      when(stateChanger.getKeyWords("#42")).thenReturn(Collections.singleton("fixes"));
+      when(stateChangeCommentRenderer.render(ref, "fixes")).thenReturn("Incredible");
+      doThrow(new IOException("failed")).when(stateChanger).changeState("#42", "fixes");
+
+      tracker.process(ref);
+
+      assertThat(
+        meter(IssueTrackerMetrics.METRIC_REMOTE)
+          .tag("operation", IssueTrackerMetrics.OPERATION_CHANGE_STATE)
+          .tag("outcome", "failure")
+          .timer().count()
+      ).isEqualTo(1);
+    }
+
+    private RequiredSearch meter(String name) {
+      return meterRegistry.get(name).tag("tracker", "testing");
+    }
+  }
 }
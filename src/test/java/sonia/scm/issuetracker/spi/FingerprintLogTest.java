@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.issuetracker.spi;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FingerprintLogTest {
+
+  @TempDir
+  private Path directory;
+
+  @Test
+  void shouldAppendAndContainFingerprints() {
+    FingerprintLog log = log();
+
+    log.append(21L, 42L);
+
+    assertThat(log.contains(21L)).isTrue();
+    assertThat(log.contains(42L)).isTrue();
+    assertThat(log.contains(7L)).isFalse();
+  }
+
+  @Test
+  void shouldReadFingerprintsFromFile() {
+    log().append(21L, 42L);
+
+    FingerprintLog log = log();
+    assertThat(log.contains(21L)).isTrue();
+    assertThat(log.size()).isEqualTo(2);
+  }
+
+  @Test
+  void shouldNotAppendKnownFingerprints() throws IOException {
+    FingerprintLog log = log();
+    log.append(21L);
+    log.append(21L, 42L);
+
+    assertThat(Files.size(path())).isEqualTo(3L * Long.BYTES);
+  }
+
+  @Test
+  void shouldInitializeOnlyOnce() {
+    FingerprintLog log = log();
+
+    assertThat(log.initialize(() -> new long[]{21L})).isTrue();
+    assertThat(log.initialize(() -> new long[]{42L})).isFalse();
+    assertThat(log().initialize(() -> new long[]{42L})).isFalse();
+
+    FingerprintLog restarted = log();
+    assertThat(restarted.contains(21L)).isTrue();
+    assertThat(restarted.contains(42L)).isFalse();
+  }
+
+  @Test
+  void shouldDropIncompleteRecord() throws IOException {
+    log().append(21L);
+    Files.write(path(), new byte[]{1, 2, 3}, StandardOpenOption.APPEND);
+
+    FingerprintLog log = log();
+    assertThat(log.contains(21L)).isTrue();
+    log.append(42L);
+
+    assertThat(log().size()).isEqualTo(2);
+    assertThat(Files.size(path())).isEqualTo(3L * Long.BYTES);
+  }
+
+  @Test
+  void shouldFailOnUnknownFormat() throws IOException {
+    Files.createDirectories(path().getParent());
+    Files.write(path(), new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+
+    FingerprintLog log = log();
+    assertThatThrownBy(() -> log.contains(21L)).isInstanceOf(UncheckedIOException.class);
+  }
+
+  @Test
+  void shouldKeepInMemoryLogInMemory() throws IOException {
+    FingerprintLog log = FingerprintLog.inMemory();
+    log.append(21L);
+
+    assertThat(log.contains(21L)).isTrue();
+    try (var files = Files.list(directory)) {
+      assertThat(files).isEmpty();
+    }
+  }
+
+  private FingerprintLog log() {
+    return new FingerprintLog(path());
+  }
+
+  private Path path() {
+    return directory.resolve("marks").resolve("test.fingerprints");
+  }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.issuetracker.spi;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.issuetracker.api.IssueComment;
+import sonia.scm.issuetracker.api.IssueCommentResult;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class GuardedCommentatorTest {
+
+  @Mock
+  private Commentator commentator;
+
+  @Mock
+  private BatchCommentator batchCommentator;
+
+  @Mock
+  private StateChanger stateChanger;
+
+  private final RemoteCallExecutor executor = new RemoteCallExecutor();
+  private final RemoteCallGuard guard = new RemoteCallGuard("redmine", 100, 1, Duration.ofSeconds(5), executor);
+
+  @AfterEach
+  void closeExecutor() {
+    executor.close();
+  }
+
+  @Test
+  void shouldDelegateComment() throws IOException {
+    Commentator guarded = GuardedCommentator.guard(commentator, guard);
+
+    guarded.comment("#42", "Awesome");
+
+    assertThat(guarded).isNotInstanceOf(BatchCommentator.class);
+    verify(commentator).comment("#42", "Awesome");
+  }
+
+  @Test
+  void shouldKeepBatchCommentator() throws IOException {
+    List<IssueComment> comments = List.of(new IssueComment("#42", "Awesome"));
+    List<IssueCommentResult> results = List.of(IssueCommentResult.success(comments.get(0)));
+    when(batchCommentator.comment(comments)).thenReturn(results);
+
+    Commentator guarded = GuardedCommentator.guard(batchCommentator, guard);
+
+    assertThat(guarded).isInstanceOf(BatchCommentator.class);
+    assertThat(((BatchCommentator) guarded).comment(comments)).isEqualTo(results);
+  }
+
+  @Test
+  void shouldRejectCommentsAboveRateLimit() throws IOException {
+    Commentator guarded = GuardedCommentator.guard(commentator, new RemoteCallGuard("redmine", 0.1, 1, Duration.ofSeconds(5), executor));
+
+    guarded.comment("#21", "Incredible");
+
+    assertThrows(RemoteCallRejectedException.class, () -> guarded.comment("#42", "Awesome"));
+    verify(commentator).comment("#21", "Incredible");
+  }
+
+  @Test
+  void shouldWaitForRateLimitOnStateChanges() throws IOException {
+    StateChanger guarded = new GuardedStateChanger(stateChanger, new RemoteCallGuard("redmine", 20, 1, Duration.ofSeconds(5), executor));
+
+    guarded.changeState("#21", "fixes");
+    guarded.changeState("#42", "fixes");
+
+    verify(stateChanger).changeState("#21", "fixes");
+    verify(stateChanger).changeState("#42", "fixes");
+  }
+
+  @Test
+  void shouldRejectStateChangeIfLimitIsNotFreedInTime() throws IOException {
+    StateChanger guarded = new GuardedStateChanger(stateChanger, new RemoteCallGuard("redmine", 0.1, 1, Duration.ofMillis(50), executor));
+
+    guarded.changeState("#21", "fixes");
+
+    assertThrows(RemoteCallRejectedException.class, () -> guarded.changeState("#42", "fixes"));
+    verify(stateChanger).changeState("#21", "fixes");
+  }
+
+  @Test
+  void shouldGuardKeyWords() throws IOException {
+    StateChanger guarded = new GuardedStateChanger(stateChanger, new RemoteCallGuard("redmine", 0.1, 1, Duration.ofMillis(50), executor));
+    when(stateChanger.getKeyWords("#42")).thenReturn(List.of("fixes"));
+
+    assertThat(guarded.getKeyWords("#42")).containsExactly("fixes");
+
+    assertThrows(RemoteCallRejectedException.class, () -> guarded.getKeyWords("#42"));
+    verify(stateChanger).getKeyWords("#42");
+  }
+}
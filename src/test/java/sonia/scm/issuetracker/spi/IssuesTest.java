@@ -138,6 +138,41 @@ class IssuesTest {
       Optional<String> stateChange = Issues.detectStateChange("ABC-42", keyWords, referencingObject);
       assertThat(stateChange).isEmpty();
     }
+
+    @Test
+    void shouldNotMatchKeyWhichIsPartOfAnotherWord() {
+      IssueReferencingObject referencingObject = content("XABC-42 is fixed");
+      Optional<String> stateChange = Issues.detectStateChange("ABC-42", keyWords, referencingObject);
+      assertThat(stateChange).isEmpty();
+    }
+
+    @Test
+    void shouldMatchLaterOccurrenceOfKey() {
+      IssueReferencingObject referencingObject = content("XABC-42 and ABC-42 are fixed");
+      Optional<String> stateChange = Issues.detectStateChange("ABC-42", keyWords, referencingObject);
+      assertThat(stateChange).contains("fixed");
+    }
+
+    @Test
+    void shouldReturnFirstKeyWordInOrderOfKeyWords() {
+      IssueReferencingObject referencingObject = content("ABC-42 is closed and fixed");
+      Optional<String> stateChange = Issues.detectStateChange("ABC-42", keyWords, referencingObject);
+      assertThat(stateChange).contains("fixed");
+    }
+
+    @Test
+    void shouldDetectStateChangesOfMultipleKeysWithSameDetector() {
+      IssueReferencingObject referencingObject = content(
+        "Fixes ABC-42. ABC-21 is awesome.\nABC-7 is closed", "Resolved ABC-21"
+      );
+      Issues.StateChangeDetector detector = Issues.stateChangeDetector(referencingObject);
+
+      assertThat(detector.detect("ABC-42", keyWords)).contains("fixes");
+      assertThat(detector.detect("ABC-21", keyWords)).contains("resolved");
+      assertThat(detector.detect("ABC-7", keyWords)).contains("closed");
+      assertThat(detector.detect("ABC-8", keyWords)).isEmpty();
+      assertThat(detector.detect("ABC-42", keyWords)).contains("fixes");
+    }
   }
 
   @Nested
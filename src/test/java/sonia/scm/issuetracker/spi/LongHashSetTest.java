@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.issuetracker.spi;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LongHashSetTest {
+
+  @Test
+  void shouldAddAndContainValues() {
+    LongHashSet set = new LongHashSet();
+
+    assertThat(set.add(42L)).isTrue();
+    assertThat(set.add(42L)).isFalse();
+    assertThat(set.contains(42L)).isTrue();
+    assertThat(set.contains(21L)).isFalse();
+    assertThat(set.size()).isEqualTo(1);
+  }
+
+  @Test
+  void shouldHandleZero() {
+    LongHashSet set = new LongHashSet();
+    assertThat(set.contains(0L)).isFalse();
+
+    assertThat(set.add(0L)).isTrue();
+    assertThat(set.add(0L)).isFalse();
+    assertThat(set.contains(0L)).isTrue();
+    assertThat(set.toArray()).containsExactly(0L);
+  }
+
+  @Test
+  void shouldGrow() {
+    LongHashSet set = new LongHashSet();
+    Random random = new Random(42);
+    long[] values = new long[10_000];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = random.nextLong();
+      set.add(values[i]);
+    }
+
+    assertThat(set.size()).isEqualTo(values.length);
+    for (long value : values) {
+      assertThat(set.contains(value)).isTrue();
+    }
+    assertThat(set.toArray()).containsExactlyInAnyOrder(values);
+  }
+
+  @Test
+  void shouldClear() {
+    LongHashSet set = new LongHashSet();
+    set.addAll(new long[]{0L, 1L, 2L});
+
+    set.clear();
+
+    assertThat(set.isEmpty()).isTrue();
+    assertThat(set.contains(0L)).isFalse();
+    assertThat(set.contains(1L)).isFalse();
+  }
+}
@@ -18,12 +18,18 @@ package sonia.scm.issuetracker.spi;
 
 import org.assertj.core.util.Maps;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import sonia.scm.issuetracker.api.IssueReferencingObject;
 import sonia.scm.repository.Person;
+import sonia.scm.repository.Repository;
 import sonia.scm.repository.RepositoryTestData;
 import sonia.scm.store.InMemoryDataStore;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Instant;
 import java.util.Arrays;
 import java.util.Collections;
@@ -32,42 +38,192 @@ import static org.assertj.core.api.Assertions.assertThat;
 
 class ProcessedStoreTest {
 
-  private ProcessedStore store;
+  private final InMemoryDataStore<ProcessedMarks> legacyStore = new InMemoryDataStore<>();
 
-  @BeforeEach
-  void setUpStore() {
-    store = new ProcessedStore(new InMemoryDataStore<>());
-  }
+  @Nested
+  class InMemory {
 
-  @Test
-  void shouldStoreMarksWithoutKeyWord() {
-    store.mark("42", ref("changeset", "4211"));
-    assertThat(store.isProcessed("42", ref("changeset", "4211"))).isTrue();
-  }
+    private ProcessedStore store;
 
-  @Test
-  void shouldRespectType() {
-    store.mark("21", ref("pull-request", "12"));
-    assertThat(store.isProcessed("21", ref("comment", "12"))).isFalse();
-  }
+    @BeforeEach
+    void setUpStore() {
+      store = new ProcessedStore(legacyStore, FingerprintLog.inMemory());
+    }
 
-  @Test
-  void shouldRespectId() {
-    store.mark("21", ref("pull-request", "12"));
-    assertThat(store.isProcessed("21", ref("pull-request", "21"))).isFalse();
-  }
+    @Test
+    void shouldStoreMarksWithoutKeyWord() {
+      store.mark("42", ref("changeset", "4211"));
+      assertThat(store.isProcessed("42", ref("changeset", "4211"))).isTrue();
+    }
+
+    @Test
+    void shouldRespectType() {
+      store.mark("21", ref("pull-request", "12"));
+      assertThat(store.isProcessed("21", ref("comment", "12"))).isFalse();
+    }
+
+    @Test
+    void shouldRespectId() {
+      store.mark("21", ref("pull-request", "12"));
+      assertThat(store.isProcessed("21", ref("pull-request", "21"))).isFalse();
+    }
+
+    @Test
+    void shouldRespectIssueKey() {
+      store.mark("21", ref("pull-request", "12"));
+      assertThat(store.isProcessed("12", ref("pull-request", "12"))).isFalse();
+    }
+
+    @Test
+    void shouldStoreMarksWithKeyWord() {
+      store.mark("21", ref("pull-request", "21"), "closed");
+      assertThat(store.isProcessed("21", ref("pull-request", "21"), "closed")).isTrue();
+    }
+
+    @Test
+    void shouldRespectKeyWord() {
+      store.mark("21", ref("pull-request", "12"), "closed");
+      assertThat(store.isProcessed("21", ref("pull-request", "21"))).isFalse();
+      assertThat(store.isProcessed("21", ref("pull-request", "21"), "fixed")).isFalse();
+    }
 
-  @Test
-  void shouldStoreMarksWithKeyWord() {
-    store.mark("21", ref("pull-request", "21"), "closed");
-    assertThat(store.isProcessed("21", ref("pull-request", "21"), "closed")).isTrue();
+    @Test
+    void shouldReadLegacyMarksWithoutRemovingThem() {
+      ProcessedMarks marks = new ProcessedMarks();
+      marks.add(new ProcessedMarks.Mark("changeset", "1"));
+      marks.add(new ProcessedMarks.Mark("changeset", "2", "fixed"));
+      legacyStore.put("_21", marks);
+
+      assertThat(store.isProcessed("#21", ref("changeset", "1"))).isTrue();
+      assertThat(store.isProcessed("#21", ref("changeset", "2"), "fixed")).isTrue();
+      assertThat(store.isProcessed("#21", ref("changeset", "2"))).isFalse();
+      assertThat(legacyStore.getAll()).containsOnlyKeys("_21");
+    }
+
+    @Test
+    void shouldKeepMarksAfterRestartInLegacyStore() {
+      try (ProcessedStore.Batch batch = store.batch()) {
+        store.mark("#21", ref("changeset", "1"));
+        store.mark("#21", ref("changeset", "2"), "fixed");
+      }
+
+      ProcessedStore restarted = new ProcessedStore(legacyStore, FingerprintLog.inMemory());
+      assertThat(restarted.isProcessed("#21", ref("changeset", "1"))).isTrue();
+      assertThat(restarted.isProcessed("#21", ref("changeset", "2"), "fixed")).isTrue();
+      assertThat(restarted.isProcessed("#21", ref("changeset", "2"))).isFalse();
+    }
   }
 
-  @Test
-  void shouldRespectKeyWord() {
-    store.mark("21", ref("pull-request", "12"), "closed");
-    assertThat(store.isProcessed("21", ref("pull-request", "21"))).isFalse();
-    assertThat(store.isProcessed("21", ref("pull-request", "21"), "fixed")).isFalse();
+  @Nested
+  class OnDisk {
+
+    private final Repository repository = RepositoryTestData.createHeartOfGold();
+
+    @TempDir
+    private Path directory;
+
+    private ProcessedStore store;
+
+    @BeforeEach
+    void setUpStore() {
+      store = create();
+    }
+
+    @Test
+    void shouldKeepMarksAfterRestart() {
+      store.mark("42", ref("changeset", "1"), "closed");
+
+      ProcessedStore restarted = create();
+      assertThat(restarted.isProcessed("42", ref("changeset", "1"), "closed")).isTrue();
+    }
+
+    @Test
+    void shouldKeepLegacyMarksAfterMigration() {
+      ProcessedMarks marks = new ProcessedMarks();
+      marks.add(new ProcessedMarks.Mark("changeset", "1"));
+      legacyStore.put("42", marks);
+
+      assertThat(store.isProcessed("42", ref("changeset", "1"))).isTrue();
+      store.mark("42", ref("changeset", "2"));
+      assertThat(legacyStore.get("42").getMarks()).hasSize(1);
+
+      ProcessedStore restarted = create();
+      assertThat(restarted.isProcessed("42", ref("changeset", "1"))).isTrue();
+    }
+
+    @Test
+    void shouldNotMigrateAgainIfLogExists() {
+      ProcessedMarks marks = new ProcessedMarks();
+      marks.add(new ProcessedMarks.Mark("changeset", "1"));
+      legacyStore.put("42", marks);
+      assertThat(store.isProcessed("42", ref("changeset", "1"))).isTrue();
+
+      legacyStore.put("42", marks);
+      ProcessedStore restarted = create();
+      restarted.isProcessed("42", ref("changeset", "1"));
+      assertThat(legacyStore.getAll()).isNotEmpty();
+    }
+
+    @Test
+    void shouldWriteMarksOfBatchOnClose() throws IOException {
+      try (ProcessedStore.Batch batch = store.batch()) {
+        store.mark("42", ref("changeset", "1"));
+        store.mark("42", ref("changeset", "2"));
+        store.mark("#21", ref("changeset", "2"), "fixed");
+
+        assertThat(store.isProcessed("42", ref("changeset", "2"))).isTrue();
+        assertThat(records()).isZero();
+      }
+
+      assertThat(records()).isEqualTo(3);
+    }
+
+    @Test
+    void shouldWriteWhenLastBatchIsClosed() throws IOException {
+      ProcessedStore.Batch outer = store.batch();
+      try (ProcessedStore.Batch inner = store.batch()) {
+        store.mark("42", ref("changeset", "1"));
+      }
+      assertThat(records()).isZero();
+
+      outer.close();
+      assertThat(records()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldFlushIfTooManyMarksArePending() throws IOException {
+      try (ProcessedStore.Batch batch = store.batch()) {
+        for (int i = 0; i < ProcessedStore.MAX_PENDING_MARKS; i++) {
+          store.mark("42", ref("changeset", String.valueOf(i)));
+        }
+        assertThat(records()).isEqualTo(ProcessedStore.MAX_PENDING_MARKS);
+      }
+    }
+
+    @Test
+    void shouldWriteMarksOutsideOfBatchImmediately() throws IOException {
+      store.mark("42", ref("changeset", "1"));
+
+      assertThat(records()).isEqualTo(1);
+    }
+
+    private ProcessedStore create() {
+      // a new factory does not share the log instances, which is the same as a restart
+      FingerprintLogFactory logFactory = new FingerprintLogFactory(id -> directory.resolve(id));
+      return new ProcessedStore(legacyStore, logFactory.get(repository, "issueTrackerTest"));
+    }
+
+    private long records() throws IOException {
+      Path log;
+      try (var files = Files.walk(directory)) {
+        log = files.filter(Files::isRegularFile).findFirst().orElse(null);
+      }
+      if (log == null) {
+        return 0;
+      }
+      // 8 byte header followed by 8 byte fingerprints
+      return (Files.size(log) - Long.BYTES) / Long.BYTES;
+    }
   }
 
   private IssueReferencingObject ref(String type, String id) {
@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.issuetracker.spi;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RemoteCallGuardTest {
+
+  private final CountDownLatch release = new CountDownLatch(1);
+  private final RemoteCallExecutor executor = new RemoteCallExecutor();
+
+  @AfterEach
+  void releaseBlockedCalls() {
+    release.countDown();
+    executor.close();
+  }
+
+  @Test
+  void shouldReturnResultOfCall() throws IOException {
+    RemoteCallGuard guard = new RemoteCallGuard("redmine", 100, 1, Duration.ofSeconds(5), executor);
+
+    assertThat(guard.call(() -> "Awesome")).isEqualTo("Awesome");
+  }
+
+  @Test
+  void shouldRejectCallsAfterExecutorIsClosed() {
+    RemoteCallGuard guard = new RemoteCallGuard("redmine", 100, 1, Duration.ofSeconds(5), executor);
+    executor.close();
+
+    RemoteCallRejectedException exception = assertThrows(RemoteCallRejectedException.class, () -> guard.call(() -> "Awesome"));
+
+    assertThat(exception.isTimeout()).isFalse();
+  }
+
+  @Test
+  void shouldPassIOExceptionOfCall() {
+    RemoteCallGuard guard = new RemoteCallGuard("redmine", 100, 1, Duration.ofSeconds(5), executor);
+
+    IOException exception = assertThrows(IOException.class, () -> guard.call(() -> {
+      throw new IOException("failed");
+    }));
+
+    assertThat(exception).hasMessage("failed").isNotInstanceOf(RemoteCallRejectedException.class);
+  }
+
+  @Test
+  void shouldPassRuntimeExceptionOfCall() {
+    RemoteCallGuard guard = new RemoteCallGuard("redmine", 100, 1, Duration.ofSeconds(5), executor);
+
+    assertThrows(IllegalStateException.class, () -> guard.call(() -> {
+      throw new IllegalStateException("failed");
+    }));
+  }
+
+  @Test
+  void shouldRejectCallsAboveRateLimit() throws IOException {
+    RemoteCallGuard guard = new RemoteCallGuard("redmine", 0.1, 10, Duration.ofSeconds(5), executor);
+
+    guard.call(() -> "one");
+
+    RemoteCallRejectedException exception = assertThrows(RemoteCallRejectedException.class, () -> guard.call(() -> "two"));
+    assertThat(exception.getIssueTracker()).isEqualTo("redmine");
+    assertThat(exception.getMessage()).contains("rate limit");
+  }
+
+  @Test
+  void shouldRejectCallsAboveConcurrencyLimit() {
+    RemoteCallGuard guard = new RemoteCallGuard("redmine", 100, 1, Duration.ofSeconds(5), executor);
+    CountDownLatch started = new CountDownLatch(1);
+    CompletableFuture<String> blocked = CompletableFuture.supplyAsync(() -> call(guard, started));
+    await().atMost(5, TimeUnit.SECONDS).until(() -> started.getCount() == 0);
+
+    RemoteCallRejectedException exception = assertThrows(RemoteCallRejectedException.class, () -> guard.call(() -> "two"));
+    assertThat(exception.getMessage()).contains("concurrent");
+
+    release.countDown();
+    assertThat(blocked.join()).isEqualTo("one");
+  }
+
+  @Test
+  void shouldWaitForRateLimit() throws IOException {
+    RemoteCallGuard guard = new RemoteCallGuard("redmine", 20, 10, Duration.ofSeconds(5), executor);
+
+    guard.callWaiting(() -> "one");
+
+    assertThat(guard.callWaiting(() -> "two")).isEqualTo("two");
+  }
+
+  @Test
+  void shouldWaitForFreeSlot() throws IOException {
+    RemoteCallGuard guard = new RemoteCallGuard("redmine", 100, 1, Duration.ofSeconds(5), executor);
+    CountDownLatch started = new CountDownLatch(1);
+    CompletableFuture<String> blocked = CompletableFuture.supplyAsync(() -> call(guard, started));
+    await().atMost(5, TimeUnit.SECONDS).until(() -> started.getCount() == 0);
+
+    CompletableFuture.runAsync(release::countDown, CompletableFuture.delayedExecutor(100, TimeUnit.MILLISECONDS));
+
+    assertThat(guard.callWaiting(() -> "two")).isEqualTo("two");
+    assertThat(blocked.join()).isEqualTo("one");
+  }
+
+  @Test
+  void shouldRejectWaitingCallIfNoSlotIsFreedInTime() {
+    RemoteCallGuard guard = new RemoteCallGuard("redmine", 100, 1, Duration.ofMillis(50), executor);
+    CountDownLatch started = new CountDownLatch(1);
+    CompletableFuture.runAsync(() -> callIgnoringTimeout(guard, started));
+    await().atMost(5, TimeUnit.SECONDS).until(() -> started.getCount() == 0);
+
+    RemoteCallRejectedException exception = assertThrows(RemoteCallRejectedException.class, () -> guard.callWaiting(() -> "two"));
+
+    assertThat(exception.getMessage()).contains("concurrent");
+    assertThat(exception.isTimeout()).isFalse();
+  }
+
+  @Test
+  void shouldReleasePermitAfterCall() throws IOException {
+    RemoteCallGuard guard = new RemoteCallGuard("redmine", 100, 1, Duration.ofSeconds(5), executor);
+
+    guard.call(() -> "one");
+    await().atMost(5, TimeUnit.SECONDS).ignoreExceptions().until(() -> "two".equals(guard.call(() -> "two")));
+  }
+
+  @Test
+  void shouldRejectCallsWhichDoNotFinishInTime() {
+    RemoteCallGuard guard = new RemoteCallGuard("redmine", 100, 2, Duration.ofMillis(50), executor);
+
+    RemoteCallRejectedException exception = assertThrows(RemoteCallRejectedException.class, () -> guard.call(() -> {
+      waitFor(release);
+      return "one";
+    }));
+
+    assertThat(exception.getMessage()).contains("not finished");
+  }
+
+  private String call(RemoteCallGuard guard, CountDownLatch started) {
+    try {
+      return guard.call(() -> {
+        started.countDown();
+        waitFor(release);
+        return "one";
+      });
+    } catch (IOException ex) {
+      throw new IllegalStateException(ex);
+    }
+  }
+
+  private void callIgnoringTimeout(RemoteCallGuard guard, CountDownLatch started) {
+    try {
+      call(guard, started);
+    } catch (IllegalStateException ex) {
+      // the call is still running after the timeout and keeps its slot
+    }
+  }
+
+  private void waitFor(CountDownLatch latch) throws IOException {
+    try {
+      latch.await(10, TimeUnit.SECONDS);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new IOException("interrupted", ex);
+    }
+  }
+}
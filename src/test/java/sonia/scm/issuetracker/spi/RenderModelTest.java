@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.issuetracker.spi;
+
+import org.apache.shiro.subject.SimplePrincipalCollection;
+import org.apache.shiro.subject.Subject;
+import org.apache.shiro.util.ThreadContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import sonia.scm.issuetracker.api.IssueReferencingObject;
+import sonia.scm.repository.Person;
+import sonia.scm.user.User;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static sonia.scm.issuetracker.IssueReferencingObjects.content;
+import static sonia.scm.issuetracker.IssueReferencingObjects.ref;
+
+class RenderModelTest {
+
+  @BeforeEach
+  void bindSubject() {
+    ThreadContext.bind(mock(Subject.class));
+  }
+
+  @AfterEach
+  void unbindSubject() {
+    ThreadContext.unbindSubject();
+  }
+
+  @Test
+  void shouldReturnValuesOfObject() {
+    IssueReferencingObject object = ref("changeset", "42");
+    RenderModel model = new RenderModel(object);
+
+    assertThat(model)
+      .containsEntry("type", "changeset")
+      .containsEntry("id", "42")
+      .containsEntry("repository", object.getRepository())
+      .containsEntry("author", object.getAuthor());
+  }
+
+  @Test
+  void shouldReturnContentAsMap() {
+    RenderModel model = new RenderModel(content("Awesome", "Incredible"));
+
+    @SuppressWarnings("unchecked")
+    Map<String, String> content = (Map<String, String>) model.get("content");
+    assertThat(content).containsExactly(Map.entry("c0", "Awesome"), Map.entry("c1", "Incredible"));
+    assertThat(model.get("content")).isSameAs(content);
+  }
+
+  @Test
+  void shouldNotContainUnknownKeys() {
+    RenderModel model = new RenderModel(ref("changeset", "42"));
+
+    assertThat(model.containsKey("unknown")).isFalse();
+    assertThat(model.get("unknown")).isNull();
+    assertThat(model.get(42)).isNull();
+  }
+
+  @Test
+  void shouldNotContainEntriesWithoutValue() {
+    RenderModel model = new RenderModel(ref("changeset", "42"));
+
+    assertThat(model.entrySet()).allSatisfy(entry -> assertThat(entry.getValue()).isNotNull());
+    assertThat(model.size()).isEqualTo(model.entrySet().size());
+  }
+
+  @Test
+  void shouldAddKeyWord() {
+    RenderModel model = new RenderModel(ref("changeset", "42"));
+
+    Map<String, Object> withKeyWord = model.withKeyWord("fixes");
+
+    assertThat(withKeyWord)
+      .containsEntry("keyWord", "fixes")
+      .containsEntry("id", "42")
+      .hasSize(model.size() + 1);
+    assertThat(model).doesNotContainKey("keyWord");
+  }
+
+  @Test
+  void shouldResolvePrincipalOfCurrentSubject() {
+    RenderModel model = new RenderModel(ref("changeset", "42"));
+
+    bind(new User("trillian", "Tricia McMillan", "tricia@hitchhiker.com"));
+    assertThat(model.view().get("principal")).isInstanceOfSatisfying(Person.class,
+      person -> assertThat(person.getName()).isEqualTo("Tricia McMillan")
+    );
+
+    bind(new User("dent", "Arthur Dent", "arthur@hitchhiker.com"));
+    assertThat(model.view().get("principal")).isInstanceOfSatisfying(Person.class,
+      person -> assertThat(person.getName()).isEqualTo("Arthur Dent")
+    );
+    assertThat(model).doesNotContainKey("principal");
+  }
+
+  @Test
+  void shouldResolvePrincipalOncePerView() {
+    RenderModel model = new RenderModel(ref("changeset", "42"));
+    Subject subject = bind(new User("trillian", "Tricia McMillan", "tricia@hitchhiker.com"));
+
+    Map<String, Object> view = model.view();
+    assertThat(view.containsKey("principal")).isTrue();
+    assertThat(view.get("principal")).isNotNull();
+    assertThat(view).containsKey("principal").hasSize(model.size() + 1);
+
+    verify(subject, times(1)).getPrincipals();
+  }
+
+  @Test
+  void shouldBeReadOnly() {
+    RenderModel model = new RenderModel(ref("changeset", "42"));
+
+    assertThrows(UnsupportedOperationException.class, () -> model.put("id", "21"));
+  }
+
+  private Subject bind(User user) {
+    Subject subject = mock(Subject.class);
+    when(subject.getPrincipals()).thenReturn(new SimplePrincipalCollection(user, "test"));
+    ThreadContext.bind(subject);
+    return subject;
+  }
+}
@@ -16,14 +16,24 @@
 
 package sonia.scm.issuetracker.spi;
 
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import sonia.scm.issuetracker.api.IssueComment;
+import sonia.scm.issuetracker.api.IssueCommentResult;
+
 import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -35,9 +45,19 @@ class ResubmittingCommentatorTest {
   @Mock
   private Commentator commentator;
 
-  @InjectMocks
+  private final CircuitBreaker circuitBreaker = new CircuitBreaker(2, Duration.ofMinutes(1));
+
   private ResubmittingCommentator resubmittingCommentator;
 
+  @BeforeEach
+  void setUp() {
+    resubmittingCommentator = create(commentator);
+  }
+
+  private ResubmittingCommentator create(Commentator commentator) {
+    return new ResubmittingCommentator(queue, commentator, "redmine", IssueTrackerMetrics.noop(), circuitBreaker);
+  }
+
   @Test
   void shouldNotAppendOnSuccess() throws IOException {
     resubmittingCommentator.comment("#42", "Awesome");
@@ -61,4 +81,286 @@ class ResubmittingCommentatorTest {
     verify(commentator).comment("#42", "Awesome");
   }
 
+  @Test
+  void shouldCommentOneByOneWithoutBatchCommentator() throws IOException {
+    lenient().doThrow(new IOException("failed!")).when(commentator).comment("#21", "Incredible");
+
+    resubmittingCommentator.commentAll(List.of(
+      new IssueComment("#42", "Awesome"), new IssueComment("#21", "Incredible")
+    ));
+
+    verify(commentator).comment("#42", "Awesome");
+    verify(queue).append("#21", "Incredible");
+    verifyNoMoreInteractions(queue);
+  }
+
+  @Test
+  void shouldQueueCommentWhichIsAddedAfterTimeout() throws IOException {
+    // documents the duplicate: the call is too slow, but the issue tracker adds the comment anyway
+    CountDownLatch added = new CountDownLatch(1);
+    doAnswer(invocation -> {
+      Thread.sleep(200);
+      added.countDown();
+      return null;
+    }).when(commentator).comment("#42", "Awesome");
+    RemoteCallExecutor executor = new RemoteCallExecutor();
+    try {
+      RemoteCallGuard guard = new RemoteCallGuard("redmine", 100, 1, Duration.ofMillis(50), executor);
+      create(GuardedCommentator.guard(commentator, guard)).comment("#42", "Awesome");
+
+      verify(queue).append("#42", "Awesome");
+      await().atMost(5, TimeUnit.SECONDS).until(() -> added.getCount() == 0);
+    } finally {
+      executor.close();
+    }
+  }
+
+  @Nested
+  class WithCircuitBreaker {
+
+    @Test
+    void shouldQueueWithoutCallWhileOpen() throws IOException {
+      doThrow(new IOException("failed!")).when(commentator).comment(anyString(), anyString());
+
+      resubmittingCommentator.comment("#1", "One");
+      resubmittingCommentator.comment("#2", "Two");
+      resubmittingCommentator.comment("#3", "Three");
+
+      assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+      verify(commentator, never()).comment("#3", "Three");
+      verify(queue).append("#3", "Three");
+    }
+
+    @Test
+    void shouldResetFailuresOnSuccess() throws IOException {
+      lenient().doThrow(new IOException("failed!")).when(commentator).comment("#1", "One");
+
+      resubmittingCommentator.comment("#1", "One");
+      resubmittingCommentator.comment("#2", "Two");
+      resubmittingCommentator.comment("#1", "One");
+
+      assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void shouldStopCallsWithinCommentAll() throws IOException {
+      doThrow(new IOException("failed!")).when(commentator).comment(anyString(), anyString());
+
+      resubmittingCommentator.commentAll(List.of(
+        new IssueComment("#1", "One"), new IssueComment("#2", "Two"), new IssueComment("#3", "Three")
+      ));
+
+      verify(commentator, times(2)).comment(anyString(), anyString());
+      verify(queue).append("#1", "One");
+      verify(queue).append("#2", "Two");
+      verify(queue).append("#3", "Three");
+    }
+
+    @Test
+    void shouldNotCountLocalRejections() throws IOException {
+      doThrow(new RemoteCallRejectedException("redmine", "rate limit exceeded")).when(commentator).comment(anyString(), anyString());
+
+      resubmittingCommentator.comment("#1", "One");
+      resubmittingCommentator.comment("#2", "Two");
+      resubmittingCommentator.comment("#3", "Three");
+
+      assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+      verify(commentator).comment("#3", "Three");
+      verify(queue).append("#3", "Three");
+    }
+
+    @Test
+    void shouldCountTimeouts() throws IOException {
+      doThrow(new RemoteCallRejectedException("redmine", "call has not finished", true)).when(commentator).comment(anyString(), anyString());
+
+      resubmittingCommentator.comment("#1", "One");
+      resubmittingCommentator.comment("#2", "Two");
+
+      assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    void shouldQueueCommentOnRuntimeException() throws IOException {
+      lenient().doThrow(new IllegalStateException("failed!")).when(commentator).comment("#1", "One");
+
+      resubmittingCommentator.commentAll(List.of(new IssueComment("#1", "One"), new IssueComment("#2", "Two")));
+
+      verify(queue).append("#1", "One");
+      verify(commentator).comment("#2", "Two");
+    }
+
+    @Test
+    void shouldFinishTrialOnRuntimeException() throws IOException {
+      ResubmittingCommentator halfOpen = halfOpenCommentator();
+      lenient().doThrow(new IllegalStateException("failed!")).when(commentator).comment("#1", "One");
+
+      halfOpen.comment("#1", "One");
+      halfOpen.comment("#2", "Two");
+
+      verify(queue).append("#1", "One");
+      verify(commentator).comment("#2", "Two");
+    }
+
+    @Test
+    void shouldReleaseTrialOnLocalRejection() throws IOException {
+      ResubmittingCommentator halfOpen = halfOpenCommentator();
+      lenient().doThrow(new RemoteCallRejectedException("redmine", "too many concurrent calls")).when(commentator).comment("#1", "One");
+
+      halfOpen.comment("#1", "One");
+      halfOpen.comment("#2", "Two");
+
+      verify(commentator).comment("#2", "Two");
+    }
+
+    private ResubmittingCommentator halfOpenCommentator() {
+      // the breaker is half open immediately after it was opened
+      CircuitBreaker halfOpen = new CircuitBreaker(1, Duration.ZERO);
+      halfOpen.recordFailure();
+      return new ResubmittingCommentator(queue, commentator, "redmine", IssueTrackerMetrics.noop(), halfOpen);
+    }
+
+    @Test
+    void shouldCloseOnSuccessfulResubmit() throws IOException {
+      circuitBreaker.recordFailure();
+      circuitBreaker.recordFailure();
+
+      resubmittingCommentator.resubmit("#42", "Awesome");
+
+      verify(commentator).comment("#42", "Awesome");
+      assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void shouldRecordFailedResubmit() throws IOException {
+      doThrow(new IOException("failed!")).when(commentator).comment(anyString(), anyString());
+
+      resubmittingCommentator.resubmitAll(List.of(new IssueComment("#1", "One"), new IssueComment("#2", "Two")));
+
+      assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+      verifyNoInteractions(queue);
+    }
+  }
+
+  @Nested
+  class WithBatchCommentator {
+
+    @Mock
+    private BatchCommentator batchCommentator;
+
+    private ResubmittingCommentator batchResubmittingCommentator;
+
+    private final IssueComment one = new IssueComment("#42", "Awesome");
+    private final IssueComment two = new IssueComment("#21", "Incredible");
+
+    @BeforeEach
+    void setUpCommentator() {
+      batchResubmittingCommentator = create(batchCommentator);
+    }
+
+    @Test
+    void shouldSendAllCommentsAtOnce() throws IOException {
+      List<IssueComment> comments = List.of(one, two);
+      when(batchCommentator.comment(comments)).thenReturn(List.of(
+        IssueCommentResult.success(one), IssueCommentResult.success(two)
+      ));
+
+      batchResubmittingCommentator.commentAll(comments);
+
+      verify(batchCommentator, never()).comment(anyString(), anyString());
+      verifyNoInteractions(queue);
+    }
+
+    @Test
+    void shouldQueueFailedItems() throws IOException {
+      List<IssueComment> comments = List.of(one, two);
+      when(batchCommentator.comment(comments)).thenReturn(List.of(
+        IssueCommentResult.success(one), IssueCommentResult.failure(two, new IOException("failed!"))
+      ));
+
+      batchResubmittingCommentator.commentAll(comments);
+
+      verify(queue).append("#21", "Incredible");
+      verifyNoMoreInteractions(queue);
+    }
+
+    @Test
+    void shouldQueueAllIfBatchFails() throws IOException {
+      List<IssueComment> comments = List.of(one, two);
+      when(batchCommentator.comment(comments)).thenThrow(new IOException("failed!"));
+
+      batchResubmittingCommentator.commentAll(comments);
+
+      verify(queue).append("#42", "Awesome");
+      verify(queue).append("#21", "Incredible");
+    }
+
+    @Test
+    void shouldQueueItemsWithoutResult() throws IOException {
+      List<IssueComment> comments = List.of(one, two);
+      when(batchCommentator.comment(comments)).thenReturn(List.of(IssueCommentResult.success(one)));
+
+      batchResubmittingCommentator.commentAll(comments);
+
+      verify(queue).append("#21", "Incredible");
+      verifyNoMoreInteractions(queue);
+    }
+
+    @Test
+    void shouldQueueBatchWithoutCallWhileOpen() throws IOException {
+      circuitBreaker.recordFailure();
+      circuitBreaker.recordFailure();
+
+      batchResubmittingCommentator.commentAll(List.of(one, two));
+
+      verify(batchCommentator, never()).comment(anyCollection());
+      verify(queue).append("#42", "Awesome");
+      verify(queue).append("#21", "Incredible");
+    }
+
+    @Test
+    void shouldQueueBatchOnRuntimeException() throws IOException {
+      List<IssueComment> comments = List.of(one, two);
+      when(batchCommentator.comment(comments)).thenThrow(new IllegalStateException("failed!"));
+
+      batchResubmittingCommentator.commentAll(comments);
+
+      verify(queue).append("#42", "Awesome");
+      verify(queue).append("#21", "Incredible");
+    }
+
+    @Test
+    void shouldNotCountLocallyRejectedBatch() throws IOException {
+      List<IssueComment> comments = List.of(one, two);
+      when(batchCommentator.comment(comments)).thenThrow(new RemoteCallRejectedException("redmine", "rate limit exceeded"));
+
+      batchResubmittingCommentator.commentAll(comments);
+      batchResubmittingCommentator.commentAll(comments);
+
+      assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void shouldCountFailedBatchAsSingleFailure() throws IOException {
+      List<IssueComment> comments = List.of(one, two);
+      when(batchCommentator.comment(comments)).thenThrow(new IOException("failed!"));
+
+      batchResubmittingCommentator.commentAll(comments);
+
+      assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void shouldResubmitAllAtOnce() throws IOException {
+      List<IssueComment> comments = List.of(one, two);
+      when(batchCommentator.comment(comments)).thenReturn(List.of(
+        IssueCommentResult.success(one), IssueCommentResult.failure(two, new IOException("failed!"))
+      ));
+
+      List<IssueCommentResult> results = batchResubmittingCommentator.resubmitAll(comments);
+
+      assertThat(results).extracting(IssueCommentResult::isSuccess).containsExactly(true, false);
+      verifyNoInteractions(queue);
+    }
+  }
+
 }
@@ -16,6 +16,7 @@
 
 package sonia.scm.issuetracker.spi;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.apache.shiro.subject.Subject;
 import org.apache.shiro.util.ThreadContext;
 import org.junit.jupiter.api.AfterEach;
@@ -26,6 +27,8 @@ import org.mockito.Answers;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.SCMContextProvider;
+import sonia.scm.Stage;
 import sonia.scm.issuetracker.api.IssueReferencingObject;
 import sonia.scm.repository.Person;
 import sonia.scm.template.Template;
@@ -36,6 +39,7 @@ import sonia.scm.user.UserTestData;
 
 import java.io.IOException;
 import java.io.Writer;
+import java.util.List;
 import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -60,6 +64,9 @@ class TemplateCommentRendererTest {
   @Mock(answer = Answers.RETURNS_DEEP_STUBS)
   private Subject subject;
 
+  @Mock
+  private SCMContextProvider contextProvider;
+
   @BeforeEach
   void setUpSubject() {
     ThreadContext.bind(subject);
@@ -110,6 +117,26 @@ class TemplateCommentRendererTest {
     assertThat(comment).isEqualTo("pr is resolved");
   }
 
+  @Test
+  @SuppressWarnings("unchecked")
+  void shouldRenderAggregatedTemplate() throws IOException {
+    when(engineFactory.getEngineByExtension("/tpls/push.mustache")).thenReturn(engine);
+    when(engine.getTemplate("/tpls/push.mustache")).thenReturn(template);
+    doAnswer(ic -> {
+      Writer writer = ic.getArgument(0);
+      Map<String, Object> model = ic.getArgument(1);
+      List<Map<String, Object>> objects = (List<Map<String, Object>>) model.get("objects");
+      writer.write(String.format("%s: %s %s, %s", model.get("issueKey"), model.get("count"), objects.get(0).get("id"), objects.get(1).get("id")));
+      return null;
+    }).when(template).execute(any(Writer.class), any(Map.class));
+
+    TemplateCommentRendererFactory factory = new TemplateCommentRendererFactory(engineFactory);
+    AggregatedCommentRenderer renderer = (AggregatedCommentRenderer) factory.reference("/tpls/{0}.mustache");
+    String comment = renderer.render("#42", List.of(ref("changeset", "1"), ref("changeset", "2")));
+
+    assertThat(comment).isEqualTo("#42: 2 1, 2");
+  }
+
   @Test
   void shouldThrowTemplateNotFoundException() {
     when(engineFactory.getEngineByExtension("/tpls/pr.mustache")).thenReturn(engine);
@@ -132,6 +159,150 @@ class TemplateCommentRendererTest {
     assertThat(exception.getTemplatePath()).isEqualTo("/tpls/pr.mustache");
   }
 
+  @Test
+  void shouldResolveTemplateOnlyOnce() throws IOException {
+    when(engineFactory.getEngineByExtension("/tpls/changeset.mustache")).thenReturn(engine);
+    when(engine.getTemplate("/tpls/changeset.mustache")).thenReturn(template);
+
+    TemplateCommentRendererFactory factory = new TemplateCommentRendererFactory(engineFactory);
+    factory.reference("/tpls/{0}.mustache").render(ref("changeset", "1"));
+    factory.stateChange("/tpls/{0}.mustache").render(ref("changeset", "2"), "fixes");
+
+    verify(engine, times(1)).getTemplate("/tpls/changeset.mustache");
+    verify(template, times(2)).execute(any(Writer.class), any(Map.class));
+  }
+
+  @Test
+  void shouldReuseRendererForSamePathTemplate() {
+    TemplateCommentRendererFactory factory = new TemplateCommentRendererFactory(engineFactory);
+
+    assertThat(factory.reference("/tpls/{0}.mustache")).isSameAs(factory.stateChange("/tpls/{0}.mustache"));
+    assertThat(factory.reference("/tpls/{0}.mustache")).isNotSameAs(factory.reference("/other/{0}.mustache"));
+  }
+
+  @Test
+  void shouldNotCacheMissingTemplates() throws IOException {
+    when(engineFactory.getEngineByExtension("/tpls/pr.mustache")).thenReturn(engine);
+    when(engine.getTemplate("/tpls/pr.mustache")).thenReturn(null, template);
+
+    TemplateCommentRendererFactory factory = new TemplateCommentRendererFactory(engineFactory);
+    ReferenceCommentRenderer renderer = factory.reference("/tpls/{0}.mustache");
+    IssueReferencingObject ref = ref("pr", "42");
+
+    assertThrows(TemplateNotFoundException.class, () -> renderer.render(ref));
+    renderer.render(ref);
+
+    verify(template).execute(any(Writer.class), any(Map.class));
+  }
+
+  @Test
+  void shouldBypassCacheInDevelopmentStage() throws IOException {
+    when(contextProvider.getStage()).thenReturn(Stage.DEVELOPMENT);
+    when(engineFactory.getEngineByExtension("/tpls/changeset.mustache")).thenReturn(engine);
+    when(engine.getTemplate("/tpls/changeset.mustache")).thenReturn(template);
+
+    TemplateCommentRendererFactory factory = new TemplateCommentRendererFactory(engineFactory, contextProvider, new SimpleMeterRegistry());
+    ReferenceCommentRenderer renderer = factory.reference("/tpls/{0}.mustache");
+    renderer.render(ref("changeset", "1"));
+    renderer.render(ref("changeset", "2"));
+
+    verify(engine, times(2)).getTemplate("/tpls/changeset.mustache");
+  }
+
+  @Test
+  void shouldCountHitsAndMisses() throws IOException {
+    when(contextProvider.getStage()).thenReturn(Stage.PRODUCTION);
+    when(engineFactory.getEngineByExtension("/tpls/changeset.mustache")).thenReturn(engine);
+    when(engine.getTemplate("/tpls/changeset.mustache")).thenReturn(template);
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    TemplateCommentRendererFactory factory = new TemplateCommentRendererFactory(engineFactory, contextProvider, meterRegistry);
+    ReferenceCommentRenderer renderer = factory.reference("/tpls/{0}.mustache");
+    renderer.render(ref("changeset", "1"));
+    renderer.render(ref("changeset", "2"));
+    renderer.render(ref("changeset", "3"));
+
+    assertThat(gets(meterRegistry, "hit")).isEqualTo(2);
+    assertThat(gets(meterRegistry, "miss")).isEqualTo(1);
+  }
+
+  private double gets(SimpleMeterRegistry meterRegistry, String result) {
+    return meterRegistry.get("cache.gets")
+      .tag("cache", TemplateCache.METRIC_NAME)
+      .tag("result", result)
+      .functionCounter()
+      .count();
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void shouldShareModelForSameObject() throws IOException {
+    when(engineFactory.getEngineByExtension("/tpls/unit-test.mustache")).thenReturn(engine);
+    when(engine.getTemplate("/tpls/unit-test.mustache")).thenReturn(template);
+
+    IssueReferencingObject ref = content("Awesome");
+    TemplateCommentRendererFactory factory = new TemplateCommentRendererFactory(engineFactory);
+    factory.reference("/tpls/{0}.mustache").render(ref);
+    factory.reference("/tpls/{0}.mustache").render(ref);
+    factory.stateChange("/tpls/{0}.mustache").render(ref, "fixes");
+
+    ArgumentCaptor<Map<String, Object>> captor = ArgumentCaptor.forClass(Map.class);
+    verify(template, times(3)).execute(any(), captor.capture());
+    List<Map<String, Object>> models = captor.getAllValues();
+    assertThat(models.get(0)).isNotSameAs(models.get(1));
+    assertThat(models.get(0).get("content")).isSameAs(models.get(1).get("content"));
+    assertThat(models.get(2).get("content")).isSameAs(models.get(0).get("content"));
+    assertThat(models.get(2))
+      .containsEntry("keyWord", "fixes")
+      .containsEntry("id", "42");
+    assertThat(models.get(0)).doesNotContainKey("keyWord");
+  }
+
+  @Test
+  void shouldResolvePrincipalOncePerRender() throws IOException {
+    when(subject.getPrincipals().oneByType(User.class)).thenReturn(UserTestData.createTrillian());
+    clearInvocations(subject);
+
+    when(engineFactory.getEngineByExtension("/tpls/changeset.mustache")).thenReturn(engine);
+    when(engine.getTemplate("/tpls/changeset.mustache")).thenReturn(template);
+    doAnswer(ic -> {
+      Map<String, Object> model = ic.getArgument(1);
+      Writer writer = ic.getArgument(0);
+      if (model.containsKey("principal")) {
+        writer.write(((Person) model.get("principal")).getName());
+      }
+      writer.write(" " + model.entrySet().size());
+      return null;
+    }).when(template).execute(any(Writer.class), any(Map.class));
+
+    TemplateCommentRendererFactory factory = new TemplateCommentRendererFactory(engineFactory);
+    ReferenceCommentRenderer renderer = factory.reference("/tpls/{0}.mustache");
+    IssueReferencingObject ref = ref("changeset", "42");
+    renderer.render(ref);
+    verify(subject, times(1)).getPrincipals();
+
+    String comment = renderer.render(ref);
+    assertThat(comment).startsWith("Tricia McMillan ");
+    verify(subject, times(2)).getPrincipals();
+  }
+
+  @Test
+  void shouldNotResolvePrincipalIfTemplateDoesNotUseIt() throws IOException {
+    when(engineFactory.getEngineByExtension("/tpls/changeset.mustache")).thenReturn(engine);
+    when(engine.getTemplate("/tpls/changeset.mustache")).thenReturn(template);
+    doAnswer(ic -> {
+      Map<String, Object> model = ic.getArgument(1);
+      Writer writer = ic.getArgument(0);
+      writer.write(String.valueOf(model.get("id")));
+      return null;
+    }).when(template).execute(any(Writer.class), any(Map.class));
+
+    TemplateCommentRendererFactory factory = new TemplateCommentRendererFactory(engineFactory);
+    String comment = factory.reference("/tpls/{0}.mustache").render(ref("changeset", "42"));
+
+    assertThat(comment).isEqualTo("42");
+    verify(subject, never()).getPrincipals();
+  }
 
   @Test
   @SuppressWarnings("unchecked")